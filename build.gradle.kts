@@ -4,6 +4,7 @@ plugins {
     id("eclipse")
     id("maven-publish")
     id("net.neoforged.moddev") version "2.0.42-beta"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 val modId = "storyteller"
@@ -49,7 +50,27 @@ dependencies {
 }
 
 tasks.test {
-    useJUnitPlatform()
+    useJUnitPlatform {
+        excludeTags("load")
+    }
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+}
+
+// Capacity runs against the mock LLM server: ./gradlew loadTest -Dload.players=64
+tasks.register<Test>("loadTest") {
+    description = "Runs the load harness against the mock LLM server."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("load")
+    }
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+    systemProperties(System.getProperties().filterKeys { it.toString().startsWith("load.") }.mapKeys { it.key.toString() })
+    testLogging {
+        showStandardStreams = true
+    }
+    shouldRunAfter(tasks.test)
 }
 
 neoForge {
@@ -65,12 +86,14 @@ neoForge {
             client()
             gameDirectory.set(file("run"))
             programArguments.addAll("--username", "Dev", "--uuid", "00000000-0000-0000-0000-000000000000")
+            jvmArguments.addAll("--add-modules", "jdk.incubator.vector")
         }
 
         create("server") {
             server()
             gameDirectory.set(file("run-server"))
             programArgument("--nogui")
+            jvmArguments.addAll("--add-modules", "jdk.incubator.vector")
         }
     }
     
@@ -79,10 +102,26 @@ neoForge {
             sourceSet(sourceSets.main.get())
         }
     }
+
+    // Benchmarks touch classes that reference Minecraft types
+    addModdingDependenciesTo(sourceSets["jmh"])
+}
+
+// Hot-path benchmarks in src/jmh: ./gradlew jmh, or ./gradlew jmh -Pjmh.includes=KnowledgeBase
+jmh {
+    jmhVersion.set("1.37")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+    jvmArgsAppend.addAll("--add-modules", "jdk.incubator.vector")
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.add(it) }
 }
 
 tasks.withType<JavaCompile> {
     options.encoding = "UTF-8"
+    // Local inference uses the incubating Vector API (scalar fallback when the module is absent at runtime)
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
 }
 
 tasks.withType<Jar> {
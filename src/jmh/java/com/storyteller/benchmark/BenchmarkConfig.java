@@ -0,0 +1,40 @@
+package com.storyteller.benchmark;
+
+import com.electronwill.nightconfig.core.CommentedConfig;
+import com.storyteller.config.ModConfig;
+import net.neoforged.fml.config.IConfigSpec;
+
+import java.util.Map;
+
+/**
+ * Loads {@link ModConfig#SPEC} from memory so benchmarks can run code that reads {@code ModConfig.COMMON}
+ */
+public final class BenchmarkConfig {
+
+    private BenchmarkConfig() {}
+
+    public static void load() {
+        load(Map.of());
+    }
+
+    /**
+     * @param overrides Dotted config paths as in the TOML file, e.g. {@code "npc.maxConversationHistory"}
+     */
+    public static void load(Map<String, Object> overrides) {
+        CommentedConfig config = CommentedConfig.inMemory();
+        ModConfig.SPEC.correct(config); // Fills in every default
+        overrides.forEach(config::set);
+
+        ModConfig.SPEC.acceptConfig(new IConfigSpec.ILoadedConfig() {
+            @Override
+            public CommentedConfig config() {
+                return config;
+            }
+
+            @Override
+            public void save() {
+                // Nothing to save to
+            }
+        });
+    }
+}
@@ -0,0 +1,176 @@
+package com.storyteller.llm.providers;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.storyteller.llm.GenerationProfile;
+import com.storyteller.llm.LLMProvider.ChatMessage;
+import com.storyteller.llm.SystemPrompt;
+import com.storyteller.npc.NPCCharacter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON work per request in each provider: building and serializing the request body,
+ * and parsing a complete reply or a streamed one line by line.
+ *
+ * The *Tree benchmarks are the Gson tree approach the providers used before JsonCodec,
+ * kept as a baseline; run with {@code -prof gc} to compare allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProviderJsonBenchmark {
+
+    private static final Gson GSON = new Gson();
+    private static final int REPLY_TOKENS = 60;
+    private static final GenerationProfile PROFILE = new GenerationProfile(150, 2, List.of("\nPlayer:", "\nYou:"));
+
+    @Param({"ollama", "claude", "openai"})
+    public String provider;
+
+    @Param({"5", "20", "100"})
+    public int messages;
+
+    private OllamaProvider ollama;
+    private ClaudeProvider claude;
+    private OpenAIProvider openai;
+    private SystemPrompt systemPrompt;
+    private List<ChatMessage> history;
+    private String response;
+    private byte[] responseBytes;
+    private List<String> streamLines;
+
+    @Setup
+    public void setup() {
+        ollama = new OllamaProvider(Runnable::run);
+        claude = new ClaudeProvider();
+        openai = new OpenAIProvider(Runnable::run);
+
+        systemPrompt = new SystemPrompt()
+            .addStatic("character", NPCCharacter.createDefault().generateCharacterPrompt())
+            .addDynamic("world", "## Current World State\n- Location: Plains biome in Overworld\n- Time: evening\n");
+        history = new ArrayList<>();
+        for (int i = 0; i < messages; i++) {
+            history.add(i % 2 == 0
+                ? new ChatMessage(ChatMessage.Role.USER, "What do you know about the ruins past the river? " + i)
+                : new ChatMessage(ChatMessage.Role.ASSISTANT, "Old stones, older secrets. Few who go there come back unchanged. " + i));
+        }
+
+        String reply = "Beware the shadows of the old mine, traveler, for they hide more than darkness.";
+        response = switch (provider) {
+            case "ollama" -> "{\"model\":\"llama3\",\"message\":{\"role\":\"assistant\",\"content\":" + GSON.toJson(reply) + "},\"done\":true}";
+            case "claude" -> "{\"type\":\"message\",\"role\":\"assistant\",\"content\":[{\"type\":\"text\",\"text\":" + GSON.toJson(reply) + "}]}";
+            default -> "{\"object\":\"chat.completion\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":" + GSON.toJson(reply) + "}}]}";
+        };
+
+        responseBytes = response.getBytes(StandardCharsets.UTF_8);
+
+        streamLines = new ArrayList<>();
+        for (int i = 0; i < REPLY_TOKENS; i++) {
+            String token = GSON.toJson(" word" + i);
+            streamLines.add(switch (provider) {
+                case "ollama" -> "{\"model\":\"llama3\",\"message\":{\"role\":\"assistant\",\"content\":" + token + "},\"done\":false}";
+                case "claude" -> "data: {\"type\":\"content_block_delta\",\"index\":0,\"delta\":{\"type\":\"text_delta\",\"text\":" + token + "}}";
+                default -> "data: {\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,\"delta\":{\"content\":" + token + "}}]}";
+            });
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeRequest() {
+        return switch (provider) {
+            case "ollama" -> ollama.buildChatRequest(systemPrompt.getText(), history, "llama3", true, PROFILE);
+            case "claude" -> claude.buildChatRequest(systemPrompt, history, "claude", true, PROFILE);
+            default -> openai.buildChatRequest(systemPrompt.getText(), history, "gpt-4o", true, PROFILE);
+        };
+    }
+
+    /**
+     * Same body shape as {@link #serializeRequest()} (the Claude system blocks aside), as a tree
+     * converted to a String and then to the bytes sent
+     */
+    @Benchmark
+    public byte[] serializeRequestTree() {
+        JsonObject body = new JsonObject();
+        body.addProperty("model", "model");
+        body.addProperty("max_tokens", PROFILE.maxTokens());
+        body.addProperty("stream", true);
+        JsonArray stop = new JsonArray();
+        PROFILE.stopSequences().forEach(stop::add);
+        body.add("stop", stop);
+
+        JsonArray messagesArray = new JsonArray();
+        JsonObject system = new JsonObject();
+        system.addProperty("role", "system");
+        system.addProperty("content", systemPrompt.getText());
+        messagesArray.add(system);
+        for (ChatMessage msg : history) {
+            JsonObject message = new JsonObject();
+            message.addProperty("role", msg.role() == ChatMessage.Role.USER ? "user" : "assistant");
+            message.addProperty("content", msg.content());
+            messagesArray.add(message);
+        }
+        body.add("messages", messagesArray);
+        return GSON.toJson(body).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The reply field read straight from the response bytes, as {@link JsonCodec#field} does
+     */
+    @Benchmark
+    public String parseResponse() {
+        return switch (provider) {
+            case "ollama" -> JsonCodec.read(responseBytes, "message", "content");
+            case "claude" -> JsonCodec.read(responseBytes, "content", "text");
+            default -> JsonCodec.read(responseBytes, "choices", "message", "content");
+        };
+    }
+
+    @Benchmark
+    public String parseResponseTree() {
+        JsonObject json = GSON.fromJson(new String(responseBytes, StandardCharsets.UTF_8), JsonObject.class);
+        return switch (provider) {
+            case "ollama" -> json.getAsJsonObject("message").get("content").getAsString();
+            case "claude" -> json.getAsJsonArray("content").get(0).getAsJsonObject().get("text").getAsString();
+            default -> json.getAsJsonArray("choices").get(0).getAsJsonObject()
+                .getAsJsonObject("message").get("content").getAsString();
+        };
+    }
+
+    /**
+     * A whole streamed reply, parsed the way the providers' line handlers do
+     */
+    @Benchmark
+    public void parseStream(Blackhole blackhole) {
+        for (String line : streamLines) {
+            String data = line.startsWith("data:") ? line.substring(5).trim() : line;
+            String token = switch (provider) {
+                case "ollama" -> JsonCodec.read(data, "message", "content");
+                case "claude" -> JsonCodec.read(data, "delta", "text");
+                default -> JsonCodec.read(data, "choices", "delta", "content");
+            };
+            blackhole.consume(token);
+        }
+    }
+
+    @Benchmark
+    public void parseStreamTree(Blackhole blackhole) {
+        for (String line : streamLines) {
+            String data = line.startsWith("data:") ? line.substring(5).trim() : line;
+            JsonObject chunk = GSON.fromJson(data, JsonObject.class);
+            String token = switch (provider) {
+                case "ollama" -> chunk.getAsJsonObject("message").get("content").getAsString();
+                case "claude" -> chunk.getAsJsonObject("delta").get("text").getAsString();
+                default -> chunk.getAsJsonArray("choices").get(0).getAsJsonObject()
+                    .getAsJsonObject("delta").get("content").getAsString();
+            };
+            blackhole.consume(token);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.storyteller.npc;
+
+import com.storyteller.benchmark.BenchmarkConfig;
+import com.storyteller.llm.LLMProvider.ChatMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording a turn and summarizing a conversation, with histories of increasing length
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConversationHistoryBenchmark {
+
+    @Param({"5", "20", "50", "100"})
+    public int messages;
+
+    private final UUID npcId = UUID.randomUUID();
+    private final UUID playerId = UUID.randomUUID();
+    private ChatMessage userMessage;
+    private ChatMessage assistantMessage;
+
+    @Setup
+    public void setup() {
+        // History is trimmed to this size, so every addMessage below runs at a full history
+        BenchmarkConfig.load(Map.of("npc.maxConversationHistory", messages));
+        userMessage = new ChatMessage(ChatMessage.Role.USER,
+            "Have you seen any strange creatures around here lately? The villagers seem scared.");
+        assistantMessage = new ChatMessage(ChatMessage.Role.ASSISTANT,
+            "Aye, shadows move in the old mine after dark. Bring a torch and a sharp blade if you go.");
+
+        ConversationHistory.clearHistory(npcId, playerId);
+        for (int i = 0; i < messages; i++) {
+            ConversationHistory.addMessage(npcId, playerId, i % 2 == 0 ? userMessage : assistantMessage);
+        }
+        ConversationHistory.incrementConversationCount(npcId, playerId);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ConversationHistory.clearHistory(npcId, playerId);
+    }
+
+    @Benchmark
+    public void addMessage() {
+        ConversationHistory.addMessage(npcId, playerId, userMessage);
+        ConversationHistory.addMessage(npcId, playerId, assistantMessage);
+    }
+
+    @Benchmark
+    public String buildConversationSummary() {
+        return ConversationHistory.buildConversationSummary(npcId, playerId);
+    }
+}
@@ -0,0 +1,42 @@
+package com.storyteller.npc;
+
+import com.storyteller.benchmark.BenchmarkConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the character and world sections of the system prompt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PromptBenchmark {
+
+    private NPCCharacter character;
+    private WorldContext worldContext;
+
+    @Setup
+    public void setup() {
+        BenchmarkConfig.load();
+        character = NPCCharacter.createDefault();
+        worldContext = WorldContext.of("Dark Forest", "evening", "rain", "Overworld",
+            List.of("Village", "Ruined Portal"), "Steve", 10, 5, "Iron Sword", "Torch");
+    }
+
+    @Benchmark
+    public String generateSystemPrompt() {
+        return character.generateSystemPrompt(worldContext);
+    }
+
+    @Benchmark
+    public String generateCharacterPrompt() {
+        return character.generateCharacterPrompt();
+    }
+
+    @Benchmark
+    public String worldContextToPromptString() {
+        return worldContext.toPromptString();
+    }
+}
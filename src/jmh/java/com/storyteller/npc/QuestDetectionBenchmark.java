@@ -0,0 +1,37 @@
+package com.storyteller.npc;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanning an NPC reply for quests; runs on every reply
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QuestDetectionBenchmark {
+
+    @Param({"none", "quest", "long"})
+    public String reply;
+
+    private final UUID npcId = UUID.randomUUID();
+    private String text;
+
+    @Setup
+    public void setup() {
+        text = switch (reply) {
+            case "none" -> "Greetings, traveler. The road has been quiet since the storm passed.";
+            case "quest" -> "If you bring me 5 iron ingots and slay 3 zombies near the mine, I will reward you well!";
+            default -> ("The old king ruled these lands for forty winters, and his castle still stands on the hill. "
+                + "Some say his crown lies in the ruins beneath it, guarded by things best left alone. ").repeat(8);
+        };
+    }
+
+    @Benchmark
+    public List<QuestManager.Quest> detectQuests() {
+        return QuestManager.detectQuests(npcId, text);
+    }
+}
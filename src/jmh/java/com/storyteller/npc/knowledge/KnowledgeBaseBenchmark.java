@@ -0,0 +1,72 @@
+package com.storyteller.npc.knowledge;
+
+import com.storyteller.benchmark.BenchmarkConfig;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Knowledge retrieval for one player message, over knowledge bases of increasing size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KnowledgeBaseBenchmark {
+
+    static final String[] TOPICS = {
+        "castle", "king", "dragon", "village", "mine", "ruins", "forest", "river", "temple", "wizard",
+        "sword", "potion", "diamond", "nether", "portal", "witch", "pillager", "library", "harbor", "tower",
+        "crown", "curse", "festival", "blacksmith", "merchant", "treasure", "map", "skeleton", "mountain", "desert"
+    };
+
+    static final String[] QUERIES = {
+        "Do you know anything about the ruins to the north?",
+        "Tell me about the old king and his castle.",
+        "Where can I find diamonds?",
+        "Hello!",
+        "Is there a dragon in the mountain tower? The villagers say the blacksmith saw it.",
+        "What happened at the festival last year?"
+    };
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int entries;
+
+    private KnowledgeBase knowledgeBase;
+    private int next;
+
+    @Setup
+    public void setup() {
+        BenchmarkConfig.load();
+        knowledgeBase = new KnowledgeBase("benchmark", generateEntries(entries, new Random(42)));
+    }
+
+    /**
+     * Entries with 3-5 keywords each, mixing shared topics with entry-specific names
+     */
+    static List<KnowledgeEntry> generateEntries(int count, Random random) {
+        List<KnowledgeEntry> generated = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<String> keywords = new ArrayList<>();
+            int keywordCount = 3 + random.nextInt(3);
+            for (int k = 0; k < keywordCount - 1; k++) {
+                keywords.add(TOPICS[random.nextInt(TOPICS.length)]);
+            }
+            keywords.add("place" + i);
+            String content = "The " + keywords.get(0) + " near " + keywords.get(1)
+                + " has a long history that the locals rarely speak of. Entry " + i + ".";
+            generated.add(new KnowledgeEntry("entry-" + i, i % 3 == 0 ? "lore" : "locations",
+                keywords, content, 1 + random.nextInt(10)));
+        }
+        return generated;
+    }
+
+    @Benchmark
+    public void retrieve(Blackhole blackhole) {
+        String query = QUERIES[next++ % QUERIES.length];
+        blackhole.consume(knowledgeBase.retrieve(query, 3));
+    }
+}
@@ -0,0 +1,72 @@
+package com.storyteller.npc.knowledge;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning a player message into index terms: the previous lowercase, regex and split
+ * version against the tokenizer looking words up straight from its buffer.
+ * Run with {@code -prof gc} to compare allocation per message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenizerBenchmark {
+
+    private final Tokenizer tokenizer = new Tokenizer();
+    private TermDictionary terms;
+    private final Map<String, Integer> termsByString = new HashMap<>();
+    private TextIndex textIndex;
+    private int next;
+
+    @Setup
+    public void setup() {
+        List<KnowledgeEntry> entries = KnowledgeBaseBenchmark.generateEntries(1000, new Random(42));
+        terms = new TermDictionary();
+        for (KnowledgeEntry entry : entries) {
+            tokenizer.tokenize(entry.content());
+            for (int word = 0; word < tokenizer.size(); word++) {
+                String term = tokenizer.word(word);
+                termsByString.put(term, terms.add(term));
+            }
+        }
+        textIndex = new TextIndex(entries);
+    }
+
+    private String nextQuery() {
+        return KnowledgeBaseBenchmark.QUERIES[next++ % KnowledgeBaseBenchmark.QUERIES.length];
+    }
+
+    @Benchmark
+    public void regexTermIds(Blackhole blackhole) {
+        String[] words = nextQuery().toLowerCase(Locale.ROOT)
+            .replaceAll("[^a-z0-9\\s]", " ")
+            .split("\\s+");
+        for (String word : words) {
+            blackhole.consume(termsByString.get(word));
+        }
+    }
+
+    @Benchmark
+    public void termIds(Blackhole blackhole) {
+        Tokenizer words = tokenizer.tokenize(nextQuery());
+        for (int word = 0; word < words.size(); word++) {
+            blackhole.consume(words.termId(word, terms));
+        }
+    }
+
+    /**
+     * Tokenizing and BM25 scoring together, the text half of a retrieval
+     */
+    @Benchmark
+    public void textScore(Blackhole blackhole) {
+        blackhole.consume(textIndex.score(tokenizer.tokenize(nextQuery())));
+    }
+}
@@ -4,8 +4,14 @@ import com.storyteller.config.ModConfig;
 import com.storyteller.entity.ModEntities;
 import com.storyteller.integration.EiraIntegrationManager;
 import com.storyteller.llm.LLMManager;
+import com.storyteller.metrics.Metrics;
+import com.storyteller.metrics.MetricsExporter;
 import com.storyteller.network.ModNetwork;
+import com.storyteller.npc.AmbientLines;
+import com.storyteller.npc.ConfigFileWatcher;
 import com.storyteller.npc.ConversationHistory;
+import com.storyteller.npc.ConversationSummarizer;
+import com.storyteller.npc.GreetingPool;
 import com.storyteller.npc.NPCManager;
 import com.storyteller.npc.PlayerEventTracker;
 import com.storyteller.npc.QuestManager;
@@ -35,6 +41,8 @@ public class StorytellerMod {
     private final EiraIntegrationManager eiraManager;
     private final PlayerEventTracker eventTracker;
     private final QuestManager questManager;
+    private final MetricsExporter metricsExporter;
+    private final ConfigFileWatcher configWatcher;
     
     public StorytellerMod(IEventBus modEventBus, ModContainer modContainer) {
         instance = this;
@@ -49,6 +57,13 @@ public class StorytellerMod {
         this.eiraManager = new EiraIntegrationManager();
         this.eventTracker = new PlayerEventTracker();
         this.questManager = new QuestManager();
+        this.metricsExporter = new MetricsExporter();
+        this.configWatcher = new ConfigFileWatcher();
+
+        Metrics.gauge("storyteller_conversations", "Conversations with history in memory",
+            ConversationHistory::getTrackedConversations);
+        Metrics.gauge("storyteller_history_messages", "Conversation messages held in memory",
+            ConversationHistory::getStoredMessageCount);
         
         // Register mod event listeners
         modEventBus.addListener(this::commonSetup);
@@ -82,20 +97,30 @@ public class StorytellerMod {
         npcManager.loadNPCs();
         eiraManager.initialize();
 
+        // Pick up character and knowledge edits while the server runs
+        configWatcher.start(npcManager, FMLPaths.CONFIGDIR.get().resolve("storyteller"), event.getServer());
+
         // Load persisted conversation histories
         ConversationHistory.loadAllHistory(FMLPaths.CONFIGDIR.get().resolve("storyteller"));
+
+        metricsExporter.start();
     }
     
     @SubscribeEvent
     public void onServerStopping(ServerStoppingEvent event) {
         LOGGER.info("Storyteller: Server stopping, cleaning up...");
+        configWatcher.stop();
 
         // Save conversation histories before shutdown
         ConversationHistory.saveAllHistory(FMLPaths.CONFIGDIR.get().resolve("storyteller"));
 
         llmManager.shutdown();
+        GreetingPool.clearAll();
+        AmbientLines.clearAll();
+        ConversationSummarizer.clearAll();
         npcManager.saveNPCs();
         eiraManager.shutdown();
+        metricsExporter.stop();
     }
 
     @SubscribeEvent
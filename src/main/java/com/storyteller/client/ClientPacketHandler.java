@@ -1,6 +1,8 @@
 package com.storyteller.client;
 
 import com.storyteller.config.ModConfig;
+import com.storyteller.network.NPCQueueStatusPacket;
+import com.storyteller.network.NPCResponseChunkPacket;
 import com.storyteller.network.NPCResponsePacket;
 import com.storyteller.network.OpenChatScreenPacket;
 import net.minecraft.client.Minecraft;
@@ -39,6 +41,18 @@ public class ClientPacketHandler {
         }
     }
 
+    public static void handleNPCResponseChunk(NPCResponseChunkPacket packet) {
+        if (currentChatScreen != null && currentChatScreen.getEntityId() == packet.entityId()) {
+            currentChatScreen.receiveChunk(packet.chunk());
+        }
+    }
+
+    public static void handleNPCQueueStatus(NPCQueueStatusPacket packet) {
+        if (currentChatScreen != null && currentChatScreen.getEntityId() == packet.entityId()) {
+            currentChatScreen.setQueuePosition(packet.position());
+        }
+    }
+
     /**
      * Play a subtle sound when NPC responds
      */
@@ -1,6 +1,7 @@
 package com.storyteller.client;
 
 import com.storyteller.StorytellerMod;
+import com.storyteller.network.ChatScreenClosedPacket;
 import com.storyteller.network.PlayerChatPacket;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiGraphics;
@@ -31,6 +32,8 @@ public class NPCChatScreen extends Screen {
     
     private final List<ChatEntry> chatHistory = new ArrayList<>();
     private boolean awaitingResponse = false;
+    private boolean streamingResponse = false;
+    private int queuePosition = 0;
     private int scrollOffset = 0;
     private boolean greetingRequested = false;
     
@@ -110,20 +113,58 @@ public class NPCChatScreen extends Screen {
         scrollToBottom();
     }
     
+    public void receiveChunk(String chunk) {
+        if (!awaitingResponse) {
+            return;
+        }
+
+        if (!streamingResponse) {
+            // First chunk replaces the "..." placeholder
+            removePlaceholder();
+            chatHistory.add(new ChatEntry(npcName, chunk.stripLeading(), false));
+            streamingResponse = true;
+        } else {
+            int last = chatHistory.size() - 1;
+            ChatEntry entry = chatHistory.get(last);
+            chatHistory.set(last, new ChatEntry(entry.sender(), entry.message() + chunk, false));
+        }
+
+        // Scroll to bottom
+        scrollToBottom();
+    }
+
     public void receiveResponse(String response) {
-        // Remove the "..." placeholder
-        if (!chatHistory.isEmpty() && chatHistory.get(chatHistory.size() - 1).message().equals("...")) {
+        if (streamingResponse) {
+            // Replace the partial text with the final response
             chatHistory.remove(chatHistory.size() - 1);
+            streamingResponse = false;
+        } else {
+            // Remove the "..." placeholder
+            removePlaceholder();
         }
         
         // Add the actual response
         chatHistory.add(new ChatEntry(npcName, response, false));
         awaitingResponse = false;
+        queuePosition = 0;
         
         // Scroll to bottom
         scrollToBottom();
     }
     
+    /**
+     * Update our place in the server's LLM queue (0 = the NPC is generating)
+     */
+    public void setQueuePosition(int position) {
+        this.queuePosition = awaitingResponse ? position : 0;
+    }
+
+    private void removePlaceholder() {
+        if (!chatHistory.isEmpty() && chatHistory.get(chatHistory.size() - 1).message().equals("...")) {
+            chatHistory.remove(chatHistory.size() - 1);
+        }
+    }
+
     private void scrollToBottom() {
         // Will be calculated during render
         scrollOffset = Integer.MAX_VALUE;
@@ -170,9 +211,11 @@ public class NPCChatScreen extends Screen {
         // Render widgets (input box, button)
         super.render(graphics, mouseX, mouseY, partialTick);
         
-        // Show "thinking" indicator
-        if (awaitingResponse) {
-            String thinking = npcName + " is thinking...";
+        // Show "thinking" indicator (the streamed text speaks for itself once it starts)
+        if (awaitingResponse && !streamingResponse) {
+            String thinking = queuePosition > 0
+                ? npcName + " is busy - you are #" + queuePosition + " in line..."
+                : npcName + " is thinking...";
             int thinkingWidth = this.font.width(thinking);
             graphics.drawString(this.font, thinking, centerX - thinkingWidth / 2, chatBottom + 2, 0xAAAAAA);
         }
@@ -283,6 +326,8 @@ public class NPCChatScreen extends Screen {
     @Override
     public void onClose() {
         ClientPacketHandler.clearCurrentScreen();
+        // Let the server stop generating a reply nobody will read
+        PacketDistributor.sendToServer(new ChatScreenClosedPacket(entityId));
         super.onClose();
     }
     
@@ -9,6 +9,9 @@ import com.storyteller.StorytellerMod;
 import com.storyteller.entity.ModEntities;
 import com.storyteller.entity.NPCBehaviorMode;
 import com.storyteller.entity.StorytellerNPC;
+import com.storyteller.metrics.Metrics;
+import com.storyteller.npc.AmbientLines;
+import com.storyteller.npc.GreetingPool;
 import com.storyteller.npc.NPCCharacter;
 import com.storyteller.npc.NPCManager;
 import com.storyteller.npc.QuestManager;
@@ -128,6 +131,11 @@ public class ModCommands {
                 .executes(ModCommands::showStatus)
             )
 
+            // Pipeline latency metrics
+            .then(Commands.literal("metrics")
+                .executes(ModCommands::showMetrics)
+            )
+
             // Quest management
             .then(Commands.literal("quests")
                 .executes(ModCommands::listQuests)
@@ -322,6 +330,9 @@ public class ModCommands {
         CommandSourceStack source = context.getSource();
         
         StorytellerMod.getInstance().getNPCManager().loadNPCs();
+        // Characters may have changed - pooled greetings and lines would be in the old voice
+        GreetingPool.clearAll();
+        AmbientLines.clearAll();
         
         source.sendSuccess(() -> Component.literal("§aReloaded Storyteller configurations"), true);
         return 1;
@@ -363,12 +374,58 @@ public class ModCommands {
             source.sendSuccess(() -> Component.literal(
                 "§aLLM Provider: " + llmManager.getActiveProviderName() + " (connected)"
             ), false);
+
+            String providerStatus = llmManager.getActiveProviderStatus();
+            if (providerStatus != null) {
+                // One line per detail (e.g. each endpoint of a multi-endpoint provider)
+                for (String line : providerStatus.split("\n")) {
+                    source.sendSuccess(() -> Component.literal("§7  " + line), false);
+                }
+            }
         } else {
             source.sendSuccess(() -> Component.literal(
                 "§cLLM Provider: Not connected"
             ), false);
         }
 
+        // Request queue
+        int queued = llmManager.getQueuedRequests();
+        int running = llmManager.getRunningRequests();
+        source.sendSuccess(() -> Component.literal(
+            "§eLLM requests: " + running + " generating, " + queued + " waiting"
+        ), false);
+
+        // Idle-time work and how often players interrupted it
+        int background = llmManager.getQueuedBackgroundRequests();
+        long preempted = llmManager.getPreemptedRequests();
+        source.sendSuccess(() -> Component.literal(
+            "§eBackground: " + background + " waiting for idle, " + preempted + " preempted"
+        ), false);
+
+        // Requests answered without a provider call of their own
+        long coalesced = llmManager.getCoalescedRequests();
+        long cached = llmManager.getCachedReplies();
+        if (coalesced > 0 || cached > 0) {
+            source.sendSuccess(() -> Component.literal(
+                "§eShared replies: " + coalesced + " coalesced, " + cached + " from cache"
+            ), false);
+        }
+
+        // Circuit breakers and their recent state changes
+        List<String> health = llmManager.getProviderHealth();
+        if (!health.isEmpty()) {
+            source.sendSuccess(() -> Component.literal("§eProvider health:"), false);
+            for (String line : health) {
+                source.sendSuccess(() -> Component.literal("§7  " + line), false);
+            }
+        }
+
+        // Pre-generated greetings
+        int greetings = GreetingPool.getPooledCount();
+        source.sendSuccess(() -> Component.literal(
+            "§eGreetings ready: " + greetings + ", ambient lines ready: " + AmbientLines.getPooledCount()
+        ), false);
+
         // Character count
         int charCount = npcManager.getAllCharacters().size();
         source.sendSuccess(() -> Component.literal(
@@ -384,6 +441,18 @@ public class ModCommands {
         return 1;
     }
 
+    private static int showMetrics(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+
+        source.sendSuccess(() -> Component.literal("§6=== Storyteller Metrics ==="), false);
+        for (String line : Metrics.describe()) {
+            // Series lines are indented under their metric name
+            String color = line.startsWith(" ") ? "§7" : "§e";
+            source.sendSuccess(() -> Component.literal(color + line), false);
+        }
+        return 1;
+    }
+
     private static int listQuests(CommandContext<CommandSourceStack> context) {
         CommandSourceStack source = context.getSource();
 
@@ -443,6 +512,7 @@ public class ModCommands {
         source.sendSuccess(() -> Component.literal("§e/storyteller create <name> §7- Create new character"), false);
         source.sendSuccess(() -> Component.literal("§e/storyteller reload §7- Reload configurations"), false);
         source.sendSuccess(() -> Component.literal("§e/storyteller status §7- Show LLM connection status"), false);
+        source.sendSuccess(() -> Component.literal("§e/storyteller metrics §7- Show response latency metrics"), false);
         source.sendSuccess(() -> Component.literal("§e/storyteller quests §7- List your active quests"), false);
         source.sendSuccess(() -> Component.literal("§e/storyteller quests clear §7- Clear all quests"), false);
         source.sendSuccess(() -> Component.literal("§6=== Behavior Commands ==="), false);
@@ -798,6 +868,9 @@ public class ModCommands {
         source.sendSuccess(() -> Component.literal(
             "§eEntries: " + kb.getEntryCount()
         ), false);
+        source.sendSuccess(() -> Component.literal(
+            "§eSemantic search: " + (kb.hasVectors() ? "§aready" : "§7off or still embedding")
+        ), false);
 
         int index = 1;
         for (KnowledgeEntry entry : kb.getEntries()) {
@@ -830,30 +903,32 @@ public class ModCommands {
             return 0;
         }
 
-        List<KnowledgeEntry> results = KnowledgeManager.retrieve(characterId, message);
-
         source.sendSuccess(() -> Component.literal(
             "§6=== Knowledge Test: " + characterId + " ==="
         ), false);
         source.sendSuccess(() -> Component.literal(
             "§7Query: \"" + message + "\""
         ), false);
-        source.sendSuccess(() -> Component.literal(
-            "§eResults: " + results.size()
-        ), false);
 
-        if (results.isEmpty()) {
+        // Searching by meaning embeds the query first; report back on the server thread
+        KnowledgeManager.retrieveAsync(characterId, message).thenAccept(results -> source.getServer().execute(() -> {
             source.sendSuccess(() -> Component.literal(
-                "§7No matching knowledge entries found."
+                "§eResults: " + results.size()
             ), false);
-        } else {
-            for (KnowledgeEntry entry : results) {
+
+            if (results.isEmpty()) {
                 source.sendSuccess(() -> Component.literal(
-                    "§a[" + entry.id() + "]§r " + entry.content()
+                    "§7No matching knowledge entries found."
                 ), false);
+            } else {
+                for (KnowledgeEntry entry : results) {
+                    source.sendSuccess(() -> Component.literal(
+                        "§a[" + entry.id() + "]§r " + entry.content()
+                    ), false);
+                }
             }
-        }
+        }));
 
-        return results.size();
+        return 1;
     }
 }
@@ -28,19 +28,46 @@ public class ModConfig {
     public static class CommonConfig {
         // LLM Provider settings
         public final ModConfigSpec.EnumValue<LLMProvider> llmProvider;
+        public final ModConfigSpec.BooleanValue hedgeRequests;
+        public final ModConfigSpec.BooleanValue failover;
+        public final ModConfigSpec.IntValue circuitBreakerErrorRate;
+        public final ModConfigSpec.IntValue circuitBreakerTimeoutRate;
+        public final ModConfigSpec.IntValue circuitBreakerOpenSeconds;
+        public final ModConfigSpec.IntValue contextTokens;
+        public final ModConfigSpec.IntValue fastTierMaxChars;
+        public final ModConfigSpec.BooleanValue coalesceRequests;
+        public final ModConfigSpec.IntValue responseCacheSeconds;
 
         // Ollama settings
         public final ModConfigSpec.ConfigValue<String> ollamaEndpoint;
         public final ModConfigSpec.ConfigValue<String> ollamaModel;
         public final ModConfigSpec.IntValue ollamaTimeout;
+        public final ModConfigSpec.IntValue ollamaMaxConcurrent;
+        public final ModConfigSpec.ConfigValue<String> ollamaKeepAlive;
+        public final ModConfigSpec.ConfigValue<List<? extends String>> ollamaAdditionalEndpoints;
+        public final ModConfigSpec.ConfigValue<String> ollamaFastModel;
+        public final ModConfigSpec.IntValue ollamaFastMaxConcurrent;
 
         // Claude settings
         public final ModConfigSpec.ConfigValue<String> claudeApiKey;
         public final ModConfigSpec.ConfigValue<String> claudeModel;
+        public final ModConfigSpec.ConfigValue<String> claudeEndpoint;
+        public final ModConfigSpec.IntValue claudeMaxConcurrent;
+        public final ModConfigSpec.ConfigValue<String> claudeFastModel;
+        public final ModConfigSpec.IntValue claudeFastMaxConcurrent;
 
         // OpenAI settings
         public final ModConfigSpec.ConfigValue<String> openaiApiKey;
         public final ModConfigSpec.ConfigValue<String> openaiModel;
+        public final ModConfigSpec.IntValue openaiMaxConcurrent;
+        public final ModConfigSpec.ConfigValue<List<? extends String>> openaiEndpoints;
+        public final ModConfigSpec.ConfigValue<String> openaiFastModel;
+        public final ModConfigSpec.IntValue openaiFastMaxConcurrent;
+
+        // Local (in-process) model settings
+        public final ModConfigSpec.ConfigValue<String> localModelPath;
+        public final ModConfigSpec.IntValue localThreads;
+        public final ModConfigSpec.IntValue localMaxSessions;
 
         // NPC settings
         public final ModConfigSpec.IntValue maxConversationHistory;
@@ -49,6 +76,14 @@ public class ModConfig {
         public final ModConfigSpec.IntValue thinkingIndicatorDelay;
         public final ModConfigSpec.BooleanValue persistConversations;
         public final ModConfigSpec.IntValue maxPersistedMessages;
+        public final ModConfigSpec.BooleanValue streamResponses;
+        public final ModConfigSpec.IntValue greetingPoolSize;
+        public final ModConfigSpec.IntValue ambientLineInterval;
+        public final ModConfigSpec.IntValue summarizeAfterMessages;
+        public final ModConfigSpec.BooleanValue watchConfigFiles;
+        public final ModConfigSpec.IntValue maxResponseTokens;
+        public final ModConfigSpec.IntValue maxResponseSentences;
+        public final ModConfigSpec.ConfigValue<List<? extends String>> stopSequences;
 
         // Feature toggles
         public final ModConfigSpec.BooleanValue enableQuestSystem;
@@ -67,11 +102,18 @@ public class ModConfig {
         // Rate limiting
         public final ModConfigSpec.IntValue minTimeBetweenMessages;
         public final ModConfigSpec.IntValue maxMessagesPerMinute;
+        public final ModConfigSpec.IntValue maxQueuedRequests;
+        public final ModConfigSpec.IntValue maxBackgroundRequests;
 
         // Knowledge/RAG settings
         public final ModConfigSpec.BooleanValue enableKnowledge;
         public final ModConfigSpec.IntValue maxRetrievedEntries;
         public final ModConfigSpec.IntValue minKeywordMatches;
+        public final ModConfigSpec.EnumValue<KnowledgeRanking> knowledgeRanking;
+        public final ModConfigSpec.EnumValue<EmbeddingProvider> embeddings;
+        public final ModConfigSpec.ConfigValue<String> embeddingModel;
+        public final ModConfigSpec.IntValue minSimilarity;
+        public final ModConfigSpec.IntValue queryEmbeddingTimeout;
 
         public CommonConfig(ModConfigSpec.Builder builder) {
             builder.comment("Storyteller NPC Configuration")
@@ -81,6 +123,42 @@ public class ModConfig {
                 .comment("Which LLM provider to use")
                 .defineEnum("provider", LLMProvider.OLLAMA);
 
+            hedgeRequests = builder
+                .comment("When a provider has several endpoints, send a slow request to a second endpoint too and use whichever answers first")
+                .define("hedgeRequests", false);
+
+            failover = builder
+                .comment("Keep the other providers ready and send requests to them while the active provider is failing")
+                .define("failover", true);
+
+            circuitBreakerErrorRate = builder
+                .comment("Stop using a provider when this percentage of its recent requests failed")
+                .defineInRange("circuitBreakerErrorRate", 50, 1, 100);
+
+            circuitBreakerTimeoutRate = builder
+                .comment("Stop using a provider when this percentage of its recent requests timed out (see npc.responseTimeout)")
+                .defineInRange("circuitBreakerTimeoutRate", 50, 1, 100);
+
+            circuitBreakerOpenSeconds = builder
+                .comment("Seconds before a provider that was taken out of use gets a test request")
+                .defineInRange("circuitBreakerOpenSeconds", 30, 5, 600);
+
+            contextTokens = builder
+                .comment("Token budget for system prompt, history and reply; older history and low-priority sections are trimmed to fit. Also sent to Ollama as num_ctx")
+                .defineInRange("contextTokens", 4096, 1024, 131072);
+
+            fastTierMaxChars = builder
+                .comment("Messages up to this many characters, with no matching knowledge or active quests, count as small talk and go to the provider's fastModel (if set)")
+                .defineInRange("fastTierMaxChars", 80, 0, 1000);
+
+            coalesceRequests = builder
+                .comment("Identical requests made at the same time (e.g. several players greeted by one NPC at once) share a single LLM call")
+                .define("coalesceRequests", true);
+
+            responseCacheSeconds = builder
+                .comment("Reuse a reply for identical requests made within this many seconds after it (0 = disabled; needs coalesceRequests)")
+                .defineInRange("responseCacheSeconds", 0, 0, 600);
+
             builder.comment("Ollama Settings").push("ollama");
 
             ollamaEndpoint = builder
@@ -95,6 +173,26 @@ public class ModConfig {
                 .comment("Request timeout in seconds")
                 .defineInRange("timeout", 60, 10, 300);
 
+            ollamaMaxConcurrent = builder
+                .comment("Maximum requests sent to Ollama at once (extra requests wait in line)")
+                .defineInRange("maxConcurrentRequests", 4, 1, 64);
+
+            ollamaKeepAlive = builder
+                .comment("How long Ollama keeps the model and its prompt cache loaded after a request (e.g. 30m, 1h; negative = forever)")
+                .define("keepAlive", "30m");
+
+            ollamaAdditionalEndpoints = builder
+                .comment("Extra Ollama servers serving the same model; requests go to the least busy one")
+                .defineListAllowEmpty("additionalEndpoints", List.of(), () -> "http://localhost:11435", o -> o instanceof String);
+
+            ollamaFastModel = builder
+                .comment("Small model for greetings and small talk, e.g. llama3.2:3b (leave empty to use the main model for everything)")
+                .define("fastModel", "");
+
+            ollamaFastMaxConcurrent = builder
+                .comment("Maximum fast-model requests sent to Ollama at once, on top of maxConcurrentRequests")
+                .defineInRange("fastMaxConcurrentRequests", 8, 1, 64);
+
             builder.pop();
 
             builder.comment("Claude Settings (Anthropic)").push("claude");
@@ -107,6 +205,22 @@ public class ModConfig {
                 .comment("Claude model to use")
                 .define("model", "claude-sonnet-4-20250514");
 
+            claudeEndpoint = builder
+                .comment("Anthropic API base URL (change only for a proxy or a test server)")
+                .define("endpoint", "https://api.anthropic.com");
+
+            claudeMaxConcurrent = builder
+                .comment("Maximum requests sent to Claude at once (extra requests wait in line)")
+                .defineInRange("maxConcurrentRequests", 8, 1, 64);
+
+            claudeFastModel = builder
+                .comment("Small model for greetings and small talk, e.g. claude-3-5-haiku-latest (leave empty to use the main model for everything)")
+                .define("fastModel", "");
+
+            claudeFastMaxConcurrent = builder
+                .comment("Maximum fast-model requests sent to Claude at once, on top of maxConcurrentRequests")
+                .defineInRange("fastMaxConcurrentRequests", 16, 1, 64);
+
             builder.pop();
 
             builder.comment("OpenAI Settings").push("openai");
@@ -119,6 +233,38 @@ public class ModConfig {
                 .comment("OpenAI model to use")
                 .define("model", "gpt-4o");
 
+            openaiMaxConcurrent = builder
+                .comment("Maximum requests sent to OpenAI at once (extra requests wait in line)")
+                .defineInRange("maxConcurrentRequests", 8, 1, 64);
+
+            openaiEndpoints = builder
+                .comment("OpenAI-compatible API base URLs; requests go to the least busy one")
+                .defineList("endpoints", List.of("https://api.openai.com/v1"), o -> o instanceof String);
+
+            openaiFastModel = builder
+                .comment("Small model for greetings and small talk, e.g. gpt-4o-mini (leave empty to use the main model for everything)")
+                .define("fastModel", "");
+
+            openaiFastMaxConcurrent = builder
+                .comment("Maximum fast-model requests sent to OpenAI at once, on top of maxConcurrentRequests")
+                .defineInRange("fastMaxConcurrentRequests", 16, 1, 64);
+
+            builder.pop();
+
+            builder.comment("Local Model Settings (runs inside the server, no external service)").push("local");
+
+            localModelPath = builder
+                .comment("GGUF model file (Llama 3.x Instruct, Q4_0/Q8_0/F16), absolute or relative to config/storyteller/models/ (leave empty to disable)")
+                .define("modelPath", "");
+
+            localThreads = builder
+                .comment("CPU cores used for inference")
+                .defineInRange("threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 1, 256);
+
+            localMaxSessions = builder
+                .comment("Conversations whose model state is kept in memory for fast follow-up replies. Each grows with its conversation, up to ~224KB per token for a 3B model (~940MB at 4096 contextTokens)")
+                .defineInRange("maxSessions", 2, 1, 16);
+
             builder.pop();
             builder.pop();
 
@@ -129,7 +275,7 @@ public class ModConfig {
                 .defineInRange("maxConversationHistory", 20, 5, 100);
 
             responseTimeout = builder
-                .comment("How long to wait for LLM response before timeout (seconds)")
+                .comment("How long to wait for LLM response before timeout (seconds); a provider that stays silent this long is failed over")
                 .defineInRange("responseTimeout", 30, 5, 120);
 
             includeWorldContext = builder
@@ -148,6 +294,38 @@ public class ModConfig {
                 .comment("Maximum messages to persist per player-NPC pair")
                 .defineInRange("maxPersistedMessages", 50, 10, 200);
 
+            streamResponses = builder
+                .comment("Show NPC responses word by word as they are generated instead of waiting for the full reply")
+                .define("streamResponses", true);
+
+            greetingPoolSize = builder
+                .comment("Greetings pre-generated per character, visit type and world state so they appear instantly (0 = always generate live)")
+                .defineInRange("greetingPoolSize", 3, 0, 20);
+
+            ambientLineInterval = builder
+                .comment("Seconds between an idle NPC's remarks to itself (from its idle_actions) while players are nearby (0 = silent)")
+                .defineInRange("ambientLineInterval", 120, 0, 3600);
+
+            summarizeAfterMessages = builder
+                .comment("Summarize a conversation in the background every this many messages, so the NPC remembers what falls out of its history (0 = never)")
+                .defineInRange("summarizeAfterMessages", 10, 0, 200);
+
+            watchConfigFiles = builder
+                .comment("Reload character and knowledge files as soon as they are saved, without /storyteller reload")
+                .define("watchConfigFiles", true);
+
+            maxResponseTokens = builder
+                .comment("Hard cap on reply length in tokens; a safety net, since maxResponseSentences normally ends the reply first")
+                .defineInRange("maxResponseTokens", 150, 16, 4096);
+
+            maxResponseSentences = builder
+                .comment("End a reply once it has this many sentences; streamed replies stop generating right there (0 = no limit)")
+                .defineInRange("maxResponseSentences", 2, 0, 20);
+
+            stopSequences = builder
+                .comment("Text that ends a reply, e.g. the model starting to write the player's next line. Characters can override these")
+                .defineListAllowEmpty("stopSequences", List.of("\nPlayer:", "\nYou:"), () -> "\nPlayer:", o -> o instanceof String);
+
             builder.pop();
 
             builder.comment("Feature Toggles").push("features");
@@ -208,6 +386,15 @@ public class ModConfig {
                 .comment("Maximum messages per player per minute (0 = unlimited)")
                 .defineInRange("maxMessagesPerMinute", 10, 0, 60);
 
+            maxQueuedRequests = builder
+                .comment("Maximum LLM requests waiting in line; when full, lower-priority requests are dropped first")
+                .defineInRange("maxQueuedRequests", 32, 1, 1024);
+
+            maxBackgroundRequests = builder
+                .comment("Background requests (greeting pools, ambient lines, summaries) that may run at once.",
+                         "They only run while no player is waiting and give way as soon as one is")
+                .defineInRange("maxBackgroundRequests", 1, 1, 8);
+
             builder.pop();
 
             builder.comment("Knowledge Base / RAG Settings").push("knowledge");
@@ -224,6 +411,32 @@ public class ModConfig {
                 .comment("Minimum keyword matches required to include a knowledge entry")
                 .defineInRange("minKeywordMatches", 1, 1, 5);
 
+            knowledgeRanking = builder
+                .comment("How knowledge entries are ranked: KEYWORD (keywords only) or BM25",
+                         "(keywords blended with full-text relevance of each entry's content and category, and its priority)")
+                .defineEnum("knowledgeRanking", KnowledgeRanking.BM25);
+
+            embeddings = builder
+                .comment("Embeddings for finding knowledge by meaning: NONE, OLLAMA (embeddingModel on the Ollama endpoint)",
+                         "or HASHING (built-in word and spelling similarity, no model needed)",
+                         "Vectors are cached in a .vectors file next to each knowledge file")
+                .defineEnum("embeddings", EmbeddingProvider.NONE);
+
+            embeddingModel = builder
+                .comment("Ollama embedding model (e.g., nomic-embed-text, mxbai-embed-large)")
+                .define("embeddingModel", "nomic-embed-text");
+
+            minSimilarity = builder
+                .comment("Similarity in meaning (percent) for a knowledge entry to be included without matching words",
+                         "Around 50 suits Ollama models; HASHING similarities run lower, so try 10-15 with it")
+                .defineInRange("minSimilarity", 50, 0, 100);
+
+            queryEmbeddingTimeout = builder
+                .comment("Milliseconds a player's message waits for its own embedding before knowledge is searched without it",
+                         "With embeddings on, a reply can start up to this much later while the embedding model is busy;",
+                         "repeated messages are cached. 0 searches messages by words only")
+                .defineInRange("queryEmbeddingTimeout", 500, 0, 10000);
+
             builder.pop();
 
             builder.comment("Eira Relay Integration").push("integration");
@@ -280,6 +493,39 @@ public class ModConfig {
 
             builder.pop();
             builder.pop();
+
+            builder.comment("HTTP connections shared by the LLM providers and webhooks").push("http");
+
+            httpThreads = builder
+                .comment("Threads for sending requests and handling responses")
+                .defineInRange("threads", 4, 1, 32);
+
+            httpMaxRequestsPerHost = builder
+                .comment("Maximum requests in flight to one host; more wait in line")
+                .defineInRange("maxRequestsPerHost", 16, 1, 256);
+
+            httpKeepWarmSeconds = builder
+                .comment("Keep idle HTTPS connections to recently used hosts open by pinging them this often (seconds, 0 to disable).",
+                         "Must stay below the 30 second idle timeout for the connection to survive")
+                .defineInRange("keepWarmSeconds", 20, 0, 29);
+
+            builder.pop();
+
+            builder.comment("Metrics (also shown by /storyteller metrics)").push("metrics");
+
+            metricsPort = builder
+                .comment("Serve Prometheus metrics at http://127.0.0.1:<port>/metrics (0 to disable)")
+                .defineInRange("prometheusPort", 0, 0, 65535);
+
+            metricsTextfile = builder
+                .comment("Also write the metrics to this file periodically, e.g. for node_exporter's textfile collector (empty to disable)")
+                .define("textfile", "");
+
+            metricsTextfileInterval = builder
+                .comment("How often to rewrite the metrics file (seconds)")
+                .defineInRange("textfileIntervalSeconds", 15, 5, 3600);
+
+            builder.pop();
         }
 
         // Eira integration config values
@@ -295,6 +541,16 @@ public class ModConfig {
         public final ModConfigSpec.ConfigValue<String> webhookQuestCompleted;
         public final ModConfigSpec.ConfigValue<String> webhookMoodChanged;
         public final ModConfigSpec.ConfigValue<String> webhookDangerWarning;
+
+        // HTTP config values
+        public final ModConfigSpec.IntValue httpThreads;
+        public final ModConfigSpec.IntValue httpMaxRequestsPerHost;
+        public final ModConfigSpec.IntValue httpKeepWarmSeconds;
+
+        // Metrics export
+        public final ModConfigSpec.IntValue metricsPort;
+        public final ModConfigSpec.ConfigValue<String> metricsTextfile;
+        public final ModConfigSpec.IntValue metricsTextfileInterval;
     }
 
     public static class ClientConfig {
@@ -321,10 +577,22 @@ public class ModConfig {
         }
     }
 
+    public enum KnowledgeRanking {
+        KEYWORD,
+        BM25
+    }
+
+    public enum EmbeddingProvider {
+        NONE,
+        OLLAMA,
+        HASHING
+    }
+
     public enum LLMProvider {
         OLLAMA("Ollama (Local)"),
         CLAUDE("Claude (Anthropic)"),
-        OPENAI("OpenAI");
+        OPENAI("OpenAI"),
+        LOCAL("Local (in-process)");
 
         private final String displayName;
 
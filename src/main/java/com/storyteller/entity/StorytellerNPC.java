@@ -9,16 +9,24 @@ import com.storyteller.entity.goals.WanderNearAnchorGoal;
 import com.storyteller.integration.EiraIntegrationManager;
 import com.storyteller.integration.EiraIntegrationManager.ExternalEvent;
 import com.storyteller.integration.EiraIntegrationManager.NPCEvent;
+import com.storyteller.llm.LLMManager;
 import com.storyteller.llm.LLMProvider.ChatMessage;
+import com.storyteller.llm.LLMProviderException;
+import com.storyteller.llm.LLMRequestRejectedException;
 import com.storyteller.network.ModNetwork;
 import com.storyteller.network.OpenChatScreenPacket;
+import com.storyteller.network.NPCQueueStatusPacket;
+import com.storyteller.network.NPCResponseChunkPacket;
 import com.storyteller.network.NPCResponsePacket;
+import com.storyteller.npc.AmbientLines;
 import com.storyteller.npc.ConversationHistory;
+import com.storyteller.npc.ConversationSummarizer;
+import com.storyteller.npc.GreetingPool;
 import com.storyteller.npc.NPCCharacter;
+import com.storyteller.npc.NPCRequestBuilder;
 import com.storyteller.npc.PlayerEventTracker;
 import com.storyteller.npc.QuestManager;
 import com.storyteller.npc.WorldContext;
-import com.storyteller.npc.knowledge.KnowledgeManager;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.nbt.CompoundTag;
@@ -26,6 +34,7 @@ import net.minecraft.network.chat.Component;
 import net.minecraft.network.syncher.EntityDataAccessor;
 import net.minecraft.network.syncher.EntityDataSerializers;
 import net.minecraft.network.syncher.SynchedEntityData;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.InteractionHand;
@@ -45,8 +54,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The Storyteller NPC entity - an AI-powered character
@@ -87,10 +99,19 @@ public class StorytellerNPC extends PathfinderMob {
     // Server-side only
     private NPCCharacter character;
     private final AtomicBoolean processingRequest = new AtomicBoolean(false);
+    // The LLM request in flight for the current conversation; cancelled when the conversation ends
+    private volatile CompletableFuture<String> pendingResponse = null;
+    // The player whose request is in flight; null between turns
     private UUID currentlyTalkingTo = null;
+    // The player in the current conversation, until it ends
+    private UUID conversationPartner = null;
     private long thinkingStartTime = 0;
     private long conversationStartTime = 0;
     private static final long CONVERSATION_TIMEOUT_MS = 60000; // 60 seconds without interaction ends conversation
+    private static final int GREETING_PREFILL_INTERVAL = 100; // Check for nearby players every 5 seconds
+    private static final double GREETING_PREFILL_RANGE = 16.0;
+    private static final double AMBIENT_LINE_RANGE = 12.0;
+    private long nextAmbientLineTick = 0;
     
     // Eira integration state
     private boolean emittingRedstone = false;
@@ -217,6 +238,7 @@ public class StorytellerNPC extends PathfinderMob {
         // Start conversation - NPC stops moving and looks at player
         setInConversation(true);
         currentlyTalkingTo = player.getUUID();
+        conversationPartner = player.getUUID();
         conversationStartTime = System.currentTimeMillis();
         this.getNavigation().stop();
         this.getLookControl().setLookAt(player, 30.0F, 30.0F);
@@ -241,6 +263,7 @@ public class StorytellerNPC extends PathfinderMob {
         
         processingRequest.set(true);
         currentlyTalkingTo = player.getUUID();
+        conversationPartner = player.getUUID();
         conversationStartTime = System.currentTimeMillis(); // Refresh conversation timeout
         setInConversation(true);
         setThinking(true);
@@ -274,12 +297,19 @@ public class StorytellerNPC extends PathfinderMob {
             boolean hasHistory = !history.isEmpty() ||
                 ConversationHistory.getConversationCount(this.getUUID(), player.getUUID()) > 0;
 
+            // Use a pre-generated greeting if one is ready - no LLM round-trip needed
+            String pooledGreeting = GreetingPool.take(npcChar, hasHistory, worldContext);
+            if (pooledGreeting != null) {
+                deliverPooledGreeting(player, pooledGreeting);
+                return;
+            }
+
             if (hasHistory) {
                 // Returning visitor - acknowledge them differently
-                actualMessage = "This visitor has returned. Acknowledge them briefly with ONE short sentence (under 10 words). Don't repeat your previous greeting.";
+                actualMessage = GreetingPool.RETURNING_PROMPT;
             } else {
                 // First time meeting
-                actualMessage = "A new visitor approaches. Greet them with ONE short sentence only (under 10 words).";
+                actualMessage = GreetingPool.FIRST_VISIT_PROMPT;
             }
         } else {
             actualMessage = message;
@@ -290,92 +320,184 @@ public class StorytellerNPC extends PathfinderMob {
         ChatMessage userMessage = new ChatMessage(ChatMessage.Role.USER, actualMessage);
         history.add(userMessage);
         
-        // Build system prompt
-        String systemPrompt = npcChar.generateSystemPrompt(worldContext);
+        String questContext = QuestManager.buildQuestContext(player.getUUID(), this.getUUID());
+        var completedQuests = QuestManager.checkQuestCompletion(player);
+        NPCRequestBuilder requestBuilder = new NPCRequestBuilder(npcChar, this.getUUID(), player.getUUID(),
+                history, actualMessage, isGreeting)
+            .world(worldContext != null ? npcChar.generateWorldPrompt(worldContext) : null)
+            .events(PlayerEventTracker.buildEventContext(player.getUUID()))
+            .quests(questContext, completedQuests.stream().map(quest -> quest.description()).toList());
 
-        // Add conversation summary if there's history
-        int convCount = ConversationHistory.getConversationCount(this.getUUID(), player.getUUID());
-        if (convCount > 0) {
-            systemPrompt += "\n\n## Conversation Context\n" +
-                ConversationHistory.buildConversationSummary(this.getUUID(), player.getUUID());
-        }
+        // Send to LLM
+        final boolean saveToHistory = !isGreeting;
+        final ChatMessage originalUserMessage = isGreeting ? null : userMessage;
+        LLMManager llmManager = StorytellerMod.getInstance().getLLMManager();
+        // The LLM request, once submitted, so cancelling the conversation also aborts it
+        AtomicReference<CompletableFuture<String>> submitted = new AtomicReference<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        // Retrieve and inject relevant knowledge (RAG) while building the request
+        CompletableFuture<String> pending = requestBuilder.buildAsync()
+            .thenCompose(request -> {
+                request.onQueuePosition(position -> sendQueueStatus(player, position));
+                if (ModConfig.COMMON.streamResponses.get()) {
+                    request.onToken(chunk -> sendResponseChunk(player, chunk));
+                }
 
-        // Add recent player events (achievements, kills, items)
-        String eventContext = PlayerEventTracker.buildEventContext(player.getUUID());
-        if (eventContext != null) {
-            systemPrompt += "\n\n" + eventContext;
+                CompletableFuture<String> response = llmManager.submit(request);
+                submitted.set(response);
+                if (cancelled.get()) {
+                    // Cancelled while the request was being submitted, before whenComplete could see it
+                    response.cancel(true);
+                }
+                return response;
+            });
+        pendingResponse = pending;
+        pending.whenComplete((response, e) -> {
+            if (pending.isCancelled()) {
+                cancelled.set(true);
+                CompletableFuture<String> inner = submitted.get();
+                if (inner != null) {
+                    inner.cancel(true);
+                }
+            }
+        });
+        // Finish on the server thread: the reply is queued behind every streamed chunk,
+        // and history, quests and entity state are only touched there
+        pending.whenCompleteAsync((response, e) -> {
+            if (e != null) {
+                handleResponseFailure(player, pending, e);
+                return;
+            }
+
+            StorytellerMod.LOGGER.info("NPC {} response: {}", getNPCDisplayName(),
+                response.length() > 100 ? response.substring(0, 100) + "..." : response);
+
+            // Try to detect quests from the response
+            QuestManager.parseQuestsFromResponse(this.getUUID(), player, response);
+
+            if (player.isAlive() && player.connection != null) {
+                // Save to history (skip for greeting requests)
+                if (saveToHistory && originalUserMessage != null) {
+                    ConversationHistory.addMessage(this.getUUID(), player.getUUID(), originalUserMessage);
+                }
+                ConversationHistory.addMessage(this.getUUID(), player.getUUID(),
+                    new ChatMessage(ChatMessage.Role.ASSISTANT, response));
+                ConversationHistory.incrementConversationCount(this.getUUID(), player.getUUID());
+                ConversationSummarizer.onMessagesAdded(this.getUUID(), player.getUUID(), npcChar);
+
+                // Send to client
+                PacketDistributor.sendToPlayer(player, new NPCResponsePacket(
+                    this.getId(),
+                    response
+                ));
+            }
+
+            processingRequest.set(false);
+            setThinking(false);
+            currentlyTalkingTo = null;
+            clearPendingResponse(pending);
+        }, player.getServer());
+    }
+
+    /**
+     * Reset the conversation state after a failed request and tell the player, on the server thread
+     */
+    private void handleResponseFailure(ServerPlayer player, CompletableFuture<String> pending, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof CancellationException) {
+            // The conversation ended first; endConversation() already reset the state
+            StorytellerMod.LOGGER.debug("Request from {} cancelled", player.getName().getString());
+            return;
         }
 
-        // Add quest context
-        String questContext = QuestManager.buildQuestContext(player.getUUID(), this.getUUID());
-        if (questContext != null) {
-            systemPrompt += "\n\n" + questContext;
+        processingRequest.set(false);
+        setThinking(false);
+        currentlyTalkingTo = null;
+        clearPendingResponse(pending);
+
+        if (cause instanceof LLMRequestRejectedException) {
+            // Turned away by the scheduler (rate limit or full queue) - answer so the screen stops waiting
+            StorytellerMod.LOGGER.debug("Request from {} rejected: {}", player.getName().getString(), cause.getMessage());
+            if (player.isAlive() && player.connection != null) {
+                PacketDistributor.sendToPlayer(player, new NPCResponsePacket(
+                    this.getId(),
+                    "[" + getNPCDisplayName() + " needs a moment to gather their thoughts. Try again shortly.]"
+                ));
+            }
+            return;
         }
 
-        // Check for completed quests
-        var completedQuests = QuestManager.checkQuestCompletion(player);
-        if (!completedQuests.isEmpty()) {
-            StringBuilder completedContext = new StringBuilder();
-            completedContext.append("## Quests Just Completed!\n");
-            completedContext.append("The player has completed these quests you gave them. Acknowledge and reward them!\n");
-            for (var quest : completedQuests) {
-                completedContext.append("- ").append(quest.description()).append("\n");
+        if (cause instanceof LLMProviderException) {
+            // No provider could answer; the NPC stays in character
+            StorytellerMod.LOGGER.debug("No reply for {}: {}", player.getName().getString(), cause.getMessage());
+            if (player.isAlive() && player.connection != null) {
+                PacketDistributor.sendToPlayer(player, new NPCResponsePacket(
+                    this.getId(),
+                    "[" + getNPCDisplayName() + " seems lost in thought...]"
+                ));
             }
-            systemPrompt += "\n\n" + completedContext;
+            return;
         }
 
-        // Retrieve and inject relevant knowledge (RAG)
-        String knowledgeContext = KnowledgeManager.buildKnowledgeContext(npcChar.getId(), actualMessage);
-        if (knowledgeContext != null) {
-            systemPrompt += "\n\n" + knowledgeContext;
+        StorytellerMod.LOGGER.error("Error processing NPC chat: {}", e.getMessage());
+        if (player.isAlive() && player.connection != null) {
+            player.sendSystemMessage(Component.literal(
+                "[" + getNPCDisplayName() + " seems distracted and doesn't respond...]"
+            ));
         }
+    }
+    
+    /**
+     * Send a greeting from the pool straight to the player, as if it had just been generated
+     */
+    private void deliverPooledGreeting(ServerPlayer player, String greeting) {
+        StorytellerMod.LOGGER.debug("NPC {} using pooled greeting: {}", getNPCDisplayName(), greeting);
 
-        // Send to LLM
-        final boolean saveToHistory = !isGreeting;
-        final ChatMessage originalUserMessage = isGreeting ? null : userMessage;
-        StorytellerMod.getInstance().getLLMManager()
-            .chat(systemPrompt, history)
-            .thenAccept(response -> {
-                StorytellerMod.LOGGER.info("NPC {} response: {}", getNPCDisplayName(),
-                    response.length() > 100 ? response.substring(0, 100) + "..." : response);
-
-                // Try to detect quests from the response
-                QuestManager.parseQuestsFromResponse(this.getUUID(), player, response);
-
-                // Back on server, send response to player
-                if (player.isAlive() && player.connection != null) {
-                    // Save to history (skip for greeting requests)
-                    if (saveToHistory && originalUserMessage != null) {
-                        ConversationHistory.addMessage(this.getUUID(), player.getUUID(), originalUserMessage);
-                    }
-                    ConversationHistory.addMessage(this.getUUID(), player.getUUID(),
-                        new ChatMessage(ChatMessage.Role.ASSISTANT, response));
-                    ConversationHistory.incrementConversationCount(this.getUUID(), player.getUUID());
-                    
-                    // Send to client
-                    PacketDistributor.sendToPlayer(player, new NPCResponsePacket(
-                        this.getId(),
-                        response
-                    ));
-                }
-                
-                processingRequest.set(false);
-                setThinking(false);
-                currentlyTalkingTo = null;
-            })
-            .exceptionally(e -> {
-                StorytellerMod.LOGGER.error("Error processing NPC chat: {}", e.getMessage());
-                processingRequest.set(false);
-                setThinking(false);
-                currentlyTalkingTo = null;
-                
-                if (player.isAlive() && player.connection != null) {
-                    player.sendSystemMessage(Component.literal(
-                        "[" + getNPCDisplayName() + " seems distracted and doesn't respond...]"
-                    ));
-                }
-                return null;
-            });
+        ConversationHistory.addMessage(this.getUUID(), player.getUUID(),
+            new ChatMessage(ChatMessage.Role.ASSISTANT, greeting));
+        ConversationHistory.incrementConversationCount(this.getUUID(), player.getUUID());
+
+        PacketDistributor.sendToPlayer(player, new NPCResponsePacket(this.getId(), greeting));
+
+        processingRequest.set(false);
+        setThinking(false);
+        currentlyTalkingTo = null;
+    }
+
+    /**
+     * Forward a streamed response fragment to the player's chat screen.
+     * Called from the LLM thread, so the send is handed to the server thread to keep chunks in order.
+     */
+    private void sendResponseChunk(ServerPlayer player, String chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        MinecraftServer server = player.getServer();
+        if (server == null) {
+            return;
+        }
+        server.execute(() -> {
+            if (player.isAlive() && player.connection != null) {
+                PacketDistributor.sendToPlayer(player, new NPCResponseChunkPacket(this.getId(), chunk));
+            }
+        });
+    }
+    
+    /**
+     * Tell the player's chat screen where their request is in the LLM queue.
+     * Called from the scheduler, so the send is handed to the server thread.
+     */
+    private void sendQueueStatus(ServerPlayer player, int position) {
+        MinecraftServer server = player.getServer();
+        if (server == null) {
+            return;
+        }
+        server.execute(() -> {
+            if (player.isAlive() && player.connection != null) {
+                PacketDistributor.sendToPlayer(player, new NPCQueueStatusPacket(this.getId(), position));
+            }
+        });
     }
     
     @Override
@@ -384,6 +506,17 @@ public class StorytellerNPC extends PathfinderMob {
 
         // Server-side: manage conversation state
         if (!level().isClientSide()) {
+            // Someone is nearby - make sure a greeting is ready before they open the chat
+            if (this.tickCount % GREETING_PREFILL_INTERVAL == 0 && !isInConversation()
+                    && level() instanceof ServerLevel serverLevel
+                    && serverLevel.getNearestPlayer(this, GREETING_PREFILL_RANGE) instanceof ServerPlayer nearby) {
+                prefillGreeting(serverLevel, nearby);
+            }
+
+            if (!isInConversation() && level() instanceof ServerLevel serverLevel) {
+                tickAmbientLine(serverLevel);
+            }
+
             if (isInConversation()) {
                 // Check for conversation timeout
                 if (System.currentTimeMillis() - conversationStartTime > CONVERSATION_TIMEOUT_MS) {
@@ -393,9 +526,9 @@ public class StorytellerNPC extends PathfinderMob {
                     this.getNavigation().stop();
 
                     // Keep looking at the player we're talking to
-                    if (currentlyTalkingTo != null && level() instanceof ServerLevel serverLevel) {
+                    if (conversationPartner != null && level() instanceof ServerLevel serverLevel) {
                         ServerPlayer player = serverLevel.getServer().getPlayerList()
-                            .getPlayer(currentlyTalkingTo);
+                            .getPlayer(conversationPartner);
                         if (player != null && player.distanceToSqr(this) < 100) {
                             this.getLookControl().setLookAt(player, 30.0F, 30.0F);
                         } else {
@@ -416,14 +549,77 @@ public class StorytellerNPC extends PathfinderMob {
     }
 
     /**
-     * End the current conversation, allowing the NPC to move again
+     * Every so often, say a pre-generated idle line to players close by. Nothing is
+     * generated here; if no line is ready yet the NPC stays quiet.
+     */
+    private void tickAmbientLine(ServerLevel serverLevel) {
+        int interval = ModConfig.COMMON.ambientLineInterval.get() * 20;
+        if (interval <= 0 || this.tickCount < nextAmbientLineTick) {
+            return;
+        }
+        // Jitter so NPCs placed together don't all speak on the same tick
+        nextAmbientLineTick = this.tickCount + interval / 2 + random.nextInt(interval);
+
+        List<ServerPlayer> nearby = serverLevel.getPlayers(
+            p -> p.distanceToSqr(this) < AMBIENT_LINE_RANGE * AMBIENT_LINE_RANGE);
+        if (nearby.isEmpty()) {
+            return;
+        }
+
+        AmbientLines.Line line = AmbientLines.take(getCharacter());
+        if (line == null) {
+            return;
+        }
+        // Grey and italic: overheard, not addressed to anyone
+        Component message = Component.literal(
+            "§7[" + getNPCDisplayName() + "] §o*" + line.action() + "* " + line.text());
+        for (ServerPlayer player : nearby) {
+            player.sendSystemMessage(message);
+        }
+    }
+
+    private void prefillGreeting(ServerLevel serverLevel, ServerPlayer player) {
+        WorldContext worldContext = ModConfig.COMMON.includeWorldContext.get()
+            ? WorldContext.build(serverLevel, player, this)
+            : null;
+        boolean returning = !ConversationHistory.getHistory(this.getUUID(), player.getUUID()).isEmpty()
+            || ConversationHistory.getConversationCount(this.getUUID(), player.getUUID()) > 0;
+        GreetingPool.prefill(getCharacter(), returning, worldContext);
+    }
+
+    /**
+     * End the current conversation, allowing the NPC to move again.
+     * A reply still being generated is cancelled, which aborts the request to the model.
      */
     public void endConversation() {
+        CompletableFuture<String> pending = pendingResponse;
+        pendingResponse = null;
+        if (pending != null && pending.cancel(true)) {
+            StorytellerMod.LOGGER.debug("NPC {} cancelled an unfinished response", getNPCDisplayName());
+        }
+
         setInConversation(false);
         setThinking(false);
         currentlyTalkingTo = null;
+        conversationPartner = null;
         processingRequest.set(false);
     }
+
+    /**
+     * The player closed their chat screen. Ends the conversation if it was theirs,
+     * so no more work is done on a reply they won't see.
+     */
+    public void onChatScreenClosed(ServerPlayer player) {
+        if (player.getUUID().equals(conversationPartner)) {
+            endConversation();
+        }
+    }
+
+    private void clearPendingResponse(CompletableFuture<String> finished) {
+        if (pendingResponse == finished) {
+            pendingResponse = null;
+        }
+    }
     
     @Override
     public boolean isInvulnerableTo(ServerLevel level, DamageSource source) {
@@ -6,13 +6,13 @@ import com.google.gson.JsonObject;
 import com.storyteller.StorytellerMod;
 import com.storyteller.config.ModConfig;
 import com.storyteller.entity.StorytellerNPC;
+import com.storyteller.llm.HttpTransport;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
@@ -33,9 +33,6 @@ public class EiraIntegrationManager {
 
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
 
-    // Webhook HTTP client
-    private HttpClient webhookClient;
-
     // Track redstone states to detect changes
     private final Map<UUID, Map<BlockPos, Boolean>> npcRedstoneStates = new ConcurrentHashMap<>();
 
@@ -53,12 +50,6 @@ public class EiraIntegrationManager {
             return;
         }
 
-        int timeout = ModConfig.COMMON.webhookTimeout.get();
-
-        this.webhookClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofMillis(timeout))
-            .build();
-
         initialized = true;
         StorytellerMod.LOGGER.info("Eira Relay integration initialized");
     }
@@ -247,32 +238,37 @@ public class EiraIntegrationManager {
             return CompletableFuture.completedFuture(false);
         }
 
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                JsonObject payload = buildWebhookPayload(npc, player, event, data);
-
-                int timeout = ModConfig.COMMON.webhookTimeout.get();
+        HttpRequest request;
+        try {
+            JsonObject payload = buildWebhookPayload(npc, player, event, data);
 
-                HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(webhookUrl))
-                    .timeout(Duration.ofMillis(timeout))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(payload)))
-                    .build();
+            int timeout = ModConfig.COMMON.webhookTimeout.get();
 
-                HttpResponse<String> response = webhookClient.send(request, HttpResponse.BodyHandlers.ofString());
+            request = HttpRequest.newBuilder()
+                .uri(URI.create(webhookUrl))
+                .timeout(Duration.ofMillis(timeout))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(payload)))
+                .build();
+        } catch (Exception e) {
+            StorytellerMod.LOGGER.error("Webhook error for {}: {}", webhookUrl, e.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
 
+        // Sent on the shared transport; no thread waits on the response
+        return HttpTransport.shared().sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            .thenApply(response -> {
                 boolean success = response.statusCode() >= 200 && response.statusCode() < 300;
                 if (!success) {
                     StorytellerMod.LOGGER.warn("Webhook failed: {} returned {}",
                         webhookUrl, response.statusCode());
                 }
                 return success;
-            } catch (Exception e) {
+            })
+            .exceptionally(e -> {
                 StorytellerMod.LOGGER.error("Webhook error for {}: {}", webhookUrl, e.getMessage());
                 return false;
-            }
-        });
+            });
     }
 
     private String getWebhookUrl(NPCEvent event) {
@@ -343,7 +339,6 @@ public class EiraIntegrationManager {
     }
 
     public void shutdown() {
-        // HttpClient doesn't need explicit shutdown
         npcRedstoneStates.clear();
         activeEmissions.clear();
         eventCooldowns.clear();
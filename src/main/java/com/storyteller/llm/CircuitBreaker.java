@@ -0,0 +1,187 @@
+package com.storyteller.llm;
+
+import com.storyteller.StorytellerMod;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks recent outcomes for one provider and stops sending it requests while it is failing.
+ *
+ * CLOSED: requests flow; the breaker opens when the error rate or the timeout rate over the
+ * last {@value #WINDOW_SIZE} requests reaches its threshold.
+ * OPEN: requests are refused until the cooldown has passed.
+ * HALF_OPEN: a single probe request is let through; success closes the breaker, failure reopens it.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private enum Outcome { SUCCESS, ERROR, TIMEOUT }
+
+    static final int WINDOW_SIZE = 20;
+    static final int MIN_CALLS = 5;
+    private static final int MAX_TRANSITIONS = 5;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final String name;
+    private final double errorRateThreshold;
+    private final double timeoutRateThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+
+    private final Deque<Outcome> window = new ArrayDeque<>();
+    private final Deque<String> transitions = new ArrayDeque<>();
+    private State state = State.CLOSED;
+    private long openedAt = 0;
+    private boolean probeInFlight = false;
+
+    /**
+     * @param name Provider name for logs and status
+     * @param errorRatePercent Error rate (0-100) at which the breaker opens
+     * @param timeoutRatePercent Timeout rate (0-100) at which the breaker opens
+     * @param openSeconds How long the breaker stays open before probing
+     */
+    public CircuitBreaker(String name, int errorRatePercent, int timeoutRatePercent, int openSeconds) {
+        this(name, errorRatePercent, timeoutRatePercent, openSeconds, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(String name, int errorRatePercent, int timeoutRatePercent, int openSeconds, LongSupplier clock) {
+        this.name = name;
+        this.errorRateThreshold = errorRatePercent / 100.0;
+        this.timeoutRateThreshold = timeoutRatePercent / 100.0;
+        this.openMillis = openSeconds * 1000L;
+        this.clock = clock;
+    }
+
+    /**
+     * Whether a request may be sent now. In HALF_OPEN this claims the single probe slot,
+     * so every true result must be followed by one of the record methods.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openedAt < openMillis) {
+                    return false;
+                }
+                transition(State.HALF_OPEN, "cooldown over, probing");
+                probeInFlight = true;
+                return true;
+            case HALF_OPEN:
+            default:
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    public void recordSuccess() {
+        record(Outcome.SUCCESS);
+    }
+
+    public void recordError() {
+        record(Outcome.ERROR);
+    }
+
+    public void recordTimeout() {
+        record(Outcome.TIMEOUT);
+    }
+
+    /**
+     * The request was cancelled before it finished; says nothing about the provider's health
+     */
+    public synchronized void recordCancelled() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    private synchronized void record(Outcome outcome) {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            if (outcome == Outcome.SUCCESS) {
+                window.clear();
+                transition(State.CLOSED, "probe succeeded");
+            } else {
+                open("probe " + (outcome == Outcome.TIMEOUT ? "timed out" : "failed"));
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // A request that started before the breaker opened
+            return;
+        }
+
+        window.addLast(outcome);
+        if (window.size() > WINDOW_SIZE) {
+            window.removeFirst();
+        }
+        if (window.size() < MIN_CALLS) {
+            return;
+        }
+
+        double errorRate = rate(Outcome.ERROR);
+        double timeoutRate = rate(Outcome.TIMEOUT);
+        if (errorRate >= errorRateThreshold) {
+            open(percent(errorRate) + " errors");
+        } else if (timeoutRate >= timeoutRateThreshold) {
+            open(percent(timeoutRate) + " timeouts");
+        }
+    }
+
+    private void open(String reason) {
+        openedAt = clock.getAsLong();
+        window.clear();
+        transition(State.OPEN, reason);
+    }
+
+    private void transition(State next, String reason) {
+        String line = LocalTime.now().format(TIME_FORMAT) + " " + state + " -> " + next + " (" + reason + ")";
+        state = next;
+        transitions.addLast(line);
+        if (transitions.size() > MAX_TRANSITIONS) {
+            transitions.removeFirst();
+        }
+        StorytellerMod.LOGGER.warn("Circuit breaker for {}: {}", name, line);
+    }
+
+    private double rate(Outcome outcome) {
+        long count = window.stream().filter(o -> o == outcome).count();
+        return (double) count / window.size();
+    }
+
+    private static String percent(double rate) {
+        return Math.round(rate * 100) + "%";
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * One-line summary: state plus error and timeout rates over the current window
+     */
+    public synchronized String describe() {
+        if (window.isEmpty()) {
+            return state.toString();
+        }
+        return state + ", " + percent(rate(Outcome.ERROR)) + " errors, "
+            + percent(rate(Outcome.TIMEOUT)) + " timeouts over " + window.size() + " requests";
+    }
+
+    /**
+     * The most recent state changes, oldest first
+     */
+    public synchronized List<String> getTransitions() {
+        return new ArrayList<>(transitions);
+    }
+}
@@ -0,0 +1,364 @@
+package com.storyteller.llm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * A set of interchangeable endpoints for one provider (e.g. several Ollama boxes).
+ *
+ * Each endpoint tracks an EWMA of its latency and how many requests it is serving.
+ * Requests go to the least-loaded healthy endpoint; one that keeps failing to connect,
+ * timing out or answering 5xx is taken out of rotation for a while. Optionally, a request that has not
+ * produced anything by the pool's 95th percentile response time is hedged: a duplicate
+ * goes to a second endpoint, the first to respond wins and the other is cancelled.
+ */
+public class EndpointPool {
+
+    private static final double EWMA_ALPHA = 0.2;
+    private static final int FAILURES_BEFORE_DOWN = 3;
+    private static final long DOWN_MILLIS = 30_000;
+    private static final int LATENCY_SAMPLES = 100;
+    private static final int MIN_SAMPLES_FOR_HEDGE = 20;
+
+    private final List<Endpoint> endpoints;
+    private final boolean hedging;
+    private final Executor executor;
+
+    // Recent response times across the pool, for the hedge delay. Streamed requests are
+    // hedged on their first token and plain ones on the whole reply, so they are kept apart.
+    private final LatencySamples firstTokenSamples = new LatencySamples();
+    private final LatencySamples completionSamples = new LatencySamples();
+
+    /**
+     * @param urls Endpoint base URLs (duplicates are ignored)
+     * @param hedging Whether slow requests may be duplicated to a second endpoint
+     * @param executor Executor used to fire hedge timers
+     */
+    public EndpointPool(List<String> urls, boolean hedging, Executor executor) {
+        List<Endpoint> list = new ArrayList<>();
+        for (String url : urls) {
+            String trimmed = url.strip();
+            if (!trimmed.isEmpty() && list.stream().noneMatch(e -> e.url.equals(trimmed))) {
+                list.add(new Endpoint(trimmed));
+            }
+        }
+        this.endpoints = new CopyOnWriteArrayList<>(list);
+        this.hedging = hedging;
+        this.executor = executor;
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return Collections.unmodifiableList(endpoints);
+    }
+
+    /**
+     * Pick the least-loaded healthy endpoint: lowest (in-flight + 1) x EWMA latency.
+     * Endpoints without samples yet score zero so they get tried.
+     * If every endpoint is down, the one that went down first is returned anyway.
+     */
+    public Endpoint select(Endpoint exclude) {
+        long now = System.currentTimeMillis();
+        Endpoint best = null;
+        double bestScore = Double.MAX_VALUE;
+
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint == exclude || !endpoint.isHealthy(now)) {
+                continue;
+            }
+            double score = (endpoint.inFlight.get() + 1) * Math.max(0, endpoint.ewmaMillis);
+            if (score < bestScore) {
+                bestScore = score;
+                best = endpoint;
+            }
+        }
+
+        if (best == null && exclude == null) {
+            for (Endpoint endpoint : endpoints) {
+                if (endpoint.ready && (best == null || endpoint.downUntil < best.downUntil)) {
+                    best = endpoint;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Run a request on the best endpoint, hedging it if enabled.
+     *
+     * @param onToken Streaming callback, or null for a plain request. With hedging, only
+     *                the attempt that produces the first token is forwarded.
+     * @param call Sends the request to the given endpoint. The future must fail on errors
+     *             and abort the underlying HTTP exchange when cancelled.
+     */
+    public CompletableFuture<String> execute(Consumer<String> onToken,
+                                             BiFunction<Endpoint, Consumer<String>, CompletableFuture<String>> call) {
+        Endpoint primary = select(null);
+        if (primary == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No endpoints configured"));
+        }
+
+        Hedge hedge = new Hedge(onToken, call);
+        hedge.start(primary);
+
+        long delay = getHedgeDelayMillis(onToken != null);
+        if (hedging && delay > 0 && endpoints.size() > 1) {
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor).execute(() -> {
+                if (!hedge.result.isDone() && !hedge.hasResponded()) {
+                    Endpoint second = select(primary);
+                    if (second != null) {
+                        hedge.start(second);
+                    }
+                }
+            });
+        }
+
+        // Cancelling the request cancels every attempt
+        hedge.result.whenComplete((response, error) -> hedge.cancelAll(null));
+        return hedge.result;
+    }
+
+    /**
+     * The 95th percentile time to first response, or -1 if there are too few samples
+     *
+     * @param streaming Time to the first token of streamed requests rather than to the whole reply of plain ones
+     */
+    public long getHedgeDelayMillis(boolean streaming) {
+        return (streaming ? firstTokenSamples : completionSamples).percentile95();
+    }
+
+    /**
+     * Whether an error says something about the endpoint's health: it could not be reached,
+     * timed out, or failed on its side (5xx). A request it turned down (4xx) does not count.
+     */
+    static boolean isEndpointFailure(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof HttpStatusException status) {
+            return status.getStatusCode() >= 500;
+        }
+        return cause instanceof IOException || cause instanceof TimeoutException;
+    }
+
+    /**
+     * The most recent response times of one kind
+     */
+    private static final class LatencySamples {
+        private final long[] samples = new long[LATENCY_SAMPLES];
+        private int count = 0;
+        private int index = 0;
+
+        synchronized void record(long millis) {
+            samples[index] = millis;
+            index = (index + 1) % LATENCY_SAMPLES;
+            count = Math.min(count + 1, LATENCY_SAMPLES);
+        }
+
+        synchronized long percentile95() {
+            if (count < MIN_SAMPLES_FOR_HEDGE) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(0.95 * sorted.length) - 1];
+        }
+    }
+
+    /**
+     * One line per endpoint for status output
+     */
+    public List<String> describe() {
+        long now = System.currentTimeMillis();
+        List<String> lines = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            String state = !endpoint.ready ? "warming up"
+                : endpoint.isHealthy(now) ? "up" : "down";
+            String latency = endpoint.ewmaMillis < 0 ? "no data" : Math.round(endpoint.ewmaMillis) + "ms avg";
+            lines.add(endpoint.url + ": " + state + ", " + latency + ", " + endpoint.inFlight.get() + " in flight");
+        }
+        return lines;
+    }
+
+    /**
+     * A single request and its (possibly hedged) attempts
+     */
+    private final class Hedge {
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        final Consumer<String> onToken;
+        final BiFunction<Endpoint, Consumer<String>, CompletableFuture<String>> call;
+        final Map<Object, CompletableFuture<String>> attempts = new ConcurrentHashMap<>();
+        final AtomicInteger pending = new AtomicInteger();
+        // The attempt whose output the caller sees (streaming: first to emit a token)
+        final AtomicReference<Object> winner = new AtomicReference<>();
+
+        Hedge(Consumer<String> onToken, BiFunction<Endpoint, Consumer<String>, CompletableFuture<String>> call) {
+            this.onToken = onToken;
+            this.call = call;
+        }
+
+        boolean hasResponded() {
+            return winner.get() != null;
+        }
+
+        void start(Endpoint endpoint) {
+            Object id = new Object();
+            long startTime = System.nanoTime();
+            AtomicBoolean sampled = new AtomicBoolean(false);
+
+            Consumer<String> sink = null;
+            if (onToken != null) {
+                sink = token -> {
+                    if (winner.compareAndSet(null, id)) {
+                        cancelAll(id);
+                    }
+                    if (winner.get() == id) {
+                        if (sampled.compareAndSet(false, true)) {
+                            firstTokenSamples.record(elapsedMillis(startTime));
+                        }
+                        onToken.accept(token);
+                    }
+                };
+            }
+
+            pending.incrementAndGet();
+            endpoint.inFlight.incrementAndGet();
+
+            CompletableFuture<String> started;
+            try {
+                started = call.apply(endpoint, sink);
+            } catch (Exception e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<String> attempt = started;
+            attempts.put(id, attempt);
+
+            attempt.whenComplete((response, error) -> {
+                endpoint.inFlight.decrementAndGet();
+                int left = pending.decrementAndGet();
+
+                if (attempt.isCancelled()) {
+                    // Lost the race; says nothing about the endpoint's health
+                    return;
+                }
+
+                long elapsed = elapsedMillis(startTime);
+                if (error != null) {
+                    if (isEndpointFailure(error)) {
+                        endpoint.recordFailure();
+                    }
+                    if ((left == 0 && winner.get() == null) || winner.get() == id) {
+                        result.completeExceptionally(error);
+                    }
+                    return;
+                }
+
+                endpoint.recordSuccess(elapsed);
+                if (onToken == null && sampled.compareAndSet(false, true)) {
+                    completionSamples.record(elapsed);
+                }
+                if (winner.compareAndSet(null, id) || winner.get() == id) {
+                    result.complete(response);
+                }
+            });
+
+            // A hedge started after the result was decided is not needed
+            if (result.isDone()) {
+                attempt.cancel(true);
+            }
+        }
+
+        /**
+         * Cancel every attempt except the given one (null cancels all)
+         */
+        void cancelAll(Object except) {
+            attempts.forEach((id, attempt) -> {
+                if (id != except && !attempt.isDone()) {
+                    attempt.cancel(true);
+                }
+            });
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * One endpoint URL and its live statistics
+     */
+    public static final class Endpoint {
+        private final String url;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile double ewmaMillis = -1;
+        private volatile int consecutiveFailures = 0;
+        private volatile long downUntil = 0;
+        private volatile boolean ready = true;
+
+        Endpoint(String url) {
+            this.url = url;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * Smoothed latency in milliseconds, or -1 before the first response
+         */
+        public double getEwmaMillis() {
+            return ewmaMillis;
+        }
+
+        /**
+         * Mark whether the endpoint can take traffic yet (e.g. false while its model loads)
+         */
+        public void setReady(boolean ready) {
+            this.ready = ready;
+        }
+
+        /**
+         * Take the endpoint out of rotation for a while (e.g. it failed its connection check)
+         */
+        public void markDown() {
+            consecutiveFailures = FAILURES_BEFORE_DOWN;
+            downUntil = System.currentTimeMillis() + DOWN_MILLIS;
+        }
+
+        boolean isHealthy(long now) {
+            return ready && now >= downUntil;
+        }
+
+        synchronized void recordSuccess(long millis) {
+            ewmaMillis = ewmaMillis < 0 ? millis : EWMA_ALPHA * millis + (1 - EWMA_ALPHA) * ewmaMillis;
+            consecutiveFailures = 0;
+        }
+
+        synchronized void recordFailure() {
+            consecutiveFailures++;
+            if (consecutiveFailures >= FAILURES_BEFORE_DOWN) {
+                downUntil = System.currentTimeMillis() + DOWN_MILLIS;
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.storyteller.llm;
+
+import com.storyteller.config.ModConfig;
+
+import java.util.List;
+
+/**
+ * How long a reply may get and where it ends.
+ *
+ * @param maxTokens Hard cap sent to the provider
+ * @param maxSentences Sentences after which the reply is cut off (and a stream closed); 0 for no limit
+ * @param stopSequences Text the provider stops generating at; not included in the reply
+ */
+public record GenerationProfile(int maxTokens, int maxSentences, List<String> stopSequences) {
+
+    public GenerationProfile {
+        stopSequences = stopSequences == null ? List.of() : List.copyOf(stopSequences);
+    }
+
+    /**
+     * The server-wide settings from the {@code [npc]} config section
+     */
+    public static GenerationProfile defaults() {
+        return new GenerationProfile(
+            ModConfig.COMMON.maxResponseTokens.get(),
+            ModConfig.COMMON.maxResponseSentences.get(),
+            List.copyOf(ModConfig.COMMON.stopSequences.get())
+        );
+    }
+
+    /**
+     * This profile with any non-null values replaced, e.g. by a character's own settings
+     */
+    public GenerationProfile withOverrides(Integer maxTokens, Integer maxSentences, List<String> stopSequences) {
+        return new GenerationProfile(
+            maxTokens != null ? maxTokens : this.maxTokens,
+            maxSentences != null ? maxSentences : this.maxSentences,
+            stopSequences != null ? stopSequences : this.stopSequences
+        );
+    }
+}
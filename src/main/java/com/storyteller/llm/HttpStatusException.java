@@ -0,0 +1,18 @@
+package com.storyteller.llm;
+
+/**
+ * Thrown (as the cause of a failed future) when an endpoint answers with a non-2xx status
+ */
+public class HttpStatusException extends RuntimeException {
+
+    private final int statusCode;
+
+    public HttpStatusException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
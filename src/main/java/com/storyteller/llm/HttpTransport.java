@@ -0,0 +1,189 @@
+package com.storyteller.llm;
+
+import com.storyteller.StorytellerMod;
+import com.storyteller.config.ModConfig;
+import com.storyteller.metrics.Metrics;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The one HTTP client the mod uses, shared by the LLM providers and webhooks so connections
+ * (and their TLS sessions) survive provider re-initialization and switches.
+ *
+ * HTTPS requests prefer HTTP/2, which multiplexes concurrent requests to a host over one
+ * connection; plain HTTP (e.g. a local Ollama) stays on HTTP/1.1. Requests in flight per host
+ * are capped, and the rest wait in line without holding a thread.
+ */
+public final class HttpTransport {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    // Only keep connections warm for hosts that had real traffic this recently
+    private static final long KEEP_WARM_ACTIVE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private static volatile HttpTransport shared;
+
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService keepWarm;
+    private final long keepWarmNanos;
+    private final int maxPerHost;
+    private final Map<String, RequestLimiter> hosts = new ConcurrentHashMap<>();
+    private final Map<String, Origin> origins = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * An HTTPS origin and when it was last used, for keeping its connection open
+     */
+    private static final class Origin {
+        final URI uri;
+        volatile long lastRequest;
+        volatile long lastSent;
+
+        Origin(URI uri) {
+            this.uri = uri;
+        }
+    }
+
+    /**
+     * @param threads Threads for response handling and callbacks
+     * @param maxPerHost Requests in flight to one host at a time
+     * @param keepWarmSeconds How often idle HTTPS connections are kept open with a HEAD request; 0 to let them close
+     */
+    HttpTransport(int threads, int maxPerHost, int keepWarmSeconds) {
+        this.maxPerHost = maxPerHost;
+        this.executor = Executors.newFixedThreadPool(threads,
+            Thread.ofPlatform().name("storyteller-http-", 0).daemon().factory());
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .executor(executor)
+            .build();
+
+        this.keepWarmNanos = TimeUnit.SECONDS.toNanos(keepWarmSeconds);
+        if (keepWarmSeconds > 0) {
+            keepWarm = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("storyteller-http-keepwarm").daemon().factory());
+            keepWarm.scheduleWithFixedDelay(this::keepWarm, keepWarmSeconds, keepWarmSeconds, TimeUnit.SECONDS);
+        } else {
+            keepWarm = null;
+        }
+
+        Metrics.gauge("storyteller_http_requests_in_flight", "HTTP requests sent and not yet complete", this::getInFlight);
+        Metrics.gauge("storyteller_http_requests_waiting", "HTTP requests waiting for a free slot at their host", this::getWaiting);
+    }
+
+    /**
+     * The shared transport, created from the {@code [http]} config on first use and kept for the
+     * life of the game
+     */
+    public static HttpTransport shared() {
+        HttpTransport current = shared;
+        if (current == null) {
+            synchronized (HttpTransport.class) {
+                current = shared;
+                if (current == null) {
+                    current = new HttpTransport(
+                        ModConfig.COMMON.httpThreads.get(),
+                        ModConfig.COMMON.httpMaxRequestsPerHost.get(),
+                        ModConfig.COMMON.httpKeepWarmSeconds.get()
+                    );
+                    shared = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Send a request once its host has a free slot. Cancelling the returned future drops a
+     * waiting request or aborts the exchange.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+        URI uri = request.uri();
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        HttpRequest prepared = secure || request.version().isPresent()
+            ? request
+            // Skip the h2c upgrade attempt; local servers like Ollama only speak HTTP/1.1
+            : HttpRequest.newBuilder(request, (name, value) -> true).version(HttpClient.Version.HTTP_1_1).build();
+
+        String host = uri.getHost();
+        if (secure) {
+            origins.computeIfAbsent(origin(uri), key -> new Origin(URI.create(key + "/"))).lastRequest = System.nanoTime();
+        }
+
+        RequestLimiter limiter = hosts.computeIfAbsent(origin(uri), key -> new RequestLimiter(maxPerHost, executor));
+        return limiter.submit(() -> {
+            long start = System.nanoTime();
+            inFlight.incrementAndGet();
+            CompletableFuture<HttpResponse<T>> sent = client.sendAsync(prepared, info -> {
+                Metrics.HTTP_RESPONSE_HEADERS.observeNanos(host, protocol(info.version()), System.nanoTime() - start);
+                return handler.apply(info);
+            });
+            sent.whenComplete((response, error) -> inFlight.decrementAndGet());
+            return sent;
+        });
+    }
+
+    /**
+     * Send a HEAD request to recently used HTTPS hosts that have been idle for a while, so the
+     * next real request finds an open connection instead of paying for a new TCP and TLS handshake
+     */
+    private void keepWarm() {
+        long now = System.nanoTime();
+        for (Origin origin : origins.values()) {
+            long sinceRequest = now - origin.lastRequest;
+            if (sinceRequest > KEEP_WARM_ACTIVE_NANOS || sinceRequest < keepWarmNanos
+                    || now - origin.lastSent < keepWarmNanos) {
+                continue;
+            }
+            origin.lastSent = now;
+            HttpRequest ping = HttpRequest.newBuilder(origin.uri)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(CONNECT_TIMEOUT)
+                .build();
+            client.sendAsync(ping, HttpResponse.BodyHandlers.discarding())
+                .exceptionally(e -> {
+                    StorytellerMod.LOGGER.debug("Keep-warm request to {} failed: {}", origin.uri, e.getMessage());
+                    return null;
+                });
+        }
+    }
+
+    /**
+     * Number of requests sent and not yet complete
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Number of requests waiting for a slot at their host
+     */
+    public int getWaiting() {
+        int waiting = 0;
+        for (RequestLimiter limiter : hosts.values()) {
+            waiting += limiter.getWaiting();
+        }
+        return waiting;
+    }
+
+    private static String origin(URI uri) {
+        return uri.getScheme() + "://" + uri.getAuthority();
+    }
+
+    private static String protocol(HttpClient.Version version) {
+        return version == HttpClient.Version.HTTP_2 ? "h2" : "http/1.1";
+    }
+}
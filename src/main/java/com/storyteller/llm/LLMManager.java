@@ -3,45 +3,125 @@ package com.storyteller.llm;
 import com.storyteller.StorytellerMod;
 import com.storyteller.config.ModConfig;
 import com.storyteller.llm.providers.ClaudeProvider;
+import com.storyteller.llm.providers.LocalProvider;
 import com.storyteller.llm.providers.OllamaProvider;
 import com.storyteller.llm.providers.OpenAIProvider;
+import com.storyteller.metrics.Metrics;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
- * Manages LLM providers and routes requests to the active provider
+ * Manages LLM providers and routes requests to the active provider.
+ * Owns the executor all provider I/O runs on, so nothing here blocks the server thread.
+ * Each provider has a circuit breaker; while the active provider is failing, requests
+ * fail over to the next healthy provider.
  */
 public class LLMManager {
-    
+
     private final Map<ModConfig.LLMProvider, LLMProvider> providers = new HashMap<>();
-    private LLMProvider activeProvider;
+    private final Map<LLMProvider, RequestLimiter> limiters = new HashMap<>();
+    // Separate slots for fast-tier requests, so small talk never waits behind the main model
+    private final Map<LLMProvider, RequestLimiter> fastLimiters = new HashMap<>();
+    private final Map<LLMProvider, CircuitBreaker> breakers = new HashMap<>();
+    // Provider label used in metrics, e.g. "ollama"
+    private final Map<LLMProvider, String> metricLabels = new HashMap<>();
+    private ExecutorService executor;
+    private RequestScheduler scheduler;
+    private RequestCoalescer coalescer;
+    private volatile LLMProvider activeProvider;
     
     public void initialize() {
         StorytellerMod.LOGGER.info("Initializing LLM providers...");
+
+        // Requests spend almost all their time waiting on the network, so virtual threads are a good fit
+        executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("storyteller-llm-", 0).factory()
+        );
         
         // Create all providers
-        providers.put(ModConfig.LLMProvider.OLLAMA, new OllamaProvider());
+        providers.put(ModConfig.LLMProvider.OLLAMA, new OllamaProvider(executor));
         providers.put(ModConfig.LLMProvider.CLAUDE, new ClaudeProvider());
-        providers.put(ModConfig.LLMProvider.OPENAI, new OpenAIProvider());
+        providers.put(ModConfig.LLMProvider.OPENAI, new OpenAIProvider(executor));
+        providers.put(ModConfig.LLMProvider.LOCAL, new LocalProvider());
+
+        // Per-provider concurrency limits
+        limiters.put(providers.get(ModConfig.LLMProvider.OLLAMA),
+            new RequestLimiter(ModConfig.COMMON.ollamaMaxConcurrent.get(), executor));
+        limiters.put(providers.get(ModConfig.LLMProvider.CLAUDE),
+            new RequestLimiter(ModConfig.COMMON.claudeMaxConcurrent.get(), executor));
+        limiters.put(providers.get(ModConfig.LLMProvider.OPENAI),
+            new RequestLimiter(ModConfig.COMMON.openaiMaxConcurrent.get(), executor));
+        // The local model generates one reply at a time; the rest wait in the scheduler's queue
+        limiters.put(providers.get(ModConfig.LLMProvider.LOCAL), new RequestLimiter(1, executor));
+        fastLimiters.put(providers.get(ModConfig.LLMProvider.OLLAMA),
+            new RequestLimiter(ModConfig.COMMON.ollamaFastMaxConcurrent.get(), executor));
+        fastLimiters.put(providers.get(ModConfig.LLMProvider.CLAUDE),
+            new RequestLimiter(ModConfig.COMMON.claudeFastMaxConcurrent.get(), executor));
+        fastLimiters.put(providers.get(ModConfig.LLMProvider.OPENAI),
+            new RequestLimiter(ModConfig.COMMON.openaiFastMaxConcurrent.get(), executor));
+
+        for (ModConfig.LLMProvider type : ModConfig.LLMProvider.values()) {
+            metricLabels.put(providers.get(type), type.name().toLowerCase());
+            breakers.put(providers.get(type), new CircuitBreaker(
+                type.getDisplayName(),
+                ModConfig.COMMON.circuitBreakerErrorRate.get(),
+                ModConfig.COMMON.circuitBreakerTimeoutRate.get(),
+                ModConfig.COMMON.circuitBreakerOpenSeconds.get()
+            ));
+        }
+
+        // Central queue in front of whichever provider is active
+        scheduler = new RequestScheduler(
+            ModConfig.COMMON.maxQueuedRequests.get(),
+            ModConfig.COMMON.maxMessagesPerMinute.get(),
+            ModConfig.COMMON.maxBackgroundRequests.get(),
+            this::schedulerCapacity,
+            executor
+        );
+        if (ModConfig.COMMON.coalesceRequests.get()) {
+            coalescer = new RequestCoalescer(ModConfig.COMMON.responseCacheSeconds.get());
+        }
+        Metrics.gauge("storyteller_requests_in_flight", "LLM requests currently generating", this::getRunningRequests);
+        Metrics.gauge("storyteller_requests_queued", "LLM requests waiting in the scheduler queue", this::getQueuedRequests);
+        Metrics.counter("storyteller_background_preempted", "Background requests preempted by foreground work since startup",
+            this::getPreemptedRequests);
         
         // Get configured provider
         ModConfig.LLMProvider configuredProvider = ModConfig.COMMON.llmProvider.get();
         StorytellerMod.LOGGER.info("Configured LLM provider: {}", configuredProvider.getDisplayName());
         
         // Initialize the configured provider
+        boolean failover = ModConfig.COMMON.failover.get();
         LLMProvider provider = providers.get(configuredProvider);
         provider.initialize().thenAccept(success -> {
             if (success) {
-                activeProvider = provider;
+                activate(provider);
                 StorytellerMod.LOGGER.info("LLM provider {} initialized successfully", provider.getName());
             } else {
                 StorytellerMod.LOGGER.warn("Failed to initialize {}, trying fallbacks...", provider.getName());
-                tryFallbackProviders(configuredProvider);
+                if (!failover) {
+                    tryFallbackProviders(configuredProvider);
+                }
             }
         });
+
+        // With failover, the other providers start alongside so they are ready to take over
+        if (failover) {
+            tryFallbackProviders(configuredProvider);
+        }
     }
     
     private void tryFallbackProviders(ModConfig.LLMProvider excludeProvider) {
@@ -51,27 +131,429 @@ public class LLMManager {
                 LLMProvider provider = entry.getValue();
                 provider.initialize().thenAccept(success -> {
                     if (success && activeProvider == null) {
-                        activeProvider = provider;
+                        activate(provider);
                         StorytellerMod.LOGGER.info("Fallback LLM provider {} initialized", provider.getName());
+                    } else if (success) {
+                        StorytellerMod.LOGGER.info("LLM provider {} on standby for failover", provider.getName());
                     }
                 });
             }
         }
     }
     
+    private void activate(LLMProvider provider) {
+        activeProvider = provider;
+        RequestScheduler current = scheduler;
+        if (current != null) {
+            // Requests queued while the provider warms up start as soon as it is ready
+            provider.whenReady().thenRun(current::dispatch);
+        }
+    }
+
+    /**
+     * How many requests the scheduler may run right now
+     */
+    private int schedulerCapacity() {
+        LLMProvider provider = activeProvider;
+        if (provider == null) {
+            // Let requests through so they get the "not available" reply
+            return 1;
+        }
+        if (!provider.whenReady().isDone()) {
+            return 0;
+        }
+        RequestLimiter limiter = limiters.get(provider);
+        int capacity = limiter != null ? limiter.getMaxConcurrent() : 1;
+        RequestLimiter fastLimiter = fastLimiters.get(provider);
+        if (fastLimiter != null && provider.hasFastModel()) {
+            capacity += fastLimiter.getMaxConcurrent();
+        }
+        return capacity;
+    }
+
     /**
      * Send a chat request to the active LLM provider
      */
     public CompletableFuture<String> chat(String systemPrompt, List<LLMProvider.ChatMessage> messages) {
+        return submit(new LLMRequest(systemPrompt, messages));
+    }
+
+    /**
+     * Send a chat request to the active LLM provider, streaming the response as it is generated
+     */
+    public CompletableFuture<String> chatStream(String systemPrompt, List<LLMProvider.ChatMessage> messages,
+                                                Consumer<String> onToken) {
+        return submit(new LLMRequest(systemPrompt, messages).onToken(onToken));
+    }
+
+    /**
+     * Queue a request with the scheduler. It runs on the active provider once it reaches
+     * the front of the line; rejected requests fail with {@link LLMRequestRejectedException}.
+     */
+    public CompletableFuture<String> submit(LLMRequest request) {
         if (activeProvider == null || !activeProvider.isAvailable()) {
-            return CompletableFuture.completedFuture(
-                "[No LLM provider available. Please check your configuration.]"
-            );
+            return CompletableFuture.failedFuture(new LLMProviderException("No LLM provider available"));
         }
-        
-        return activeProvider.chat(systemPrompt, messages);
+
+        if (request.getProfile() == null) {
+            request.withProfile(GenerationProfile.defaults());
+        }
+
+        long budgetStart = System.nanoTime();
+        request.applyBudget(new PromptBudget(ModConfig.COMMON.contextTokens.get()));
+        long now = System.nanoTime();
+        Metrics.PROMPT_ASSEMBLY.observeNanos(metricLabels.get(activeProvider), request.getCharacterId(),
+            request.getPromptAssemblyNanos() + (now - budgetStart));
+        request.submittedNanos = now;
+
+        // Identical requests in flight at the same time (e.g. a crowd greeted at once) share one call
+        RequestCoalescer currentCoalescer = coalescer;
+        if (currentCoalescer != null) {
+            return currentCoalescer.submit(request, this::schedule);
+        }
+        return schedule(request);
+    }
+
+    /**
+     * Run a job in the background lane: only while no player is waiting on the LLM, and
+     * cancelled (to be started again later) as soon as one is. For ahead-of-time work that
+     * is not a chat request, such as computing embeddings on the provider. The job must be
+     * safe to start more than once.
+     */
+    public CompletableFuture<Void> runWhenIdle(Supplier<CompletableFuture<?>> job) {
+        RequestScheduler current = scheduler;
+        if (current == null) {
+            return job.get().thenApply(result -> null);
+        }
+        return current.submitBackground(() -> {
+            CompletableFuture<?> running = job.get();
+            CompletableFuture<String> done = running.thenApply(result -> null);
+            // Preemption cancels the stage it was handed; pass that on to the job itself
+            done.whenComplete((result, error) -> {
+                if (done.isCancelled()) {
+                    running.cancel(true);
+                }
+            });
+            return done;
+        }).thenApply(result -> null);
+    }
+
+    private CompletableFuture<String> schedule(LLMRequest request) {
+        RequestScheduler current = scheduler;
+        if (current == null) {
+            return execute(request);
+        }
+        return current.submit(request, () -> execute(request));
+    }
+
+    /**
+     * Run a request on the active provider, failing over to the next healthy provider if it
+     * errors or does not respond within {@code responseTimeout}. Providers whose circuit
+     * breaker is open are skipped; if none is left, the request fails with {@link LLMProviderException}.
+     */
+    private CompletableFuture<String> execute(LLMRequest request) {
+        LLMProvider provider = activeProvider;
+        if (provider == null || !provider.isAvailable()) {
+            return CompletableFuture.failedFuture(new LLMProviderException("No LLM provider available"));
+        }
+
+        FailoverRequest failoverRequest = new FailoverRequest(request);
+        failoverRequest.tryNext();
+        // Cancelling the request cancels the provider call in progress (and its HTTP exchange)
+        failoverRequest.result.whenComplete((response, error) -> {
+            if (failoverRequest.result.isCancelled()) {
+                CompletableFuture<String> reply = failoverRequest.currentReply;
+                if (reply != null) {
+                    reply.cancel(true);
+                }
+            }
+        });
+        return failoverRequest.result;
+    }
+
+    /**
+     * The next provider to try: the active one first, then (with failover enabled) the others
+     * in config order. Only providers that are up and whose breaker lets the request through qualify.
+     */
+    private LLMProvider nextProvider(Set<LLMProvider> tried) {
+        List<LLMProvider> order = new ArrayList<>();
+        LLMProvider active = activeProvider;
+        if (active != null) {
+            order.add(active);
+        }
+        if (ModConfig.COMMON.failover.get()) {
+            for (ModConfig.LLMProvider type : ModConfig.LLMProvider.values()) {
+                LLMProvider provider = providers.get(type);
+                if (provider != null && provider != active) {
+                    order.add(provider);
+                }
+            }
+        }
+
+        for (LLMProvider provider : order) {
+            if (tried.contains(provider) || !provider.isAvailable()) {
+                continue;
+            }
+            CircuitBreaker breaker = breakers.get(provider);
+            if (breaker == null || breaker.tryAcquire()) {
+                return provider;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Run a request on one provider, through its concurrency limit (the fast-tier one for a FAST
+     * request when the provider has a fast model).
+     * Requests made before the provider is ready wait on its readiness future, not in a limiter slot.
+     *
+     * @param onStart Called when the request is actually sent (after warmup and the limiter)
+     */
+    private CompletableFuture<String> executeOn(LLMProvider provider, LLMRequest request,
+                                                Consumer<String> onToken, Runnable onStart) {
+        Supplier<CompletableFuture<String>> call = () -> {
+            onStart.run();
+            return onToken != null ? provider.chatStream(request, onToken) : provider.chat(request);
+        };
+
+        boolean fast = request.getTier() == ModelTier.FAST && provider.hasFastModel();
+        RequestLimiter limiter = (fast ? fastLimiters : limiters).get(provider);
+        if (limiter == null) {
+            return call.get();
+        }
+
+        CompletableFuture<Void> ready = provider.whenReady();
+        if (ready.isDone()) {
+            return limiter.submit(call);
+        }
+        return ready.thenCompose(v -> limiter.submit(call));
+    }
+
+    /**
+     * One request working its way through the providers
+     */
+    private final class FailoverRequest {
+        final LLMRequest request;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        final Set<LLMProvider> tried = new HashSet<>();
+        // Only the current attempt may stream tokens to the caller
+        final AtomicReference<Object> currentAttempt = new AtomicReference<>();
+        volatile CompletableFuture<String> currentReply;
+        volatile boolean streamed = false;
+        volatile Throwable lastError;
+        // Timing of the current attempt, for metrics
+        volatile boolean queueWaitRecorded = false;
+        volatile long attemptStartNanos;
+        volatile long firstTokenNanos;
+
+        FailoverRequest(LLMRequest request) {
+            this.request = request;
+        }
+
+        synchronized void tryNext() {
+            if (result.isDone()) {
+                return;
+            }
+            LLMProvider provider = nextProvider(tried);
+            if (provider == null) {
+                result.completeExceptionally(lastError != null ? LLMProviderException.wrap(lastError)
+                    : new LLMProviderException("No LLM provider could take the request"));
+                return;
+            }
+            if (!tried.isEmpty()) {
+                StorytellerMod.LOGGER.info("Failing over LLM request to {}", provider.getName());
+            }
+            tried.add(provider);
+
+            CircuitBreaker breaker = breakers.get(provider);
+            Object attempt = new Object();
+            currentAttempt.set(attempt);
+            // Set by whichever of reply, error or timeout happens first; the others are ignored
+            AtomicBoolean settled = new AtomicBoolean(false);
+            AtomicBoolean responded = new AtomicBoolean(false);
+
+            int maxSentences = request.getProfile() != null ? request.getProfile().maxSentences() : 0;
+            SentenceLimit sentenceLimit = request.isStreaming() && maxSentences > 0 ? new SentenceLimit(maxSentences) : null;
+
+            Consumer<String> onToken = null;
+            if (request.isStreaming()) {
+                onToken = token -> {
+                    if (currentAttempt.get() == attempt) {
+                        String kept = sentenceLimit != null ? sentenceLimit.accept(token) : token;
+                        if (kept == null) {
+                            return;
+                        }
+                        if (!responded.getAndSet(true)) {
+                            firstTokenNanos = System.nanoTime();
+                        }
+                        streamed = true;
+                        if (!kept.isEmpty()) {
+                            request.getOnToken().accept(kept);
+                        }
+                        if (sentenceLimit != null && sentenceLimit.isReached()) {
+                            // Enough said: close the stream so the provider stops generating
+                            CompletableFuture<String> running = currentReply;
+                            if (running != null) {
+                                running.cancel(true);
+                            }
+                        }
+                    }
+                };
+            }
+
+            int timeoutSeconds = ModConfig.COMMON.responseTimeout.get();
+            ExecutorService timerExecutor = executor;
+            Runnable startTimer = () -> CompletableFuture.delayedExecutor(timeoutSeconds, TimeUnit.SECONDS, timerExecutor)
+                .execute(() -> {
+                    if (!responded.get() && settled.compareAndSet(false, true)) {
+                        StorytellerMod.LOGGER.warn("{} did not respond within {}s", provider.getName(), timeoutSeconds);
+                        if (breaker != null) {
+                            breaker.recordTimeout();
+                        }
+                        currentAttempt.compareAndSet(attempt, null);
+                        // Free the provider's slot; the next provider takes over
+                        CompletableFuture<String> stalled = currentReply;
+                        tryNext();
+                        if (stalled != null) {
+                            stalled.cancel(true);
+                        }
+                    }
+                });
+
+            if (timerExecutor == null) {
+                // Shutting down
+                result.completeExceptionally(new LLMProviderException("LLM requests are shutting down"));
+                return;
+            }
+
+            String providerLabel = metricLabels.get(provider);
+            Runnable onStart = () -> {
+                long now = System.nanoTime();
+                if (!queueWaitRecorded) {
+                    queueWaitRecorded = true;
+                    Metrics.QUEUE_WAIT.observeNanos(providerLabel, request.getCharacterId(), now - request.submittedNanos);
+                }
+                attemptStartNanos = now;
+                firstTokenNanos = 0;
+                startTimer.run();
+            };
+
+            CompletableFuture<String> reply;
+            try {
+                reply = executeOn(provider, request, onToken, onStart);
+            } catch (Exception e) {
+                reply = CompletableFuture.failedFuture(e);
+            }
+            currentReply = reply;
+            if (result.isCancelled() || (sentenceLimit != null && sentenceLimit.isReached())) {
+                reply.cancel(true);
+            }
+
+            reply.whenComplete((text, error) -> {
+                responded.set(true);
+                if (!settled.compareAndSet(false, true)) {
+                    return;
+                }
+                if (result.isCancelled()) {
+                    if (breaker != null) {
+                        breaker.recordCancelled();
+                    }
+                    return;
+                }
+
+                // Closing the stream at the sentence limit cancels the call; the reply is what was kept
+                boolean stoppedEarly = sentenceLimit != null && sentenceLimit.isReached();
+                String answer = stoppedEarly ? sentenceLimit.getText()
+                    : maxSentences > 0 && text != null ? SentenceLimit.truncate(text, maxSentences) : text;
+                boolean failed = !stoppedEarly && error != null;
+                if (breaker != null) {
+                    if (failed) {
+                        breaker.recordError();
+                    } else {
+                        breaker.recordSuccess();
+                    }
+                }
+
+                if (!failed) {
+                    recordGeneration(providerLabel, answer);
+                    result.complete(answer);
+                } else if (streamed) {
+                    // The player already saw part of this reply; don't start another one
+                    result.completeExceptionally(LLMProviderException.wrap(error));
+                } else {
+                    StorytellerMod.LOGGER.error("{} request failed: {}", provider.getName(), error.getMessage());
+                    lastError = error;
+                    currentAttempt.compareAndSet(attempt, null);
+                    tryNext();
+                }
+            });
+        }
+
+        private void recordGeneration(String providerLabel, String text) {
+            long start = attemptStartNanos;
+            if (start == 0) {
+                return;
+            }
+            long end = System.nanoTime();
+            long firstToken = firstTokenNanos;
+            String character = request.getCharacterId();
+            if (firstToken != 0) {
+                Metrics.TIME_TO_FIRST_TOKEN.observeNanos(providerLabel, character, firstToken - start);
+            }
+            Metrics.GENERATION_TIME.observeNanos(providerLabel, character, end - start);
+            // Without streaming the whole reply arrives at once, so the rate covers the whole call
+            long generating = end - (firstToken != 0 ? firstToken : start);
+            if (generating > 0 && text != null) {
+                Metrics.TOKENS_PER_SECOND.observe(providerLabel, character,
+                    PromptBudget.estimateTokens(text) / (generating / 1e9));
+            }
+        }
+    }
+
+    /**
+     * Number of requests waiting in the scheduler queue
+     */
+    public int getQueuedRequests() {
+        return scheduler != null ? scheduler.getQueued() : 0;
+    }
+
+    /**
+     * Number of requests currently generating
+     */
+    public int getRunningRequests() {
+        return scheduler != null ? scheduler.getRunning() : 0;
     }
     
+    /**
+     * Number of background requests waiting for the foreground to go idle
+     */
+    public int getQueuedBackgroundRequests() {
+        return scheduler != null ? scheduler.getQueuedByPriority().get(RequestPriority.BACKGROUND) : 0;
+    }
+
+    /**
+     * Number of background requests preempted by foreground work since startup
+     */
+    public long getPreemptedRequests() {
+        return scheduler != null ? scheduler.getPreempted() : 0;
+    }
+
+    /**
+     * Number of requests that shared an identical request's provider call
+     */
+    public long getCoalescedRequests() {
+        RequestCoalescer current = coalescer;
+        return current != null ? current.getCoalesced() : 0;
+    }
+
+    /**
+     * Number of requests answered from the reply cache
+     */
+    public long getCachedReplies() {
+        RequestCoalescer current = coalescer;
+        return current != null ? current.getCacheHits() : 0;
+    }
+
     /**
      * Check if any LLM provider is available
      */
@@ -86,6 +568,39 @@ public class LLMManager {
         return activeProvider != null ? activeProvider.getName() : "None";
     }
     
+    /**
+     * Get extra status for the active provider (e.g. warmup progress), or null
+     */
+    public String getActiveProviderStatus() {
+        return activeProvider != null ? activeProvider.getStatusDetail() : null;
+    }
+
+    /**
+     * Circuit breaker state for each provider that is up or has had trouble,
+     * followed by its recent state changes (indented)
+     */
+    public List<String> getProviderHealth() {
+        List<String> lines = new ArrayList<>();
+        for (ModConfig.LLMProvider type : ModConfig.LLMProvider.values()) {
+            LLMProvider provider = providers.get(type);
+            CircuitBreaker breaker = provider != null ? breakers.get(provider) : null;
+            if (breaker == null) {
+                continue;
+            }
+            List<String> transitions = breaker.getTransitions();
+            if (!provider.isAvailable() && transitions.isEmpty()) {
+                continue;
+            }
+
+            String active = provider == activeProvider ? " [active]" : "";
+            lines.add(type.getDisplayName() + active + ": " + breaker.describe());
+            for (String transition : transitions) {
+                lines.add("  " + transition);
+            }
+        }
+        return lines;
+    }
+    
     /**
      * Switch to a different provider at runtime
      */
@@ -100,7 +615,7 @@ public class LLMManager {
                 if (activeProvider != null) {
                     activeProvider.shutdown();
                 }
-                activeProvider = provider;
+                activate(provider);
                 StorytellerMod.LOGGER.info("Switched to LLM provider: {}", provider.getName());
             }
             return success;
@@ -112,9 +627,39 @@ public class LLMManager {
      */
     public void shutdown() {
         StorytellerMod.LOGGER.info("Shutting down LLM providers...");
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+        coalescer = null;
+        for (RequestLimiter limiter : limiters.values()) {
+            limiter.shutdown();
+        }
+        for (RequestLimiter limiter : fastLimiters.values()) {
+            limiter.shutdown();
+        }
+        limiters.clear();
+        fastLimiters.clear();
+        breakers.clear();
+        metricLabels.clear();
+
         for (LLMProvider provider : providers.values()) {
             provider.shutdown();
         }
         activeProvider = null;
+
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    StorytellerMod.LOGGER.warn("LLM requests still running after 5s, cancelling them");
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
     }
 }
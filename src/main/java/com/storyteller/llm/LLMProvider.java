@@ -2,6 +2,7 @@ package com.storyteller.llm;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Interface for LLM providers (Ollama, Claude, OpenAI, etc.)
@@ -15,19 +16,74 @@ public interface LLMProvider {
     CompletableFuture<Boolean> initialize();
     
     /**
-     * Send a chat completion request
-     * @param systemPrompt The system prompt defining the character
-     * @param messages Conversation history
+     * Send a chat completion request. The request carries the system prompt, the conversation,
+     * the model tier and the reply limits ({@link GenerationProfile}); providers ignore settings
+     * they can't pass on, and the sentence limit is applied by the LLMManager. A provider that
+     * can't produce a reply fails the future with {@link LLMProviderException} rather than
+     * returning placeholder text.
+     * @param request The request, with its profile set
      * @return The assistant's response
      */
-    CompletableFuture<String> chat(String systemPrompt, List<ChatMessage> messages);
-    
+    CompletableFuture<String> chat(LLMRequest request);
+
+    /**
+     * Send a chat completion request and stream the response as it is generated.
+     * Providers without streaming support deliver the whole response as a single chunk.
+     * @param request The request, with its profile set
+     * @param onToken Called with each new fragment of the response, in order
+     * @return The complete assistant response
+     */
+    default CompletableFuture<String> chatStream(LLMRequest request, Consumer<String> onToken) {
+        return chat(request).thenApply(response -> {
+            onToken.accept(response);
+            return response;
+        });
+    }
+
+    /**
+     * {@link #chat(LLMRequest)} with a plain-text system prompt, the main model and the
+     * config's reply limits
+     */
+    default CompletableFuture<String> chat(String systemPrompt, List<ChatMessage> messages) {
+        return chat(new LLMRequest(systemPrompt, messages).withProfile(GenerationProfile.defaults()));
+    }
+
+    /**
+     * Streaming variant of {@link #chat(String, List)}
+     */
+    default CompletableFuture<String> chatStream(String systemPrompt, List<ChatMessage> messages,
+                                                 Consumer<String> onToken) {
+        return chatStream(new LLMRequest(systemPrompt, messages).withProfile(GenerationProfile.defaults()), onToken);
+    }
+
+    /**
+     * Whether a separate model is configured for {@link ModelTier#FAST} requests
+     */
+    default boolean hasFastModel() {
+        return false;
+    }
+
     /**
      * Check if the provider is available and ready
      * @return true if ready to accept requests
      */
     boolean isAvailable();
     
+    /**
+     * Completes once the provider can serve requests quickly (e.g. the model is loaded).
+     * Requests made before then should be composed onto this future rather than wait on a thread.
+     */
+    default CompletableFuture<Void> whenReady() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Extra status line for {@code /storyteller status}, or null if there is nothing to report
+     */
+    default String getStatusDetail() {
+        return null;
+    }
+    
     /**
      * Get the provider name for display/logging
      */
@@ -0,0 +1,30 @@
+package com.storyteller.llm;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * Thrown (as the cause of a failed future) when a provider could not produce a reply,
+ * e.g. it is not available, the request failed, or the model returned nothing.
+ * What the player sees instead is up to the caller.
+ */
+public class LLMProviderException extends RuntimeException {
+
+    public LLMProviderException(String message) {
+        super(message);
+    }
+
+    public LLMProviderException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * The failure of a provider future as an LLMProviderException, unwrapping {@link CompletionException}
+     */
+    public static LLMProviderException wrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof LLMProviderException providerException) {
+            return providerException;
+        }
+        return new LLMProviderException(cause.getMessage(), cause);
+    }
+}
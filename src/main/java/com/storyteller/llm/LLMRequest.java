@@ -0,0 +1,153 @@
+package com.storyteller.llm;
+
+import com.storyteller.llm.LLMProvider.ChatMessage;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * A chat request as submitted to the {@link LLMManager}: the prompt plus
+ * everything the scheduler needs to decide when to run it.
+ */
+public class LLMRequest {
+
+    private SystemPrompt systemPrompt;
+    private List<ChatMessage> messages;
+    private UUID playerId;
+    private String characterId;
+    private RequestPriority priority = RequestPriority.CHAT;
+    private ModelTier tier = ModelTier.FULL;
+    private GenerationProfile profile;
+    private Consumer<String> onToken;
+    private IntConsumer onQueuePosition;
+    private long promptAssemblyNanos;
+    // Set by the LLMManager on submission, for the queue wait metric
+    long submittedNanos;
+
+    public LLMRequest(SystemPrompt systemPrompt, List<ChatMessage> messages) {
+        this.systemPrompt = systemPrompt;
+        this.messages = messages;
+    }
+
+    public LLMRequest(String systemPrompt, List<ChatMessage> messages) {
+        this(SystemPrompt.of(systemPrompt), messages);
+    }
+
+    /**
+     * The player this request is for; used for fairness and rate limiting.
+     * Requests without a player are not rate limited.
+     */
+    public LLMRequest forPlayer(UUID playerId) {
+        this.playerId = playerId;
+        return this;
+    }
+
+    /**
+     * The character this request speaks for; used to break down metrics
+     */
+    public LLMRequest forCharacter(String characterId) {
+        this.characterId = characterId;
+        return this;
+    }
+
+    /**
+     * Time the caller spent building the prompt, reported in the prompt assembly metric
+     */
+    public LLMRequest withPromptAssemblyNanos(long nanos) {
+        this.promptAssemblyNanos = nanos;
+        return this;
+    }
+
+    public LLMRequest withPriority(RequestPriority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Which model should answer; see {@link ModelRouter}. Providers without a fast model ignore this.
+     */
+    public LLMRequest withTier(ModelTier tier) {
+        this.tier = tier;
+        return this;
+    }
+
+    /**
+     * Reply length and stop sequences, e.g. the character's; the config defaults if not set
+     */
+    public LLMRequest withProfile(GenerationProfile profile) {
+        this.profile = profile;
+        return this;
+    }
+
+    /**
+     * Stream the response; called with each new fragment, in order
+     */
+    public LLMRequest onToken(Consumer<String> onToken) {
+        this.onToken = onToken;
+        return this;
+    }
+
+    /**
+     * Called with the 1-based position in line whenever it changes while queued,
+     * and with 0 once the request starts generating
+     */
+    public LLMRequest onQueuePosition(IntConsumer onQueuePosition) {
+        this.onQueuePosition = onQueuePosition;
+        return this;
+    }
+
+    /**
+     * Trim the prompt and history to fit the budget; done once, before queueing
+     */
+    void applyBudget(PromptBudget budget) {
+        PromptBudget.Fitted fitted = budget.fit(systemPrompt, messages);
+        this.systemPrompt = fitted.systemPrompt();
+        this.messages = fitted.messages();
+    }
+
+    public SystemPrompt getSystemPrompt() {
+        return systemPrompt;
+    }
+
+    public List<ChatMessage> getMessages() {
+        return messages;
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    public String getCharacterId() {
+        return characterId;
+    }
+
+    public long getPromptAssemblyNanos() {
+        return promptAssemblyNanos;
+    }
+
+    public RequestPriority getPriority() {
+        return priority;
+    }
+
+    public ModelTier getTier() {
+        return tier;
+    }
+
+    public GenerationProfile getProfile() {
+        return profile;
+    }
+
+    public Consumer<String> getOnToken() {
+        return onToken;
+    }
+
+    public IntConsumer getOnQueuePosition() {
+        return onQueuePosition;
+    }
+
+    public boolean isStreaming() {
+        return onToken != null;
+    }
+}
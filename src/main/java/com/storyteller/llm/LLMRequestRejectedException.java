@@ -0,0 +1,12 @@
+package com.storyteller.llm;
+
+/**
+ * Thrown (as the cause of a failed future) when the scheduler refuses a request,
+ * e.g. because the player is over their rate limit or the queue is full.
+ */
+public class LLMRequestRejectedException extends RuntimeException {
+
+    public LLMRequestRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,37 @@
+package com.storyteller.llm;
+
+import com.storyteller.config.ModConfig;
+
+/**
+ * Decides which model tier a conversation turn needs.
+ *
+ * Greetings and short small talk go to the fast tier. A turn that pulled in knowledge
+ * entries or involves the player's quests is substantive and always gets the full model,
+ * as does any message longer than {@code fastTierMaxChars}.
+ */
+public final class ModelRouter {
+
+    private ModelRouter() {}
+
+    /**
+     * @param greeting The NPC is opening the conversation
+     * @param message What the player said (or the greeting instruction)
+     * @param knowledgeHit Knowledge entries matched the message
+     * @param questsInvolved The player has active or just-completed quests from this NPC
+     */
+    public static ModelTier route(boolean greeting, String message, boolean knowledgeHit, boolean questsInvolved) {
+        return classify(greeting, message, knowledgeHit, questsInvolved, ModConfig.COMMON.fastTierMaxChars.get());
+    }
+
+    static ModelTier classify(boolean greeting, String message, boolean knowledgeHit, boolean questsInvolved,
+                              int fastMaxChars) {
+        if (knowledgeHit || questsInvolved) {
+            return ModelTier.FULL;
+        }
+        if (greeting) {
+            return ModelTier.FAST;
+        }
+        int length = message == null ? 0 : message.strip().length();
+        return length <= fastMaxChars ? ModelTier.FAST : ModelTier.FULL;
+    }
+}
@@ -0,0 +1,11 @@
+package com.storyteller.llm;
+
+/**
+ * Which model a request needs. See {@link ModelRouter}.
+ */
+public enum ModelTier {
+    /** Small talk and greetings: a small, fast model is good enough */
+    FAST,
+    /** Substantive turns (lore, quests, longer messages): the main model */
+    FULL
+}
@@ -0,0 +1,183 @@
+package com.storyteller.llm;
+
+import com.storyteller.StorytellerMod;
+import com.storyteller.llm.LLMProvider.ChatMessage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a request's system prompt plus conversation history within a fixed token budget.
+ *
+ * The static segments (character sheet) and the newest message are always kept. Every
+ * dynamic segment is first capped at its share of the remaining budget; if the request
+ * is still too large, whole sections are dropped lowest priority first, with the history
+ * losing its oldest messages at its place in that order.
+ */
+public class PromptBudget {
+
+    // Room left for the reply (Ollama's num_ctx covers prompt and output)
+    static final int RESPONSE_RESERVE_TOKENS = 256;
+    // Role markers and separators each message adds
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+    private static final String HISTORY = "history";
+
+    /**
+     * Budget share and trim order for a prompt section; lower priority is dropped first
+     */
+    private record Section(int priority, double share) {}
+
+    private static final Section DEFAULT_SECTION = new Section(0, 0.10);
+    private static final Map<String, Section> SECTIONS = Map.of(
+        "events", new Section(1, 0.05),
+        "conversation", new Section(2, 0.10),
+        "world", new Section(3, 0.10),
+        HISTORY, new Section(4, 1.0),
+        "knowledge", new Section(5, 0.25),
+        "quests", new Section(6, 0.10),
+        "completed_quests", new Section(7, 0.05)
+    );
+
+    /**
+     * The prompt and messages to send, after trimming
+     */
+    public record Fitted(SystemPrompt systemPrompt, List<ChatMessage> messages) {}
+
+    private final int totalTokens;
+
+    /**
+     * @param totalTokens Context window for prompt, history and reply together
+     */
+    public PromptBudget(int totalTokens) {
+        this.totalTokens = totalTokens;
+    }
+
+    /**
+     * Rough token count: about four characters per token for English text
+     */
+    public static int estimateTokens(CharSequence text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    private static int estimateTokens(ChatMessage message) {
+        return estimateTokens(message.content()) + MESSAGE_OVERHEAD_TOKENS;
+    }
+
+    public Fitted fit(SystemPrompt prompt, List<ChatMessage> messages) {
+        int available = Math.max(0, totalTokens - RESPONSE_RESERVE_TOKENS);
+
+        // Always sent: the stable prefix and the message being answered
+        int fixed = 0;
+        for (SystemPrompt.Segment segment : prompt.getSegments()) {
+            if (segment.stable()) {
+                fixed += estimateTokens(segment.text());
+            }
+        }
+        ChatMessage latest = messages.isEmpty() ? null : messages.get(messages.size() - 1);
+        if (latest != null) {
+            fixed += estimateTokens(latest);
+        }
+        int flexible = Math.max(0, available - fixed);
+
+        // Cap each dynamic section at its share
+        Map<String, String> sections = new LinkedHashMap<>();
+        for (SystemPrompt.Segment segment : prompt.getSegments()) {
+            if (!segment.stable()) {
+                int cap = (int) (flexible * section(segment.name()).share());
+                sections.put(segment.name(), truncate(segment.text(), cap));
+            }
+        }
+
+        List<ChatMessage> history = new ArrayList<>(messages.subList(0, Math.max(0, messages.size() - 1)));
+
+        int used = fixed + history.stream().mapToInt(PromptBudget::estimateTokens).sum();
+        for (String text : sections.values()) {
+            used += estimateTokens(text);
+        }
+
+        // Still too big: drop sections, lowest priority first
+        List<String> dropped = new ArrayList<>();
+        int droppedMessages = 0;
+        List<String> trimOrder = new ArrayList<>(sections.keySet());
+        trimOrder.add(HISTORY);
+        trimOrder.sort((a, b) -> Integer.compare(section(a).priority(), section(b).priority()));
+
+        for (String name : trimOrder) {
+            if (used <= available) {
+                break;
+            }
+            if (name.equals(HISTORY)) {
+                while (used > available && !history.isEmpty()) {
+                    used -= estimateTokens(history.remove(0));
+                    droppedMessages++;
+                }
+            } else {
+                used -= estimateTokens(sections.remove(name));
+                dropped.add(name);
+            }
+        }
+
+        // If the start of the history was cut, don't leave it opening mid-exchange with an NPC line.
+        // An untrimmed history may open with the NPC's greeting and is kept as it is.
+        while (droppedMessages > 0 && !history.isEmpty() && history.get(0).role() != ChatMessage.Role.USER) {
+            used -= estimateTokens(history.remove(0));
+            droppedMessages++;
+        }
+
+        SystemPrompt fitted = new SystemPrompt();
+        for (SystemPrompt.Segment segment : prompt.getSegments()) {
+            if (segment.stable()) {
+                fitted.addStatic(segment.name(), segment.text());
+            }
+        }
+        sections.forEach(fitted::addDynamic);
+
+        List<ChatMessage> fittedMessages = new ArrayList<>(history);
+        if (latest != null) {
+            fittedMessages.add(latest);
+        }
+
+        if (StorytellerMod.LOGGER.isDebugEnabled()) {
+            logUsage(fitted, history, latest, used, available, dropped, droppedMessages, messages.size());
+        }
+        if (used > available) {
+            StorytellerMod.LOGGER.warn("Prompt needs ~{} tokens but the budget is {}; consider raising contextTokens",
+                used, available);
+        }
+        return new Fitted(fitted, fittedMessages);
+    }
+
+    private static Section section(String name) {
+        return SECTIONS.getOrDefault(name, DEFAULT_SECTION);
+    }
+
+    /**
+     * Keep whole lines from the start (sections list their most relevant items first)
+     */
+    static String truncate(String text, int maxTokens) {
+        if (estimateTokens(text) <= maxTokens) {
+            return text;
+        }
+        int maxChars = maxTokens * 4;
+        int cut = text.lastIndexOf('\n', maxChars);
+        return cut > 0 ? text.substring(0, cut) : "";
+    }
+
+    private static void logUsage(SystemPrompt fitted, List<ChatMessage> history, ChatMessage latest,
+                                 int used, int available, List<String> dropped, int droppedMessages, int totalMessages) {
+        StringBuilder sb = new StringBuilder();
+        for (SystemPrompt.Segment segment : fitted.getSegments()) {
+            sb.append(segment.name()).append('=').append(estimateTokens(segment.text())).append(", ");
+        }
+        int historyTokens = history.stream().mapToInt(PromptBudget::estimateTokens).sum()
+            + (latest != null ? estimateTokens(latest) : 0);
+        sb.append("history=").append(historyTokens)
+            .append(" (").append(totalMessages - droppedMessages).append('/').append(totalMessages).append(" messages)");
+        if (!dropped.isEmpty()) {
+            sb.append(", dropped ").append(String.join(", ", dropped));
+        }
+        StorytellerMod.LOGGER.debug("Prompt budget {}/{} tokens: {}", used, available, sb);
+    }
+}
@@ -0,0 +1,309 @@
+package com.storyteller.llm;
+
+import com.storyteller.llm.LLMProvider.ChatMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Single-flight for LLM requests: identical requests that arrive while one is already in flight
+ * wait for its reply instead of making their own provider call. Optionally, replies are also
+ * kept for a short time so identical requests right after it get the same answer.
+ *
+ * Requests are identical when their prompt, history, model tier, reply limits and streaming mode match;
+ * who asked is not part of the fingerprint, so the first request's priority and player decide
+ * how the shared call is scheduled. Background and foreground requests are never shared, since
+ * background calls can be preempted.
+ */
+public class RequestCoalescer {
+
+    // Enough for a crowd's worth of greetings; oldest entries are dropped first
+    private static final int MAX_CACHED = 256;
+
+    private final long cacheNanos;
+    private final LongSupplier clock;
+    private final Map<Fingerprint, Flight> inFlight = new HashMap<>();
+    private final LinkedHashMap<Fingerprint, Cached> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Fingerprint, Cached> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+    private long coalesced = 0;
+    private long cacheHits = 0;
+
+    /**
+     * @param cacheSeconds How long replies are reused after they complete; 0 to only share in-flight calls
+     */
+    public RequestCoalescer(int cacheSeconds) {
+        this(cacheSeconds, System::nanoTime);
+    }
+
+    RequestCoalescer(int cacheSeconds, LongSupplier clock) {
+        this.cacheNanos = cacheSeconds * 1_000_000_000L;
+        this.clock = clock;
+    }
+
+    /**
+     * 128 bits of a SHA-256 over everything that affects the reply
+     */
+    record Fingerprint(long high, long low) {}
+
+    private record Cached(String reply, long expiresAt) {}
+
+    /**
+     * One shared provider call and everyone waiting on it
+     */
+    private final class Flight {
+        final Fingerprint key;
+        final List<Waiter> waiters = new ArrayList<>();
+        // Tokens streamed so far, replayed to requests that join late
+        final StringBuilder streamed = new StringBuilder();
+        int queuePosition = -1;
+        CompletableFuture<String> upstream;
+
+        Flight(Fingerprint key) {
+            this.key = key;
+        }
+
+        void onToken(String token) {
+            List<Waiter> current;
+            synchronized (RequestCoalescer.this) {
+                streamed.append(token);
+                current = List.copyOf(waiters);
+            }
+            for (Waiter waiter : current) {
+                waiter.deliver(token);
+            }
+        }
+
+        void onQueuePosition(int position) {
+            List<Waiter> current;
+            synchronized (RequestCoalescer.this) {
+                queuePosition = position;
+                current = List.copyOf(waiters);
+            }
+            for (Waiter waiter : current) {
+                if (!waiter.result.isDone() && waiter.onQueuePosition != null) {
+                    waiter.onQueuePosition.accept(position);
+                }
+            }
+        }
+    }
+
+    private record Waiter(Consumer<String> onToken, IntConsumer onQueuePosition,
+                          CompletableFuture<String> result, ReentrantLock delivery) {
+        Waiter(Consumer<String> onToken, IntConsumer onQueuePosition, CompletableFuture<String> result) {
+            this(onToken, onQueuePosition, result, new ReentrantLock());
+        }
+
+        void deliver(String token) {
+            if (onToken == null) {
+                return;
+            }
+            delivery.lock();
+            try {
+                if (!result.isDone()) {
+                    onToken.accept(token);
+                }
+            } finally {
+                delivery.unlock();
+            }
+        }
+    }
+
+    /**
+     * Run a request, or attach it to an identical one already running.
+     * Each caller gets its own future; cancelling it detaches that caller, and the shared
+     * call is only cancelled once every caller has cancelled.
+     *
+     * @param start Starts the shared call for the first of a set of identical requests
+     */
+    public CompletableFuture<String> submit(LLMRequest request,
+                                            Function<LLMRequest, CompletableFuture<String>> start) {
+        Fingerprint key = fingerprint(request);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Waiter waiter = new Waiter(request.getOnToken(), request.getOnQueuePosition(), result);
+
+        Flight flight;
+        boolean leader = false;
+        String replay = null;
+        int position = -1;
+        synchronized (this) {
+            Cached cached = cacheNanos > 0 ? cache.get(key) : null;
+            if (cached != null && cached.expiresAt - clock.getAsLong() > 0) {
+                cacheHits++;
+                replay = cached.reply;
+                flight = null;
+            } else {
+                if (cached != null) {
+                    cache.remove(key);
+                }
+                flight = inFlight.get(key);
+                if (flight == null) {
+                    flight = new Flight(key);
+                    inFlight.put(key, flight);
+                    leader = true;
+                } else {
+                    coalesced++;
+                    replay = flight.streamed.toString();
+                    position = flight.queuePosition;
+                    // Held until the replay is delivered, so live tokens can't overtake it
+                    waiter.delivery.lock();
+                }
+                flight.waiters.add(waiter);
+            }
+        }
+
+        if (flight == null) {
+            // Cache hit: hand over the whole reply at once
+            if (waiter.onToken != null) {
+                waiter.onToken.accept(replay);
+            }
+            result.complete(replay);
+            return result;
+        }
+
+        Flight shared = flight;
+        result.whenComplete((reply, error) -> {
+            if (result.isCancelled()) {
+                detach(shared, waiter);
+            }
+        });
+
+        if (!leader) {
+            // Catch up on what the shared call has produced so far
+            try {
+                if (position >= 0 && waiter.onQueuePosition != null) {
+                    waiter.onQueuePosition.accept(position);
+                }
+                if (!replay.isEmpty() && waiter.onToken != null) {
+                    waiter.onToken.accept(replay);
+                }
+            } finally {
+                waiter.delivery.unlock();
+            }
+            return result;
+        }
+
+        // The first request carries the shared call; its callbacks now fan out to every waiter
+        if (request.isStreaming()) {
+            request.onToken(shared::onToken);
+        }
+        request.onQueuePosition(shared::onQueuePosition);
+
+        CompletableFuture<String> upstream;
+        try {
+            upstream = start.apply(request);
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        boolean abandoned;
+        synchronized (this) {
+            shared.upstream = upstream;
+            abandoned = shared.waiters.isEmpty() && inFlight.get(key) != shared;
+        }
+        if (abandoned) {
+            // Everyone cancelled while the call was being started
+            upstream.cancel(true);
+        }
+        upstream.whenComplete((reply, error) -> finish(shared, reply, error));
+        return result;
+    }
+
+    private void finish(Flight flight, String reply, Throwable error) {
+        List<Waiter> waiters;
+        synchronized (this) {
+            inFlight.remove(flight.key, flight);
+            waiters = List.copyOf(flight.waiters);
+            flight.waiters.clear();
+            if (error == null && cacheNanos > 0) {
+                cache.put(flight.key, new Cached(reply, clock.getAsLong() + cacheNanos));
+            }
+        }
+        for (Waiter waiter : waiters) {
+            if (error != null) {
+                waiter.result.completeExceptionally(error);
+            } else {
+                waiter.result.complete(reply);
+            }
+        }
+    }
+
+    private void detach(Flight flight, Waiter waiter) {
+        CompletableFuture<String> abandoned = null;
+        synchronized (this) {
+            flight.waiters.remove(waiter);
+            if (flight.waiters.isEmpty() && inFlight.remove(flight.key, flight)) {
+                abandoned = flight.upstream;
+            }
+        }
+        if (abandoned != null) {
+            abandoned.cancel(true);
+        }
+    }
+
+    /**
+     * Number of requests that shared another request's provider call
+     */
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Number of requests answered from the reply cache
+     */
+    public synchronized long getCacheHits() {
+        return cacheHits;
+    }
+
+    static Fingerprint fingerprint(LLMRequest request) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+
+        digest.update((byte) request.getTier().ordinal());
+        digest.update((byte) (request.isStreaming() ? 1 : 0));
+        // Background work can be preempted, so a player's request never waits on it
+        digest.update((byte) (request.getPriority() == RequestPriority.BACKGROUND ? 1 : 0));
+        GenerationProfile profile = request.getProfile();
+        if (profile != null) {
+            digest.update(ByteBuffer.allocate(12).putInt(profile.maxTokens()).putInt(profile.maxSentences())
+                .putInt(profile.stopSequences().size()).array());
+            for (String stop : profile.stopSequences()) {
+                update(digest, stop);
+            }
+        }
+        // Length prefixes keep ("ab", "c") and ("a", "bc") apart
+        update(digest, request.getSystemPrompt().getText());
+        for (ChatMessage message : request.getMessages()) {
+            digest.update((byte) message.role().ordinal());
+            update(digest, message.content());
+        }
+
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+        return new Fingerprint(hash.getLong(), hash.getLong());
+    }
+
+    private static void update(MessageDigest digest, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+}
@@ -0,0 +1,142 @@
+package com.storyteller.llm;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of requests in flight to a single provider.
+ * Requests over the limit wait in FIFO order without holding a thread.
+ */
+public class RequestLimiter {
+
+    private final int maxConcurrent;
+    private final Executor executor;
+    private final Deque<Runnable> waiting = new ArrayDeque<>();
+    private int inFlight = 0;
+    private boolean shutdown = false;
+
+    /**
+     * @param maxConcurrent Maximum number of requests running at once
+     * @param executor Executor used to start requests that had to wait
+     */
+    public RequestLimiter(int maxConcurrent, Executor executor) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.executor = executor;
+    }
+
+    /**
+     * Run a request once a slot is free.
+     * The slot is released when the request's future completes. Cancelling the returned
+     * future drops a waiting request or cancels a running one, which frees its slot.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> start(task, result);
+
+        synchronized (this) {
+            if (shutdown) {
+                result.completeExceptionally(new RejectedExecutionException("Request limiter is shut down"));
+                return result;
+            }
+            if (inFlight >= maxConcurrent) {
+                waiting.addLast(start);
+                return result;
+            }
+            inFlight++;
+        }
+
+        start.run();
+        return result;
+    }
+
+    private <T> void start(Supplier<CompletableFuture<T>> task, CompletableFuture<T> result) {
+        // Caller gave up while waiting - pass the slot on
+        if (result.isDone()) {
+            release();
+            return;
+        }
+        if (isShutdown()) {
+            release();
+            result.completeExceptionally(new RejectedExecutionException("Request limiter is shut down"));
+            return;
+        }
+
+        try {
+            CompletableFuture<T> running = task.get();
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    running.cancel(true);
+                }
+            });
+            running.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        } catch (Exception e) {
+            release();
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.pollFirst();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+
+        // Slot is handed over directly; start it off this thread to avoid deep call chains
+        try {
+            executor.execute(next);
+        } catch (RejectedExecutionException e) {
+            next.run();
+        }
+    }
+
+    /**
+     * Number of requests currently running
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Number of requests waiting for a slot
+     */
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    private synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Stop accepting requests. Waiting requests fail immediately so their callers are not left hanging.
+     */
+    public void shutdown() {
+        Deque<Runnable> pending;
+        synchronized (this) {
+            shutdown = true;
+            pending = new ArrayDeque<>(waiting);
+            waiting.clear();
+            inFlight += pending.size();
+        }
+        pending.forEach(Runnable::run);
+    }
+}
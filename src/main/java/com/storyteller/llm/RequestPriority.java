@@ -0,0 +1,13 @@
+package com.storyteller.llm;
+
+/**
+ * Scheduling class of an LLM request. Lower ordinal is served first.
+ */
+public enum RequestPriority {
+    /** A player is actively chatting and waiting for the reply */
+    CHAT,
+    /** NPC greeting when a player opens the chat screen */
+    GREETING,
+    /** Work nobody is waiting on (pre-generation, summaries, ...) */
+    BACKGROUND
+}
@@ -0,0 +1,521 @@
+package com.storyteller.llm;
+
+import com.storyteller.StorytellerMod;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Central admission control for LLM requests.
+ *
+ * Requests wait in a bounded queue and are started as capacity frees up, in priority
+ * order (chat, then greetings, then background work). Within a priority class players
+ * take turns, so one chatty player cannot starve the others. Each player also has a
+ * token bucket enforcing the messages-per-minute limit on chat requests.
+ *
+ * Background work is an idle lane: it only starts while no chat or greeting request is
+ * waiting or running, and a chat or greeting request arriving preempts it. Preempted work
+ * is cancelled and goes back to the front of the lane to run again from the start later.
+ */
+public class RequestScheduler {
+
+    // Queue key for requests that don't belong to a player
+    private static final UUID NO_PLAYER = new UUID(0L, 0L);
+    private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+
+    private final int maxQueued;
+    private final int messagesPerMinute;
+    private final int maxBackground;
+    private final IntSupplier capacity;
+    private final Executor executor;
+    private final LongSupplier clock;
+
+    // Per priority: player -> their waiting requests. Iteration order is the round-robin turn order.
+    private final Map<RequestPriority, LinkedHashMap<UUID, Deque<Entry>>> queues = new EnumMap<>(RequestPriority.class);
+    private final Map<UUID, TokenBucket> buckets = new HashMap<>();
+    private int queued = 0;
+    private int running = 0;
+    private final List<Entry> runningBackground = new ArrayList<>();
+    private long preempted = 0;
+    private boolean shutdown = false;
+
+    /**
+     * @param maxQueued Maximum number of waiting requests
+     * @param messagesPerMinute Per-player limit for chat requests (0 = unlimited)
+     * @param capacity How many requests may run at once right now (may change, e.g. during warmup)
+     * @param executor Executor used to start queued requests
+     */
+    public RequestScheduler(int maxQueued, int messagesPerMinute, IntSupplier capacity, Executor executor) {
+        this(maxQueued, messagesPerMinute, 1, capacity, executor);
+    }
+
+    /**
+     * @param maxBackground Background requests that may run at once while the foreground is idle
+     */
+    public RequestScheduler(int maxQueued, int messagesPerMinute, int maxBackground, IntSupplier capacity, Executor executor) {
+        this(maxQueued, messagesPerMinute, maxBackground, capacity, executor, System::nanoTime);
+    }
+
+    RequestScheduler(int maxQueued, int messagesPerMinute, IntSupplier capacity, Executor executor, LongSupplier clock) {
+        this(maxQueued, messagesPerMinute, 1, capacity, executor, clock);
+    }
+
+    RequestScheduler(int maxQueued, int messagesPerMinute, int maxBackground, IntSupplier capacity, Executor executor,
+                     LongSupplier clock) {
+        this.maxQueued = Math.max(1, maxQueued);
+        this.messagesPerMinute = messagesPerMinute;
+        this.maxBackground = Math.max(1, maxBackground);
+        this.capacity = capacity;
+        this.executor = executor;
+        this.clock = clock;
+        for (RequestPriority priority : RequestPriority.values()) {
+            queues.put(priority, new LinkedHashMap<>());
+        }
+    }
+
+    /**
+     * Queue a request. The task is invoked once the request reaches the front of the line.
+     * The returned future fails with {@link LLMRequestRejectedException} if the request is refused.
+     * Cancelling it removes a waiting request from the queue or cancels the running task.
+     */
+    public CompletableFuture<String> submit(LLMRequest request, Supplier<CompletableFuture<String>> task) {
+        UUID key = request.getPlayerId() != null ? request.getPlayerId() : NO_PLAYER;
+        return enqueue(new Entry(request, request.getPriority(), key, task, new CompletableFuture<>()));
+    }
+
+    /**
+     * Queue work that is not an LLM request of its own (e.g. computing embeddings) in the
+     * background lane. Like background requests it may be cancelled by preemption and started
+     * again later, so the task must be safe to run more than once.
+     */
+    public CompletableFuture<String> submitBackground(Supplier<CompletableFuture<String>> task) {
+        return enqueue(new Entry(null, RequestPriority.BACKGROUND, NO_PLAYER, task, new CompletableFuture<>()));
+    }
+
+    private CompletableFuture<String> enqueue(Entry entry) {
+        CompletableFuture<String> result = entry.result;
+        RequestPriority priority = entry.priority;
+        List<Entry> rejected = new ArrayList<>();
+        List<Entry> toPreempt = new ArrayList<>();
+
+        synchronized (this) {
+            if (shutdown) {
+                result.completeExceptionally(new LLMRequestRejectedException("Scheduler is shut down"));
+                return result;
+            }
+
+            boolean full = queued >= maxQueued;
+            if (full && !canEvictFor(priority)) {
+                result.completeExceptionally(new LLMRequestRejectedException("Too many requests waiting"));
+                return result;
+            }
+
+            if (entry.request != null && !tryAcquireToken(entry.request)) {
+                result.completeExceptionally(new LLMRequestRejectedException("Rate limit reached"));
+                return result;
+            }
+
+            if (full) {
+                rejected.add(evictFor(priority));
+            }
+
+            queues.get(priority)
+                .computeIfAbsent(entry.key, k -> new ArrayDeque<>())
+                .addLast(entry);
+            queued++;
+            result.whenComplete((response, error) -> {
+                if (result.isCancelled()) {
+                    cancel(entry);
+                }
+            });
+
+            // A player is waiting now: background work gives up its slot
+            if (priority != RequestPriority.BACKGROUND) {
+                for (Entry background : runningBackground) {
+                    if (!background.preempted) {
+                        background.preempted = true;
+                        preempted++;
+                        toPreempt.add(background);
+                    }
+                }
+            }
+        }
+
+        for (Entry victim : rejected) {
+            victim.result.completeExceptionally(new LLMRequestRejectedException("Bumped by a more urgent request"));
+        }
+        for (Entry background : toPreempt) {
+            // Not started yet if null; start() sees the flag and cancels it itself
+            CompletableFuture<String> task;
+            synchronized (this) {
+                task = background.running;
+            }
+            if (task != null) {
+                task.cancel(true);
+            }
+        }
+
+        dispatch();
+        return result;
+    }
+
+    /**
+     * Start as many queued requests as capacity allows and refresh queue positions.
+     * Call this when capacity may have grown (e.g. the provider finished warming up).
+     */
+    public void dispatch() {
+        List<Entry> toStart = new ArrayList<>();
+        List<Runnable> notifications;
+
+        synchronized (this) {
+            while (!shutdown && running < capacity.getAsInt()) {
+                Entry next = pollNext();
+                if (next == null) {
+                    break;
+                }
+                // Caller gave up while waiting
+                if (next.result.isDone()) {
+                    continue;
+                }
+                running++;
+                if (next.priority == RequestPriority.BACKGROUND) {
+                    runningBackground.add(next);
+                }
+                toStart.add(next);
+            }
+            notifications = updatePositions();
+        }
+
+        notifications.forEach(Runnable::run);
+        toStart.forEach(this::start);
+    }
+
+    private void start(Entry entry) {
+        entry.notifyPosition(0);
+
+        CompletableFuture<String> future;
+        try {
+            future = entry.task.get();
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        boolean preemptedAlready;
+        synchronized (this) {
+            entry.running = future;
+            preemptedAlready = entry.preempted;
+        }
+        if (entry.result.isCancelled() || preemptedAlready) {
+            // Cancelled or preempted between leaving the queue and starting
+            future.cancel(true);
+        }
+
+        future.whenComplete((response, error) -> {
+            boolean requeued = false;
+            synchronized (this) {
+                running--;
+                runningBackground.remove(entry);
+                if (entry.preempted && error != null && !entry.result.isDone() && !shutdown) {
+                    // Back to the front of the lane, to start over once the foreground is idle again
+                    entry.preempted = false;
+                    entry.running = null;
+                    queues.get(entry.priority)
+                        .computeIfAbsent(entry.key, k -> new ArrayDeque<>())
+                        .addFirst(entry);
+                    queued++;
+                    requeued = true;
+                }
+            }
+            if (requeued) {
+                StorytellerMod.LOGGER.debug("Background request preempted by foreground work, requeued");
+            } else if (error != null) {
+                entry.result.completeExceptionally(error);
+            } else {
+                entry.result.complete(response);
+            }
+
+            // Start the next request off this thread to avoid deep call chains
+            try {
+                executor.execute(this::dispatch);
+            } catch (RejectedExecutionException e) {
+                dispatch();
+            }
+        });
+    }
+
+    /**
+     * A caller cancelled their request: take it out of the queue, or cancel it if it is running
+     */
+    private void cancel(Entry entry) {
+        CompletableFuture<String> running;
+        boolean removed = false;
+        synchronized (this) {
+            running = entry.running;
+            if (running == null) {
+                LinkedHashMap<UUID, Deque<Entry>> byPlayer = queues.get(entry.priority);
+                Deque<Entry> deque = byPlayer.get(entry.key);
+                if (deque != null && deque.remove(entry)) {
+                    removed = true;
+                    queued--;
+                    if (deque.isEmpty()) {
+                        byPlayer.remove(entry.key);
+                    }
+                }
+            }
+        }
+
+        if (running != null) {
+            running.cancel(true);
+        } else if (removed) {
+            // Everyone behind it moves up
+            dispatch();
+        }
+    }
+
+    /**
+     * Take the next request: highest priority first, players in turn within a priority.
+     * Background work is only taken while nothing else is running.
+     */
+    private Entry pollNext() {
+        for (Map.Entry<RequestPriority, LinkedHashMap<UUID, Deque<Entry>>> lane : queues.entrySet()) {
+            LinkedHashMap<UUID, Deque<Entry>> byPlayer = lane.getValue();
+            Iterator<Map.Entry<UUID, Deque<Entry>>> it = byPlayer.entrySet().iterator();
+            if (!it.hasNext()) {
+                continue;
+            }
+            if (lane.getKey() == RequestPriority.BACKGROUND
+                    && (running > runningBackground.size() || runningBackground.size() >= maxBackground)) {
+                return null;
+            }
+
+            Map.Entry<UUID, Deque<Entry>> first = it.next();
+            UUID key = first.getKey();
+            Deque<Entry> deque = first.getValue();
+            Entry entry = deque.pollFirst();
+            it.remove();
+            if (!deque.isEmpty()) {
+                // Back of the line for this player's next request
+                byPlayer.put(key, deque);
+            }
+            queued--;
+            return entry;
+        }
+        return null;
+    }
+
+    private boolean canEvictFor(RequestPriority priority) {
+        RequestPriority[] priorities = RequestPriority.values();
+        for (int i = priorities.length - 1; i > priority.ordinal(); i--) {
+            if (!queues.get(priorities[i]).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Make room for a request of the given priority by dropping the last-to-run request
+     * of a lower priority, taken from whoever has the most waiting
+     */
+    private Entry evictFor(RequestPriority priority) {
+        RequestPriority[] priorities = RequestPriority.values();
+        for (int i = priorities.length - 1; i > priority.ordinal(); i--) {
+            Deque<Entry> largest = null;
+            UUID largestKey = null;
+            for (Map.Entry<UUID, Deque<Entry>> e : queues.get(priorities[i]).entrySet()) {
+                if (largest == null || e.getValue().size() > largest.size()) {
+                    largest = e.getValue();
+                    largestKey = e.getKey();
+                }
+            }
+            if (largest != null) {
+                Entry victim = largest.pollLast();
+                if (largest.isEmpty()) {
+                    queues.get(priorities[i]).remove(largestKey);
+                }
+                queued--;
+                return victim;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Recompute every waiting request's place in line (the order {@link #pollNext} will use)
+     * and collect callbacks for those whose position changed
+     */
+    private List<Runnable> updatePositions() {
+        List<Runnable> notifications = new ArrayList<>();
+        int position = 0;
+
+        for (LinkedHashMap<UUID, Deque<Entry>> byPlayer : queues.values()) {
+            List<Iterator<Entry>> turns = new ArrayList<>();
+            for (Deque<Entry> deque : byPlayer.values()) {
+                turns.add(deque.iterator());
+            }
+
+            boolean any = true;
+            while (any) {
+                any = false;
+                for (Iterator<Entry> turn : turns) {
+                    if (turn.hasNext()) {
+                        any = true;
+                        Entry entry = turn.next();
+                        int newPosition = ++position;
+                        if (entry.position != newPosition) {
+                            entry.position = newPosition;
+                            notifications.add(() -> entry.notifyPosition(newPosition));
+                        }
+                    }
+                }
+            }
+        }
+        return notifications;
+    }
+
+    private boolean tryAcquireToken(LLMRequest request) {
+        // Only messages the player actually typed count against their limit
+        if (messagesPerMinute <= 0 || request.getPlayerId() == null
+                || request.getPriority() != RequestPriority.CHAT) {
+            return true;
+        }
+
+        long now = clock.getAsLong();
+        if (buckets.size() > 256) {
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+        return buckets.computeIfAbsent(request.getPlayerId(), id -> new TokenBucket(now)).tryAcquire(now);
+    }
+
+    /**
+     * Number of requests waiting to start
+     */
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    /**
+     * Number of requests currently generating
+     */
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * Number of background requests cancelled to make way for foreground work, since startup
+     */
+    public synchronized long getPreempted() {
+        return preempted;
+    }
+
+    /**
+     * Waiting requests per priority class
+     */
+    public synchronized Map<RequestPriority, Integer> getQueuedByPriority() {
+        Map<RequestPriority, Integer> counts = new EnumMap<>(RequestPriority.class);
+        for (Map.Entry<RequestPriority, LinkedHashMap<UUID, Deque<Entry>>> e : queues.entrySet()) {
+            counts.put(e.getKey(), e.getValue().values().stream().mapToInt(Deque::size).sum());
+        }
+        return counts;
+    }
+
+    /**
+     * Refuse new requests and fail everything still waiting
+     */
+    public void shutdown() {
+        List<Entry> pending = new ArrayList<>();
+        synchronized (this) {
+            shutdown = true;
+            for (LinkedHashMap<UUID, Deque<Entry>> byPlayer : queues.values()) {
+                byPlayer.values().forEach(pending::addAll);
+                byPlayer.clear();
+            }
+            queued = 0;
+        }
+        for (Entry entry : pending) {
+            entry.result.completeExceptionally(new LLMRequestRejectedException("Scheduler is shut down"));
+        }
+    }
+
+    private static final class Entry {
+        // Null for background jobs that are not an LLM request
+        final LLMRequest request;
+        final RequestPriority priority;
+        final UUID key;
+        final Supplier<CompletableFuture<String>> task;
+        final CompletableFuture<String> result;
+        int position = -1;
+        // Set once started
+        CompletableFuture<String> running;
+        // Background work told to make way for a foreground request
+        boolean preempted = false;
+
+        Entry(LLMRequest request, RequestPriority priority, UUID key,
+              Supplier<CompletableFuture<String>> task, CompletableFuture<String> result) {
+            this.request = request;
+            this.priority = priority;
+            this.key = key;
+            this.task = task;
+            this.result = result;
+        }
+
+        void notifyPosition(int position) {
+            IntConsumer callback = request != null ? request.getOnQueuePosition() : null;
+            if (callback != null) {
+                try {
+                    callback.accept(position);
+                } catch (Exception ignored) {
+                    // A broken status callback must not stall the queue
+                }
+            }
+        }
+    }
+
+    /**
+     * Refills at messagesPerMinute per minute, holds at most messagesPerMinute tokens
+     */
+    private final class TokenBucket {
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(long now) {
+            this.tokens = messagesPerMinute;
+            this.lastRefill = now;
+        }
+
+        boolean tryAcquire(long now) {
+            refill(now);
+            if (tokens >= 1.0) {
+                tokens -= 1.0;
+                return true;
+            }
+            return false;
+        }
+
+        boolean isFull(long now) {
+            refill(now);
+            return tokens >= messagesPerMinute;
+        }
+
+        private void refill(long now) {
+            double gained = (double) (now - lastRefill) * messagesPerMinute / NANOS_PER_MINUTE;
+            tokens = Math.min(messagesPerMinute, tokens + gained);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.storyteller.llm;
+
+/**
+ * Counts sentences in a reply as it streams in and cuts it off after the last one allowed.
+ *
+ * A sentence ends at '.', '!' or '?' followed by whitespace; runs like "..." or "?!" count once,
+ * and closing quotes or brackets right after the punctuation stay with the sentence.
+ * Not thread-safe; a provider delivers one attempt's tokens in order.
+ */
+public final class SentenceLimit {
+
+    private final int maxSentences;
+    private final StringBuilder text = new StringBuilder();
+    private int sentences = 0;
+    private boolean afterPunctuation = false;
+    private boolean reached = false;
+
+    /**
+     * @param maxSentences Sentences to keep; at least 1
+     */
+    public SentenceLimit(int maxSentences) {
+        this.maxSentences = Math.max(1, maxSentences);
+    }
+
+    /**
+     * Feed the next fragment of the reply.
+     *
+     * @return The part of the fragment to keep (all of it until the limit is reached),
+     *         or null once the limit was reached by an earlier fragment
+     */
+    public String accept(String fragment) {
+        if (reached) {
+            return null;
+        }
+        for (int i = 0; i < fragment.length(); i++) {
+            char c = fragment.charAt(i);
+            if (c == '.' || c == '!' || c == '?') {
+                afterPunctuation = true;
+            } else if (afterPunctuation && Character.isWhitespace(c)) {
+                afterPunctuation = false;
+                if (++sentences >= maxSentences) {
+                    reached = true;
+                    String kept = fragment.substring(0, i);
+                    text.append(kept);
+                    return kept;
+                }
+            } else if (afterPunctuation && !isCloser(c)) {
+                // "3.5" or "file.txt": not the end of a sentence
+                afterPunctuation = false;
+            }
+        }
+        text.append(fragment);
+        return fragment;
+    }
+
+    /**
+     * Whether the reply has all the sentences it may have; anything more can be discarded
+     */
+    public boolean isReached() {
+        return reached;
+    }
+
+    /**
+     * The reply so far, up to and including the last sentence allowed
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * A complete reply cut down to at most {@code maxSentences} sentences
+     */
+    public static String truncate(String reply, int maxSentences) {
+        SentenceLimit limit = new SentenceLimit(maxSentences);
+        limit.accept(reply);
+        return limit.isReached() ? limit.getText() : reply;
+    }
+
+    private static boolean isCloser(char c) {
+        return c == '"' || c == '\'' || c == ')' || c == ']' || c == '*' || c == '”' || c == '’';
+    }
+}
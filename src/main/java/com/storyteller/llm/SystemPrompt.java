@@ -0,0 +1,108 @@
+package com.storyteller.llm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A system prompt made of ordered segments.
+ *
+ * Static segments (the character sheet, rules) come first and are identical between
+ * requests for the same character; dynamic segments (world state, quests, knowledge)
+ * follow. Keeping the static part as a stable prefix lets providers reuse their
+ * prompt cache instead of prefilling the whole character block every turn.
+ */
+public class SystemPrompt {
+
+    private static final String SEPARATOR = "\n\n";
+
+    private final List<Segment> segments = new ArrayList<>();
+    private boolean hasDynamic = false;
+
+    /**
+     * A named piece of the prompt
+     */
+    public record Segment(String name, String text, boolean stable) {}
+
+    /**
+     * Wrap a plain prompt string as a single static segment, sent whole like a character sheet
+     */
+    public static SystemPrompt of(String text) {
+        return new SystemPrompt().addStatic("prompt", text);
+    }
+
+    /**
+     * Add a segment that does not change between requests. Must come before any dynamic segment.
+     */
+    public SystemPrompt addStatic(String name, String text) {
+        if (hasDynamic) {
+            throw new IllegalStateException("Static segment '" + name + "' added after dynamic content");
+        }
+        if (text != null && !text.isBlank()) {
+            segments.add(new Segment(name, text.strip(), true));
+        }
+        return this;
+    }
+
+    /**
+     * Add a segment that may change on every request. Null or blank text is skipped.
+     */
+    public SystemPrompt addDynamic(String name, String text) {
+        hasDynamic = true;
+        if (text != null && !text.isBlank()) {
+            segments.add(new Segment(name, text.strip(), false));
+        }
+        return this;
+    }
+
+    public List<Segment> getSegments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * The stable prefix (all static segments), or an empty string if there are none
+     */
+    public String getStaticText() {
+        return join(true);
+    }
+
+    /**
+     * Everything after the stable prefix, or an empty string if there is nothing dynamic
+     */
+    public String getDynamicText() {
+        return join(false);
+    }
+
+    /**
+     * The full prompt: static prefix followed by the dynamic segments
+     */
+    public String getText() {
+        String staticText = getStaticText();
+        String dynamicText = getDynamicText();
+        if (staticText.isEmpty()) {
+            return dynamicText;
+        }
+        if (dynamicText.isEmpty()) {
+            return staticText;
+        }
+        return staticText + SEPARATOR + dynamicText;
+    }
+
+    private String join(boolean stable) {
+        StringBuilder sb = new StringBuilder();
+        for (Segment segment : segments) {
+            if (segment.stable() == stable) {
+                if (sb.length() > 0) {
+                    sb.append(SEPARATOR);
+                }
+                sb.append(segment.text());
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getText();
+    }
+}
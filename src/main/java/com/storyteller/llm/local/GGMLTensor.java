@@ -0,0 +1,130 @@
+package com.storyteller.llm.local;
+
+import java.nio.MappedByteBuffer;
+
+/**
+ * A weight tensor backed by a memory-mapped region of the model file.
+ * The first dimension is the row length; rows are stored contiguously.
+ */
+public final class GGMLTensor {
+
+    private final String name;
+    private final GGMLType type;
+    private final long[] dims;
+    private final MappedByteBuffer data;
+    private final int cols;
+    private final int rows;
+    private final int rowBytes;
+
+    GGMLTensor(String name, GGMLType type, long[] dims, MappedByteBuffer data) {
+        this.name = name;
+        this.type = type;
+        this.dims = dims;
+        this.data = data;
+        this.cols = Math.toIntExact(dims[0]);
+        long rowCount = 1;
+        for (int i = 1; i < dims.length; i++) {
+            rowCount *= dims[i];
+        }
+        this.rows = Math.toIntExact(rowCount);
+        this.rowBytes = Math.toIntExact(type.byteSize(cols));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public GGMLType getType() {
+        return type;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getRowBytes() {
+        return rowBytes;
+    }
+
+    /**
+     * Dot product of one row with {@code x}.
+     *
+     * @param bytes Scratch space of at least {@link #getRowBytes()} bytes
+     * @param floats Scratch space of at least {@link #getCols()} floats
+     */
+    float dot(int row, float[] x, Kernels kernels, byte[] bytes, float[] floats) {
+        switch (type) {
+            case Q8_0 -> {
+                data.get(row * rowBytes, bytes, 0, rowBytes);
+                return kernels.dotQ8_0(bytes, x, cols);
+            }
+            case Q4_0 -> {
+                data.get(row * rowBytes, bytes, 0, rowBytes);
+                return kernels.dotQ4_0(bytes, x, cols);
+            }
+            default -> {
+                dequantizeRow(row, floats, 0);
+                return kernels.dot(floats, 0, x, 0, cols);
+            }
+        }
+    }
+
+    /**
+     * Expand one row to floats (used for embedding lookups and unquantized weights)
+     */
+    void dequantizeRow(int row, float[] out, int offset) {
+        int base = row * rowBytes;
+        switch (type) {
+            case F32 -> {
+                for (int i = 0; i < cols; i++) {
+                    out[offset + i] = data.getFloat(base + i * 4);
+                }
+            }
+            case F16 -> {
+                for (int i = 0; i < cols; i++) {
+                    out[offset + i] = Float.float16ToFloat(data.getShort(base + i * 2));
+                }
+            }
+            case Q8_0 -> {
+                for (int block = 0; block < cols / 32; block++) {
+                    int blockBase = base + block * 34;
+                    float scale = Float.float16ToFloat(data.getShort(blockBase));
+                    for (int j = 0; j < 32; j++) {
+                        out[offset + block * 32 + j] = data.get(blockBase + 2 + j) * scale;
+                    }
+                }
+            }
+            case Q4_0 -> {
+                for (int block = 0; block < cols / 32; block++) {
+                    int blockBase = base + block * 18;
+                    float scale = Float.float16ToFloat(data.getShort(blockBase));
+                    for (int j = 0; j < 16; j++) {
+                        int packed = data.get(blockBase + 2 + j) & 0xFF;
+                        out[offset + block * 32 + j] = ((packed & 0x0F) - 8) * scale;
+                        out[offset + block * 32 + 16 + j] = ((packed >>> 4) - 8) * scale;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The whole tensor as floats; only for small tensors such as norm weights
+     */
+    float[] toFloats() {
+        float[] out = new float[rows * cols];
+        for (int row = 0; row < rows; row++) {
+            dequantizeRow(row, out, row * cols);
+        }
+        return out;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + type + " " + java.util.Arrays.toString(dims);
+    }
+}
@@ -0,0 +1,54 @@
+package com.storyteller.llm.local;
+
+/**
+ * Tensor element types used in GGUF files. Only the ones the local engine can run
+ * are listed; anything else is rejected when the model is loaded.
+ */
+public enum GGMLType {
+    F32(0, 1, 4),
+    F16(1, 1, 2),
+    // 32 weights per block: f16 scale + 16 bytes of 4-bit values (offset by 8)
+    Q4_0(2, 32, 2 + 16),
+    // 32 weights per block: f16 scale + 32 signed bytes
+    Q8_0(8, 32, 2 + 32);
+
+    private final int id;
+    private final int blockSize;
+    private final int typeSize;
+
+    GGMLType(int id, int blockSize, int typeSize) {
+        this.id = id;
+        this.blockSize = blockSize;
+        this.typeSize = typeSize;
+    }
+
+    /**
+     * Number of weights stored together
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Bytes per block
+     */
+    public int getTypeSize() {
+        return typeSize;
+    }
+
+    public long byteSize(long elements) {
+        return elements / blockSize * typeSize;
+    }
+
+    /**
+     * @return the type, or null if the engine does not support it
+     */
+    public static GGMLType fromId(int id) {
+        for (GGMLType type : values()) {
+            if (type.id == id) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
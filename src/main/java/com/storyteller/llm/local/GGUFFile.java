@@ -0,0 +1,247 @@
+package com.storyteller.llm.local;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reader for GGUF model files (the format used by llama.cpp and Ollama).
+ *
+ * The header (metadata and tensor table) is parsed eagerly; tensor data is memory-mapped,
+ * so opening even a multi-gigabyte model is instant and the OS pages weights in on first use.
+ */
+public class GGUFFile implements AutoCloseable {
+
+    private static final int MAGIC = 0x46554747; // "GGUF" little-endian
+    private static final int DEFAULT_ALIGNMENT = 32;
+
+    private final FileChannel channel;
+    private final Map<String, Object> metadata = new LinkedHashMap<>();
+    private final Map<String, GGMLTensor> tensors = new HashMap<>();
+
+    private GGUFFile(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    public static GGUFFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            GGUFFile file = new GGUFFile(channel);
+            file.read();
+            return file;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private record TensorInfo(String name, long[] dims, int typeId, long offset) {}
+
+    private void read() throws IOException {
+        LittleEndianReader in = new LittleEndianReader(
+            new BufferedInputStream(Channels.newInputStream(channel.position(0)), 1 << 16));
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a GGUF file");
+        }
+        int version = in.readInt();
+        if (version < 2 || version > 3) {
+            throw new IOException("Unsupported GGUF version " + version);
+        }
+        long tensorCount = in.readLong();
+        long metadataCount = in.readLong();
+
+        for (long i = 0; i < metadataCount; i++) {
+            String key = in.readString();
+            metadata.put(key, in.readValue(in.readInt()));
+        }
+
+        TensorInfo[] infos = new TensorInfo[(int) tensorCount];
+        for (int i = 0; i < tensorCount; i++) {
+            String name = in.readString();
+            int dimCount = in.readInt();
+            long[] dims = new long[dimCount];
+            for (int d = 0; d < dimCount; d++) {
+                dims[d] = in.readLong();
+            }
+            infos[i] = new TensorInfo(name, dims, in.readInt(), in.readLong());
+        }
+
+        int alignment = getInt("general.alignment", DEFAULT_ALIGNMENT);
+        long dataStart = (in.position() + alignment - 1) / alignment * alignment;
+
+        for (TensorInfo info : infos) {
+            GGMLType type = GGMLType.fromId(info.typeId());
+            if (type == null) {
+                // Fails only if the model actually needs this tensor
+                continue;
+            }
+            long elements = 1;
+            for (long dim : info.dims()) {
+                elements *= dim;
+            }
+            long size = type.byteSize(elements);
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + info.offset(), size);
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            tensors.put(info.name(), new GGMLTensor(info.name(), type, info.dims(), data));
+        }
+    }
+
+    public Map<String, Object> getMetadata() {
+        return metadata;
+    }
+
+    public String getString(String key, String fallback) {
+        return metadata.get(key) instanceof String value ? value : fallback;
+    }
+
+    public int getInt(String key, int fallback) {
+        return metadata.get(key) instanceof Number value ? value.intValue() : fallback;
+    }
+
+    public float getFloat(String key, float fallback) {
+        return metadata.get(key) instanceof Number value ? value.floatValue() : fallback;
+    }
+
+    /**
+     * @return the tensor, or null if it is absent or of an unsupported type
+     */
+    public GGMLTensor getTensor(String name) {
+        return tensors.get(name);
+    }
+
+    public GGMLTensor requireTensor(String name) throws IOException {
+        GGMLTensor tensor = tensors.get(name);
+        if (tensor == null) {
+            throw new IOException("Tensor " + name + " is missing or uses an unsupported quantization "
+                + "(supported: F32, F16, Q8_0, Q4_0)");
+        }
+        return tensor;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Sequential little-endian reader that tracks its position in the file
+     */
+    private static final class LittleEndianReader {
+        private final InputStream in;
+        private final byte[] buffer = new byte[8];
+        private long position = 0;
+
+        LittleEndianReader(InputStream in) {
+            this.in = in;
+        }
+
+        long position() {
+            return position;
+        }
+
+        private void fill(byte[] target, int length) throws IOException {
+            int read = 0;
+            while (read < length) {
+                int n = in.read(target, read, length - read);
+                if (n < 0) {
+                    throw new EOFException("Truncated GGUF header");
+                }
+                read += n;
+            }
+            position += length;
+        }
+
+        int readByte() throws IOException {
+            fill(buffer, 1);
+            return buffer[0];
+        }
+
+        short readShort() throws IOException {
+            fill(buffer, 2);
+            return (short) ((buffer[0] & 0xFF) | (buffer[1] & 0xFF) << 8);
+        }
+
+        int readInt() throws IOException {
+            fill(buffer, 4);
+            return (buffer[0] & 0xFF) | (buffer[1] & 0xFF) << 8 | (buffer[2] & 0xFF) << 16 | (buffer[3] & 0xFF) << 24;
+        }
+
+        long readLong() throws IOException {
+            long low = readInt() & 0xFFFFFFFFL;
+            long high = readInt() & 0xFFFFFFFFL;
+            return low | high << 32;
+        }
+
+        String readString() throws IOException {
+            long length = readLong();
+            byte[] bytes = new byte[Math.toIntExact(length)];
+            fill(bytes, bytes.length);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        Object readValue(int type) throws IOException {
+            return switch (type) {
+                case 0, 1 -> readByte();
+                case 2, 3 -> readShort();
+                case 4, 5 -> readInt();
+                case 6 -> Float.intBitsToFloat(readInt());
+                case 7 -> readByte() != 0;
+                case 8 -> readString();
+                case 9 -> readArray();
+                case 10, 11 -> readLong();
+                case 12 -> Double.longBitsToDouble(readLong());
+                default -> throw new IOException("Unknown GGUF metadata type " + type);
+            };
+        }
+
+        /**
+         * Strings, ints and floats come back as typed arrays (tokenizer vocabularies are large)
+         */
+        Object readArray() throws IOException {
+            int type = readInt();
+            int length = Math.toIntExact(readLong());
+            switch (type) {
+                case 8 -> {
+                    String[] values = new String[length];
+                    for (int i = 0; i < length; i++) {
+                        values[i] = readString();
+                    }
+                    return values;
+                }
+                case 4, 5 -> {
+                    int[] values = new int[length];
+                    for (int i = 0; i < length; i++) {
+                        values[i] = readInt();
+                    }
+                    return values;
+                }
+                case 6 -> {
+                    float[] values = new float[length];
+                    for (int i = 0; i < length; i++) {
+                        values[i] = Float.intBitsToFloat(readInt());
+                    }
+                    return values;
+                }
+                default -> {
+                    Object[] values = new Object[length];
+                    for (int i = 0; i < length; i++) {
+                        values[i] = readValue(type);
+                    }
+                    return values;
+                }
+            }
+        }
+    }
+}
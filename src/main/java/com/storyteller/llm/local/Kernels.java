@@ -0,0 +1,49 @@
+package com.storyteller.llm.local;
+
+import com.storyteller.StorytellerMod;
+
+/**
+ * The inner loops of inference: dot products of a weight row with an activation vector.
+ *
+ * The SIMD version uses the incubating {@code jdk.incubator.vector} module, which the JVM only
+ * loads when started with {@code --add-modules jdk.incubator.vector}; without it the scalar
+ * version is used.
+ */
+interface Kernels {
+
+    /**
+     * Dot product of a row of Q8_0 blocks with {@code x[0..cols)}
+     */
+    float dotQ8_0(byte[] row, float[] x, int cols);
+
+    /**
+     * Dot product of a row of Q4_0 blocks with {@code x[0..cols)}
+     */
+    float dotQ4_0(byte[] row, float[] x, int cols);
+
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Short description for status output, e.g. "Vector API, 8 lanes"
+     */
+    String describe();
+
+    static Kernels create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // Loaded reflectively so that nothing touches the vector classes when the module is absent
+                return (Kernels) Class.forName("com.storyteller.llm.local.VectorKernels")
+                    .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                StorytellerMod.LOGGER.warn("Vector API present but unusable, using scalar inference: {}", e.toString());
+            }
+        } else {
+            StorytellerMod.LOGGER.info("Add --add-modules jdk.incubator.vector to the JVM arguments for faster local inference");
+        }
+        return new ScalarKernels();
+    }
+
+    static float f16(byte[] bytes, int offset) {
+        return Float.float16ToFloat((short) ((bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8));
+    }
+}
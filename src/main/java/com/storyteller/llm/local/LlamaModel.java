@@ -0,0 +1,427 @@
+package com.storyteller.llm.local;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Llama-architecture transformer (Llama 3.x and compatible) running on the CPU.
+ *
+ * Weights stay in the memory-mapped GGUF file. Matrix-vector products are split by rows
+ * across a dedicated fork/join pool. Prompt tokens are evaluated in batches so each weight
+ * row is read from memory once per batch instead of once per token.
+ *
+ * Not thread-safe: activations are shared, so only one forward pass may run at a time.
+ */
+public final class LlamaModel {
+
+    /** Prompt tokens evaluated together */
+    static final int BATCH_SIZE = 16;
+    /** Positions a new session's KV cache has room for before it first grows */
+    static final int INITIAL_CACHE_POSITIONS = 32;
+    // Rows handed to a worker at a time
+    private static final int ROWS_PER_TASK = 16;
+
+    public record Config(int dim, int hiddenDim, int layers, int heads, int kvHeads, int vocabSize,
+                         int contextLength, float ropeTheta, float rmsEpsilon) {
+        int headSize() {
+            return dim / heads;
+        }
+
+        int kvDim() {
+            return kvHeads * headSize();
+        }
+
+        /**
+         * KV cache memory per cached token: a float key and value per layer
+         */
+        long cacheBytesPerToken() {
+            return 2L * layers * kvDim() * Float.BYTES;
+        }
+    }
+
+    private record Layer(float[] attentionNorm, GGMLTensor wq, GGMLTensor wk, GGMLTensor wv, GGMLTensor wo,
+                         float[] ffnNorm, GGMLTensor gate, GGMLTensor up, GGMLTensor down) {}
+
+    private final Config config;
+    private final GGMLTensor tokenEmbedding;
+    private final Layer[] layers;
+    private final float[] outputNorm;
+    private final GGMLTensor output;
+    private final float[] ropeFrequencies;
+    private final Kernels kernels;
+    private final ForkJoinPool pool;
+
+    private final ThreadLocal<byte[]> rowBytes;
+    private final ThreadLocal<float[]> rowFloats;
+
+    // Activations for up to BATCH_SIZE tokens
+    private final float[][] x;
+    private final float[][] xb;
+    private final float[][] xb2;
+    private final float[][] q;
+    private final float[][] k;
+    private final float[][] v;
+    private final float[][] hb;
+    private final float[][] hb2;
+    private final float[][] attention;
+    private final float[][] lastX;
+    private final float[][] logits;
+
+    private LlamaModel(Config config, GGMLTensor tokenEmbedding, Layer[] layers, float[] outputNorm,
+                       GGMLTensor output, float[] ropeFrequencies, Kernels kernels, int threads) {
+        this.config = config;
+        this.tokenEmbedding = tokenEmbedding;
+        this.layers = layers;
+        this.outputNorm = outputNorm;
+        this.output = output;
+        this.ropeFrequencies = ropeFrequencies;
+        this.kernels = kernels;
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+
+        int maxRowBytes = output.getRowBytes();
+        int maxCols = Math.max(config.dim(), config.hiddenDim());
+        for (Layer layer : layers) {
+            for (GGMLTensor tensor : new GGMLTensor[] {layer.wq(), layer.wk(), layer.wv(), layer.wo(),
+                layer.gate(), layer.up(), layer.down()}) {
+                maxRowBytes = Math.max(maxRowBytes, tensor.getRowBytes());
+            }
+        }
+        int scratchBytes = maxRowBytes;
+        this.rowBytes = ThreadLocal.withInitial(() -> new byte[scratchBytes]);
+        this.rowFloats = ThreadLocal.withInitial(() -> new float[maxCols]);
+
+        int dim = config.dim();
+        x = new float[BATCH_SIZE][dim];
+        xb = new float[BATCH_SIZE][dim];
+        xb2 = new float[BATCH_SIZE][dim];
+        q = new float[BATCH_SIZE][dim];
+        k = new float[BATCH_SIZE][config.kvDim()];
+        v = new float[BATCH_SIZE][config.kvDim()];
+        hb = new float[BATCH_SIZE][config.hiddenDim()];
+        hb2 = new float[BATCH_SIZE][config.hiddenDim()];
+        attention = new float[config.heads()][config.contextLength()];
+        lastX = new float[1][];
+        logits = new float[][] {new float[config.vocabSize()]};
+    }
+
+    /**
+     * Build the model from an open GGUF file
+     *
+     * @param maxContext Upper bound for the context length (the model's own limit also applies)
+     */
+    public static LlamaModel load(GGUFFile file, int maxContext, int threads) throws IOException {
+        String architecture = file.getString("general.architecture", "");
+        if (!architecture.equals("llama")) {
+            throw new IOException("Unsupported model architecture '" + architecture + "' (only llama is supported)");
+        }
+
+        int dim = file.getInt("llama.embedding_length", 0);
+        int heads = file.getInt("llama.attention.head_count", 0);
+        GGMLTensor tokenEmbedding = file.requireTensor("token_embd.weight");
+        Config config = new Config(
+            dim,
+            file.getInt("llama.feed_forward_length", 0),
+            file.getInt("llama.block_count", 0),
+            heads,
+            file.getInt("llama.attention.head_count_kv", heads),
+            tokenEmbedding.getRows(),
+            Math.min(maxContext, file.getInt("llama.context_length", maxContext)),
+            file.getFloat("llama.rope.freq_base", 10000f),
+            file.getFloat("llama.attention.layer_norm_rms_epsilon", 1e-5f)
+        );
+
+        Layer[] layers = new Layer[config.layers()];
+        for (int i = 0; i < layers.length; i++) {
+            String prefix = "blk." + i + ".";
+            layers[i] = new Layer(
+                file.requireTensor(prefix + "attn_norm.weight").toFloats(),
+                file.requireTensor(prefix + "attn_q.weight"),
+                file.requireTensor(prefix + "attn_k.weight"),
+                file.requireTensor(prefix + "attn_v.weight"),
+                file.requireTensor(prefix + "attn_output.weight"),
+                file.requireTensor(prefix + "ffn_norm.weight").toFloats(),
+                file.requireTensor(prefix + "ffn_gate.weight"),
+                file.requireTensor(prefix + "ffn_up.weight"),
+                file.requireTensor(prefix + "ffn_down.weight")
+            );
+        }
+
+        // Small models share the embedding matrix with the output projection
+        GGMLTensor output = file.getTensor("output.weight");
+        if (output == null) {
+            output = tokenEmbedding;
+        }
+
+        // Rotary embedding frequencies; Llama 3.1+ ships per-dimension scaling factors
+        int headSize = config.headSize();
+        float[] frequencies = new float[headSize / 2];
+        GGMLTensor ropeFactors = file.getTensor("rope_freqs.weight");
+        float[] factors = ropeFactors != null ? ropeFactors.toFloats() : null;
+        for (int i = 0; i < frequencies.length; i++) {
+            frequencies[i] = (float) (1.0 / Math.pow(config.ropeTheta(), (2.0 * i) / headSize));
+            if (factors != null) {
+                frequencies[i] /= factors[i];
+            }
+        }
+
+        return new LlamaModel(config, tokenEmbedding, layers, file.requireTensor("output_norm.weight").toFloats(),
+            output, frequencies, Kernels.create(), threads);
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    String describeKernels() {
+        return kernels.describe() + ", " + pool.getParallelism() + " threads";
+    }
+
+    /**
+     * Key/value cache for one conversation, plus the tokens it holds.
+     *
+     * The cache takes {@link Config#cacheBytesPerToken()} per token, e.g. 64KB for Llama 3.2 1B
+     * and 224KB for 3B, so a full 4096-token context of a 3B model is about 940MB. It starts
+     * small and doubles as the conversation grows, so a session only holds what its longest
+     * prompt so far needed.
+     */
+    public final class Session {
+        float[][] keys;
+        float[][] values;
+        final int[] tokens = new int[config.contextLength()];
+        int capacity = 0;
+        int length = 0;
+        long lastUsed = 0;
+
+        Session() {
+            keys = new float[config.layers()][];
+            values = new float[config.layers()][];
+            ensureCapacity(Math.min(INITIAL_CACHE_POSITIONS, config.contextLength()));
+        }
+
+        /**
+         * Make room for at least {@code positions} cached tokens, keeping what is cached
+         */
+        void ensureCapacity(int positions) {
+            if (positions <= capacity) {
+                return;
+            }
+            int grown = Math.min(config.contextLength(), Math.max(positions, capacity * 2));
+            int floats = grown * config.kvDim();
+            for (int layer = 0; layer < config.layers(); layer++) {
+                keys[layer] = keys[layer] == null ? new float[floats] : Arrays.copyOf(keys[layer], floats);
+                values[layer] = values[layer] == null ? new float[floats] : Arrays.copyOf(values[layer], floats);
+            }
+            capacity = grown;
+        }
+
+        /**
+         * Memory held by this session's KV cache
+         */
+        long cacheBytes() {
+            return capacity * config.cacheBytesPerToken();
+        }
+
+        /**
+         * Number of leading tokens this session already holds
+         */
+        int commonPrefix(int[] prompt, int promptLength) {
+            int n = Math.min(length, promptLength);
+            int i = 0;
+            while (i < n && tokens[i] == prompt[i]) {
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * Take over the first {@code count} cached positions of another session
+         */
+        void copyPrefixFrom(Session other, int count) {
+            ensureCapacity(count);
+            int floats = count * config.kvDim();
+            for (int layer = 0; layer < config.layers(); layer++) {
+                System.arraycopy(other.keys[layer], 0, keys[layer], 0, floats);
+                System.arraycopy(other.values[layer], 0, values[layer], 0, floats);
+            }
+            System.arraycopy(other.tokens, 0, tokens, 0, count);
+            length = count;
+        }
+    }
+
+    public Session newSession() {
+        return new Session();
+    }
+
+    /**
+     * Run {@code count} tokens through the model at positions {@code start..start+count-1}, storing
+     * their keys and values in the session. Returns the logits for the last token.
+     */
+    float[] forward(Session session, int[] tokens, int offset, int count, int start) {
+        int dim = config.dim();
+        int kvDim = config.kvDim();
+        int headSize = config.headSize();
+        session.ensureCapacity(start + count);
+
+        for (int b = 0; b < count; b++) {
+            tokenEmbedding.dequantizeRow(tokens[offset + b], x[b], 0);
+        }
+
+        for (int l = 0; l < layers.length; l++) {
+            Layer layer = layers[l];
+
+            for (int b = 0; b < count; b++) {
+                rmsNorm(xb[b], x[b], layer.attentionNorm());
+            }
+            matmul(q, layer.wq(), xb, count);
+            matmul(k, layer.wk(), xb, count);
+            matmul(v, layer.wv(), xb, count);
+
+            for (int b = 0; b < count; b++) {
+                int pos = start + b;
+                rope(q[b], dim, pos);
+                rope(k[b], kvDim, pos);
+                System.arraycopy(k[b], 0, session.keys[l], pos * kvDim, kvDim);
+                System.arraycopy(v[b], 0, session.values[l], pos * kvDim, kvDim);
+            }
+
+            // Causal attention: each token sees the cache up to its own position
+            for (int b = 0; b < count; b++) {
+                attend(session, l, b, start + b, headSize, kvDim);
+            }
+            matmul(xb2, layer.wo(), xb, count);
+            for (int b = 0; b < count; b++) {
+                add(x[b], xb2[b], dim);
+                rmsNorm(xb[b], x[b], layer.ffnNorm());
+            }
+
+            // SwiGLU feed-forward
+            matmul(hb, layer.gate(), xb, count);
+            matmul(hb2, layer.up(), xb, count);
+            for (int b = 0; b < count; b++) {
+                float[] h = hb[b];
+                float[] u = hb2[b];
+                for (int i = 0; i < config.hiddenDim(); i++) {
+                    float value = h[i];
+                    h[i] = value / (1f + (float) Math.exp(-value)) * u[i];
+                }
+            }
+            matmul(xb, layer.down(), hb, count);
+            for (int b = 0; b < count; b++) {
+                add(x[b], xb[b], dim);
+            }
+        }
+
+        for (int b = 0; b < count; b++) {
+            session.tokens[start + b] = tokens[offset + b];
+        }
+        session.length = start + count;
+
+        // Only the last token's prediction is needed
+        rmsNorm(xb[0], x[count - 1], outputNorm);
+        lastX[0] = xb[0];
+        matmul(logits, output, lastX, 1);
+        return logits[0];
+    }
+
+    private void attend(Session session, int layer, int b, int pos, int headSize, int kvDim) {
+        int kvPerHead = config.heads() / config.kvHeads();
+        float scale = (float) (1.0 / Math.sqrt(headSize));
+        float[] keys = session.keys[layer];
+        float[] values = session.values[layer];
+        float[] query = q[b];
+        float[] out = xb[b];
+
+        pool.submit(() -> IntStream.range(0, config.heads()).parallel().forEach(h -> {
+            int qOffset = h * headSize;
+            int kvOffset = (h / kvPerHead) * headSize;
+            float[] scores = attention[h];
+
+            float max = Float.NEGATIVE_INFINITY;
+            for (int t = 0; t <= pos; t++) {
+                float score = kernels.dot(query, qOffset, keys, t * kvDim + kvOffset, headSize) * scale;
+                scores[t] = score;
+                max = Math.max(max, score);
+            }
+            float sum = 0f;
+            for (int t = 0; t <= pos; t++) {
+                scores[t] = (float) Math.exp(scores[t] - max);
+                sum += scores[t];
+            }
+
+            Arrays.fill(out, qOffset, qOffset + headSize, 0f);
+            for (int t = 0; t <= pos; t++) {
+                float weight = scores[t] / sum;
+                int vOffset = t * kvDim + kvOffset;
+                for (int i = 0; i < headSize; i++) {
+                    out[qOffset + i] += weight * values[vOffset + i];
+                }
+            }
+        })).join();
+    }
+
+    /**
+     * out[b] = w * in[b] for each of the first {@code count} vectors. With a single vector the
+     * quantized kernels run directly on the packed weights; with several, each row is expanded
+     * once and reused for the whole batch.
+     */
+    private void matmul(float[][] out, GGMLTensor w, float[][] in, int count) {
+        int rows = w.getRows();
+        int cols = w.getCols();
+        int tasks = (rows + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+        pool.submit(() -> IntStream.range(0, tasks).parallel().forEach(task -> {
+            byte[] bytes = rowBytes.get();
+            float[] floats = rowFloats.get();
+            int end = Math.min(rows, (task + 1) * ROWS_PER_TASK);
+            for (int row = task * ROWS_PER_TASK; row < end; row++) {
+                if (count == 1) {
+                    out[0][row] = w.dot(row, in[0], kernels, bytes, floats);
+                } else {
+                    w.dequantizeRow(row, floats, 0);
+                    for (int b = 0; b < count; b++) {
+                        out[b][row] = kernels.dot(floats, 0, in[b], 0, cols);
+                    }
+                }
+            }
+        })).join();
+    }
+
+    private void rmsNorm(float[] out, float[] in, float[] weight) {
+        int dim = config.dim();
+        float sumSquares = kernels.dot(in, 0, in, 0, dim);
+        float scale = (float) (1.0 / Math.sqrt(sumSquares / dim + config.rmsEpsilon()));
+        for (int i = 0; i < dim; i++) {
+            out[i] = weight[i] * in[i] * scale;
+        }
+    }
+
+    /**
+     * Rotate adjacent pairs within each head (GGUF llama weights are permuted for this layout)
+     */
+    private void rope(float[] vector, int length, int pos) {
+        int headSize = config.headSize();
+        for (int head = 0; head < length; head += headSize) {
+            for (int i = 0; i < headSize / 2; i++) {
+                double angle = pos * (double) ropeFrequencies[i];
+                float cos = (float) Math.cos(angle);
+                float sin = (float) Math.sin(angle);
+                int j = head + 2 * i;
+                float a = vector[j];
+                float c = vector[j + 1];
+                vector[j] = a * cos - c * sin;
+                vector[j + 1] = a * sin + c * cos;
+            }
+        }
+    }
+
+    private static void add(float[] target, float[] source, int length) {
+        for (int i = 0; i < length; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    public void close() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,328 @@
+package com.storyteller.llm.local;
+
+import com.storyteller.StorytellerMod;
+import com.storyteller.llm.LLMProvider.ChatMessage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Chat generation on top of {@link LlamaModel}: Llama 3 chat formatting, sampling, and a small
+ * pool of KV-cache sessions.
+ *
+ * A new request reuses the session whose cached tokens share the longest prefix with its prompt,
+ * so a conversation's next turn only evaluates what changed since the last one (at minimum the
+ * new messages; at best everything after the character sheet). Generation is serialized.
+ */
+public class LocalEngine implements AutoCloseable {
+
+    private static final float TEMPERATURE = 0.7f;
+    private static final float TOP_P = 0.9f;
+
+    private final GGUFFile file;
+    private final LlamaModel model;
+    private final Tokenizer tokenizer;
+    private final int maxSessions;
+    private final List<LlamaModel.Session> sessions = new ArrayList<>();
+    private final Random random = new Random();
+
+    // Sampling scratch, one slot per vocabulary entry, reused for every token
+    private final float[] probabilities;
+    private final long[] candidates;
+
+    private final int beginOfText;
+    private final int startHeader;
+    private final int endHeader;
+    private final int endOfTurn;
+    private final int endOfText;
+
+    private long useCounter = 0;
+
+    private LocalEngine(GGUFFile file, LlamaModel model, Tokenizer tokenizer, int maxSessions) throws IOException {
+        this.file = file;
+        this.model = model;
+        this.tokenizer = tokenizer;
+        this.maxSessions = Math.max(1, maxSessions);
+        this.probabilities = new float[model.getConfig().vocabSize()];
+        this.candidates = new long[model.getConfig().vocabSize()];
+
+        beginOfText = tokenizer.specialToken("<|begin_of_text|>");
+        startHeader = tokenizer.specialToken("<|start_header_id|>");
+        endHeader = tokenizer.specialToken("<|end_header_id|>");
+        endOfTurn = tokenizer.specialToken("<|eot_id|>");
+        endOfText = file.getInt("tokenizer.ggml.eos_token_id", tokenizer.specialToken("<|end_of_text|>"));
+        if (beginOfText < 0 || startHeader < 0 || endHeader < 0 || endOfTurn < 0) {
+            throw new IOException("Model has no Llama 3 chat tokens (use an Instruct model)");
+        }
+    }
+
+    /**
+     * Map the model file and prepare the tokenizer. The weights are paged in on first use.
+     */
+    public static LocalEngine load(Path path, int maxContext, int threads, int maxSessions) throws IOException {
+        GGUFFile file = GGUFFile.open(path);
+        try {
+            LlamaModel model = LlamaModel.load(file, maxContext, threads);
+            return new LocalEngine(file, model, Tokenizer.load(file), maxSessions);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Generate a reply.
+     *
+     * @param stopSequences Generation ends before any of these; text that could be the start of one
+     *                      is held back until it is clear it isn't
+     * @param onText Receives each new piece of text (never splits a UTF-8 character)
+     * @param cancelled Checked between tokens; generation stops when it returns true
+     * @return The full reply, or null if the prompt does not fit in the context window
+     */
+    public synchronized String generate(String systemPrompt, List<ChatMessage> messages, int maxTokens,
+                                        List<String> stopSequences, Consumer<String> onText, BooleanSupplier cancelled) {
+        int[] prompt = formatChat(systemPrompt, messages);
+        int contextLength = model.getConfig().contextLength();
+        if (prompt.length + 1 >= contextLength) {
+            StorytellerMod.LOGGER.warn("Local model prompt has {} tokens but the context is {}", prompt.length, contextLength);
+            return null;
+        }
+
+        LlamaModel.Session session = acquireSession(prompt);
+        // Always evaluate at least the last prompt token to get fresh logits
+        int pos = Math.min(session.commonPrefix(prompt, prompt.length), prompt.length - 1);
+        int reused = pos;
+        long start = System.nanoTime();
+
+        float[] logits = null;
+        while (pos < prompt.length) {
+            if (cancelled.getAsBoolean()) {
+                return "";
+            }
+            int count = Math.min(LlamaModel.BATCH_SIZE, prompt.length - pos);
+            logits = model.forward(session, prompt, pos, count, pos);
+            pos += count;
+        }
+        long prefillNanos = System.nanoTime() - start;
+
+        StringBuilder text = new StringBuilder();
+        // Bytes of a UTF-8 character split across tokens, waiting for the rest
+        byte[] pending = new byte[0];
+        int emitted = 0;
+        int generated = 0;
+        int holdBack = 0;
+        for (String stop : stopSequences) {
+            holdBack = Math.max(holdBack, stop.length() - 1);
+        }
+        int[] next = new int[1];
+        while (generated < maxTokens && pos < contextLength && !cancelled.getAsBoolean()) {
+            int token = sample(logits);
+            if (token == endOfTurn || token == endOfText) {
+                break;
+            }
+            byte[] bytes = tokenizer.decode(token);
+            if (pending.length > 0) {
+                byte[] joined = Arrays.copyOf(pending, pending.length + bytes.length);
+                System.arraycopy(bytes, 0, joined, pending.length, bytes.length);
+                bytes = joined;
+            }
+            generated++;
+
+            // Only the new text is decoded; a stop sequence can only end in it
+            int complete = Tokenizer.completeUtf8Length(bytes, bytes.length);
+            int searchFrom = Math.max(0, text.length() - holdBack);
+            text.append(new String(bytes, 0, complete, StandardCharsets.UTF_8));
+            pending = complete < bytes.length ? Arrays.copyOfRange(bytes, complete, bytes.length) : new byte[0];
+
+            int stopAt = indexOfStop(text, searchFrom, stopSequences);
+            if (stopAt >= 0) {
+                text.setLength(stopAt);
+                if (text.length() > emitted) {
+                    onText.accept(text.substring(emitted));
+                }
+                emitted = text.length();
+                break;
+            }
+            int safe = text.length() - holdBack;
+            if (safe > emitted) {
+                onText.accept(text.substring(emitted, safe));
+                emitted = safe;
+            }
+
+            next[0] = token;
+            logits = model.forward(session, next, 0, 1, pos);
+            pos++;
+        }
+
+        if (text.length() > emitted) {
+            // Held back for a stop sequence that never came
+            onText.accept(text.substring(emitted));
+        }
+
+        long totalNanos = System.nanoTime() - start;
+        StorytellerMod.LOGGER.debug("Local model: {} prompt tokens ({} cached) in {}ms, {} tokens generated in {}ms",
+            prompt.length, reused, prefillNanos / 1_000_000, generated, (totalNanos - prefillNanos) / 1_000_000);
+        return text.toString();
+    }
+
+    private static int indexOfStop(StringBuilder text, int from, List<String> stopSequences) {
+        int first = -1;
+        for (String stop : stopSequences) {
+            int index = stop.isEmpty() ? -1 : text.indexOf(stop, from);
+            if (index >= 0 && (first < 0 || index < first)) {
+                first = index;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Llama 3 chat template:
+     * {@code <|begin_of_text|><|start_header_id|>system<|end_header_id|>\n\n...<|eot_id|>...}
+     * ending with an open assistant header
+     */
+    int[] formatChat(String systemPrompt, List<ChatMessage> messages) {
+        List<Integer> tokens = new ArrayList<>();
+        tokens.add(beginOfText);
+        if (systemPrompt != null && !systemPrompt.isBlank()) {
+            appendMessage(tokens, "system", systemPrompt);
+        }
+        for (ChatMessage message : messages) {
+            appendMessage(tokens, message.role().name().toLowerCase(), message.content());
+        }
+        appendHeader(tokens, "assistant");
+        return tokens.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void appendHeader(List<Integer> tokens, String role) {
+        tokens.add(startHeader);
+        tokenizer.encode(role, tokens);
+        tokens.add(endHeader);
+        tokenizer.encode("\n\n", tokens);
+    }
+
+    private void appendMessage(List<Integer> tokens, String role, String content) {
+        appendHeader(tokens, role);
+        tokenizer.encode(content.strip(), tokens);
+        tokens.add(endOfTurn);
+    }
+
+    /**
+     * The session to evaluate this prompt in. A session whose whole cache is a prefix of the prompt
+     * (the same conversation, one turn later) is continued in place; otherwise a free or least
+     * recently used session is primed with the best shared prefix so other conversations keep theirs.
+     */
+    private LlamaModel.Session acquireSession(int[] prompt) {
+        LlamaModel.Session best = null;
+        int bestPrefix = 0;
+        for (LlamaModel.Session session : sessions) {
+            int prefix = session.commonPrefix(prompt, prompt.length);
+            if (prefix > bestPrefix) {
+                best = session;
+                bestPrefix = prefix;
+            }
+        }
+
+        LlamaModel.Session chosen;
+        if (best != null && bestPrefix == best.length) {
+            chosen = best;
+        } else {
+            if (sessions.size() < maxSessions) {
+                chosen = model.newSession();
+                sessions.add(chosen);
+            } else {
+                LlamaModel.Session keep = best;
+                chosen = sessions.stream()
+                    .filter(session -> session != keep)
+                    .min((a, b) -> Long.compare(a.lastUsed, b.lastUsed))
+                    .orElse(best);
+            }
+            if (best != null && chosen != best) {
+                chosen.copyPrefixFrom(best, bestPrefix);
+            } else if (chosen != best) {
+                chosen.length = 0;
+            } else {
+                chosen.length = bestPrefix;
+            }
+        }
+        chosen.lastUsed = ++useCounter;
+        return chosen;
+    }
+
+    /**
+     * Temperature plus nucleus (top-p) sampling
+     */
+    private int sample(float[] logits) {
+        int n = logits.length;
+        float max = Float.NEGATIVE_INFINITY;
+        for (float logit : logits) {
+            max = Math.max(max, logit);
+        }
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            probabilities[i] = (float) Math.exp((logits[i] - max) / TEMPERATURE);
+            sum += probabilities[i];
+        }
+
+        // Tokens below this probability can never be in the nucleus; skip sorting them.
+        // Each candidate is packed as (probability bits, token) so a primitive sort orders
+        // them by probability; the bits of non-negative floats sort like the floats.
+        float cutoff = (float) ((1 - TOP_P) / (n - 1) * sum);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (probabilities[i] >= cutoff) {
+                candidates[count++] = (long) Float.floatToRawIntBits(probabilities[i]) << 32 | i;
+            }
+        }
+        Arrays.sort(candidates, 0, count);
+
+        // Most likely first: walk the sorted candidates from the end
+        double nucleus = 0;
+        int last = 0;
+        for (int i = count - 1; i >= 0; i--) {
+            nucleus += probabilities[(int) candidates[i]];
+            last = i;
+            if (nucleus >= TOP_P * sum) {
+                break;
+            }
+        }
+
+        double r = random.nextDouble() * nucleus;
+        double cumulative = 0;
+        for (int i = count - 1; i >= last; i--) {
+            int token = (int) candidates[i];
+            cumulative += probabilities[token];
+            if (r < cumulative) {
+                return token;
+            }
+        }
+        return (int) candidates[last];
+    }
+
+    public LlamaModel.Config getConfig() {
+        return model.getConfig();
+    }
+
+    public synchronized int getSessionCount() {
+        return sessions.size();
+    }
+
+    public String describe() {
+        LlamaModel.Config config = model.getConfig();
+        return config.layers() + " layers, dim " + config.dim() + ", context " + config.contextLength()
+            + ", " + model.describeKernels();
+    }
+
+    @Override
+    public void close() throws IOException {
+        model.close();
+        file.close();
+    }
+}
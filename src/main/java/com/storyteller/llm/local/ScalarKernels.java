@@ -0,0 +1,55 @@
+package com.storyteller.llm.local;
+
+/**
+ * Plain Java kernels, used when the Vector API is not available
+ */
+final class ScalarKernels implements Kernels {
+
+    @Override
+    public float dotQ8_0(byte[] row, float[] x, int cols) {
+        float sum = 0f;
+        for (int block = 0; block < cols / 32; block++) {
+            int base = block * 34;
+            float scale = Kernels.f16(row, base);
+            int xBase = block * 32;
+            float blockSum = 0f;
+            for (int j = 0; j < 32; j++) {
+                blockSum += row[base + 2 + j] * x[xBase + j];
+            }
+            sum += blockSum * scale;
+        }
+        return sum;
+    }
+
+    @Override
+    public float dotQ4_0(byte[] row, float[] x, int cols) {
+        float sum = 0f;
+        for (int block = 0; block < cols / 32; block++) {
+            int base = block * 18;
+            float scale = Kernels.f16(row, base);
+            int xBase = block * 32;
+            float blockSum = 0f;
+            for (int j = 0; j < 16; j++) {
+                int packed = row[base + 2 + j] & 0xFF;
+                blockSum += ((packed & 0x0F) - 8) * x[xBase + j];
+                blockSum += ((packed >>> 4) - 8) * x[xBase + 16 + j];
+            }
+            sum += blockSum * scale;
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum = 0f;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String describe() {
+        return "scalar";
+    }
+}
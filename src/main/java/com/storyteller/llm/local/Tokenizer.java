@@ -0,0 +1,164 @@
+package com.storyteller.llm.local;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Byte-level BPE tokenizer as used by Llama 3 ("gpt2" tokenizer model in GGUF metadata).
+ *
+ * Text is split with the Llama 3 pre-tokenizer pattern, each piece's UTF-8 bytes are mapped to
+ * printable characters, and the merges from the model file are applied lowest rank first.
+ */
+public final class Tokenizer {
+
+    private static final Pattern PRE_TOKENIZER = Pattern.compile(
+        "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+");
+
+    // GGUF token type for control tokens such as <|eot_id|>
+    private static final int TOKEN_TYPE_CONTROL = 3;
+
+    private static final char[] BYTE_TO_CHAR = new char[256];
+    private static final int[] CHAR_TO_BYTE = new int[512];
+
+    static {
+        // GPT-2's reversible byte-to-unicode table: printable bytes map to themselves, the rest above 255
+        int next = 256;
+        for (int b = 0; b < 256; b++) {
+            boolean printable = (b >= '!' && b <= '~') || (b >= 0xA1 && b <= 0xAC) || (b >= 0xAE && b <= 0xFF);
+            BYTE_TO_CHAR[b] = (char) (printable ? b : next++);
+        }
+        for (int b = 0; b < 256; b++) {
+            CHAR_TO_BYTE[BYTE_TO_CHAR[b]] = b;
+        }
+    }
+
+    private final String[] vocab;
+    private final int[] tokenTypes;
+    private final Map<String, Integer> ids = new HashMap<>();
+    // (left id << 32 | right id) -> merge rank; the merged token is the concatenation
+    private final Map<Long, Integer> mergeRanks = new HashMap<>();
+
+    Tokenizer(String[] vocab, String[] merges, int[] tokenTypes) {
+        this.vocab = vocab;
+        this.tokenTypes = tokenTypes;
+        for (int i = 0; i < vocab.length; i++) {
+            ids.put(vocab[i], i);
+        }
+        for (int rank = 0; rank < merges.length; rank++) {
+            String merge = merges[rank];
+            int space = merge.indexOf(' ', 1);
+            Integer left = ids.get(merge.substring(0, space));
+            Integer right = ids.get(merge.substring(space + 1));
+            if (left != null && right != null) {
+                mergeRanks.put(pairKey(left, right), rank);
+            }
+        }
+    }
+
+    public static Tokenizer load(GGUFFile file) throws IOException {
+        String model = file.getString("tokenizer.ggml.model", "");
+        if (!model.equals("gpt2")) {
+            throw new IOException("Unsupported tokenizer '" + model + "' (only Llama 3 style BPE is supported)");
+        }
+        if (!(file.getMetadata().get("tokenizer.ggml.tokens") instanceof String[] tokens)
+            || !(file.getMetadata().get("tokenizer.ggml.merges") instanceof String[] merges)) {
+            throw new IOException("Model file has no tokenizer vocabulary");
+        }
+        int[] types = file.getMetadata().get("tokenizer.ggml.token_type") instanceof int[] t ? t : new int[0];
+        return new Tokenizer(tokens, merges, types);
+    }
+
+    private static long pairKey(int left, int right) {
+        return (long) left << 32 | (right & 0xFFFFFFFFL);
+    }
+
+    public int getVocabSize() {
+        return vocab.length;
+    }
+
+    /**
+     * Id of a special token such as {@code <|eot_id|>}, or -1 if the vocabulary lacks it
+     */
+    public int specialToken(String text) {
+        return ids.getOrDefault(text, -1);
+    }
+
+    /**
+     * Encode plain text (special token markup in the text is treated as ordinary characters)
+     */
+    public void encode(String text, List<Integer> out) {
+        Matcher matcher = PRE_TOKENIZER.matcher(text);
+        while (matcher.find()) {
+            encodePiece(matcher.group(), out);
+        }
+    }
+
+    private void encodePiece(String piece, List<Integer> out) {
+        byte[] bytes = piece.getBytes(StandardCharsets.UTF_8);
+        List<Integer> tokens = new ArrayList<>(bytes.length);
+        for (byte b : bytes) {
+            tokens.add(ids.get(String.valueOf(BYTE_TO_CHAR[b & 0xFF])));
+        }
+
+        // Apply the lowest-ranked merge until none applies
+        while (tokens.size() > 1) {
+            int bestRank = Integer.MAX_VALUE;
+            int bestIndex = -1;
+            for (int i = 0; i < tokens.size() - 1; i++) {
+                Integer rank = mergeRanks.get(pairKey(tokens.get(i), tokens.get(i + 1)));
+                if (rank != null && rank < bestRank) {
+                    bestRank = rank;
+                    bestIndex = i;
+                }
+            }
+            if (bestIndex < 0) {
+                break;
+            }
+            String merged = vocab[tokens.get(bestIndex)] + vocab[tokens.get(bestIndex + 1)];
+            tokens.set(bestIndex, ids.get(merged));
+            tokens.remove(bestIndex + 1);
+        }
+        out.addAll(tokens);
+    }
+
+    /**
+     * Raw bytes of a token; control tokens decode to nothing
+     */
+    public byte[] decode(int token) {
+        if (token < tokenTypes.length && tokenTypes[token] == TOKEN_TYPE_CONTROL) {
+            return new byte[0];
+        }
+        String text = vocab[token];
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            bytes[i] = (byte) (c < CHAR_TO_BYTE.length ? CHAR_TO_BYTE[c] : '?');
+        }
+        return bytes;
+    }
+
+    /**
+     * Length of the longest prefix of {@code bytes[0..length)} that does not end inside a UTF-8
+     * sequence, so streamed text never splits a multi-byte character
+     */
+    static int completeUtf8Length(byte[] bytes, int length) {
+        // Look back at most 3 bytes for the start of an unfinished sequence
+        for (int i = length - 1; i >= Math.max(0, length - 3); i--) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80) {
+                return length;
+            }
+            if (b >= 0xC0) {
+                int needed = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+                return length - i >= needed ? length : i;
+            }
+        }
+        return length;
+    }
+}
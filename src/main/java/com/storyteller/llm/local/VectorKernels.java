@@ -0,0 +1,86 @@
+package com.storyteller.llm.local;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels using the Vector API. Quantized weights are loaded 16 bytes at a time and
+ * widened to float lanes; each 32-weight block is accumulated and then scaled once.
+ */
+final class VectorKernels implements Kernels {
+
+    private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> B = ByteVector.SPECIES_128;
+    private static final int LANES = F.length();
+    // Float vectors one 16-byte load widens into
+    private static final int PARTS = 16 / Math.max(1, LANES);
+
+    VectorKernels() {
+        if (LANES < 4 || LANES > 16) {
+            throw new UnsupportedOperationException(LANES + " float lanes");
+        }
+    }
+
+    @Override
+    public float dotQ8_0(byte[] row, float[] x, int cols) {
+        FloatVector acc = FloatVector.zero(F);
+        for (int block = 0; block < cols / 32; block++) {
+            int base = block * 34;
+            int xBase = block * 32;
+            FloatVector blockAcc = FloatVector.zero(F);
+            for (int half = 0; half < 2; half++) {
+                ByteVector quants = ByteVector.fromArray(B, row, base + 2 + half * 16);
+                for (int part = 0; part < PARTS; part++) {
+                    FloatVector weights = (FloatVector) quants.castShape(F, part);
+                    blockAcc = weights.fma(FloatVector.fromArray(F, x, xBase + half * 16 + part * LANES), blockAcc);
+                }
+            }
+            acc = blockAcc.fma(FloatVector.broadcast(F, Kernels.f16(row, base)), acc);
+        }
+        return acc.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public float dotQ4_0(byte[] row, float[] x, int cols) {
+        FloatVector acc = FloatVector.zero(F);
+        for (int block = 0; block < cols / 32; block++) {
+            int base = block * 18;
+            int xBase = block * 32;
+            ByteVector packed = ByteVector.fromArray(B, row, base + 2);
+            // Low nibbles are weights 0-15, high nibbles 16-31; both stored offset by 8
+            ByteVector low = packed.and((byte) 0x0F).sub((byte) 8);
+            ByteVector high = packed.lanewise(VectorOperators.LSHR, 4).sub((byte) 8);
+            FloatVector blockAcc = FloatVector.zero(F);
+            for (int part = 0; part < PARTS; part++) {
+                blockAcc = ((FloatVector) low.castShape(F, part))
+                    .fma(FloatVector.fromArray(F, x, xBase + part * LANES), blockAcc);
+                blockAcc = ((FloatVector) high.castShape(F, part))
+                    .fma(FloatVector.fromArray(F, x, xBase + 16 + part * LANES), blockAcc);
+            }
+            acc = blockAcc.fma(FloatVector.broadcast(F, Kernels.f16(row, base)), acc);
+        }
+        return acc.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector acc = FloatVector.zero(F);
+        int i = 0;
+        int upper = F.loopBound(length);
+        for (; i < upper; i += LANES) {
+            acc = FloatVector.fromArray(F, a, aOffset + i).fma(FloatVector.fromArray(F, b, bOffset + i), acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String describe() {
+        return "Vector API, " + LANES + " lanes";
+    }
+}
@@ -1,77 +1,74 @@
 package com.storyteller.llm.providers;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import com.storyteller.StorytellerMod;
 import com.storyteller.config.ModConfig;
+import com.storyteller.llm.GenerationProfile;
+import com.storyteller.llm.HttpStatusException;
+import com.storyteller.llm.HttpTransport;
 import com.storyteller.llm.LLMProvider;
+import com.storyteller.llm.LLMProviderException;
+import com.storyteller.llm.LLMRequest;
+import com.storyteller.llm.ModelTier;
+import com.storyteller.llm.SystemPrompt;
 
+import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Claude (Anthropic) LLM provider
  */
 public class ClaudeProvider implements LLMProvider {
 
-    private static final String API_URL = "https://api.anthropic.com/v1/messages";
     private static final String API_VERSION = "2023-06-01";
-    private static final Gson GSON = new Gson();
 
-    private HttpClient client;
     private final AtomicBoolean available = new AtomicBoolean(false);
 
     private String apiKey;
+    private String apiUrl;
     private String model;
+    private String fastModel;
 
     @Override
     public CompletableFuture<Boolean> initialize() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                this.apiKey = ModConfig.COMMON.claudeApiKey.get();
-                this.model = ModConfig.COMMON.claudeModel.get();
+        HttpRequest request;
+        try {
+            this.apiKey = ModConfig.COMMON.claudeApiKey.get();
+            this.model = ModConfig.COMMON.claudeModel.get();
+            String endpoint = ModConfig.COMMON.claudeEndpoint.get();
+            this.apiUrl = (endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint) + "/v1/messages";
+            this.fastModel = ModConfig.COMMON.claudeFastModel.get();
 
-                if (apiKey == null || apiKey.isEmpty()) {
-                    StorytellerMod.LOGGER.info("Claude API key not configured, skipping initialization");
-                    return false;
-                }
-
-                int timeout = ModConfig.COMMON.responseTimeout.get();
-
-                this.client = HttpClient.newBuilder()
-                    .connectTimeout(Duration.ofSeconds(10))
-                    .build();
-
-                // Test with a minimal request
-                JsonObject testRequest = new JsonObject();
-                testRequest.addProperty("model", model);
-                testRequest.addProperty("max_tokens", 10);
-
-                JsonArray messages = new JsonArray();
-                JsonObject testMsg = new JsonObject();
-                testMsg.addProperty("role", "user");
-                testMsg.addProperty("content", "Hi");
-                messages.add(testMsg);
-                testRequest.add("messages", messages);
-
-                HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(API_URL))
-                    .timeout(Duration.ofSeconds(timeout))
-                    .header("x-api-key", apiKey)
-                    .header("anthropic-version", API_VERSION)
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(testRequest)))
-                    .build();
+            if (apiKey == null || apiKey.isEmpty()) {
+                StorytellerMod.LOGGER.info("Claude API key not configured, skipping initialization");
+                return CompletableFuture.completedFuture(false);
+            }
 
-                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            // Test with a minimal request
+            request = buildHttpRequest(JsonCodec.write(json -> {
+                json.beginObject();
+                json.name("model").value(model);
+                json.name("max_tokens").value(10);
+                json.name("messages").beginArray();
+                writeMessage(json, "user", "Hi");
+                json.endArray();
+                json.endObject();
+            }));
+        } catch (Exception e) {
+            StorytellerMod.LOGGER.error("Failed to initialize Claude provider: {}", e.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
 
+        return HttpTransport.shared().sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            .thenApply(response -> {
                 if (response.statusCode() >= 200 && response.statusCode() < 300) {
                     StorytellerMod.LOGGER.info("Claude API connection successful");
                     available.set(true);
@@ -81,75 +78,185 @@ public class ClaudeProvider implements LLMProvider {
                     StorytellerMod.LOGGER.error("Claude API connection failed: HTTP {} - {}", response.statusCode(), responseBody);
                     return false;
                 }
-            } catch (Exception e) {
+            })
+            .exceptionally(e -> {
                 StorytellerMod.LOGGER.error("Failed to initialize Claude provider: {}", e.getMessage());
                 return false;
-            }
-        });
+            });
     }
 
     @Override
-    public CompletableFuture<String> chat(String systemPrompt, List<ChatMessage> messages) {
-        return CompletableFuture.supplyAsync(() -> {
-            if (!available.get()) {
-                return "[Claude is not available. Please check your API key.]";
-            }
+    public CompletableFuture<String> chat(LLMRequest request) {
+        if (!available.get()) {
+            return CompletableFuture.failedFuture(new LLMProviderException("Claude is not available"));
+        }
+
+        HttpRequest httpRequest = buildHttpRequest(buildChatRequest(request.getSystemPrompt(), request.getMessages(),
+            modelFor(request.getTier()), false, request.getProfile()));
 
-            try {
-                JsonObject requestBody = new JsonObject();
-                requestBody.addProperty("model", model);
-                requestBody.addProperty("max_tokens", 1024);
-                requestBody.addProperty("system", systemPrompt);
-
-                // Build messages array
-                JsonArray messagesArray = new JsonArray();
-
-                for (ChatMessage msg : messages) {
-                    JsonObject messageObj = new JsonObject();
-                    // Claude uses "user" and "assistant" roles
-                    String role = msg.role() == ChatMessage.Role.USER ? "user" : "assistant";
-                    messageObj.addProperty("role", role);
-                    messageObj.addProperty("content", msg.content());
-                    messagesArray.add(messageObj);
+        // Only the first content block's text is read from the reply
+        CompletableFuture<HttpResponse<String>> sent = HttpTransport.shared().sendAsync(httpRequest, JsonCodec.field("content", "text"));
+        return HttpFutures.cancelUpstream(sent, sent
+            .thenApply(response -> {
+                if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                    String errorBody = response.body() != null ? response.body() : "Unknown error";
+                    throw new LLMProviderException("Claude request failed: HTTP " + response.statusCode() + " - " + errorBody);
+                }
+                if (response.body() == null) {
+                    throw new LLMProviderException("Claude response had no content");
                 }
+                return response.body();
+            })
+            .exceptionally(e -> {
+                StorytellerMod.LOGGER.error("Claude chat error: {}", e.getMessage());
+                throw LLMProviderException.wrap(e);
+            }));
+    }
 
-                requestBody.add("messages", messagesArray);
+    @Override
+    public CompletableFuture<String> chatStream(LLMRequest request, Consumer<String> onToken) {
+        if (!available.get()) {
+            return CompletableFuture.failedFuture(new LLMProviderException("Claude is not available"));
+        }
 
-                int timeout = ModConfig.COMMON.responseTimeout.get();
+        StringBuilder content = new StringBuilder();
+        // An error event from the API; the reply fails even if some text arrived before it
+        AtomicReference<String> streamError = new AtomicReference<>();
 
-                HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(API_URL))
-                    .timeout(Duration.ofSeconds(timeout))
-                    .header("x-api-key", apiKey)
-                    .header("anthropic-version", API_VERSION)
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(requestBody)))
-                    .build();
+        // Server-sent events: only the "data:" lines carry the payload
+        LineStreamHandler handler = new LineStreamHandler(line -> {
+            if (!line.startsWith("data:")) {
+                return;
+            }
 
-                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            // Only content_block_delta events carry delta.text
+            String data = line.substring(5).trim();
+            String token = JsonCodec.read(data, "delta", "text");
+            if (token != null) {
+                content.append(token);
+                onToken.accept(token);
+            } else if ("error".equals(JsonCodec.read(data, "type"))) {
+                streamError.compareAndSet(null, JsonCodec.read(data, "error"));
+            }
+        });
 
-                if (response.statusCode() >= 200 && response.statusCode() < 300 && response.body() != null) {
-                    String responseBody = response.body();
-                    JsonObject jsonResponse = GSON.fromJson(responseBody, JsonObject.class);
+        HttpRequest httpRequest = buildHttpRequest(buildChatRequest(request.getSystemPrompt(), request.getMessages(),
+            modelFor(request.getTier()), true, request.getProfile()));
 
-                    if (jsonResponse.has("content")) {
-                        JsonArray content = jsonResponse.getAsJsonArray("content");
-                        if (content.size() > 0) {
-                            return content.get(0).getAsJsonObject().get("text").getAsString();
-                        }
-                    }
-                } else {
-                    String errorBody = response.body() != null ? response.body() : "Unknown error";
-                    StorytellerMod.LOGGER.error("Claude request failed: HTTP {} - {}", response.statusCode(), errorBody);
+        // Cancelling the returned future aborts the stream
+        CompletableFuture<HttpResponse<String>> sent = HttpTransport.shared().sendAsync(httpRequest, handler);
+        return HttpFutures.cancelUpstream(sent, sent
+            .handle((response, error) -> {
+                if (error == null && (response.statusCode() < 200 || response.statusCode() >= 300)) {
+                    error = new HttpStatusException(response.statusCode(),
+                        "Claude request failed: HTTP " + response.statusCode() + " - " + response.body());
+                } else if (streamError.get() != null) {
+                    error = new LLMProviderException("Claude stream error: " + streamError.get());
+                } else if (error != null && content.length() > 0) {
+                    // Keep whatever was generated before a dropped connection
+                    StorytellerMod.LOGGER.warn("Claude stream ended early: {}", error.getMessage());
+                    return content.toString();
+                } else if (error == null && content.length() == 0) {
+                    error = new LLMProviderException("Claude returned an empty reply");
                 }
-            } catch (Exception e) {
-                StorytellerMod.LOGGER.error("Claude chat error: {}", e.getMessage());
+                if (error != null) {
+                    StorytellerMod.LOGGER.error("Claude stream error: {}", error.getMessage());
+                    throw LLMProviderException.wrap(error);
+                }
+                return content.toString();
+            }));
+    }
+
+    @Override
+    public boolean hasFastModel() {
+        return fastModel != null && !fastModel.isBlank();
+    }
+
+    private String modelFor(ModelTier tier) {
+        return tier == ModelTier.FAST && hasFastModel() ? fastModel : model;
+    }
+
+    byte[] buildChatRequest(SystemPrompt systemPrompt, List<ChatMessage> messages, String model,
+                            boolean stream, GenerationProfile profile) {
+        int promptChars = 0;
+        for (SystemPrompt.Segment segment : systemPrompt.getSegments()) {
+            promptChars += segment.text().length();
+        }
+        return JsonCodec.write(JsonCodec.sizeOf(promptChars, messages), json -> {
+            json.beginObject();
+            json.name("model").value(model);
+            json.name("max_tokens").value(profile.maxTokens());
+            json.name("system");
+            writeSystemBlocks(json, systemPrompt);
+            if (!profile.stopSequences().isEmpty()) {
+                json.name("stop_sequences").beginArray();
+                for (String stop : profile.stopSequences()) {
+                    json.value(stop);
+                }
+                json.endArray();
+            }
+            if (stream) {
+                json.name("stream").value(true);
+            }
+
+            json.name("messages").beginArray();
+            for (ChatMessage msg : messages) {
+                // Claude uses "user" and "assistant" roles
+                writeMessage(json, msg.role() == ChatMessage.Role.USER ? "user" : "assistant", msg.content());
             }
+            json.endArray();
 
-            return "[The storyteller seems lost in thought...]";
+            json.endObject();
         });
     }
 
+    /**
+     * System prompt as content blocks, with a cache breakpoint after the static character sheet
+     * so Anthropic only prefills it once per cache lifetime
+     */
+    private static void writeSystemBlocks(JsonWriter json, SystemPrompt systemPrompt) throws IOException {
+        json.beginArray();
+
+        String staticText = systemPrompt.getStaticText();
+        if (!staticText.isEmpty()) {
+            json.beginObject();
+            json.name("type").value("text");
+            json.name("text").value(staticText);
+            json.name("cache_control").beginObject().name("type").value("ephemeral").endObject();
+            json.endObject();
+        }
+
+        String dynamicText = systemPrompt.getDynamicText();
+        if (!dynamicText.isEmpty()) {
+            json.beginObject();
+            json.name("type").value("text");
+            json.name("text").value(dynamicText);
+            json.endObject();
+        }
+
+        json.endArray();
+    }
+
+    private static void writeMessage(JsonWriter json, String role, String content) throws IOException {
+        json.beginObject();
+        json.name("role").value(role);
+        json.name("content").value(content);
+        json.endObject();
+    }
+
+    private HttpRequest buildHttpRequest(byte[] requestBody) {
+        int timeout = ModConfig.COMMON.responseTimeout.get();
+
+        return HttpRequest.newBuilder()
+            .uri(URI.create(apiUrl))
+            .timeout(Duration.ofSeconds(timeout))
+            .header("x-api-key", apiKey)
+            .header("anthropic-version", API_VERSION)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody))
+            .build();
+    }
+
     @Override
     public boolean isAvailable() {
         return available.get();
@@ -157,12 +264,12 @@ public class ClaudeProvider implements LLMProvider {
 
     @Override
     public String getName() {
-        return "Claude (" + model + ")";
+        return "Claude (" + model + (hasFastModel() ? ", fast: " + fastModel : "") + ")";
     }
 
     @Override
     public void shutdown() {
         available.set(false);
-        // HttpClient doesn't need explicit shutdown
+        // The shared HttpTransport outlives providers, so its connections stay open across re-initialization
     }
 }
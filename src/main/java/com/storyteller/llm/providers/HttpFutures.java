@@ -0,0 +1,62 @@
+package com.storyteller.llm.providers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Helpers for futures derived from HttpClient.sendAsync
+ */
+final class HttpFutures {
+
+    private HttpFutures() {}
+
+    /**
+     * Cancelling a stage derived with thenApply does not reach the HttpClient future it came
+     * from. Link them so that cancelling {@code downstream} also aborts the HTTP exchange.
+     */
+    static <T> CompletableFuture<T> cancelUpstream(CompletableFuture<?> upstream, CompletableFuture<T> downstream) {
+        downstream.whenComplete((result, error) -> {
+            if (downstream.isCancelled()) {
+                upstream.cancel(true);
+            }
+        });
+        return downstream;
+    }
+
+    /**
+     * {@code first.thenCompose(next)}, except that cancelling the result cancels the future
+     * made by {@code next} (or keeps it from being started). {@code first} itself is never
+     * cancelled, since it may be shared (e.g. a provider's readiness future).
+     */
+    static <T, U> CompletableFuture<U> thenComposeCancellable(CompletableFuture<T> first,
+                                                            Function<? super T, CompletableFuture<U>> next) {
+        CompletableFuture<U> result = new CompletableFuture<>();
+        first.whenComplete((value, error) -> {
+            if (result.isDone()) {
+                // Cancelled while waiting
+                return;
+            }
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+
+            CompletableFuture<U> second;
+            try {
+                second = next.apply(value);
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+                return;
+            }
+            cancelUpstream(second, result);
+            second.whenComplete((response, failure) -> {
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else {
+                    result.complete(response);
+                }
+            });
+        });
+        return result;
+    }
+}
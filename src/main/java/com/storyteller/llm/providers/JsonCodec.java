@@ -0,0 +1,180 @@
+package com.storyteller.llm.providers;
+
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.storyteller.llm.LLMProvider.ChatMessage;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Streaming JSON for provider payloads. Request bodies are written straight to UTF-8 bytes
+ * and replies are scanned for the one field wanted, so no Gson tree (or String copy of a
+ * whole body) is built per request or per streamed chunk.
+ */
+final class JsonCodec {
+
+    // Room for the JSON around the text of a request: names, quotes, escapes, settings
+    private static final int BODY_OVERHEAD_BYTES = 512;
+    private static final int MESSAGE_OVERHEAD_BYTES = 48;
+    // OutputStreamWriter wraps every fragment JsonWriter hands it in a CharBuffer; collecting
+    // them first keeps that to one per this many chars
+    private static final int WRITE_BUFFER_CHARS = 1024;
+
+    private JsonCodec() {}
+
+    /**
+     * Writes one request body
+     */
+    @FunctionalInterface
+    interface Body {
+        void writeTo(JsonWriter json) throws IOException;
+    }
+
+    /**
+     * Serialize a request body to UTF-8 JSON, ready for {@code BodyPublishers.ofByteArray}.
+     * The bytes can be sent again as they are, e.g. by a hedged or retried attempt.
+     *
+     * @param sizeHint Expected size of the body in bytes, see {@link #sizeOf}; the buffer grows if it is more
+     */
+    static byte[] write(int sizeHint, Body body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(sizeHint, BODY_OVERHEAD_BYTES));
+        Writer out = new BufferedWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8), WRITE_BUFFER_CHARS);
+        try (JsonWriter json = new JsonWriter(out)) {
+            body.writeTo(json);
+        } catch (IOException e) {
+            // Only the in-memory buffer is written to
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Serialize a small request body, e.g. a connection test
+     */
+    static byte[] write(Body body) {
+        return write(BODY_OVERHEAD_BYTES, body);
+    }
+
+    /**
+     * Roughly the size of a chat request body carrying this prompt and history, for {@link #write(int, Body)}
+     */
+    static int sizeOf(int systemPromptChars, List<ChatMessage> messages) {
+        long size = BODY_OVERHEAD_BYTES + systemPromptChars;
+        for (ChatMessage message : messages) {
+            size += MESSAGE_OVERHEAD_BYTES + message.content().length();
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * Body handler that reads only the field at {@code path} from a successful response.
+     * Non-2xx bodies are kept whole as a string so the error can be logged.
+     */
+    static HttpResponse.BodyHandler<String> field(String... path) {
+        return responseInfo -> {
+            if (responseInfo.statusCode() < 200 || responseInfo.statusCode() >= 300) {
+                return HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
+            }
+            return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(),
+                bytes -> read(bytes, path));
+        };
+    }
+
+    /**
+     * The field at {@code path} in a JSON document, e.g. one streamed line
+     *
+     * @see #read(Reader, String...)
+     */
+    static String read(String json, String... path) {
+        return read(new StringReader(json), path);
+    }
+
+    /**
+     * The field at {@code path} in a UTF-8 response body
+     *
+     * @see #read(Reader, String...)
+     */
+    static String read(byte[] body, String... path) {
+        return read(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8), path);
+    }
+
+    /**
+     * The field at {@code path}, reading no further into the document than needed. Arrays along
+     * the path are entered at their first element, so {@code "choices", "delta", "content"}
+     * finds {@code choices[0].delta.content}. A string or number is returned as text, an
+     * object or array as JSON.
+     *
+     * @return The value, or null if the path is missing or the value is JSON null
+     */
+    static String read(Reader source, String... path) {
+        try (JsonReader json = new JsonReader(source)) {
+            return readPath(json, path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (IllegalStateException e) {
+            // The document didn't have the expected shape
+            return null;
+        }
+    }
+
+    private static String readPath(JsonReader json, String[] path) throws IOException {
+        for (String name : path) {
+            if (!enterFirstObject(json)) {
+                return null;
+            }
+            json.beginObject();
+            if (!skipTo(json, name)) {
+                return null;
+            }
+        }
+
+        return switch (json.peek()) {
+            case STRING, NUMBER -> json.nextString();
+            case BOOLEAN -> Boolean.toString(json.nextBoolean());
+            case NULL -> null;
+            default -> JsonParser.parseReader(json).toString();
+        };
+    }
+
+    /**
+     * Step into arrays until the next value is an object
+     *
+     * @return false if an array is empty or a value on the path is not an object
+     */
+    private static boolean enterFirstObject(JsonReader json) throws IOException {
+        while (json.peek() == JsonToken.BEGIN_ARRAY) {
+            json.beginArray();
+            if (!json.hasNext()) {
+                return false;
+            }
+        }
+        return json.peek() == JsonToken.BEGIN_OBJECT;
+    }
+
+    /**
+     * Skip the current object's members up to the value of {@code name}
+     */
+    private static boolean skipTo(JsonReader json, String name) throws IOException {
+        while (json.hasNext()) {
+            if (json.nextName().equals(name)) {
+                return true;
+            }
+            json.skipValue();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,68 @@
+package com.storyteller.llm.providers;
+
+import com.storyteller.StorytellerMod;
+
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * Body handler for streamed responses (Ollama NDJSON, Claude/OpenAI server-sent events).
+ * The HttpClient pushes each line to the callback as it arrives, so no thread sits blocked on the stream.
+ * Non-2xx responses are collected into a string instead so the error can be logged.
+ */
+final class LineStreamHandler implements HttpResponse.BodyHandler<String> {
+
+    private final Consumer<String> onLine;
+
+    LineStreamHandler(Consumer<String> onLine) {
+        this.onLine = onLine;
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<String> apply(HttpResponse.ResponseInfo responseInfo) {
+        if (responseInfo.statusCode() < 200 || responseInfo.statusCode() >= 300) {
+            return HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
+        }
+        return HttpResponse.BodySubscribers.fromLineSubscriber(
+            new LineSubscriber(onLine), subscriber -> null, StandardCharsets.UTF_8, null
+        );
+    }
+
+    private static final class LineSubscriber implements Flow.Subscriber<String> {
+
+        private final Consumer<String> onLine;
+
+        LineSubscriber(Consumer<String> onLine) {
+            this.onLine = onLine;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.isBlank()) {
+                return;
+            }
+            try {
+                onLine.accept(line);
+            } catch (Exception e) {
+                // A malformed chunk shouldn't abort the rest of the stream
+                StorytellerMod.LOGGER.debug("Skipping unreadable stream line: {}", e.getMessage());
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // Surfaced through the response future
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.storyteller.llm.providers;
+
+import com.storyteller.StorytellerMod;
+import com.storyteller.config.ModConfig;
+import com.storyteller.llm.GenerationProfile;
+import com.storyteller.llm.LLMProvider;
+import com.storyteller.llm.LLMProviderException;
+import com.storyteller.llm.LLMRequest;
+import com.storyteller.llm.local.LocalEngine;
+import net.neoforged.fml.loading.FMLPaths;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Runs a GGUF model inside the server JVM, for setups without an Ollama server or API key.
+ *
+ * Generation is CPU-bound, so requests run one at a time on a dedicated platform thread while
+ * the matrix multiplications fan out over {@code local.threads} cores.
+ */
+public class LocalProvider implements LLMProvider {
+
+    private final AtomicBoolean available = new AtomicBoolean(false);
+    private ExecutorService inference;
+    private volatile LocalEngine engine;
+    private String modelName = "no model";
+
+    @Override
+    public CompletableFuture<Boolean> initialize() {
+        String configured = ModConfig.COMMON.localModelPath.get();
+        if (configured == null || configured.isBlank()) {
+            StorytellerMod.LOGGER.info("Local model not configured, skipping initialization");
+            return CompletableFuture.completedFuture(false);
+        }
+
+        Path path = Path.of(configured);
+        if (!path.isAbsolute()) {
+            path = FMLPaths.CONFIGDIR.get().resolve("storyteller").resolve("models").resolve(configured);
+        }
+        if (!Files.isRegularFile(path)) {
+            StorytellerMod.LOGGER.warn("Local model file not found: {}", path);
+            return CompletableFuture.completedFuture(false);
+        }
+
+        shutdown();
+        Path modelPath = path;
+        modelName = path.getFileName().toString();
+        inference = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("storyteller-local-inference").daemon().factory()
+        );
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                engine = LocalEngine.load(modelPath, ModConfig.COMMON.contextTokens.get(),
+                    ModConfig.COMMON.localThreads.get(), ModConfig.COMMON.localMaxSessions.get());
+                available.set(true);
+                StorytellerMod.LOGGER.info("Local model {} loaded in {}ms ({})", modelName,
+                    System.currentTimeMillis() - start, engine.describe());
+                return true;
+            } catch (IOException | RuntimeException e) {
+                StorytellerMod.LOGGER.error("Failed to load local model {}: {}", modelName, e.getMessage());
+                return false;
+            }
+        }, inference);
+    }
+
+    @Override
+    public CompletableFuture<String> chat(LLMRequest request) {
+        return generate(request.getSystemPrompt().getText(), request.getMessages(), request.getProfile(), token -> {});
+    }
+
+    @Override
+    public CompletableFuture<String> chatStream(LLMRequest request, Consumer<String> onToken) {
+        return generate(request.getSystemPrompt().getText(), request.getMessages(), request.getProfile(), onToken);
+    }
+
+    /**
+     * Queue a generation on the inference thread. Cancelling the returned future drops it
+     * if it has not started, or stops it after the current token.
+     */
+    private CompletableFuture<String> generate(String systemPrompt, List<ChatMessage> messages,
+                                               GenerationProfile profile, Consumer<String> onToken) {
+        LocalEngine current = engine;
+        if (!available.get() || current == null) {
+            return CompletableFuture.failedFuture(new LLMProviderException("The local model is not available"));
+        }
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        try {
+            inference.execute(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    String reply = current.generate(systemPrompt, messages, profile.maxTokens(),
+                        profile.stopSequences(), onToken, result::isDone);
+                    if (reply == null || reply.isBlank()) {
+                        result.completeExceptionally(new LLMProviderException("The local model returned an empty reply"));
+                    } else {
+                        result.complete(reply);
+                    }
+                } catch (RuntimeException e) {
+                    StorytellerMod.LOGGER.error("Local model error: {}", e.getMessage());
+                    result.completeExceptionally(LLMProviderException.wrap(e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new LLMProviderException("The local model is shutting down", e));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return available.get();
+    }
+
+    @Override
+    public String getStatusDetail() {
+        LocalEngine current = engine;
+        if (current == null) {
+            return null;
+        }
+        return current.describe() + ", " + current.getSessionCount() + " conversations cached";
+    }
+
+    @Override
+    public String getName() {
+        return "Local (" + modelName + ")";
+    }
+
+    @Override
+    public void shutdown() {
+        available.set(false);
+        if (inference != null) {
+            inference.shutdownNow();
+            inference = null;
+        }
+        LocalEngine current = engine;
+        engine = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                StorytellerMod.LOGGER.warn("Failed to close local model: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -1,245 +1,444 @@
 package com.storyteller.llm.providers;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import com.storyteller.StorytellerMod;
 import com.storyteller.config.ModConfig;
+import com.storyteller.llm.EndpointPool;
+import com.storyteller.llm.EndpointPool.Endpoint;
+import com.storyteller.llm.GenerationProfile;
+import com.storyteller.llm.HttpStatusException;
+import com.storyteller.llm.HttpTransport;
 import com.storyteller.llm.LLMProvider;
+import com.storyteller.llm.LLMProviderException;
+import com.storyteller.llm.LLMRequest;
+import com.storyteller.llm.ModelTier;
 
+import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
- * Ollama LLM provider for local model inference
+ * Ollama LLM provider for local model inference.
+ * Several Ollama servers can be configured; each request goes to the least busy one.
  */
 public class OllamaProvider implements LLMProvider {
 
-    private static final Gson GSON = new Gson();
-
-    private HttpClient client;
+    private static final int WARMUP_TIMEOUT_SECONDS = 60;
+    private final Executor executor;
     private final AtomicBoolean available = new AtomicBoolean(false);
-    private final AtomicBoolean warmedUp = new AtomicBoolean(false);
 
-    private String endpoint;
+    // Completes when the first endpoint finishes warmup (or fails/times out); requests compose onto it
+    private volatile CompletableFuture<Void> ready = new CompletableFuture<>();
+    private volatile long warmupStartTime = 0;
+    private final AtomicInteger waitingForWarmup = new AtomicInteger(0);
+
+    private EndpointPool pool;
     private String model;
+    private String fastModel;
+    private String keepAlive;
+    private int contextTokens;
+
+    /**
+     * @param executor Executor for hedged requests and callbacks, owned by the LLMManager
+     */
+    public OllamaProvider(Executor executor) {
+        this.executor = executor;
+    }
 
     @Override
     public CompletableFuture<Boolean> initialize() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                this.endpoint = ModConfig.COMMON.ollamaEndpoint.get();
-                this.model = ModConfig.COMMON.ollamaModel.get();
-                int timeout = ModConfig.COMMON.ollamaTimeout.get();
-
-                this.client = HttpClient.newBuilder()
-                    .connectTimeout(Duration.ofSeconds(10))
-                    .build();
-
-                // Test connection by checking if Ollama is running
-                HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(endpoint + "/api/tags"))
-                    .timeout(Duration.ofSeconds(timeout))
-                    .GET()
-                    .build();
+        int timeout;
+        try {
+            if (ready.isDone()) {
+                ready = new CompletableFuture<>();
+            }
 
-                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            List<String> urls = new ArrayList<>();
+            urls.add(ModConfig.COMMON.ollamaEndpoint.get());
+            urls.addAll(ModConfig.COMMON.ollamaAdditionalEndpoints.get());
+            this.pool = new EndpointPool(urls, ModConfig.COMMON.hedgeRequests.get(), executor);
+            this.model = ModConfig.COMMON.ollamaModel.get();
+            this.fastModel = ModConfig.COMMON.ollamaFastModel.get();
+            this.keepAlive = ModConfig.COMMON.ollamaKeepAlive.get();
+            this.contextTokens = ModConfig.COMMON.contextTokens.get();
+            timeout = ModConfig.COMMON.ollamaTimeout.get();
+        } catch (Exception e) {
+            StorytellerMod.LOGGER.error("Failed to initialize Ollama provider: {}", e.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
+
+        warmupStartTime = System.currentTimeMillis();
+        List<CompletableFuture<Boolean>> checks = new ArrayList<>();
+        for (Endpoint endpoint : pool.getEndpoints()) {
+            checks.add(checkEndpoint(endpoint, timeout));
+        }
+
+        return CompletableFuture.allOf(checks.toArray(CompletableFuture[]::new))
+            .thenApply(v -> {
+                boolean anyUp = checks.stream().anyMatch(CompletableFuture::join);
+                if (anyUp) {
+                    available.set(true);
+                } else {
+                    StorytellerMod.LOGGER.info("Make sure Ollama is running: ollama serve");
+                    ready.complete(null);
+                }
+                return anyUp;
+            });
+    }
 
+    /**
+     * Test the connection to one Ollama server and start warming it up if it is running
+     */
+    private CompletableFuture<Boolean> checkEndpoint(Endpoint endpoint, int timeout) {
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(endpoint.getUrl() + "/api/tags"))
+            .timeout(Duration.ofSeconds(timeout))
+            .GET()
+            .build();
+
+        return HttpTransport.shared().sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            .thenApply(response -> {
                 if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                    StorytellerMod.LOGGER.info("Ollama connection successful at {}", endpoint);
+                    StorytellerMod.LOGGER.info("Ollama connection successful at {}", endpoint.getUrl());
 
                     // Check if the model is available
                     String body = response.body();
                     if (body != null && !body.contains(model.split(":")[0])) {
-                        StorytellerMod.LOGGER.warn("Model '{}' may not be available. Available models: {}", model, body);
+                        StorytellerMod.LOGGER.warn("Model '{}' may not be available at {}. Available models: {}", model, endpoint.getUrl(), body);
                         StorytellerMod.LOGGER.info("To pull the model, run: ollama pull {}", model);
                     }
 
-                    available.set(true);
-
                     // Warmup: send a simple request to pre-load the model into memory
                     // This eliminates the cold-start delay on first player interaction
-                    warmupModel();
+                    warmupModel(endpoint);
 
                     return true;
                 } else {
-                    StorytellerMod.LOGGER.error("Ollama connection failed: HTTP {}", response.statusCode());
+                    StorytellerMod.LOGGER.error("Ollama connection failed at {}: HTTP {}", endpoint.getUrl(), response.statusCode());
+                    endpoint.markDown();
                     return false;
                 }
-            } catch (Exception e) {
-                StorytellerMod.LOGGER.error("Failed to initialize Ollama provider: {}", e.getMessage());
-                StorytellerMod.LOGGER.info("Make sure Ollama is running: ollama serve");
+            })
+            .exceptionally(e -> {
+                StorytellerMod.LOGGER.error("Failed to connect to Ollama at {}: {}", endpoint.getUrl(), e.getMessage());
+                endpoint.markDown();
                 return false;
-            }
-        });
+            });
     }
 
     @Override
-    public CompletableFuture<String> chat(String systemPrompt, List<ChatMessage> messages) {
-        return CompletableFuture.supplyAsync(() -> {
-            if (!available.get()) {
-                return "[Ollama is not available. Please check the server logs.]";
+    public CompletableFuture<String> chat(LLMRequest request) {
+        if (!available.get()) {
+            return CompletableFuture.failedFuture(new LLMProviderException("Ollama is not available"));
+        }
+
+        byte[] requestBody = buildChatRequest(request.getSystemPrompt().getText(), request.getMessages(),
+            modelFor(request.getTier()), false, request.getProfile());
+
+        // Cancelling the returned future aborts the request, or drops it if it is still waiting on warmup
+        CompletableFuture<String> reply = HttpFutures.thenComposeCancellable(afterWarmup(),
+            v -> pool.execute(null, (endpoint, sink) -> sendChat(endpoint, requestBody)));
+        return HttpFutures.cancelUpstream(reply, reply
+            .exceptionally(e -> {
+                StorytellerMod.LOGGER.error("Ollama chat error: {}", e.getMessage());
+                throw LLMProviderException.wrap(e);
+            }));
+    }
+
+    /**
+     * One non-streaming attempt against one endpoint; fails on any error so the pool can track it
+     */
+    private CompletableFuture<String> sendChat(Endpoint endpoint, byte[] requestBody) {
+        CompletableFuture<HttpResponse<String>> sent =
+            HttpTransport.shared().sendAsync(buildHttpRequest(endpoint, requestBody), JsonCodec.field("message", "content"));
+
+        return HttpFutures.cancelUpstream(sent, sent.thenApply(response -> {
+            if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                throw new HttpStatusException(response.statusCode(), "Ollama request failed at " + endpoint.getUrl()
+                    + ": HTTP " + response.statusCode() + " - " + response.body());
+            }
+            if (response.body() == null) {
+                throw new IllegalStateException("Ollama error: no message in response");
             }
+            return response.body();
+        }));
+    }
 
-            // Wait for warmup to complete (max 60 seconds)
-            if (!warmedUp.get()) {
-                StorytellerMod.LOGGER.info("Waiting for Ollama warmup to complete...");
-                int waited = 0;
-                while (!warmedUp.get() && waited < 60000) {
-                    try {
-                        Thread.sleep(500);
-                        waited += 500;
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
+    @Override
+    public CompletableFuture<String> chatStream(LLMRequest request, Consumer<String> onToken) {
+        if (!available.get()) {
+            return CompletableFuture.failedFuture(new LLMProviderException("Ollama is not available"));
+        }
+
+        byte[] requestBody = buildChatRequest(request.getSystemPrompt().getText(), request.getMessages(),
+            modelFor(request.getTier()), true, request.getProfile());
+
+        CompletableFuture<String> reply = HttpFutures.thenComposeCancellable(afterWarmup(),
+            v -> pool.execute(onToken, (endpoint, sink) -> sendChatStream(endpoint, requestBody, sink)));
+        return HttpFutures.cancelUpstream(reply, reply
+            .thenApply(content -> {
+                if (content.isEmpty()) {
+                    throw new LLMProviderException("Ollama returned an empty reply");
                 }
-                if (!warmedUp.get()) {
-                    StorytellerMod.LOGGER.warn("Warmup timed out, proceeding anyway");
+                return content;
+            })
+            .exceptionally(e -> {
+                StorytellerMod.LOGGER.error("Ollama stream error: {}", e.getMessage());
+                throw LLMProviderException.wrap(e);
+            }));
+    }
+
+    /**
+     * One streaming attempt against one endpoint. A failure after some tokens arrived
+     * still returns what was generated; a failure before that fails the attempt.
+     */
+    private CompletableFuture<String> sendChatStream(Endpoint endpoint, byte[] requestBody, Consumer<String> onToken) {
+        StringBuilder content = new StringBuilder();
+
+        // Ollama streams one JSON object per line until "done" is true
+        LineStreamHandler handler = new LineStreamHandler(line -> {
+            String token = JsonCodec.read(line, "message", "content");
+            if (token == null) {
+                // Only error lines have no message
+                String error = JsonCodec.read(line, "error");
+                if (error != null) {
+                    StorytellerMod.LOGGER.error("Ollama error: {}", error);
                 }
+            } else if (!token.isEmpty()) {
+                content.append(token);
+                onToken.accept(token);
             }
+        });
 
-            try {
-                JsonObject requestBody = new JsonObject();
-                requestBody.addProperty("model", model);
-                requestBody.addProperty("stream", false);
-
-                // Build messages array
-                JsonArray messagesArray = new JsonArray();
-
-                // Add system prompt
-                JsonObject systemMessage = new JsonObject();
-                systemMessage.addProperty("role", "system");
-                systemMessage.addProperty("content", systemPrompt);
-                messagesArray.add(systemMessage);
-
-                // Add conversation history
-                for (ChatMessage msg : messages) {
-                    JsonObject messageObj = new JsonObject();
-                    messageObj.addProperty("role", msg.role().name().toLowerCase());
-                    messageObj.addProperty("content", msg.content());
-                    messagesArray.add(messageObj);
-                }
+        CompletableFuture<HttpResponse<String>> sent = HttpTransport.shared().sendAsync(buildHttpRequest(endpoint, requestBody), handler);
 
-                requestBody.add("messages", messagesArray);
-
-                // Generation parameters for roleplay - keep responses short and snappy
-                JsonObject options = new JsonObject();
-                options.addProperty("temperature", 0.7);
-                options.addProperty("top_p", 0.9);
-                options.addProperty("repeat_penalty", 1.1);
-                options.addProperty("num_predict", 60); // Limit response to ~60 tokens (1-2 sentences)
-                requestBody.add("options", options);
-
-                int timeout = ModConfig.COMMON.ollamaTimeout.get();
-
-                HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(endpoint + "/api/chat"))
-                    .timeout(Duration.ofSeconds(timeout))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(requestBody)))
-                    .build();
-
-                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-                if (response.statusCode() >= 200 && response.statusCode() < 300 && response.body() != null) {
-                    String responseBody = response.body();
-                    JsonObject jsonResponse = GSON.fromJson(responseBody, JsonObject.class);
-
-                    if (jsonResponse.has("message")) {
-                        return jsonResponse.getAsJsonObject("message").get("content").getAsString();
-                    } else if (jsonResponse.has("error")) {
-                        String error = jsonResponse.get("error").getAsString();
-                        StorytellerMod.LOGGER.error("Ollama error: {}", error);
-                        return "[The storyteller seems lost in thought...]";
-                    }
-                } else {
-                    StorytellerMod.LOGGER.error("Ollama request failed: HTTP {}", response.statusCode());
+        return HttpFutures.cancelUpstream(sent, sent.handle((response, error) -> {
+            if (error == null && response.statusCode() >= 200 && response.statusCode() < 300) {
+                return content.toString();
+            }
+            if (content.length() > 0) {
+                // Keep whatever was generated before a mid-stream failure
+                StorytellerMod.LOGGER.warn("Ollama stream from {} ended early: {}", endpoint.getUrl(),
+                    error != null ? error.getMessage() : "HTTP " + response.statusCode());
+                return content.toString();
+            }
+            throw error != null
+                ? new CompletionException(error)
+                : new HttpStatusException(response.statusCode(), "Ollama request failed at " + endpoint.getUrl()
+                    + ": HTTP " + response.statusCode() + " - " + response.body());
+        }));
+    }
+
+    /**
+     * A stage that completes once warmup is done. Requests arriving during warmup
+     * wait here without holding a thread and are all released together when the model is loaded.
+     */
+    private CompletableFuture<Void> afterWarmup() {
+        CompletableFuture<Void> current = ready;
+        if (current.isDone()) {
+            return current;
+        }
+
+        waitingForWarmup.incrementAndGet();
+        return current.whenComplete((v, e) -> waitingForWarmup.decrementAndGet())
+            .thenRunAsync(() -> {}, executor);
+    }
+
+    @Override
+    public boolean hasFastModel() {
+        return fastModel != null && !fastModel.isBlank();
+    }
+
+    private String modelFor(ModelTier tier) {
+        return tier == ModelTier.FAST && hasFastModel() ? fastModel : model;
+    }
+
+    byte[] buildChatRequest(String systemPrompt, List<ChatMessage> messages, String model, boolean stream,
+                            GenerationProfile profile) {
+        return JsonCodec.write(JsonCodec.sizeOf(systemPrompt.length(), messages), json -> {
+            json.beginObject();
+            json.name("model").value(model);
+            json.name("stream").value(stream);
+            // Keep the model (and its prompt cache) loaded between conversations
+            json.name("keep_alive").value(keepAlive);
+
+            json.name("messages").beginArray();
+            writeMessage(json, "system", systemPrompt);
+            for (ChatMessage msg : messages) {
+                writeMessage(json, msg.role().name().toLowerCase(), msg.content());
+            }
+            json.endArray();
+
+            // Generation parameters for roleplay - keep responses short and snappy
+            json.name("options").beginObject();
+            json.name("temperature").value(0.7);
+            json.name("top_p").value(0.9);
+            json.name("repeat_penalty").value(1.1);
+            json.name("num_predict").value(profile.maxTokens()); // Safety cap; the sentence limit normally ends the reply first
+            json.name("num_ctx").value(contextTokens); // Matches the prompt budget
+            if (!profile.stopSequences().isEmpty()) {
+                json.name("stop").beginArray();
+                for (String stop : profile.stopSequences()) {
+                    json.value(stop);
                 }
-            } catch (Exception e) {
-                StorytellerMod.LOGGER.error("Ollama chat error: {}", e.getMessage());
+                json.endArray();
             }
+            json.endObject();
 
-            return "[The storyteller seems lost in thought...]";
+            json.endObject();
         });
     }
 
+    private static void writeMessage(JsonWriter json, String role, String content) throws IOException {
+        json.beginObject();
+        json.name("role").value(role);
+        json.name("content").value(content);
+        json.endObject();
+    }
+
+    private HttpRequest buildHttpRequest(Endpoint endpoint, byte[] requestBody) {
+        int timeout = ModConfig.COMMON.ollamaTimeout.get();
+
+        return HttpRequest.newBuilder()
+            .uri(URI.create(endpoint.getUrl() + "/api/chat"))
+            .timeout(Duration.ofSeconds(timeout))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody))
+            .build();
+    }
+
     @Override
     public boolean isAvailable() {
         return available.get();
     }
 
+    @Override
+    public CompletableFuture<Void> whenReady() {
+        return ready;
+    }
+
+    @Override
+    public String getStatusDetail() {
+        if (!available.get()) {
+            return null;
+        }
+        String detail;
+        if (ready.isDone()) {
+            detail = "Model loaded";
+        } else {
+            long elapsed = (System.currentTimeMillis() - warmupStartTime) / 1000;
+            detail = "Warming up model... " + elapsed + "s (" + waitingForWarmup.get() + " requests waiting)";
+        }
+
+        if (pool.getEndpoints().size() > 1) {
+            detail += "\n" + String.join("\n", pool.describe());
+        }
+        return detail;
+    }
+
     @Override
     public String getName() {
-        return "Ollama (" + model + ")";
+        return "Ollama (" + model + (hasFastModel() ? ", fast: " + fastModel : "") + ")";
     }
 
     @Override
     public void shutdown() {
         available.set(false);
-        // HttpClient doesn't need explicit shutdown
+        // Release anything still waiting on warmup; it will get the "not available" path
+        ready.complete(null);
+        // The shared HttpTransport outlives providers, so its connections stay open across re-initialization
     }
 
     /**
      * Send a minimal request to pre-load the model into GPU memory.
      * This runs asynchronously so it doesn't block server startup.
+     * The endpoint takes no traffic until it is done; the provider is ready once any endpoint is.
      */
-    private void warmupModel() {
-        CompletableFuture.runAsync(() -> {
-            try {
-                StorytellerMod.LOGGER.info("Warming up Ollama model {}...", model);
-                long startTime = System.currentTimeMillis();
-
-                JsonObject requestBody = new JsonObject();
-                requestBody.addProperty("model", model);
-                requestBody.addProperty("stream", false);
-
-                JsonArray messagesArray = new JsonArray();
-                JsonObject systemMsg = new JsonObject();
-                systemMsg.addProperty("role", "system");
-                systemMsg.addProperty("content", "You are a helpful assistant.");
-                messagesArray.add(systemMsg);
-
-                JsonObject userMsg = new JsonObject();
-                userMsg.addProperty("role", "user");
-                userMsg.addProperty("content", "Hi");
-                messagesArray.add(userMsg);
-
-                requestBody.add("messages", messagesArray);
-
-                JsonObject options = new JsonObject();
-                options.addProperty("num_predict", 5); // Minimal response
-                requestBody.add("options", options);
-
-                HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(endpoint + "/api/chat"))
-                    .timeout(Duration.ofSeconds(120))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(requestBody)))
-                    .build();
-
-                client.send(request, HttpResponse.BodyHandlers.ofString());
-
+    private void warmupModel(Endpoint endpoint) {
+        StorytellerMod.LOGGER.info("Warming up Ollama model {} at {}...", model, endpoint.getUrl());
+        long startTime = System.currentTimeMillis();
+        CompletableFuture<Void> warmup = ready;
+        endpoint.setReady(false);
+
+        HttpTransport.shared().sendAsync(buildWarmupRequest(endpoint, model), HttpResponse.BodyHandlers.discarding())
+            .orTimeout(WARMUP_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .whenComplete((response, e) -> {
                 long elapsed = System.currentTimeMillis() - startTime;
-                StorytellerMod.LOGGER.info("Ollama model warmup complete in {}ms - first NPC interaction will be fast!", elapsed);
-                warmedUp.set(true);
-            } catch (Exception e) {
-                StorytellerMod.LOGGER.warn("Ollama warmup failed (non-critical): {}", e.getMessage());
-                warmedUp.set(true); // Allow requests even if warmup failed
-            }
+                int waiting = waitingForWarmup.get();
+                if (e == null) {
+                    StorytellerMod.LOGGER.info("Ollama model warmup at {} complete in {}ms, releasing {} waiting requests",
+                        endpoint.getUrl(), elapsed, waiting);
+                } else {
+                    StorytellerMod.LOGGER.warn("Ollama warmup at {} failed or timed out (non-critical): {}", endpoint.getUrl(), e.getMessage());
+                }
+                endpoint.setReady(true);
+                warmup.complete(null); // Allow requests even if warmup failed
+
+                if (hasFastModel()) {
+                    warmupFastModel(endpoint);
+                }
+            });
+    }
+
+    /**
+     * Load the fast-tier model too, once the main one is in. Fast requests sent before this
+     * finishes simply pay the load time themselves.
+     */
+    private void warmupFastModel(Endpoint endpoint) {
+        HttpTransport.shared().sendAsync(buildWarmupRequest(endpoint, fastModel), HttpResponse.BodyHandlers.discarding())
+            .orTimeout(WARMUP_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .whenComplete((response, e) -> {
+                if (e == null) {
+                    StorytellerMod.LOGGER.info("Ollama fast model {} loaded at {}", fastModel, endpoint.getUrl());
+                } else {
+                    StorytellerMod.LOGGER.warn("Ollama fast model warmup at {} failed (non-critical): {}", endpoint.getUrl(), e.getMessage());
+                }
+            });
+    }
+
+    private HttpRequest buildWarmupRequest(Endpoint endpoint, String model) {
+        byte[] requestBody = JsonCodec.write(json -> {
+            json.beginObject();
+            json.name("model").value(model);
+            json.name("stream").value(false);
+            json.name("keep_alive").value(keepAlive);
+
+            json.name("messages").beginArray();
+            writeMessage(json, "system", "You are a helpful assistant.");
+            writeMessage(json, "user", "Hi");
+            json.endArray();
+
+            json.name("options").beginObject();
+            json.name("num_predict").value(5); // Minimal response
+            json.name("num_ctx").value(contextTokens); // Same as chat requests, or Ollama reloads the model
+            json.endObject();
+
+            json.endObject();
         });
+
+        return HttpRequest.newBuilder()
+            .uri(URI.create(endpoint.getUrl() + "/api/chat"))
+            .timeout(Duration.ofSeconds(120))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody))
+            .build();
     }
 
     /**
      * Check if the model has been warmed up and is ready for fast responses
      */
     public boolean isWarmedUp() {
-        return warmedUp.get();
+        return ready.isDone();
     }
 }
@@ -1,173 +1,320 @@
 package com.storyteller.llm.providers;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import com.storyteller.StorytellerMod;
 import com.storyteller.config.ModConfig;
+import com.storyteller.llm.EndpointPool;
+import com.storyteller.llm.EndpointPool.Endpoint;
+import com.storyteller.llm.GenerationProfile;
+import com.storyteller.llm.HttpStatusException;
+import com.storyteller.llm.HttpTransport;
 import com.storyteller.llm.LLMProvider;
+import com.storyteller.llm.LLMProviderException;
+import com.storyteller.llm.LLMRequest;
+import com.storyteller.llm.ModelTier;
 
+import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
- * OpenAI LLM provider
+ * OpenAI LLM provider. Also works with OpenAI-compatible servers; with several
+ * base URLs configured, each request goes to the least busy one.
  */
 public class OpenAIProvider implements LLMProvider {
 
-    private static final String API_URL = "https://api.openai.com/v1/chat/completions";
-    private static final Gson GSON = new Gson();
+    private static final int MAX_STOP_SEQUENCES = 4;
 
-    private HttpClient client;
+    private final Executor executor;
     private final AtomicBoolean available = new AtomicBoolean(false);
 
+    private EndpointPool pool;
     private String apiKey;
     private String model;
+    private String fastModel;
+
+    /**
+     * @param executor Executor for hedged requests and callbacks, owned by the LLMManager
+     */
+    public OpenAIProvider(Executor executor) {
+        this.executor = executor;
+    }
 
     @Override
     public CompletableFuture<Boolean> initialize() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                this.apiKey = ModConfig.COMMON.openaiApiKey.get();
-                this.model = ModConfig.COMMON.openaiModel.get();
+        int timeout;
+        try {
+            this.apiKey = ModConfig.COMMON.openaiApiKey.get();
+            this.model = ModConfig.COMMON.openaiModel.get();
+            this.fastModel = ModConfig.COMMON.openaiFastModel.get();
 
-                if (apiKey == null || apiKey.isEmpty()) {
-                    StorytellerMod.LOGGER.info("OpenAI API key not configured, skipping initialization");
-                    return false;
-                }
-
-                int timeout = ModConfig.COMMON.responseTimeout.get();
+            if (apiKey == null || apiKey.isEmpty()) {
+                StorytellerMod.LOGGER.info("OpenAI API key not configured, skipping initialization");
+                return CompletableFuture.completedFuture(false);
+            }
 
-                this.client = HttpClient.newBuilder()
-                    .connectTimeout(Duration.ofSeconds(10))
-                    .build();
+            List<String> urls = new ArrayList<>();
+            for (String url : ModConfig.COMMON.openaiEndpoints.get()) {
+                // Accept base URLs with or without a trailing slash
+                urls.add(url.endsWith("/") ? url.substring(0, url.length() - 1) : url);
+            }
+            this.pool = new EndpointPool(urls, ModConfig.COMMON.hedgeRequests.get(), executor);
+            timeout = ModConfig.COMMON.responseTimeout.get();
+        } catch (Exception e) {
+            StorytellerMod.LOGGER.error("Failed to initialize OpenAI provider: {}", e.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
 
-                // Test with a minimal request
-                JsonObject testRequest = new JsonObject();
-                testRequest.addProperty("model", model);
-                testRequest.addProperty("max_tokens", 10);
+        List<CompletableFuture<Boolean>> checks = new ArrayList<>();
+        for (Endpoint endpoint : pool.getEndpoints()) {
+            checks.add(checkEndpoint(endpoint, timeout));
+        }
 
-                JsonArray messages = new JsonArray();
-                JsonObject testMsg = new JsonObject();
-                testMsg.addProperty("role", "user");
-                testMsg.addProperty("content", "Hi");
-                messages.add(testMsg);
-                testRequest.add("messages", messages);
+        return CompletableFuture.allOf(checks.toArray(CompletableFuture[]::new))
+            .thenApply(v -> {
+                boolean anyUp = checks.stream().anyMatch(CompletableFuture::join);
+                available.set(anyUp);
+                return anyUp;
+            });
+    }
 
-                HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(API_URL))
-                    .timeout(Duration.ofSeconds(timeout))
-                    .header("Authorization", "Bearer " + apiKey)
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(testRequest)))
-                    .build();
+    /**
+     * Test one endpoint with a minimal request; endpoints that fail are taken out of rotation for now
+     */
+    private CompletableFuture<Boolean> checkEndpoint(Endpoint endpoint, int timeout) {
+        byte[] testRequest = JsonCodec.write(json -> {
+            json.beginObject();
+            json.name("model").value(model);
+            json.name("max_tokens").value(10);
+            json.name("messages").beginArray();
+            writeMessage(json, "user", "Hi");
+            json.endArray();
+            json.endObject();
+        });
 
-                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(endpoint.getUrl() + "/chat/completions"))
+            .timeout(Duration.ofSeconds(timeout))
+            .header("Authorization", "Bearer " + apiKey)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(testRequest))
+            .build();
 
+        return HttpTransport.shared().sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            .thenApply(response -> {
                 if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                    StorytellerMod.LOGGER.info("OpenAI API connection successful");
-                    available.set(true);
+                    StorytellerMod.LOGGER.info("OpenAI API connection successful at {}", endpoint.getUrl());
                     return true;
                 } else {
                     String responseBody = response.body() != null ? response.body() : "Unknown error";
-                    StorytellerMod.LOGGER.error("OpenAI API connection failed: HTTP {} - {}", response.statusCode(), responseBody);
+                    StorytellerMod.LOGGER.error("OpenAI API connection failed at {}: HTTP {} - {}",
+                        endpoint.getUrl(), response.statusCode(), responseBody);
+                    endpoint.markDown();
                     return false;
                 }
-            } catch (Exception e) {
-                StorytellerMod.LOGGER.error("Failed to initialize OpenAI provider: {}", e.getMessage());
+            })
+            .exceptionally(e -> {
+                StorytellerMod.LOGGER.error("Failed to connect to OpenAI API at {}: {}", endpoint.getUrl(), e.getMessage());
+                endpoint.markDown();
                 return false;
-            }
-        });
+            });
     }
 
     @Override
-    public CompletableFuture<String> chat(String systemPrompt, List<ChatMessage> messages) {
-        return CompletableFuture.supplyAsync(() -> {
-            if (!available.get()) {
-                return "[OpenAI is not available. Please check your API key.]";
+    public CompletableFuture<String> chat(LLMRequest request) {
+        if (!available.get()) {
+            return CompletableFuture.failedFuture(new LLMProviderException("OpenAI is not available"));
+        }
+
+        byte[] requestBody = buildChatRequest(request.getSystemPrompt().getText(), request.getMessages(),
+            modelFor(request.getTier()), false, request.getProfile());
+
+        // Cancelling the returned future aborts the request
+        CompletableFuture<String> reply = pool.execute(null, (endpoint, sink) -> sendChat(endpoint, requestBody));
+        return HttpFutures.cancelUpstream(reply, reply
+            .exceptionally(e -> {
+                StorytellerMod.LOGGER.error("OpenAI chat error: {}", e.getMessage());
+                throw LLMProviderException.wrap(e);
+            }));
+    }
+
+    /**
+     * One non-streaming attempt against one endpoint; fails on any error so the pool can track it
+     */
+    private CompletableFuture<String> sendChat(Endpoint endpoint, byte[] requestBody) {
+        // Only choices[0].message.content is read from the reply
+        CompletableFuture<HttpResponse<String>> sent = HttpTransport.shared()
+            .sendAsync(buildHttpRequest(endpoint, requestBody), JsonCodec.field("choices", "message", "content"));
+
+        return HttpFutures.cancelUpstream(sent, sent.thenApply(response -> {
+            if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                String errorBody = response.body() != null ? response.body() : "Unknown error";
+                throw new HttpStatusException(response.statusCode(), "OpenAI request failed at " + endpoint.getUrl()
+                    + ": HTTP " + response.statusCode() + " - " + errorBody);
+            }
+            if (response.body() == null) {
+                throw new IllegalStateException("OpenAI response had no choices");
             }
+            return response.body();
+        }));
+    }
 
-            try {
-                JsonObject requestBody = new JsonObject();
-                requestBody.addProperty("model", model);
-                requestBody.addProperty("max_tokens", 1024);
-                requestBody.addProperty("temperature", 0.8);
-
-                // Build messages array
-                JsonArray messagesArray = new JsonArray();
-
-                // Add system prompt
-                JsonObject systemMessage = new JsonObject();
-                systemMessage.addProperty("role", "system");
-                systemMessage.addProperty("content", systemPrompt);
-                messagesArray.add(systemMessage);
-
-                // Add conversation history
-                for (ChatMessage msg : messages) {
-                    JsonObject messageObj = new JsonObject();
-                    String role = msg.role() == ChatMessage.Role.USER ? "user" : "assistant";
-                    messageObj.addProperty("role", role);
-                    messageObj.addProperty("content", msg.content());
-                    messagesArray.add(messageObj);
+    @Override
+    public CompletableFuture<String> chatStream(LLMRequest request, Consumer<String> onToken) {
+        if (!available.get()) {
+            return CompletableFuture.failedFuture(new LLMProviderException("OpenAI is not available"));
+        }
+
+        byte[] requestBody = buildChatRequest(request.getSystemPrompt().getText(), request.getMessages(),
+            modelFor(request.getTier()), true, request.getProfile());
+
+        CompletableFuture<String> reply = pool.execute(onToken, (endpoint, sink) -> sendChatStream(endpoint, requestBody, sink));
+        return HttpFutures.cancelUpstream(reply, reply
+            .thenApply(content -> {
+                if (content.isEmpty()) {
+                    throw new LLMProviderException("OpenAI returned an empty reply");
                 }
+                return content;
+            })
+            .exceptionally(e -> {
+                StorytellerMod.LOGGER.error("OpenAI stream error: {}", e.getMessage());
+                throw LLMProviderException.wrap(e);
+            }));
+    }
 
-                requestBody.add("messages", messagesArray);
+    /**
+     * One streaming attempt against one endpoint. A failure after some tokens arrived
+     * still returns what was generated; a failure before that fails the attempt.
+     */
+    private CompletableFuture<String> sendChatStream(Endpoint endpoint, byte[] requestBody, Consumer<String> onToken) {
+        StringBuilder content = new StringBuilder();
 
-                int timeout = ModConfig.COMMON.responseTimeout.get();
+        // Server-sent events, terminated by "data: [DONE]"
+        LineStreamHandler handler = new LineStreamHandler(line -> {
+            if (!line.startsWith("data:")) {
+                return;
+            }
 
-                HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(API_URL))
-                    .timeout(Duration.ofSeconds(timeout))
-                    .header("Authorization", "Bearer " + apiKey)
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(requestBody)))
-                    .build();
+            String data = line.substring(5).trim();
+            if (data.equals("[DONE]")) {
+                return;
+            }
 
-                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            String token = JsonCodec.read(data, "choices", "delta", "content");
+            if (token != null) {
+                content.append(token);
+                onToken.accept(token);
+            }
+        });
 
-                if (response.statusCode() >= 200 && response.statusCode() < 300 && response.body() != null) {
-                    String responseBody = response.body();
-                    JsonObject jsonResponse = GSON.fromJson(responseBody, JsonObject.class);
+        CompletableFuture<HttpResponse<String>> sent = HttpTransport.shared().sendAsync(buildHttpRequest(endpoint, requestBody), handler);
 
-                    if (jsonResponse.has("choices")) {
-                        JsonArray choices = jsonResponse.getAsJsonArray("choices");
-                        if (choices.size() > 0) {
-                            return choices.get(0).getAsJsonObject()
-                                .getAsJsonObject("message")
-                                .get("content").getAsString();
-                        }
-                    }
-                } else {
-                    String errorBody = response.body() != null ? response.body() : "Unknown error";
-                    StorytellerMod.LOGGER.error("OpenAI request failed: HTTP {} - {}", response.statusCode(), errorBody);
+        return HttpFutures.cancelUpstream(sent, sent.handle((response, error) -> {
+            if (error == null && response.statusCode() >= 200 && response.statusCode() < 300) {
+                return content.toString();
+            }
+            if (content.length() > 0) {
+                // Keep whatever was generated before a mid-stream failure
+                StorytellerMod.LOGGER.warn("OpenAI stream from {} ended early: {}", endpoint.getUrl(),
+                    error != null ? error.getMessage() : "HTTP " + response.statusCode());
+                return content.toString();
+            }
+            throw error != null
+                ? new CompletionException(error)
+                : new HttpStatusException(response.statusCode(), "OpenAI request failed at " + endpoint.getUrl()
+                    + ": HTTP " + response.statusCode() + " - " + response.body());
+        }));
+    }
+
+    @Override
+    public boolean hasFastModel() {
+        return fastModel != null && !fastModel.isBlank();
+    }
+
+    private String modelFor(ModelTier tier) {
+        return tier == ModelTier.FAST && hasFastModel() ? fastModel : model;
+    }
+
+    byte[] buildChatRequest(String systemPrompt, List<ChatMessage> messages, String model, boolean stream,
+                            GenerationProfile profile) {
+        return JsonCodec.write(JsonCodec.sizeOf(systemPrompt.length(), messages), json -> {
+            json.beginObject();
+            json.name("model").value(model);
+            json.name("max_tokens").value(profile.maxTokens());
+            json.name("temperature").value(0.8);
+            if (!profile.stopSequences().isEmpty()) {
+                // The API accepts at most four
+                int count = Math.min(MAX_STOP_SEQUENCES, profile.stopSequences().size());
+                json.name("stop").beginArray();
+                for (String stop : profile.stopSequences().subList(0, count)) {
+                    json.value(stop);
                 }
-            } catch (Exception e) {
-                StorytellerMod.LOGGER.error("OpenAI chat error: {}", e.getMessage());
+                json.endArray();
+            }
+            if (stream) {
+                json.name("stream").value(true);
+            }
+
+            json.name("messages").beginArray();
+            writeMessage(json, "system", systemPrompt);
+            for (ChatMessage msg : messages) {
+                writeMessage(json, msg.role() == ChatMessage.Role.USER ? "user" : "assistant", msg.content());
             }
+            json.endArray();
 
-            return "[The storyteller seems lost in thought...]";
+            json.endObject();
         });
     }
 
+    private static void writeMessage(JsonWriter json, String role, String content) throws IOException {
+        json.beginObject();
+        json.name("role").value(role);
+        json.name("content").value(content);
+        json.endObject();
+    }
+
+    private HttpRequest buildHttpRequest(Endpoint endpoint, byte[] requestBody) {
+        int timeout = ModConfig.COMMON.responseTimeout.get();
+
+        return HttpRequest.newBuilder()
+            .uri(URI.create(endpoint.getUrl() + "/chat/completions"))
+            .timeout(Duration.ofSeconds(timeout))
+            .header("Authorization", "Bearer " + apiKey)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody))
+            .build();
+    }
+
     @Override
     public boolean isAvailable() {
         return available.get();
     }
 
+    @Override
+    public String getStatusDetail() {
+        if (!available.get() || pool.getEndpoints().size() < 2) {
+            return null;
+        }
+        return String.join("\n", pool.describe());
+    }
+
     @Override
     public String getName() {
-        return "OpenAI (" + model + ")";
+        return "OpenAI (" + model + (hasFastModel() ? ", fast: " + fastModel : "") + ")";
     }
 
     @Override
     public void shutdown() {
         available.set(false);
-        // HttpClient doesn't need explicit shutdown
+        // The shared HttpTransport outlives providers, so its connections stay open across re-initialization
     }
 }
@@ -0,0 +1,91 @@
+package com.storyteller.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket histogram that any thread can update without locking.
+ * Buckets follow Prometheus semantics: a bucket counts observations less than or equal to its bound.
+ */
+public final class Histogram {
+
+    private final double[] bounds;
+    // One slot per bound plus +Inf; not cumulative
+    private final AtomicLongArray counts;
+    private final DoubleAdder sum = new DoubleAdder();
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * @param bounds Upper bucket bounds, ascending
+     */
+    public Histogram(double[] bounds) {
+        this.bounds = bounds.clone();
+        this.counts = new AtomicLongArray(bounds.length + 1);
+    }
+
+    public void observe(double value) {
+        int bucket = Arrays.binarySearch(bounds, value);
+        if (bucket < 0) {
+            bucket = -bucket - 1;
+        }
+        counts.incrementAndGet(bucket);
+        sum.add(value);
+        count.increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+
+    double[] getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Cumulative count per bound, with the +Inf bucket last
+     */
+    long[] cumulativeCounts() {
+        long[] cumulative = new long[counts.length()];
+        long running = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            running += counts.get(i);
+            cumulative[i] = running;
+        }
+        return cumulative;
+    }
+
+    /**
+     * Estimate a quantile by interpolating within its bucket, like Prometheus' histogram_quantile.
+     * Values past the last bound are reported as the last bound.
+     */
+    public double quantile(double q) {
+        long[] cumulative = cumulativeCounts();
+        long total = cumulative[cumulative.length - 1];
+        if (total == 0) {
+            return 0;
+        }
+
+        double rank = q * total;
+        for (int i = 0; i < cumulative.length; i++) {
+            if (cumulative[i] >= rank) {
+                if (i == bounds.length) {
+                    return bounds[bounds.length - 1];
+                }
+                long below = i == 0 ? 0 : cumulative[i - 1];
+                long inBucket = cumulative[i] - below;
+                double lower = i == 0 ? 0 : bounds[i - 1];
+                if (inBucket == 0) {
+                    return lower;
+                }
+                return lower + (bounds[i] - lower) * (rank - below) / inBucket;
+            }
+        }
+        return bounds[bounds.length - 1];
+    }
+}
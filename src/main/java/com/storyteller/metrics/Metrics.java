@@ -0,0 +1,239 @@
+package com.storyteller.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * In-process metrics for the conversation pipeline: latency histograms broken down by provider
+ * and character, and gauges and counters read when the metrics are exported.
+ *
+ * Shown by {@code /storyteller metrics} and, if configured, exported in the Prometheus text format
+ * by {@link MetricsExporter}.
+ */
+public final class Metrics {
+
+    // Seconds, from a fast cache hit to a stuck provider
+    private static final double[] LATENCY_BUCKETS = {
+        0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60
+    };
+    // Seconds; prompt assembly is CPU work and should stay well under a millisecond or two
+    private static final double[] ASSEMBLY_BUCKETS = {
+        0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1
+    };
+    private static final double[] RATE_BUCKETS = {
+        1, 2, 5, 10, 20, 30, 50, 75, 100, 150, 200
+    };
+
+    private static final Map<String, Family> families = new ConcurrentSkipListMap<>();
+    private static final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+    private static final Map<String, Gauge> counters = new ConcurrentSkipListMap<>();
+
+    public static final Family QUEUE_WAIT = histogram("storyteller_queue_wait_seconds",
+        "Time from submitting a request until it is sent to the provider", LATENCY_BUCKETS);
+    public static final Family PROMPT_ASSEMBLY = histogram("storyteller_prompt_assembly_seconds",
+        "Time spent building and budgeting the prompt", ASSEMBLY_BUCKETS);
+    public static final Family TIME_TO_FIRST_TOKEN = histogram("storyteller_time_to_first_token_seconds",
+        "Time from sending a streamed request until its first token", LATENCY_BUCKETS);
+    public static final Family GENERATION_TIME = histogram("storyteller_generation_seconds",
+        "Time from sending a request until the reply is complete", LATENCY_BUCKETS);
+    public static final Family TOKENS_PER_SECOND = histogram("storyteller_tokens_per_second",
+        "Generation speed after the first token (estimated tokens)", RATE_BUCKETS);
+    // Includes connection and TLS setup when no pooled connection was available
+    public static final Family HTTP_RESPONSE_HEADERS = histogram("storyteller_http_response_headers_seconds",
+        "Time from sending an HTTP request until the response headers arrive", LATENCY_BUCKETS, "host", "protocol");
+
+    private Metrics() {}
+
+    /**
+     * Values of a family's two labels for one series; unknown values are reported as "none"
+     */
+    private record Labels(String first, String second) implements Comparable<Labels> {
+        Labels {
+            first = first == null ? "none" : first;
+            second = second == null ? "none" : second;
+        }
+
+        @Override
+        public int compareTo(Labels other) {
+            int byFirst = first.compareTo(other.first);
+            return byFirst != 0 ? byFirst : second.compareTo(other.second);
+        }
+    }
+
+    /**
+     * A histogram per combination of two labels: provider and character unless stated otherwise
+     */
+    public static final class Family {
+        private final String name;
+        private final String help;
+        private final double[] bounds;
+        private final String firstLabel;
+        private final String secondLabel;
+        private final Map<Labels, Histogram> series = new ConcurrentHashMap<>();
+
+        private Family(String name, String help, double[] bounds, String firstLabel, String secondLabel) {
+            this.name = name;
+            this.help = help;
+            this.bounds = bounds;
+            this.firstLabel = firstLabel;
+            this.secondLabel = secondLabel;
+        }
+
+        public void observe(String first, String second, double value) {
+            series.computeIfAbsent(new Labels(first, second), labels -> new Histogram(bounds)).observe(value);
+        }
+
+        /**
+         * Record a duration given in nanoseconds, in seconds
+         */
+        public void observeNanos(String first, String second, long nanos) {
+            observe(first, second, nanos / 1e9);
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private record Gauge(String help, DoubleSupplier value) {}
+
+    private static Family histogram(String name, String help, double[] bounds) {
+        return histogram(name, help, bounds, "provider", "character");
+    }
+
+    private static Family histogram(String name, String help, double[] bounds, String firstLabel, String secondLabel) {
+        Family family = new Family(name, help, bounds, firstLabel, secondLabel);
+        families.put(name, family);
+        return family;
+    }
+
+    /**
+     * Register a value read at export time. Registering a name again replaces the previous gauge.
+     */
+    public static void gauge(String name, String help, DoubleSupplier value) {
+        gauges.put(name, new Gauge(help, value));
+    }
+
+    /**
+     * Register a count that only goes up, read at export time and exported as {@code <name>_total}.
+     * Registering a name again replaces the previous counter.
+     */
+    public static void counter(String name, String help, DoubleSupplier value) {
+        counters.put(name + "_total", new Gauge(help, value));
+    }
+
+    /**
+     * Forget all recorded observations (gauges and counters stay registered)
+     */
+    public static void reset() {
+        for (Family family : families.values()) {
+            family.series.clear();
+        }
+    }
+
+    /**
+     * Everything in the Prometheus text exposition format (version 0.0.4)
+     */
+    public static String toPrometheusText() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            String name = entry.getKey();
+            out.append("# HELP ").append(name).append(' ').append(entry.getValue().help()).append('\n');
+            out.append("# TYPE ").append(name).append(" gauge\n");
+            out.append(name).append(' ').append(formatValue(readGauge(entry.getValue()))).append('\n');
+        }
+        for (Map.Entry<String, Gauge> entry : counters.entrySet()) {
+            String name = entry.getKey();
+            out.append("# HELP ").append(name).append(' ').append(entry.getValue().help()).append('\n');
+            out.append("# TYPE ").append(name).append(" counter\n");
+            out.append(name).append(' ').append(formatValue(readGauge(entry.getValue()))).append('\n');
+        }
+
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(" histogram\n");
+            for (Map.Entry<Labels, Histogram> entry : new ConcurrentSkipListMap<>(family.series).entrySet()) {
+                Labels labels = entry.getKey();
+                Histogram histogram = entry.getValue();
+                String labelText = family.firstLabel + "=\"" + escape(labels.first()) + "\","
+                    + family.secondLabel + "=\"" + escape(labels.second()) + "\"";
+
+                long[] cumulative = histogram.cumulativeCounts();
+                double[] bounds = histogram.getBounds();
+                for (int i = 0; i < cumulative.length; i++) {
+                    String le = i < bounds.length ? formatValue(bounds[i]) : "+Inf";
+                    out.append(family.name).append("_bucket{").append(labelText)
+                        .append(",le=\"").append(le).append("\"} ").append(cumulative[i]).append('\n');
+                }
+                out.append(family.name).append("_sum{").append(labelText).append("} ")
+                    .append(formatValue(histogram.getSum())).append('\n');
+                out.append(family.name).append("_count{").append(labelText).append("} ")
+                    .append(cumulative[cumulative.length - 1]).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Human-readable summary for the metrics command: gauges and counters, then p50/p95/p99 per series
+     */
+    public static List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            lines.add(entry.getKey().replace("storyteller_", "") + ": " + formatValue(readGauge(entry.getValue())));
+        }
+        for (Map.Entry<String, Gauge> entry : counters.entrySet()) {
+            lines.add(entry.getKey().replace("storyteller_", "") + ": " + formatValue(readGauge(entry.getValue())));
+        }
+
+        for (Family family : families.values()) {
+            if (family.series.isEmpty()) {
+                continue;
+            }
+            boolean seconds = family.name.endsWith("_seconds");
+            lines.add(family.name.replace("storyteller_", "").replace("_seconds", "") + ":");
+            for (Map.Entry<Labels, Histogram> entry : new ConcurrentSkipListMap<>(family.series).entrySet()) {
+                Histogram histogram = entry.getValue();
+                lines.add(String.format("  %s/%s: n=%d p50 %s p95 %s p99 %s",
+                    entry.getKey().first(), entry.getKey().second(), histogram.getCount(),
+                    format(histogram.quantile(0.50), seconds),
+                    format(histogram.quantile(0.95), seconds),
+                    format(histogram.quantile(0.99), seconds)));
+            }
+        }
+        return lines;
+    }
+
+    private static double readGauge(Gauge gauge) {
+        try {
+            return gauge.value().getAsDouble();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static String format(double value, boolean seconds) {
+        if (!seconds) {
+            return String.format("%.1f", value);
+        }
+        return value < 1 ? String.format("%.1fms", value * 1000) : String.format("%.2fs", value);
+    }
+
+    private static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,97 @@
+package com.storyteller.metrics;
+
+import com.storyteller.StorytellerMod;
+import com.storyteller.config.ModConfig;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes {@link Metrics} available outside the game: a Prometheus endpoint bound to localhost
+ * and/or a file rewritten periodically. Both are off unless configured.
+ */
+public class MetricsExporter {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ScheduledExecutorService writer;
+
+    public void start() {
+        stop();
+
+        int port = ModConfig.COMMON.metricsPort.get();
+        if (port > 0) {
+            try {
+                // Loopback only: metrics include character names and are not meant to be public
+                server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+                server.createContext("/metrics", exchange -> {
+                    byte[] body = Metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                });
+                serverExecutor = Executors.newSingleThreadExecutor(
+                    Thread.ofPlatform().name("storyteller-metrics").daemon().factory()
+                );
+                server.setExecutor(serverExecutor);
+                server.start();
+                StorytellerMod.LOGGER.info("Serving metrics at http://127.0.0.1:{}/metrics", port);
+            } catch (IOException e) {
+                StorytellerMod.LOGGER.error("Failed to start metrics endpoint on port {}: {}", port, e.getMessage());
+                server = null;
+            }
+        }
+
+        String textfile = ModConfig.COMMON.metricsTextfile.get();
+        if (textfile != null && !textfile.isBlank()) {
+            Path path = Path.of(textfile).toAbsolutePath();
+            int interval = ModConfig.COMMON.metricsTextfileInterval.get();
+            writer = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("storyteller-metrics-file").daemon().factory()
+            );
+            writer.scheduleAtFixedRate(() -> writeTextfile(path), interval, interval, TimeUnit.SECONDS);
+            StorytellerMod.LOGGER.info("Writing metrics to {} every {}s", path, interval);
+        }
+    }
+
+    /**
+     * Write to a temporary file and rename it, so readers never see a partial file
+     */
+    private void writeTextfile(Path path) {
+        try {
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.writeString(temp, Metrics.toPrometheusText());
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            StorytellerMod.LOGGER.warn("Failed to write metrics to {}: {}", path, e.getMessage());
+        }
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (serverExecutor != null) {
+            serverExecutor.shutdownNow();
+            serverExecutor = null;
+        }
+        if (writer != null) {
+            writer.shutdownNow();
+            writer = null;
+        }
+    }
+}
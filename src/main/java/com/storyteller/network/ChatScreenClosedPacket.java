@@ -0,0 +1,43 @@
+package com.storyteller.network;
+
+import com.storyteller.entity.StorytellerNPC;
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+/**
+ * Sent from client to server when the player closes an NPC chat screen,
+ * so a reply still being generated for them can be cancelled
+ */
+public record ChatScreenClosedPacket(
+    int entityId
+) implements CustomPacketPayload {
+
+    public static final Type<ChatScreenClosedPacket> TYPE =
+        new Type<>(ModNetwork.id("chat_screen_closed"));
+
+    public static final StreamCodec<ByteBuf, ChatScreenClosedPacket> STREAM_CODEC = StreamCodec.composite(
+        ByteBufCodecs.INT, ChatScreenClosedPacket::entityId,
+        ChatScreenClosedPacket::new
+    );
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+
+    public static void handle(ChatScreenClosedPacket packet, IPayloadContext context) {
+        context.enqueueWork(() -> {
+            if (context.player() instanceof ServerPlayer serverPlayer) {
+                Entity entity = serverPlayer.level().getEntity(packet.entityId());
+                if (entity instanceof StorytellerNPC npc) {
+                    npc.onChatScreenClosed(serverPlayer);
+                }
+            }
+        });
+    }
+}
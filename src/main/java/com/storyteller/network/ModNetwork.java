@@ -35,6 +35,20 @@ public class ModNetwork {
             NPCResponsePacket::handle
         );
         
+        // Server -> Client: Partial NPC response while streaming
+        registrar.playToClient(
+            NPCResponseChunkPacket.TYPE,
+            NPCResponseChunkPacket.STREAM_CODEC,
+            NPCResponseChunkPacket::handle
+        );
+        
+        // Server -> Client: Place in the LLM queue
+        registrar.playToClient(
+            NPCQueueStatusPacket.TYPE,
+            NPCQueueStatusPacket.STREAM_CODEC,
+            NPCQueueStatusPacket::handle
+        );
+        
         // Client -> Server: Player message to NPC
         registrar.playToServer(
             PlayerChatPacket.TYPE,
@@ -42,6 +56,13 @@ public class ModNetwork {
             PlayerChatPacket::handle
         );
         
+        // Client -> Server: Chat screen closed (cancels a reply still being generated)
+        registrar.playToServer(
+            ChatScreenClosedPacket.TYPE,
+            ChatScreenClosedPacket.STREAM_CODEC,
+            ChatScreenClosedPacket::handle
+        );
+        
         StorytellerMod.LOGGER.info("Registered network payloads");
     }
     
@@ -0,0 +1,38 @@
+package com.storyteller.network;
+
+import com.storyteller.client.ClientPacketHandler;
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+/**
+ * Sent from server to client while a request to an NPC is waiting for the LLM.
+ * Position is 1-based; 0 means the NPC has started generating the reply.
+ */
+public record NPCQueueStatusPacket(
+    int entityId,
+    int position
+) implements CustomPacketPayload {
+
+    public static final Type<NPCQueueStatusPacket> TYPE =
+        new Type<>(ModNetwork.id("npc_queue_status"));
+
+    public static final StreamCodec<ByteBuf, NPCQueueStatusPacket> STREAM_CODEC = StreamCodec.composite(
+        ByteBufCodecs.INT, NPCQueueStatusPacket::entityId,
+        ByteBufCodecs.VAR_INT, NPCQueueStatusPacket::position,
+        NPCQueueStatusPacket::new
+    );
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+
+    public static void handle(NPCQueueStatusPacket packet, IPayloadContext context) {
+        context.enqueueWork(() -> {
+            ClientPacketHandler.handleNPCQueueStatus(packet);
+        });
+    }
+}
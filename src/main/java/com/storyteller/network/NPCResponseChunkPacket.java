@@ -0,0 +1,38 @@
+package com.storyteller.network;
+
+import com.storyteller.client.ClientPacketHandler;
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+/**
+ * Sent from server to client with a fragment of an NPC response that is still being generated.
+ * The complete response follows as a regular {@link NPCResponsePacket}.
+ */
+public record NPCResponseChunkPacket(
+    int entityId,
+    String chunk
+) implements CustomPacketPayload {
+
+    public static final Type<NPCResponseChunkPacket> TYPE =
+        new Type<>(ModNetwork.id("npc_response_chunk"));
+
+    public static final StreamCodec<ByteBuf, NPCResponseChunkPacket> STREAM_CODEC = StreamCodec.composite(
+        ByteBufCodecs.INT, NPCResponseChunkPacket::entityId,
+        ByteBufCodecs.STRING_UTF8, NPCResponseChunkPacket::chunk,
+        NPCResponseChunkPacket::new
+    );
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+
+    public static void handle(NPCResponseChunkPacket packet, IPayloadContext context) {
+        context.enqueueWork(() -> {
+            ClientPacketHandler.handleNPCResponseChunk(packet);
+        });
+    }
+}
@@ -0,0 +1,151 @@
+package com.storyteller.npc;
+
+import com.storyteller.StorytellerMod;
+import com.storyteller.llm.LLMManager;
+import com.storyteller.llm.LLMProvider.ChatMessage;
+import com.storyteller.llm.LLMRequest;
+import com.storyteller.llm.ModelTier;
+import com.storyteller.llm.RequestPriority;
+import com.storyteller.llm.SystemPrompt;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Pre-generated lines an NPC mutters to itself while nobody is talking to it, one per
+ * idle action from its character definition. Generated in the background lane, so they
+ * only cost LLM time that no player was waiting for.
+ */
+public class AmbientLines {
+
+    private static final int POOL_SIZE = 3;
+
+    /**
+     * An idle action and what the NPC says while doing it
+     */
+    public record Line(String action, String text) {}
+
+    // characterId -> ready lines
+    private static final Map<String, Deque<Line>> pools = new ConcurrentHashMap<>();
+    // Characters with a refill request in flight -> the character generation it was started for
+    private static final Map<String, Integer> refilling = new ConcurrentHashMap<>();
+    // characterId -> bumped whenever the character's lines are dropped, so refills
+    // started for the old definition stop instead of generating more with it
+    private static final Map<String, Integer> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Take a ready line, or null if none is available yet (the NPC stays quiet this time).
+     * Either way the character's pool is topped up in the background.
+     */
+    public static Line take(NPCCharacter character) {
+        List<String> actions = character.getBehavior().idleActions;
+        if (actions == null || actions.isEmpty()) {
+            return null;
+        }
+
+        Deque<Line> pool = pools.computeIfAbsent(character.getId(), k -> new ArrayDeque<>());
+        Line line;
+        synchronized (pool) {
+            line = pool.pollFirst();
+        }
+
+        refill(character, pool, generation(character.getId()));
+        return line;
+    }
+
+    /**
+     * Generate one line per call until the pool is full
+     *
+     * @param generation The character's generation when the refill started; the chain stops once it changes
+     */
+    private static void refill(NPCCharacter character, Deque<Line> pool, int generation) {
+        if (generation != generation(character.getId())) {
+            return;
+        }
+        synchronized (pool) {
+            if (pool.size() >= POOL_SIZE) {
+                return;
+            }
+        }
+        if (refilling.putIfAbsent(character.getId(), generation) != null) {
+            return;
+        }
+
+        LLMManager llmManager = StorytellerMod.getInstance().getLLMManager();
+        if (!llmManager.isAvailable()) {
+            refilling.remove(character.getId(), generation);
+            return;
+        }
+
+        List<String> actions = character.getBehavior().idleActions;
+        String action = actions.get(ThreadLocalRandom.current().nextInt(actions.size()));
+
+        SystemPrompt systemPrompt = new SystemPrompt()
+            .addStatic("character", character.generateCharacterPrompt());
+        List<ChatMessage> messages = List.of(new ChatMessage(ChatMessage.Role.USER,
+            "Nobody is talking to you right now. You are " + action
+                + ". Say ONE short line to yourself (under 12 words). No quotes, no narration."));
+
+        llmManager.submit(new LLMRequest(systemPrompt, messages)
+                .forCharacter(character.getId())
+                .withPriority(RequestPriority.BACKGROUND)
+                .withTier(ModelTier.FAST)
+                .withProfile(character.getGenerationProfile()))
+            .whenComplete((text, error) -> {
+                refilling.remove(character.getId(), generation);
+                // A line for a character that has since been reloaded is not kept
+                if (error != null || generation != generation(character.getId())) {
+                    return;
+                }
+
+                boolean full;
+                synchronized (pool) {
+                    pool.addLast(new Line(action, text.strip()));
+                    full = pool.size() >= POOL_SIZE;
+                }
+                if (!full) {
+                    refill(character, pool, generation);
+                }
+            });
+    }
+
+    private static int generation(String characterId) {
+        return generations.computeIfAbsent(characterId, id -> 0);
+    }
+
+    /**
+     * Drop pooled lines for a character (e.g. after its definition changed) and stop
+     * refills still generating with the old definition
+     */
+    public static void clearCharacter(String characterId) {
+        generations.merge(characterId, 1, Integer::sum);
+        pools.remove(characterId);
+        refilling.remove(characterId);
+    }
+
+    /**
+     * Drop all pooled lines
+     */
+    public static void clearAll() {
+        generations.replaceAll((id, generation) -> generation + 1);
+        pools.clear();
+        refilling.clear();
+    }
+
+    /**
+     * Total number of lines ready to use
+     */
+    public static int getPooledCount() {
+        int count = 0;
+        for (Deque<Line> pool : pools.values()) {
+            synchronized (pool) {
+                count += pool.size();
+            }
+        }
+        return count;
+    }
+}
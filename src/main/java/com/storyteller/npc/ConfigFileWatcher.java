@@ -0,0 +1,128 @@
+package com.storyteller.npc;
+
+import com.storyteller.StorytellerMod;
+import com.storyteller.config.ModConfig;
+import com.storyteller.npc.knowledge.KnowledgeManager;
+import net.minecraft.server.MinecraftServer;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watches the character and knowledge folders and reloads just the files that change, so
+ * lore can be edited while the server runs without a full reload stalling the server thread.
+ *
+ * Files are parsed and indexed on the watcher's own thread; only the final swap of a
+ * character happens on the server thread.
+ */
+public class ConfigFileWatcher {
+
+    // Editors often save in several steps (truncate, write, rename); wait until they are done
+    private static final long SETTLE_MILLIS = 300;
+
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * Start watching, if enabled in the config. Call after the files have been loaded.
+     */
+    public void start(NPCManager npcManager, Path configDir, MinecraftServer server) {
+        stop();
+        if (!ModConfig.COMMON.watchConfigFiles.get()) {
+            return;
+        }
+
+        Path charactersDir = npcManager.getCharactersDir();
+        Path knowledgeDir = configDir.resolve("knowledge");
+        try {
+            watchService = configDir.getFileSystem().newWatchService();
+            for (Path dir : new Path[]{charactersDir, knowledgeDir}) {
+                Files.createDirectories(dir);
+                dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        } catch (IOException e) {
+            StorytellerMod.LOGGER.warn("Could not watch config files for changes, use /storyteller reload: {}", e.getMessage());
+            stop();
+            return;
+        }
+
+        WatchService service = watchService;
+        thread = Thread.ofPlatform().name("storyteller-config-watcher").daemon().start(() -> {
+            try {
+                while (true) {
+                    Set<Path> changed = new LinkedHashSet<>();
+                    WatchKey key = service.take();
+                    do {
+                        collect(key, changed);
+                    } while ((key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+
+                    for (Path file : changed) {
+                        reload(file, charactersDir, knowledgeDir, npcManager, server);
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Stopped
+            }
+        });
+        StorytellerMod.LOGGER.info("Watching {} and {} for changes", charactersDir, knowledgeDir);
+    }
+
+    private static void collect(WatchKey key, Set<Path> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost; look at every file in the folder
+                try (Stream<Path> files = Files.list(dir)) {
+                    files.forEach(changed::add);
+                } catch (IOException e) {
+                    StorytellerMod.LOGGER.warn("Could not list {} after missed changes: {}", dir, e.getMessage());
+                }
+            } else {
+                changed.add(dir.resolve((Path) event.context()));
+            }
+        }
+        key.reset();
+    }
+
+    private static void reload(Path file, Path charactersDir, Path knowledgeDir, NPCManager npcManager,
+                               MinecraftServer server) {
+        if (!file.getFileName().toString().endsWith(".json")) {
+            return;
+        }
+        try {
+            if (file.getParent().equals(knowledgeDir)) {
+                KnowledgeManager.reloadFile(file);
+            } else if (file.getParent().equals(charactersDir)) {
+                npcManager.reloadCharacterFile(file, server);
+            }
+        } catch (RuntimeException e) {
+            StorytellerMod.LOGGER.error("Failed to reload {}: {}", file, e.getMessage());
+        }
+    }
+
+    public void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                StorytellerMod.LOGGER.debug("Error closing config watcher: {}", e.getMessage());
+            }
+            watchService = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+}
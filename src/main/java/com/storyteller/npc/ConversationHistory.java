@@ -28,6 +28,10 @@ public class ConversationHistory {
     
     // Track last interaction times for rate limiting
     private static final Map<UUID, Map<UUID, Long>> lastInteractionTimes = new ConcurrentHashMap<>();
+
+    // Background summaries of earlier conversation, and messages added since the last one
+    private static final Map<UUID, Map<UUID, String>> summaries = new ConcurrentHashMap<>();
+    private static final Map<UUID, Map<UUID, Integer>> unsummarized = new ConcurrentHashMap<>();
     
     /**
      * Add a message to the conversation history
@@ -45,6 +49,9 @@ public class ConversationHistory {
             playerHistory.remove(0);
         }
         
+        unsummarized.computeIfAbsent(npcId, k -> new ConcurrentHashMap<>())
+                    .merge(playerId, 1, Integer::sum);
+
         // Update interaction time
         lastInteractionTimes.computeIfAbsent(npcId, k -> new ConcurrentHashMap<>())
                            .put(playerId, System.currentTimeMillis());
@@ -66,6 +73,8 @@ public class ConversationHistory {
         if (npcHistories != null) {
             npcHistories.remove(playerId);
         }
+        summaries.getOrDefault(npcId, Collections.emptyMap()).remove(playerId);
+        unsummarized.getOrDefault(npcId, Collections.emptyMap()).remove(playerId);
     }
     
     /**
@@ -75,6 +84,8 @@ public class ConversationHistory {
         histories.remove(npcId);
         conversationCounts.remove(npcId);
         lastInteractionTimes.remove(npcId);
+        summaries.remove(npcId);
+        unsummarized.remove(npcId);
     }
     
     /**
@@ -93,6 +104,32 @@ public class ConversationHistory {
                                 .getOrDefault(playerId, 0);
     }
     
+    /**
+     * Summary of the conversation so far, written in the background, or null if there is none yet
+     */
+    public static String getSummary(UUID npcId, UUID playerId) {
+        return summaries.getOrDefault(npcId, Collections.emptyMap()).get(playerId);
+    }
+
+    /**
+     * Messages added since the last summary was stored
+     */
+    public static int getUnsummarizedCount(UUID npcId, UUID playerId) {
+        return unsummarized.getOrDefault(npcId, Collections.emptyMap()).getOrDefault(playerId, 0);
+    }
+
+    /**
+     * Store a new summary of the conversation
+     *
+     * @param covered The unsummarized message count the summary was written from; messages
+     *                added while it was being written still count towards the next one
+     */
+    public static void setSummary(UUID npcId, UUID playerId, String summary, int covered) {
+        summaries.computeIfAbsent(npcId, k -> new ConcurrentHashMap<>()).put(playerId, summary);
+        unsummarized.computeIfAbsent(npcId, k -> new ConcurrentHashMap<>())
+                    .computeIfPresent(playerId, (k, count) -> Math.max(0, count - covered));
+    }
+
     /**
      * Check if enough time has passed since last interaction (for rate limiting)
      */
@@ -126,6 +163,30 @@ public class ConversationHistory {
         return Math.max(0, minTime - elapsed);
     }
     
+    /**
+     * Number of NPC/player conversations with history in memory
+     */
+    public static int getTrackedConversations() {
+        int total = 0;
+        for (Map<UUID, List<ChatMessage>> npcHistories : histories.values()) {
+            total += npcHistories.size();
+        }
+        return total;
+    }
+
+    /**
+     * Number of messages held in memory across all conversations
+     */
+    public static int getStoredMessageCount() {
+        int total = 0;
+        for (Map<UUID, List<ChatMessage>> npcHistories : histories.values()) {
+            for (List<ChatMessage> history : npcHistories.values()) {
+                total += history.size();
+            }
+        }
+        return total;
+    }
+
     /**
      * Build a summary of the conversation for context
      * Useful for including key topics discussed in the prompt
@@ -140,6 +201,11 @@ public class ConversationHistory {
         
         StringBuilder summary = new StringBuilder();
         summary.append("You have had ").append(count).append(" conversation(s) with this player.\n");
+
+        String remembered = getSummary(npcId, playerId);
+        if (remembered != null) {
+            summary.append("What you remember from earlier: ").append(remembered).append("\n");
+        }
         
         // Include recent messages for context
         int recentCount = Math.min(6, history.size());
@@ -171,7 +237,8 @@ public class ConversationHistory {
         String npcId,
         String playerId,
         List<PersistedMessage> messages,
-        int conversationCount
+        int conversationCount,
+        String summary
     ) {}
 
     /**
@@ -232,7 +299,8 @@ public class ConversationHistory {
                         npcId.toString(),
                         playerId.toString(),
                         toSave.stream().map(PersistedMessage::from).toList(),
-                        count
+                        count,
+                        getSummary(npcId, playerId)
                     );
 
                     Path file = conversationsDir.resolve(npcId + "_" + playerId + ".json");
@@ -289,6 +357,12 @@ public class ConversationHistory {
                                          .put(playerId, conversation.conversationCount());
                     }
 
+                    // Files saved before summaries existed have none
+                    if (conversation.summary() != null) {
+                        summaries.computeIfAbsent(npcId, k -> new ConcurrentHashMap<>())
+                                 .put(playerId, conversation.summary());
+                    }
+
                     loaded++;
                 } catch (Exception e) {
                     StorytellerMod.LOGGER.warn("Failed to load conversation from {}: {}", file, e.getMessage());
@@ -0,0 +1,93 @@
+package com.storyteller.npc;
+
+import com.storyteller.StorytellerMod;
+import com.storyteller.config.ModConfig;
+import com.storyteller.llm.GenerationProfile;
+import com.storyteller.llm.LLMManager;
+import com.storyteller.llm.LLMProvider.ChatMessage;
+import com.storyteller.llm.LLMRequest;
+import com.storyteller.llm.ModelTier;
+import com.storyteller.llm.RequestPriority;
+import com.storyteller.llm.SystemPrompt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a running summary of each conversation, so an NPC remembers what has scrolled out
+ * of its message history. Summaries are written in the background lane after enough new
+ * messages, never while a player waits on a reply.
+ */
+public class ConversationSummarizer {
+
+    // npcId|playerId with a summary request in flight
+    private static final Set<String> summarizing = ConcurrentHashMap.newKeySet();
+    // Room for the 2-3 sentences asked for; the reply limits for NPC speech do not apply
+    private static final GenerationProfile SUMMARY_PROFILE = new GenerationProfile(200, 0, List.of());
+
+    /**
+     * Called after a turn is saved; queues a new summary once enough messages are unsummarized
+     */
+    public static void onMessagesAdded(UUID npcId, UUID playerId, NPCCharacter character) {
+        int threshold = ModConfig.COMMON.summarizeAfterMessages.get();
+        int pending = ConversationHistory.getUnsummarizedCount(npcId, playerId);
+        if (threshold <= 0 || pending < threshold) {
+            return;
+        }
+
+        String key = npcId + "|" + playerId;
+        if (!summarizing.add(key)) {
+            return;
+        }
+
+        LLMManager llmManager = StorytellerMod.getInstance().getLLMManager();
+        if (!llmManager.isAvailable()) {
+            summarizing.remove(key);
+            return;
+        }
+
+        List<ChatMessage> messages = List.of(new ChatMessage(ChatMessage.Role.USER,
+            buildPrompt(ConversationHistory.getSummary(npcId, playerId),
+                ConversationHistory.getHistory(npcId, playerId), character.getName())));
+
+        llmManager.submit(new LLMRequest(new SystemPrompt(), messages)
+                .forCharacter(character.getId())
+                .withPriority(RequestPriority.BACKGROUND)
+                .withTier(ModelTier.FAST)
+                .withProfile(SUMMARY_PROFILE))
+            .whenComplete((summary, error) -> {
+                summarizing.remove(key);
+                if (error != null) {
+                    StorytellerMod.LOGGER.debug("No summary for conversation {}", key);
+                    return;
+                }
+                ConversationHistory.setSummary(npcId, playerId, summary.strip(), pending);
+            });
+    }
+
+    private static String buildPrompt(String previous, List<ChatMessage> history, String npcName) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("Summarize this conversation between ").append(npcName)
+              .append(" and a player in 2-3 sentences, from ").append(npcName)
+              .append("'s point of view. Keep names, promises, quests and anything the player revealed about themselves.\n\n");
+        if (previous != null) {
+            prompt.append("Summary of what came before:\n").append(previous).append("\n\n");
+        }
+        prompt.append("Conversation:\n");
+        for (ChatMessage msg : new ArrayList<>(history)) {
+            prompt.append(msg.role() == ChatMessage.Role.USER ? "Player" : npcName)
+                  .append(": ").append(msg.content()).append("\n");
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * Forget summaries in flight (e.g. on shutdown)
+     */
+    public static void clearAll() {
+        summarizing.clear();
+    }
+}
@@ -0,0 +1,178 @@
+package com.storyteller.npc;
+
+import com.storyteller.StorytellerMod;
+import com.storyteller.config.ModConfig;
+import com.storyteller.llm.LLMManager;
+import com.storyteller.llm.LLMProvider.ChatMessage;
+import com.storyteller.llm.LLMRequest;
+import com.storyteller.llm.ModelTier;
+import com.storyteller.llm.RequestPriority;
+import com.storyteller.llm.SystemPrompt;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pre-generated greetings per character.
+ *
+ * A greeting only depends on the character, whether the player has visited before and
+ * a coarse world bucket (dimension, day/night, weather), so it can be generated ahead of
+ * time as background work and handed out instantly when a chat screen opens.
+ */
+public class GreetingPool {
+
+    public static final String FIRST_VISIT_PROMPT =
+        "A new visitor approaches. Greet them with ONE short sentence only (under 10 words).";
+    public static final String RETURNING_PROMPT =
+        "This visitor has returned. Acknowledge them briefly with ONE short sentence (under 10 words). Don't repeat your previous greeting.";
+
+    private static final String ANY_WORLD = "any";
+
+    // characterId|visit|bucket -> ready greetings
+    private static final Map<String, Deque<String>> pools = new ConcurrentHashMap<>();
+    // Keys with a refill request in flight -> the character generation it was started for
+    private static final Map<String, Integer> refilling = new ConcurrentHashMap<>();
+    // characterId -> bumped whenever the character's greetings are dropped, so refills
+    // started for the old definition stop instead of generating more with it
+    private static final Map<String, Integer> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Take a ready greeting, or null if none is available (the caller generates one live).
+     * Either way the pool for this key is topped up in the background.
+     */
+    public static String take(NPCCharacter character, boolean returning, WorldContext worldContext) {
+        int poolSize = ModConfig.COMMON.greetingPoolSize.get();
+        if (poolSize <= 0) {
+            return null;
+        }
+
+        String key = key(character, returning, worldContext);
+        Deque<String> pool = pools.computeIfAbsent(key, k -> new ArrayDeque<>());
+
+        String greeting;
+        synchronized (pool) {
+            greeting = pool.pollFirst();
+        }
+
+        refill(key, character, returning, worldContext, poolSize, generation(character.getId()));
+        return greeting;
+    }
+
+    /**
+     * Start filling the pools a player is about to need (e.g. when they open a chat screen)
+     */
+    public static void prefill(NPCCharacter character, boolean returning, WorldContext worldContext) {
+        int poolSize = ModConfig.COMMON.greetingPoolSize.get();
+        if (poolSize > 0) {
+            refill(key(character, returning, worldContext), character, returning, worldContext, poolSize,
+                generation(character.getId()));
+        }
+    }
+
+    /**
+     * Generate one greeting per call until the pool is full. Runs in the background lane,
+     * so it only uses the LLM when no player is waiting, and is restarted later if one
+     * starts waiting mid-generation.
+     *
+     * @param generation The character's generation when the refill started; the chain stops once it changes
+     */
+    private static void refill(String key, NPCCharacter character, boolean returning,
+                               WorldContext worldContext, int poolSize, int generation) {
+        if (generation != generation(character.getId())) {
+            return;
+        }
+        Deque<String> pool = pools.computeIfAbsent(key, k -> new ArrayDeque<>());
+        synchronized (pool) {
+            if (pool.size() >= poolSize) {
+                return;
+            }
+        }
+        if (refilling.putIfAbsent(key, generation) != null) {
+            return;
+        }
+
+        LLMManager llmManager = StorytellerMod.getInstance().getLLMManager();
+        if (!llmManager.isAvailable()) {
+            refilling.remove(key, generation);
+            return;
+        }
+
+        SystemPrompt systemPrompt = new SystemPrompt()
+            .addStatic("character", character.generateCharacterPrompt());
+        if (worldContext != null) {
+            systemPrompt.addDynamic("world", "## Current World State\n" + worldContext.toCoarsePromptString());
+        }
+
+        List<ChatMessage> messages = List.of(
+            new ChatMessage(ChatMessage.Role.USER, returning ? RETURNING_PROMPT : FIRST_VISIT_PROMPT)
+        );
+
+        // Greetings are small talk: the fast model (if configured) is good enough
+        llmManager.submit(new LLMRequest(systemPrompt, messages)
+                .forCharacter(character.getId())
+                .withPriority(RequestPriority.BACKGROUND)
+                .withTier(ModelTier.FAST)
+                .withProfile(character.getGenerationProfile()))
+            .whenComplete((greeting, error) -> {
+                refilling.remove(key, generation);
+                // A greeting for a character that has since been reloaded is not kept
+                if (error != null || generation != generation(character.getId())) {
+                    return;
+                }
+
+                boolean full;
+                synchronized (pool) {
+                    pool.addLast(greeting.strip());
+                    full = pool.size() >= poolSize;
+                }
+                if (!full) {
+                    refill(key, character, returning, worldContext, poolSize, generation);
+                }
+            });
+    }
+
+    private static int generation(String characterId) {
+        return generations.computeIfAbsent(characterId, id -> 0);
+    }
+
+    private static String key(NPCCharacter character, boolean returning, WorldContext worldContext) {
+        String bucket = worldContext != null ? worldContext.getCoarseBucket() : ANY_WORLD;
+        return character.getId() + "|" + (returning ? "returning" : "first") + "|" + bucket;
+    }
+
+    /**
+     * Drop pooled greetings for a character (e.g. after its definition changed) and stop
+     * refills still generating with the old definition
+     */
+    public static void clearCharacter(String characterId) {
+        generations.merge(characterId, 1, Integer::sum);
+        String prefix = characterId + "|";
+        pools.keySet().removeIf(key -> key.startsWith(prefix));
+        refilling.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * Drop all pooled greetings
+     */
+    public static void clearAll() {
+        generations.replaceAll((id, generation) -> generation + 1);
+        pools.clear();
+        refilling.clear();
+    }
+
+    /**
+     * Total number of greetings ready to hand out
+     */
+    public static int getPooledCount() {
+        int count = 0;
+        for (Deque<String> pool : pools.values()) {
+            synchronized (pool) {
+                count += pool.size();
+            }
+        }
+        return count;
+    }
+}
@@ -3,6 +3,7 @@ package com.storyteller.npc;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.annotations.SerializedName;
+import com.storyteller.llm.GenerationProfile;
 import net.minecraft.nbt.CompoundTag;
 
 import java.util.ArrayList;
@@ -41,6 +42,9 @@ public class NPCCharacter {
     @SerializedName("speech_style")
     private SpeechStyle speechStyle;
     
+    // Reply length and stop sequences; unset values use the server config
+    private Generation generation;
+    
     // Eira integration
     @SerializedName("external_triggers")
     private Map<String, ExternalTrigger> externalTriggers;
@@ -120,6 +124,18 @@ public class NPCCharacter {
      * Generate the system prompt for this character
      */
     public String generateSystemPrompt(WorldContext worldContext) {
+        String prompt = generateCharacterPrompt();
+        if (worldContext != null) {
+            prompt += "\n" + generateWorldPrompt(worldContext);
+        }
+        return prompt;
+    }
+
+    /**
+     * The unchanging part of the system prompt: identity, speech style, agenda and rules.
+     * Identical on every request so providers can cache it as a prompt prefix.
+     */
+    public String generateCharacterPrompt() {
         StringBuilder prompt = new StringBuilder();
         
         prompt.append("You are ").append(name);
@@ -161,12 +177,6 @@ public class NPCCharacter {
         prompt.append("**You may hint at your secret when:** ").append(String.join("; ", hiddenAgenda.revealConditions)).append("\n");
         prompt.append("\n");
         
-        // World context
-        if (worldContext != null) {
-            prompt.append("## Current World State\n");
-            prompt.append(worldContext.toPromptString()).append("\n");
-        }
-        
         // Behavioral rules
         prompt.append("## Rules\n");
         prompt.append("- Stay in character at all times\n");
@@ -179,6 +189,13 @@ public class NPCCharacter {
         
         return prompt.toString();
     }
+
+    /**
+     * The world state section; changes from request to request
+     */
+    public String generateWorldPrompt(WorldContext worldContext) {
+        return "## Current World State\n" + worldContext.toPromptString() + "\n";
+    }
     
     /**
      * Save to NBT for world storage
@@ -260,6 +277,20 @@ public class NPCCharacter {
         public List<String> avoidPhrases = new ArrayList<>();
     }
     
+    /**
+     * Per-character overrides of the {@code [npc]} reply length settings; null fields keep the config value
+     */
+    public static class Generation {
+        @SerializedName("max_tokens")
+        public Integer maxTokens;
+        
+        @SerializedName("max_sentences")
+        public Integer maxSentences;
+        
+        @SerializedName("stop_sequences")
+        public List<String> stopSequences;
+    }
+    
     /**
      * Configuration for reacting to external events (from Eira Relay)
      */
@@ -346,4 +377,15 @@ public class NPCCharacter {
     public HiddenAgenda getHiddenAgenda() { return hiddenAgenda; }
     public Behavior getBehavior() { return behavior; }
     public SpeechStyle getSpeechStyle() { return speechStyle; }
+    
+    /**
+     * Reply length settings for this character: the server config with the character's overrides applied
+     */
+    public GenerationProfile getGenerationProfile() {
+        GenerationProfile defaults = GenerationProfile.defaults();
+        if (generation == null) {
+            return defaults;
+        }
+        return defaults.withOverrides(generation.maxTokens, generation.maxSentences, generation.stopSequences);
+    }
 }
@@ -2,16 +2,27 @@ package com.storyteller.npc;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.storyteller.StorytellerMod;
+import com.storyteller.entity.StorytellerNPC;
 import com.storyteller.npc.knowledge.KnowledgeManager;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
 import net.neoforged.fml.loading.FMLPaths;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 /**
@@ -22,6 +33,8 @@ public class NPCManager {
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
     
     private final Map<String, NPCCharacter> characters = new HashMap<>();
+    // Character file -> id of the character it holds, to know what a deleted file held
+    private final Map<Path, String> characterFiles = new ConcurrentHashMap<>();
     private final Path configDir;
     private final Path skinsDir;
     private final Path charactersDir;
@@ -97,12 +110,112 @@ public class NPCManager {
             String json = Files.readString(file);
             NPCCharacter character = NPCCharacter.fromJson(json);
             characters.put(character.getId(), character);
+            characterFiles.put(file, character.getId());
             StorytellerMod.LOGGER.debug("Loaded character: {} ({})", character.getName(), character.getId());
         } catch (Exception e) {
             StorytellerMod.LOGGER.error("Failed to load character from {}: {}", file, e.getMessage());
         }
     }
     
+    /**
+     * Reload a single character file that was created, changed or deleted on disk.
+     * The file is parsed on the calling thread; the new version is swapped in on the server
+     * thread, where NPCs already in the world using the character pick it up too. If the file
+     * cannot be parsed (e.g. it is half-saved), the previous version stays loaded.
+     *
+     * @param file The character JSON file
+     * @param server The server whose NPCs should be updated
+     */
+    public void reloadCharacterFile(Path file, MinecraftServer server) {
+        NPCCharacter parsed = null;
+        if (Files.exists(file)) {
+            try {
+                parsed = NPCCharacter.fromJson(Files.readString(file));
+                if (parsed == null || parsed.getId() == null || parsed.getId().isBlank()) {
+                    throw new IllegalArgumentException("no character id");
+                }
+            } catch (Exception e) {
+                StorytellerMod.LOGGER.warn("Keeping the previous version of {} until it parses again: {}",
+                    file.getFileName(), e.getMessage());
+                return;
+            }
+        }
+
+        NPCCharacter character = parsed;
+        server.execute(() -> applyCharacterFile(file, character, server));
+    }
+
+    private void applyCharacterFile(Path file, NPCCharacter character, MinecraftServer server) {
+        String previousId = characterFiles.get(file);
+
+        if (character == null) {
+            if (previousId != null) {
+                characterFiles.remove(file);
+                characters.remove(previousId);
+                StorytellerMod.LOGGER.info("Character '{}' removed with {}; NPCs already using it keep their copy",
+                    previousId, file.getFileName());
+            }
+            return;
+        }
+
+        String id = character.getId();
+        if (previousId != null && !previousId.equals(id)) {
+            characters.remove(previousId);
+            StorytellerMod.LOGGER.info("Character '{}' removed; {} now holds '{}'", previousId, file.getFileName(), id);
+        }
+        characterFiles.put(file, id);
+        NPCCharacter previous = characters.put(id, character);
+        if (previous == null) {
+            StorytellerMod.LOGGER.info("Loaded new character: {} ({})", character.getName(), id);
+            return;
+        }
+
+        List<String> changed = describeChanges(previous, character);
+        if (changed.isEmpty()) {
+            // Typically our own save
+            StorytellerMod.LOGGER.debug("Character file {} saved without changes", file.getFileName());
+            return;
+        }
+        StorytellerMod.LOGGER.info("Reloaded character '{}' from {}: changed {}", id, file.getFileName(),
+            String.join(", ", changed));
+
+        // Pooled lines were written in the old voice
+        GreetingPool.clearCharacter(id);
+        AmbientLines.clearCharacter(id);
+
+        int updated = 0;
+        for (ServerLevel level : server.getAllLevels()) {
+            for (var entity : level.getEntities().getAll()) {
+                if (entity instanceof StorytellerNPC npc && id.equals(npc.getCharacterId())) {
+                    npc.setCharacter(character);
+                    npc.rebuildGoals();
+                    updated++;
+                }
+            }
+        }
+        if (updated > 0) {
+            StorytellerMod.LOGGER.info("Updated {} NPC(s) using character '{}'", updated, id);
+        }
+    }
+
+    /**
+     * The top-level character settings that differ between two versions, by JSON name
+     */
+    static List<String> describeChanges(NPCCharacter before, NPCCharacter after) {
+        JsonObject oldJson = JsonParser.parseString(before.toJson()).getAsJsonObject();
+        JsonObject newJson = JsonParser.parseString(after.toJson()).getAsJsonObject();
+
+        Set<String> keys = new TreeSet<>(oldJson.keySet());
+        keys.addAll(newJson.keySet());
+        List<String> changed = new ArrayList<>();
+        for (String key : keys) {
+            if (!Objects.equals(oldJson.get(key), newJson.get(key))) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+
     /**
      * Save all NPC configurations to disk
      */
@@ -120,6 +233,7 @@ public class NPCManager {
             Files.createDirectories(charactersDir);
             Path file = charactersDir.resolve(character.getId() + ".json");
             Files.writeString(file, character.toJson());
+            characterFiles.put(file, character.getId());
             StorytellerMod.LOGGER.debug("Saved character: {} to {}", character.getName(), file);
         } catch (IOException e) {
             StorytellerMod.LOGGER.error("Failed to save character {}: {}", character.getName(), e.getMessage());
@@ -0,0 +1,127 @@
+package com.storyteller.npc;
+
+import com.storyteller.llm.LLMProvider.ChatMessage;
+import com.storyteller.llm.LLMRequest;
+import com.storyteller.llm.ModelRouter;
+import com.storyteller.llm.ModelTier;
+import com.storyteller.llm.RequestPriority;
+import com.storyteller.llm.SystemPrompt;
+import com.storyteller.npc.knowledge.KnowledgeManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Assembles the LLM request for one player message to an NPC: the system prompt sections in
+ * order, knowledge retrieval, routing, priority and the character's generation profile.
+ *
+ * StorytellerNPC fills in the world, event and quest context from the running game; the load
+ * test fills in stand-ins, so both measure and send the same request.
+ */
+public class NPCRequestBuilder {
+
+    private final NPCCharacter character;
+    private final UUID npcId;
+    private final UUID playerId;
+    private final List<ChatMessage> history;
+    private final String message;
+    private final boolean greeting;
+    private final long startNanos = System.nanoTime();
+    private String worldPrompt;
+    private String eventContext;
+    private String questContext;
+    private List<String> completedQuests = List.of();
+
+    /**
+     * @param history The conversation so far, ending with {@code message}
+     * @param message What the player said, or the greeting prompt
+     * @param greeting Whether the NPC is opening the conversation
+     */
+    public NPCRequestBuilder(NPCCharacter character, UUID npcId, UUID playerId, List<ChatMessage> history,
+                             String message, boolean greeting) {
+        this.character = character;
+        this.npcId = npcId;
+        this.playerId = playerId;
+        this.history = history;
+        this.message = message;
+        this.greeting = greeting;
+    }
+
+    /**
+     * @param worldPrompt The character's view of the world around the player, or null for none
+     */
+    public NPCRequestBuilder world(String worldPrompt) {
+        this.worldPrompt = worldPrompt;
+        return this;
+    }
+
+    /**
+     * @param eventContext Recent player events (achievements, kills, items), or null for none
+     */
+    public NPCRequestBuilder events(String eventContext) {
+        this.eventContext = eventContext;
+        return this;
+    }
+
+    /**
+     * @param questContext Quests this NPC has given the player, or null for none
+     * @param completedQuests Descriptions of quests the player has just completed
+     */
+    public NPCRequestBuilder quests(String questContext, List<String> completedQuests) {
+        this.questContext = questContext;
+        this.completedQuests = completedQuests;
+        return this;
+    }
+
+    /**
+     * Build the system prompt now, then retrieve knowledge for the message (searching by
+     * meaning first embeds it) and complete with the request
+     */
+    public CompletableFuture<LLMRequest> buildAsync() {
+        // The character sheet first (stable, cacheable by the provider), then everything
+        // that changes from request to request
+        SystemPrompt systemPrompt = new SystemPrompt()
+            .addStatic("character", character.generateCharacterPrompt());
+
+        if (worldPrompt != null) {
+            systemPrompt.addDynamic("world", worldPrompt);
+        }
+
+        // Add conversation summary if there's history
+        if (ConversationHistory.getConversationCount(npcId, playerId) > 0) {
+            systemPrompt.addDynamic("conversation", "## Conversation Context\n" +
+                ConversationHistory.buildConversationSummary(npcId, playerId));
+        }
+
+        systemPrompt.addDynamic("events", eventContext);
+        systemPrompt.addDynamic("quests", questContext);
+
+        if (!completedQuests.isEmpty()) {
+            StringBuilder completedContext = new StringBuilder();
+            completedContext.append("## Quests Just Completed!\n");
+            completedContext.append("The player has completed these quests you gave them. Acknowledge and reward them!\n");
+            for (String quest : completedQuests) {
+                completedContext.append("- ").append(quest).append("\n");
+            }
+            systemPrompt.addDynamic("completed_quests", completedContext.toString());
+        }
+
+        boolean hasQuestContext = questContext != null || !completedQuests.isEmpty();
+        return KnowledgeManager.buildKnowledgeContextAsync(character.getId(), message)
+            .thenApply(knowledgeContext -> {
+                systemPrompt.addDynamic("knowledge", knowledgeContext);
+
+                // Small talk can go to the fast model; lore and quest turns need the main one
+                ModelTier tier = ModelRouter.route(greeting, message, knowledgeContext != null, hasQuestContext);
+
+                return new LLMRequest(systemPrompt, history)
+                    .forPlayer(playerId)
+                    .forCharacter(character.getId())
+                    .withPromptAssemblyNanos(System.nanoTime() - startNanos)
+                    .withPriority(greeting ? RequestPriority.GREETING : RequestPriority.CHAT)
+                    .withTier(tier)
+                    .withProfile(character.getGenerationProfile());
+            });
+    }
+}
@@ -43,14 +43,30 @@ public class QuestManager {
      * Parse NPC response for quest-like statements and create quests automatically
      */
     public static List<Quest> parseQuestsFromResponse(UUID npcId, ServerPlayer player, String response) {
-        List<Quest> quests = new ArrayList<>();
-        UUID playerId = player.getUUID();
-
         // Check if quest system is enabled
         if (!ModConfig.COMMON.enableQuestSystem.get()) {
-            return quests;
+            return new ArrayList<>();
         }
 
+        UUID playerId = player.getUUID();
+        List<Quest> quests = detectQuests(npcId, response);
+
+        // Register detected quests and notify player
+        for (Quest quest : quests) {
+            addQuest(playerId, quest);
+            notifyQuestAdded(player, quest);
+            StorytellerMod.LOGGER.info("Auto-detected quest for {}: {}", playerId, quest.description());
+        }
+
+        return quests;
+    }
+
+    /**
+     * Find quest-like statements in an NPC response, without registering them
+     */
+    public static List<Quest> detectQuests(UUID npcId, String response) {
+        List<Quest> quests = new ArrayList<>();
+
         // Try to detect item collection quests
         for (Pattern pattern : List.of(BRING_PATTERN, FIND_PATTERN, COLLECT_PATTERN)) {
             Matcher matcher = pattern.matcher(response);
@@ -98,13 +114,6 @@ public class QuestManager {
             quests.add(quest);
         }
 
-        // Register detected quests and notify player
-        for (Quest quest : quests) {
-            addQuest(playerId, quest);
-            notifyQuestAdded(player, quest);
-            StorytellerMod.LOGGER.info("Auto-detected quest for {}: {}", playerId, quest.description());
-        }
-
         return quests;
     }
 
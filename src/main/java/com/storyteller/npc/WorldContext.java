@@ -90,6 +90,27 @@ public class WorldContext {
 
         return ctx;
     }
+
+    /**
+     * A fixed context without a running game, for benchmarks
+     */
+    static WorldContext of(String biome, String timeOfDay, String weather, String dimension,
+                           List<String> nearbyStructures, String playerName, int playerHealth, int playerHunger,
+                           String playerMainHandItem, String playerOffHandItem) {
+        WorldContext ctx = new WorldContext();
+        ctx.biome = biome;
+        ctx.timeOfDay = timeOfDay;
+        ctx.weather = weather;
+        ctx.dimension = dimension;
+        ctx.nearbyStructures = new ArrayList<>(nearbyStructures);
+        ctx.playerName = playerName;
+        ctx.playerHealth = playerHealth;
+        ctx.playerHunger = playerHunger;
+        ctx.lightLevel = 15;
+        ctx.playerMainHandItem = playerMainHandItem;
+        ctx.playerOffHandItem = playerOffHandItem;
+        return ctx;
+    }
     
     private static String getTimeOfDay(long dayTime) {
         if (dayTime < 1000) return "dawn";
@@ -216,6 +237,30 @@ public class WorldContext {
         return sb.toString();
     }
     
+    /**
+     * Coarse world state (dimension, day/night, weather) that changes rarely.
+     * Used to key pre-generated greetings, which must not depend on player-specific details.
+     */
+    public String getCoarseBucket() {
+        return dimension + "/" + (isDaytime() ? "day" : "night") + "/" + weather;
+    }
+
+    /**
+     * Prompt section describing only the coarse world state
+     */
+    public String toCoarsePromptString() {
+        return "- Location: " + dimension + "\n" +
+               "- Time: " + (isDaytime() ? "daytime" : "night-time") + "\n" +
+               "- Weather: " + weather + "\n";
+    }
+
+    private boolean isDaytime() {
+        return switch (timeOfDay) {
+            case "dawn", "morning", "midday", "afternoon" -> true;
+            default -> false;
+        };
+    }
+    
     // Getters for potential use elsewhere
     
     public String getBiome() { return biome; }
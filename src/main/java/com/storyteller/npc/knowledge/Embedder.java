@@ -0,0 +1,36 @@
+package com.storyteller.npc.knowledge;
+
+import com.storyteller.config.ModConfig;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Turns text into embedding vectors for semantic knowledge retrieval
+ */
+interface Embedder {
+
+    /**
+     * Embed several texts at once
+     *
+     * @return One vector per text, in the same order
+     */
+    CompletableFuture<float[][]> embed(List<String> texts);
+
+    /**
+     * Identifies the model, so stored vectors are only reused with the model that made them
+     */
+    String model();
+
+    /**
+     * The embedder configured in {@code [knowledge]}, or null if embeddings are off
+     */
+    static Embedder fromConfig() {
+        return switch (ModConfig.COMMON.embeddings.get()) {
+            case NONE -> null;
+            case OLLAMA -> new OllamaEmbedder(ModConfig.COMMON.ollamaEndpoint.get(),
+                ModConfig.COMMON.embeddingModel.get(), ModConfig.COMMON.ollamaTimeout.get());
+            case HASHING -> new HashingEmbedder();
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package com.storyteller.npc.knowledge;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Local stand-in for an embedding model, for servers without one: words and their
+ * character trigrams are hashed into a fixed number of dimensions. It catches shared and
+ * inflected words ("repair" and "repairs") but not true paraphrases, which need a real model.
+ */
+final class HashingEmbedder implements Embedder {
+
+    private static final int DIMENSIONS = 256;
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+
+    @Override
+    public CompletableFuture<float[][]> embed(List<String> texts) {
+        float[][] vectors = new float[texts.size()][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = embed(texts.get(i));
+        }
+        return CompletableFuture.completedFuture(vectors);
+    }
+
+    private static float[] embed(String text) {
+        float[] vector = new float[DIMENSIONS];
+        Tokenizer words = new Tokenizer().tokenize(text);
+        char[] chars = words.chars();
+        for (int word = 0; word < words.size(); word++) {
+            int start = words.start(word);
+            int end = words.end(word);
+            add(vector, hash(chars, start, end), 1f);
+            // Trigrams of the word padded with '#', hashed like String.hashCode
+            for (int i = start - 1; i + 3 <= end + 1; i++) {
+                int hash = 0;
+                for (int c = i; c < i + 3; c++) {
+                    hash = 31 * hash + (c < start || c >= end ? '#' : chars[c]);
+                }
+                add(vector, hash * 31 + 7, TRIGRAM_WEIGHT);
+            }
+        }
+        return VectorIndex.normalize(vector);
+    }
+
+    private static int hash(char[] chars, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash;
+    }
+
+    // The hash picks a dimension and a sign, so unrelated features cancel out on average
+    private static void add(float[] vector, int hash, float weight) {
+        int mixed = hash * 0x9E3779B9;
+        vector[(mixed >>> 1) % DIMENSIONS] += (mixed & 1) == 0 ? weight : -weight;
+    }
+
+    @Override
+    public String model() {
+        return "hashing-" + DIMENSIONS;
+    }
+}
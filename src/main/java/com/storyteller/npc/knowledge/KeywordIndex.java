@@ -0,0 +1,250 @@
+package com.storyteller.npc.knowledge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Inverted index from keywords to the knowledge entries that list them, built once when a
+ * knowledge base is loaded.
+ *
+ * A query word matches a keyword if either contains the other (which includes being equal).
+ * Keywords inside a word are found by looking up the word's substrings; words inside a
+ * keyword through an index of the 1- to 3-character grams of every keyword. Keywords are
+ * lowercased once here and stored as term ids, and lookups read the query straight from the
+ * {@link Tokenizer}'s buffer, so retrieval touches only the keywords and entries that match
+ * and creates no strings.
+ */
+final class KeywordIndex {
+
+    private static final int GRAM = 3;
+    private static final int[] NONE = new int[0];
+
+    // Each thread scores into its own buffers, reused from one query to the next
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    // Distinct lowercased keywords; a keyword's id is its index here and in keywordIds
+    private final String[] keywords;
+    private final TermDictionary keywordIds;
+    // Keyword id -> entries listing it, once per listing
+    private final int[][] postings;
+    // 1-, 2- and 3-character grams, and gram id -> ids of keywords containing it, ascending
+    private final TermDictionary gramIds;
+    private final int[][] grams;
+    private final int maxKeywordLength;
+    private final int entryCount;
+
+    KeywordIndex(List<KnowledgeEntry> entries) {
+        this.entryCount = entries.size();
+        TermDictionary ids = new TermDictionary();
+        List<String> distinct = new ArrayList<>();
+        List<IntList> entryLists = new ArrayList<>();
+
+        for (int entry = 0; entry < entries.size(); entry++) {
+            for (String keyword : entries.get(entry).keywords()) {
+                String lower = keyword.toLowerCase(Locale.ROOT);
+                if (lower.isEmpty()) {
+                    continue;
+                }
+                int id = ids.add(lower);
+                if (id == distinct.size()) {
+                    distinct.add(lower);
+                    entryLists.add(new IntList());
+                }
+                entryLists.get(id).add(entry);
+            }
+        }
+
+        TermDictionary gramDictionary = new TermDictionary();
+        List<IntList> gramLists = new ArrayList<>();
+        int longest = 0;
+        for (int id = 0; id < distinct.size(); id++) {
+            String keyword = distinct.get(id);
+            longest = Math.max(longest, keyword.length());
+            for (int start = 0; start < keyword.length(); start++) {
+                for (int end = start + 1; end <= Math.min(keyword.length(), start + GRAM); end++) {
+                    int gram = gramDictionary.add(keyword.substring(start, end));
+                    if (gram == gramLists.size()) {
+                        gramLists.add(new IntList());
+                    }
+                    IntList list = gramLists.get(gram);
+                    // Ids arrive in ascending order, so a repeat is always the last one added
+                    if (list.size == 0 || list.values[list.size - 1] != id) {
+                        list.add(id);
+                    }
+                }
+            }
+        }
+
+        this.keywords = distinct.toArray(new String[0]);
+        this.keywordIds = ids;
+        this.postings = new int[distinct.size()][];
+        for (int id = 0; id < postings.length; id++) {
+            postings[id] = entryLists.get(id).toArray();
+        }
+        this.gramIds = gramDictionary;
+        this.grams = new int[gramLists.size()][];
+        for (int gram = 0; gram < grams.length; gram++) {
+            grams[gram] = gramLists.get(gram).toArray();
+        }
+        this.maxKeywordLength = longest;
+    }
+
+    /**
+     * Matching entries and how many of their keywords match
+     *
+     * @param entries Entry indices, ascending
+     * @param counts Matching keywords of the entry at the same position
+     */
+    record Scores(int[] entries, int[] counts) {
+        static final Scores EMPTY = new Scores(NONE, NONE);
+    }
+
+    /**
+     * Count, per entry, how many of its keywords match at least one of the query words
+     *
+     * @param query The tokenized query
+     */
+    Scores score(Tokenizer query) {
+        Scratch scratch = SCRATCH.get();
+        scratch.reset(keywords.length, entryCount);
+        for (int word = 0; word < query.size(); word++) {
+            matchKeywords(query.chars(), query.start(word), query.end(word), scratch);
+        }
+        return scratch.finish();
+    }
+
+    /**
+     * Count the keywords that contain, or are contained in, the word {@code chars[from, to)}
+     */
+    private void matchKeywords(char[] chars, int from, int to, Scratch matched) {
+        // Keywords inside the word (including the word itself)
+        for (int start = from; start < to; start++) {
+            int maxEnd = Math.min(to, start + maxKeywordLength);
+            for (int end = start + 1; end <= maxEnd; end++) {
+                int id = keywordIds.id(chars, start, end - start);
+                if (id >= 0) {
+                    matched.match(id, postings[id]);
+                }
+            }
+        }
+
+        // Keywords containing the word
+        int length = to - from;
+        if (length <= GRAM) {
+            int gram = gramIds.id(chars, from, length);
+            for (int id : gram >= 0 ? grams[gram] : NONE) {
+                matched.match(id, postings[id]);
+            }
+            return;
+        }
+        int[] candidates = null;
+        for (int start = from; start + GRAM <= to; start++) {
+            int gram = gramIds.id(chars, start, GRAM);
+            if (gram < 0) {
+                return;
+            }
+            if (candidates == null || grams[gram].length < candidates.length) {
+                candidates = grams[gram];
+            }
+        }
+        for (int id : candidates) {
+            if (keywords[id].length() > length && contains(keywords[id], chars, from, length)) {
+                matched.match(id, postings[id]);
+            }
+        }
+    }
+
+    private static boolean contains(String keyword, char[] chars, int from, int length) {
+        for (int offset = 0; offset + length <= keyword.length(); offset++) {
+            int i = 0;
+            while (i < length && keyword.charAt(offset + i) == chars[from + i]) {
+                i++;
+            }
+            if (i == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keywords matched so far and matching keyword counts per entry, for one query
+     */
+    private static final class Scratch {
+        // Keyword id -> query number it was last matched in; saves clearing between queries
+        private int[] matchedIn = new int[0];
+        private int query = 0;
+        private int[] counts = new int[0];
+        private int[] touched = new int[64];
+        private int touchedCount = 0;
+
+        void reset(int keywordCount, int entryCount) {
+            if (matchedIn.length < keywordCount) {
+                matchedIn = new int[keywordCount];
+                query = 0;
+            }
+            if (counts.length < entryCount) {
+                counts = new int[entryCount];
+            }
+            if (++query == Integer.MAX_VALUE) {
+                Arrays.fill(matchedIn, 0);
+                query = 1;
+            }
+            touchedCount = 0;
+        }
+
+        /**
+         * Count a matching keyword for the entries listing it, unless a query word already matched it
+         */
+        void match(int keyword, int[] entries) {
+            if (matchedIn[keyword] == query) {
+                return;
+            }
+            matchedIn[keyword] = query;
+            for (int entry : entries) {
+                if (counts[entry]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = entry;
+                }
+            }
+        }
+
+        Scores finish() {
+            if (touchedCount == 0) {
+                return Scores.EMPTY;
+            }
+            int[] entries = Arrays.copyOf(touched, touchedCount);
+            Arrays.sort(entries);
+            int[] result = new int[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                result[i] = counts[entries[i]];
+                // Leave the buffer zeroed for the next query
+                counts[entries[i]] = 0;
+            }
+            return new Scores(entries, result);
+        }
+    }
+
+    /**
+     * Growable int array, so postings are not built from boxed Integers
+     */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -11,23 +11,47 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Stores and retrieves knowledge entries for a character using keyword-based matching.
  * This provides simple RAG (Retrieval-Augmented Generation) capabilities for NPCs.
+ * Keywords and content are indexed when the knowledge base is built, so retrieval
+ * only looks at entries that match. When embeddings are enabled, entries whose meaning
+ * is close to the question are found as well, even if they share no words with it.
  */
 public class KnowledgeBase {
 
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
 
+    // Blended ranking: the best content match is worth one keyword match,
+    // and priority 10 half of one
+    private static final double TEXT_WEIGHT = 1.0;
+    private static final double PRIORITY_WEIGHT = 0.05;
+    // Content matches weaker than this fraction of the best one are left out
+    private static final float MIN_TEXT_RELEVANCE = 0.25f;
+    // The closest match in meaning is worth one keyword match too
+    private static final double SEMANTIC_WEIGHT = 1.0;
+    // Nearest neighbours considered per query, before merging with the other scores
+    private static final int SEMANTIC_CANDIDATES = 20;
+
+    // Each thread tokenizes queries into its own buffers, reused from one query to the next
+    private static final ThreadLocal<Tokenizer> TOKENIZER = ThreadLocal.withInitial(Tokenizer::new);
+
     private final String characterId;
     private final List<KnowledgeEntry> entries;
+    private final KeywordIndex index;
+    private final TextIndex textIndex;
+    // Attached once the entries have been embedded; null until then
+    private volatile VectorIndex vectors;
 
     public KnowledgeBase(String characterId, List<KnowledgeEntry> entries) {
         this.characterId = characterId;
         this.entries = new ArrayList<>(entries);
+        this.index = new KeywordIndex(this.entries);
+        this.textIndex = new TextIndex(this.entries);
     }
 
     public String getCharacterId() {
@@ -42,69 +66,120 @@ public class KnowledgeBase {
         return entries.size();
     }
 
+    /**
+     * Whether semantic search is available for this knowledge base
+     */
+    public boolean hasVectors() {
+        return vectors != null;
+    }
+
+    void attachVectors(VectorIndex vectors) {
+        if (vectors != null && vectors.size() == entries.size()) {
+            this.vectors = vectors;
+        }
+    }
+
     /**
      * Retrieve relevant knowledge entries based on a player's message.
-     * Uses keyword matching to score and rank entries.
+     * Ranks by keyword matches, blended with full-text relevance of the content
+     * unless keyword-only ranking is configured.
      *
      * @param playerMessage The message from the player
      * @param maxResults Maximum number of entries to return
      * @return List of relevant knowledge entries, sorted by relevance
      */
     public List<KnowledgeEntry> retrieve(String playerMessage, int maxResults) {
-        if (entries.isEmpty() || playerMessage == null || playerMessage.isBlank()) {
-            return List.of();
-        }
-
-        // Normalize and tokenize the query
-        String[] queryWords = playerMessage.toLowerCase()
-            .replaceAll("[^a-z0-9\\s]", " ")
-            .split("\\s+");
+        return retrieve(playerMessage, maxResults, ModConfig.COMMON.knowledgeRanking.get(),
+            ModConfig.COMMON.minKeywordMatches.get());
+    }
 
+    /**
+     * Retrieve relevant knowledge entries, also searching by meaning once the entries have
+     * embeddings. The words are scored while the question is being embedded; if it cannot
+     * be embedded in time, the result is the same as {@link #retrieve(String, int)}.
+     *
+     * @param playerMessage The message from the player
+     * @param maxResults Maximum number of entries to return
+     * @return Future list of relevant knowledge entries, sorted by relevance
+     */
+    public CompletableFuture<List<KnowledgeEntry>> retrieveAsync(String playerMessage, int maxResults) {
+        ModConfig.KnowledgeRanking ranking = ModConfig.COMMON.knowledgeRanking.get();
         int minMatches = ModConfig.COMMON.minKeywordMatches.get();
-
-        // Score each entry
-        List<ScoredEntry> scored = new ArrayList<>();
-        for (KnowledgeEntry entry : entries) {
-            int score = scoreEntry(entry, queryWords);
-            if (score >= minMatches) {
-                scored.add(new ScoredEntry(entry, score));
-            }
+        if (vectors == null || entries.isEmpty() || playerMessage == null || playerMessage.isBlank()) {
+            return CompletableFuture.completedFuture(retrieve(playerMessage, maxResults, ranking, minMatches));
         }
+        float minSimilarity = ModConfig.COMMON.minSimilarity.get() / 100f;
+        CompletableFuture<float[]> embedding = KnowledgeEmbeddings.embedQuery(playerMessage);
+        WordScores words = scoreWords(playerMessage, ranking);
+        return embedding.thenApply(query -> rank(words, maxResults, minMatches, query, minSimilarity));
+    }
 
-        // Sort by score (descending) then by priority (descending)
-        scored.sort(Comparator
-            .comparingInt((ScoredEntry se) -> se.score)
-            .thenComparingInt(se -> se.entry.priority())
-            .reversed());
-
-        // Return top results
-        return scored.stream()
-            .limit(maxResults)
-            .map(se -> se.entry)
-            .toList();
+    List<KnowledgeEntry> retrieve(String playerMessage, int maxResults, ModConfig.KnowledgeRanking ranking,
+                                  int minMatches) {
+        return retrieve(playerMessage, maxResults, ranking, minMatches, null, 1f);
     }
 
     /**
-     * Score how well an entry matches the query words.
-     * Higher score = more relevant.
+     * @param queryVector Unit-length embedding of the message, or null for no semantic search
+     * @param minSimilarity Cosine similarity an entry needs to be included by meaning alone
      */
-    private int scoreEntry(KnowledgeEntry entry, String[] queryWords) {
-        int matches = 0;
-
-        for (String keyword : entry.keywords()) {
-            String lowerKeyword = keyword.toLowerCase();
-            for (String queryWord : queryWords) {
-                // Check for exact match or partial match
-                if (queryWord.equals(lowerKeyword) ||
-                    queryWord.contains(lowerKeyword) ||
-                    lowerKeyword.contains(queryWord)) {
-                    matches++;
-                    break; // Only count each keyword once
+    List<KnowledgeEntry> retrieve(String playerMessage, int maxResults, ModConfig.KnowledgeRanking ranking,
+                                  int minMatches, float[] queryVector, float minSimilarity) {
+        if (entries.isEmpty() || playerMessage == null || playerMessage.isBlank()) {
+            return List.of();
+        }
+        return rank(scoreWords(playerMessage, ranking), maxResults, minMatches, queryVector, minSimilarity);
+    }
+
+    /**
+     * Keyword and full-text scores for one message
+     */
+    private record WordScores(KeywordIndex.Scores keywords, TextIndex.Scores text, boolean bm25) {}
+
+    private WordScores scoreWords(String playerMessage, ModConfig.KnowledgeRanking ranking) {
+        Tokenizer query = TOKENIZER.get().tokenize(playerMessage);
+        boolean bm25 = ranking == ModConfig.KnowledgeRanking.BM25;
+        return new WordScores(index.score(query), bm25 ? textIndex.score(query) : TextIndex.Scores.EMPTY, bm25);
+    }
+
+    private List<KnowledgeEntry> rank(WordScores words, int maxResults, int minMatches, float[] queryVector,
+                                      float minSimilarity) {
+        KeywordIndex.Scores keywords = words.keywords();
+        TextIndex.Scores text = words.text();
+        VectorIndex currentVectors = vectors;
+        VectorIndex.Matches semantic = queryVector != null && currentVectors != null
+            ? currentVectors.search(queryVector, SEMANTIC_CANDIDATES)
+            : VectorIndex.Matches.EMPTY;
+        boolean blended = words.bm25() || semantic.entries().length > 0;
+
+        // Walk the score lists (each in file order) together, keeping only the best few
+        TopEntries top = new TopEntries(maxResults);
+        int k = 0;
+        int t = 0;
+        int v = 0;
+        while (k < keywords.entries().length || t < text.entries().length || v < semantic.entries().length) {
+            int keywordEntry = k < keywords.entries().length ? keywords.entries()[k] : Integer.MAX_VALUE;
+            int textEntry = t < text.entries().length ? text.entries()[t] : Integer.MAX_VALUE;
+            int semanticEntry = v < semantic.entries().length ? semantic.entries()[v] : Integer.MAX_VALUE;
+            int entry = Math.min(keywordEntry, Math.min(textEntry, semanticEntry));
+            int matches = keywordEntry == entry ? keywords.counts()[k++] : 0;
+            float relevance = textEntry == entry ? text.scores()[t++] / text.best() : 0f;
+            float similarity = semanticEntry == entry ? semantic.similarities()[v++] : 0f;
+            boolean similar = similarity >= minSimilarity;
+
+            if (matches >= minMatches || relevance >= MIN_TEXT_RELEVANCE || similar) {
+                KnowledgeEntry knowledge = entries.get(entry);
+                double score = matches;
+                if (blended) {
+                    score += TEXT_WEIGHT * relevance + PRIORITY_WEIGHT * knowledge.priority();
+                    if (similar) {
+                        score += SEMANTIC_WEIGHT * similarity / semantic.best();
+                    }
                 }
+                top.offer(knowledge, score);
             }
         }
-
-        return matches;
+        return top.toList();
     }
 
     /**
@@ -175,7 +250,42 @@ public class KnowledgeBase {
     }
 
     /**
-     * Helper class for scoring entries during retrieval
+     * The highest scoring entries seen so far, by score then priority.
+     * On a tie the entry offered first (earlier in the file) stays ahead.
      */
-    private record ScoredEntry(KnowledgeEntry entry, int score) {}
+    private static final class TopEntries {
+        private final KnowledgeEntry[] entries;
+        private final double[] scores;
+        private int size = 0;
+
+        TopEntries(int limit) {
+            this.entries = new KnowledgeEntry[Math.max(0, limit)];
+            this.scores = new double[entries.length];
+        }
+
+        void offer(KnowledgeEntry entry, double score) {
+            int position = size;
+            while (position > 0 && ranksAbove(entry, score, position - 1)) {
+                position--;
+            }
+            if (position >= entries.length) {
+                return;
+            }
+            int moved = Math.min(size, entries.length - 1) - position;
+            System.arraycopy(entries, position, entries, position + 1, moved);
+            System.arraycopy(scores, position, scores, position + 1, moved);
+            entries[position] = entry;
+            scores[position] = score;
+            size = Math.min(size + 1, entries.length);
+        }
+
+        private boolean ranksAbove(KnowledgeEntry entry, double score, int index) {
+            return score > scores[index]
+                || (score == scores[index] && entry.priority() > entries[index].priority());
+        }
+
+        List<KnowledgeEntry> toList() {
+            return List.of(Arrays.copyOf(entries, size));
+        }
+    }
 }
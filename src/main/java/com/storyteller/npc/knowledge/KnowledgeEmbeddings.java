@@ -0,0 +1,204 @@
+package com.storyteller.npc.knowledge;
+
+import com.storyteller.StorytellerMod;
+import com.storyteller.config.ModConfig;
+import com.storyteller.llm.LLMManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes and stores embedding vectors for knowledge entries.
+ *
+ * Vectors are cached in the knowledge base's vector file by a hash of each entry's text, so
+ * a reload only embeds entries that are new or changed. Missing vectors are computed in
+ * batches in the LLM's background lane, and the knowledge base uses semantic search once
+ * all of them are ready.
+ */
+final class KnowledgeEmbeddings {
+
+    private static final int BATCH_SIZE = 32;
+    // Greetings and common questions repeat; oldest entries are dropped first
+    private static final int MAX_CACHED_QUERIES = 256;
+
+    private static volatile Embedder embedder;
+    private static final Map<String, float[]> queryCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+            return size() > MAX_CACHED_QUERIES;
+        }
+    };
+
+    private KnowledgeEmbeddings() {}
+
+    /**
+     * Pick up the configured embedder; call before indexing after a config change
+     */
+    static void configure() {
+        embedder = Embedder.fromConfig();
+        synchronized (queryCache) {
+            queryCache.clear();
+        }
+    }
+
+    static boolean isEnabled() {
+        return embedder != null;
+    }
+
+    /**
+     * Attach vectors to a freshly loaded knowledge base, embedding whatever the vector file
+     * does not already hold
+     */
+    static void index(KnowledgeBase kb, Path vectorFile) {
+        Embedder current = embedder;
+        if (current == null) {
+            return;
+        }
+
+        long modelKey = hash(current.model());
+        List<KnowledgeEntry> entries = kb.getEntries();
+        long[] hashes = new long[entries.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = hash(embeddingText(entries.get(i)));
+        }
+
+        float[][] vectors = new float[entries.size()][];
+        try {
+            VectorIndex cached = VectorIndex.open(vectorFile, modelKey);
+            if (cached != null && cached.holds(hashes)) {
+                kb.attachVectors(cached);
+                StorytellerMod.LOGGER.info("Knowledge base '{}': {} cached embeddings", kb.getCharacterId(), hashes.length);
+                return;
+            }
+            if (cached != null) {
+                Map<Long, Integer> rows = new HashMap<>();
+                for (int row = 0; row < cached.size(); row++) {
+                    rows.put(cached.hash(row), row);
+                }
+                for (int i = 0; i < hashes.length; i++) {
+                    Integer row = rows.get(hashes[i]);
+                    if (row != null) {
+                        vectors[i] = cached.vector(row);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            StorytellerMod.LOGGER.warn("Could not read cached embeddings {}: {}", vectorFile, e.getMessage());
+        }
+
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < vectors.length; i++) {
+            if (vectors[i] == null) {
+                missing.add(i);
+            }
+        }
+        StorytellerMod.LOGGER.info("Knowledge base '{}': embedding {} of {} entries in the background",
+            kb.getCharacterId(), missing.size(), entries.size());
+
+        // One background job per batch, so a preempted job only repeats one batch
+        LLMManager llmManager = StorytellerMod.getInstance().getLLMManager();
+        CompletableFuture<Void> done = CompletableFuture.completedFuture(null);
+        for (int start = 0; start < missing.size(); start += BATCH_SIZE) {
+            List<Integer> batch = missing.subList(start, Math.min(missing.size(), start + BATCH_SIZE));
+            List<String> texts = batch.stream().map(i -> embeddingText(entries.get(i))).toList();
+            done = done.thenCompose(v -> llmManager.runWhenIdle(() -> current.embed(texts)
+                .thenAccept(result -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        vectors[batch.get(i)] = VectorIndex.normalize(result[i]);
+                    }
+                })));
+        }
+
+        done.thenRun(() -> store(kb, vectorFile, modelKey, hashes, vectors))
+            .exceptionally(e -> {
+                StorytellerMod.LOGGER.warn("Embedding knowledge base '{}' failed, using keyword and text search only: {}",
+                    kb.getCharacterId(), e.getMessage());
+                return null;
+            });
+    }
+
+    private static void store(KnowledgeBase kb, Path vectorFile, long modelKey, long[] hashes, float[][] vectors) {
+        if (!KnowledgeManager.isCurrent(kb)) {
+            // Reloaded while embedding; the newer load writes its own file
+            return;
+        }
+        for (float[] vector : vectors) {
+            if (vector.length != vectors[0].length) {
+                throw new IllegalStateException("Embeddings have different dimensions");
+            }
+        }
+        try {
+            Path written;
+            VectorIndex index;
+            synchronized (KnowledgeEmbeddings.class) {
+                written = VectorIndex.write(vectorFile, modelKey, hashes, vectors);
+                index = VectorIndex.open(written, modelKey);
+            }
+            kb.attachVectors(index);
+            StorytellerMod.LOGGER.info("Knowledge base '{}': semantic search ready ({} vectors in {})",
+                kb.getCharacterId(), hashes.length, written.getFileName());
+        } catch (IOException e) {
+            StorytellerMod.LOGGER.warn("Could not write embeddings {}: {}", vectorFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Embed a player's question for semantic search. Completes with null, rather than
+     * failing, if the embedder is off, fails or takes longer than the configured
+     * queryEmbeddingTimeout. Recent questions are answered from a cache, including ones
+     * whose embedding arrived after the timeout.
+     */
+    static CompletableFuture<float[]> embedQuery(String text) {
+        Embedder current = embedder;
+        int timeoutMillis = ModConfig.COMMON.queryEmbeddingTimeout.get();
+        if (current == null || timeoutMillis == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        synchronized (queryCache) {
+            float[] cached = queryCache.get(text);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        CompletableFuture<float[]> embedded = current.embed(List.of(text)).thenApply(result -> {
+            float[] vector = VectorIndex.normalize(result[0]);
+            if (current == embedder) {
+                synchronized (queryCache) {
+                    queryCache.put(text, vector);
+                }
+            }
+            return vector;
+        });
+        // Time out a copy, so a late embedding still reaches the cache
+        return embedded.copy()
+            .completeOnTimeout(null, timeoutMillis, TimeUnit.MILLISECONDS)
+            .exceptionally(e -> {
+                StorytellerMod.LOGGER.debug("Query embedding failed: {}", e.getMessage());
+                return null;
+            });
+    }
+
+    private static String embeddingText(KnowledgeEntry entry) {
+        return entry.category() + ": " + entry.content();
+    }
+
+    /**
+     * 64-bit FNV-1a; stable across runs, unlike String.hashCode collisions at this scale
+     */
+    static long hash(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -6,18 +6,27 @@ import com.storyteller.config.ModConfig;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 /**
  * Manages knowledge bases for all characters.
- * Knowledge bases are loaded from JSON files in config/storyteller/knowledge/
+ * Knowledge bases are loaded from JSON files in config/storyteller/knowledge/,
+ * with their embeddings (if enabled) cached in a .vectors file next to each one.
  */
 public class KnowledgeManager {
 
+    // Ids listed per kind of change in reload logs; the rest are counted
+    private static final int MAX_LOGGED_IDS = 10;
+
     private static final Map<String, KnowledgeBase> knowledgeBases = new ConcurrentHashMap<>();
+    // Knowledge file -> character it was loaded for, to know what a deleted file held
+    private static final Map<Path, String> fileOwners = new ConcurrentHashMap<>();
     private static Path knowledgeDir;
 
     /**
@@ -25,7 +34,7 @@ public class KnowledgeManager {
      *
      * @param configDir The storyteller config directory
      */
-    public static void loadAll(Path configDir) {
+    public static synchronized void loadAll(Path configDir) {
         knowledgeDir = configDir.resolve("knowledge");
 
         try {
@@ -65,6 +74,8 @@ public class KnowledgeManager {
 
             // Clear existing knowledge bases
             knowledgeBases.clear();
+            fileOwners.clear();
+            KnowledgeEmbeddings.configure();
 
             // Load all JSON files
             if (Files.exists(knowledgeDir)) {
@@ -85,11 +96,25 @@ public class KnowledgeManager {
         KnowledgeBase kb = KnowledgeBase.load(file);
         if (kb != null && kb.getEntryCount() > 0) {
             knowledgeBases.put(kb.getCharacterId(), kb);
+            fileOwners.put(file, kb.getCharacterId());
             StorytellerMod.LOGGER.info("Loaded knowledge base for '{}' with {} entries",
                 kb.getCharacterId(), kb.getEntryCount());
+            KnowledgeEmbeddings.index(kb, vectorFile(file));
         }
     }
 
+    private static Path vectorFile(Path knowledgeFile) {
+        String name = knowledgeFile.getFileName().toString();
+        return knowledgeFile.resolveSibling(name.substring(0, name.length() - ".json".length()) + ".vectors");
+    }
+
+    /**
+     * Whether this knowledge base is still the loaded one for its character
+     */
+    static boolean isCurrent(KnowledgeBase kb) {
+        return knowledgeBases.get(kb.getCharacterId()) == kb;
+    }
+
     /**
      * Get the knowledge base for a specific character.
      *
@@ -109,7 +134,7 @@ public class KnowledgeManager {
      * @param characterId The character ID to reload
      * @return true if reload succeeded
      */
-    public static boolean reload(String characterId) {
+    public static synchronized boolean reload(String characterId) {
         if (knowledgeDir == null) {
             return false;
         }
@@ -123,12 +148,106 @@ public class KnowledgeManager {
         KnowledgeBase kb = KnowledgeBase.load(file);
         if (kb != null && kb.getEntryCount() > 0) {
             knowledgeBases.put(characterId, kb);
+            fileOwners.put(file, characterId);
+            KnowledgeEmbeddings.index(kb, vectorFile(file));
             return true;
         }
 
         return false;
     }
 
+    /**
+     * Reload a single knowledge file that was created, changed or deleted on disk.
+     * The file is parsed and indexed on the calling thread, then swapped in with one map
+     * update, so retrieval sees either the old knowledge base or the new one. If the file
+     * cannot be parsed (e.g. it is half-saved), the previous version stays loaded.
+     *
+     * @param file The knowledge JSON file
+     */
+    public static synchronized void reloadFile(Path file) {
+        String previousOwner = fileOwners.get(file);
+
+        if (!Files.exists(file)) {
+            if (previousOwner != null) {
+                fileOwners.remove(file);
+                KnowledgeBase removed = knowledgeBases.remove(previousOwner);
+                StorytellerMod.LOGGER.info("Knowledge base for '{}' removed with {} ({} entries)",
+                    previousOwner, file.getFileName(), removed != null ? removed.getEntryCount() : 0);
+            }
+            return;
+        }
+
+        KnowledgeBase kb = KnowledgeBase.load(file);
+        if (kb == null) {
+            StorytellerMod.LOGGER.warn("Keeping the previous knowledge from {} until it parses again", file.getFileName());
+            return;
+        }
+
+        String characterId = kb.getCharacterId();
+        if (previousOwner != null && !previousOwner.equals(characterId)) {
+            // The file now belongs to another character
+            knowledgeBases.remove(previousOwner);
+            StorytellerMod.LOGGER.info("Knowledge base for '{}' removed; {} now belongs to '{}'",
+                previousOwner, file.getFileName(), characterId);
+        }
+        if (kb.getEntryCount() == 0) {
+            fileOwners.remove(file);
+            if (knowledgeBases.remove(characterId) != null) {
+                StorytellerMod.LOGGER.info("Knowledge base for '{}' removed: {} has no entries", characterId, file.getFileName());
+            }
+            return;
+        }
+
+        fileOwners.put(file, characterId);
+        KnowledgeBase previous = knowledgeBases.put(characterId, kb);
+        StorytellerMod.LOGGER.info("Reloaded knowledge base for '{}' from {}: {}", characterId, file.getFileName(),
+            previous == null ? "new, " + kb.getEntryCount() + " entries" : describeChanges(previous.getEntries(), kb.getEntries()));
+        KnowledgeEmbeddings.index(kb, vectorFile(file));
+    }
+
+    /**
+     * Summarize the entries added, removed and changed between two versions of a knowledge
+     * base, matching entries by id
+     */
+    static String describeChanges(List<KnowledgeEntry> before, List<KnowledgeEntry> after) {
+        Map<String, KnowledgeEntry> remaining = new LinkedHashMap<>();
+        for (KnowledgeEntry entry : before) {
+            remaining.put(entry.id(), entry);
+        }
+
+        List<String> added = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        for (KnowledgeEntry entry : after) {
+            KnowledgeEntry old = remaining.remove(entry.id());
+            if (old == null) {
+                added.add(entry.id());
+            } else if (!old.equals(entry)) {
+                changed.add(entry.id());
+            }
+        }
+        List<String> removed = new ArrayList<>(remaining.keySet());
+
+        if (added.isEmpty() && removed.isEmpty() && changed.isEmpty()) {
+            return "no entries changed";
+        }
+        List<String> parts = new ArrayList<>();
+        describe(parts, added, "added");
+        describe(parts, removed, "removed");
+        describe(parts, changed, "changed");
+        return String.join(", ", parts);
+    }
+
+    private static void describe(List<String> parts, List<String> ids, String change) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String listed = String.join(", ", ids.subList(0, Math.min(ids.size(), MAX_LOGGED_IDS)));
+        if (ids.size() > MAX_LOGGED_IDS) {
+            listed += " and " + (ids.size() - MAX_LOGGED_IDS) + " more";
+        }
+        parts.add(ids.size() + " " + change + " (" + listed + ")");
+    }
+
     /**
      * Reload all knowledge bases.
      */
@@ -175,6 +294,28 @@ public class KnowledgeManager {
         return kb.retrieve(playerMessage, maxEntries);
     }
 
+    /**
+     * Retrieve knowledge for a character, searching by meaning as well when the
+     * knowledge base has embeddings.
+     *
+     * @param characterId The character ID
+     * @param playerMessage The player's message
+     * @return Future list of relevant knowledge entries, empty if no knowledge base
+     */
+    public static CompletableFuture<List<KnowledgeEntry>> retrieveAsync(String characterId, String playerMessage) {
+        if (!ModConfig.COMMON.enableKnowledge.get()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+
+        KnowledgeBase kb = knowledgeBases.get(characterId);
+        if (kb == null) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+
+        int maxEntries = ModConfig.COMMON.maxRetrievedEntries.get();
+        return kb.retrieveAsync(playerMessage, maxEntries);
+    }
+
     /**
      * Build a knowledge context string for injection into the system prompt.
      *
@@ -183,8 +324,21 @@ public class KnowledgeManager {
      * @return Knowledge context string, or null if no relevant knowledge
      */
     public static String buildKnowledgeContext(String characterId, String playerMessage) {
-        List<KnowledgeEntry> entries = retrieve(characterId, playerMessage);
+        return formatContext(retrieve(characterId, playerMessage));
+    }
+
+    /**
+     * Build a knowledge context string, including entries found by meaning.
+     *
+     * @param characterId The character ID
+     * @param playerMessage The player's message
+     * @return Future knowledge context string, completing with null if no relevant knowledge
+     */
+    public static CompletableFuture<String> buildKnowledgeContextAsync(String characterId, String playerMessage) {
+        return retrieveAsync(characterId, playerMessage).thenApply(KnowledgeManager::formatContext);
+    }
 
+    private static String formatContext(List<KnowledgeEntry> entries) {
         if (entries.isEmpty()) {
             return null;
         }
@@ -0,0 +1,134 @@
+package com.storyteller.npc.knowledge;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.storyteller.llm.HttpTransport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Embeddings from Ollama's {@code /api/embed} endpoint, e.g. with {@code nomic-embed-text}
+ */
+final class OllamaEmbedder implements Embedder {
+
+    private final String endpoint;
+    private final String model;
+    private final int timeoutSeconds;
+
+    OllamaEmbedder(String endpoint, String model, int timeoutSeconds) {
+        this.endpoint = endpoint;
+        this.model = model;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    @Override
+    public CompletableFuture<float[][]> embed(List<String> texts) {
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(endpoint + "/api/embed"))
+            .timeout(Duration.ofSeconds(timeoutSeconds))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(buildRequest(texts)))
+            .build();
+
+        return HttpTransport.shared().sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+            .thenApply(response -> {
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("Ollama embed request failed: HTTP " + response.statusCode()
+                        + " " + new String(response.body(), StandardCharsets.UTF_8));
+                }
+                float[][] vectors = parseEmbeddings(response.body());
+                if (vectors.length != texts.size()) {
+                    throw new IllegalStateException("Ollama returned " + vectors.length + " embeddings for "
+                        + texts.size() + " texts");
+                }
+                return vectors;
+            });
+    }
+
+    private String buildRequest(List<String> texts) {
+        StringWriter out = new StringWriter();
+        try (JsonWriter json = new JsonWriter(out)) {
+            json.beginObject();
+            json.name("model").value(model);
+            json.name("input").beginArray();
+            for (String text : texts) {
+                json.value(text);
+            }
+            json.endArray();
+            json.endObject();
+        } catch (IOException e) {
+            // Only the in-memory writer is written to
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Read {@code "embeddings": [[...], ...]} straight into float arrays, skipping everything else
+     */
+    private static float[][] parseEmbeddings(byte[] body) {
+        List<float[]> vectors = new ArrayList<>();
+        try (JsonReader json = new JsonReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8))) {
+            json.beginObject();
+            while (json.hasNext()) {
+                if (!json.nextName().equals("embeddings") || json.peek() != JsonToken.BEGIN_ARRAY) {
+                    json.skipValue();
+                    continue;
+                }
+                json.beginArray();
+                while (json.hasNext()) {
+                    FloatList vector = new FloatList();
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        vector.add((float) json.nextDouble());
+                    }
+                    json.endArray();
+                    vectors.add(vector.toArray());
+                }
+                json.endArray();
+            }
+            json.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return vectors.toArray(new float[0][]);
+    }
+
+    @Override
+    public String model() {
+        return "ollama:" + model;
+    }
+
+    /**
+     * Growable float array, so vectors are not read as boxed Floats
+     */
+    private static final class FloatList {
+        private float[] values = new float[1024];
+        private int size = 0;
+
+        void add(float value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        float[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.storyteller.npc.knowledge;
+
+/**
+ * Plain Java dot products, used when the Vector API is unavailable
+ */
+final class ScalarSimilarityKernel implements SimilarityKernel {
+
+    @Override
+    public void dotRows(float[] block, int rows, int dims, float[] query, float[] out) {
+        for (int row = 0; row < rows; row++) {
+            int base = row * dims;
+            float sum = 0f;
+            for (int i = 0; i < dims; i++) {
+                sum += block[base + i] * query[i];
+            }
+            out[row] = sum;
+        }
+    }
+}
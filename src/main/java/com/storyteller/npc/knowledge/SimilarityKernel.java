@@ -0,0 +1,31 @@
+package com.storyteller.npc.knowledge;
+
+import com.storyteller.StorytellerMod;
+
+/**
+ * Dot products of a query vector with a block of stored vectors, the inner loop of
+ * semantic search.
+ *
+ * Like local inference, the SIMD version needs {@code --add-modules jdk.incubator.vector};
+ * without it the scalar version is used.
+ */
+interface SimilarityKernel {
+
+    /**
+     * {@code out[row] = dot(block[row * dims .. +dims), query)} for each of {@code rows} rows
+     */
+    void dotRows(float[] block, int rows, int dims, float[] query, float[] out);
+
+    static SimilarityKernel create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // Loaded reflectively so that nothing touches the vector classes when the module is absent
+                return (SimilarityKernel) Class.forName("com.storyteller.npc.knowledge.VectorSimilarityKernel")
+                    .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                StorytellerMod.LOGGER.warn("Vector API present but unusable, using scalar semantic search: {}", e.toString());
+            }
+        }
+        return new ScalarSimilarityKernel();
+    }
+}
@@ -0,0 +1,111 @@
+package com.storyteller.npc.knowledge;
+
+import java.util.Arrays;
+
+/**
+ * Assigns ids 0, 1, 2... to distinct terms, and finds a term's id from a range of a char
+ * array, so a query can be looked up straight from the {@link Tokenizer}'s buffer without
+ * creating strings.
+ *
+ * Terms are added while an index is built and only looked up afterwards; lookups are safe
+ * from any number of threads once building is done.
+ */
+final class TermDictionary {
+
+    private char[] pool = new char[256];
+    private int poolSize = 0;
+    // Term id -> its characters in the pool
+    private int[] offsets = new int[16];
+    private int[] lengths = new int[16];
+    private int size = 0;
+    // Open addressing: slot -> term id + 1, or 0 if empty
+    private int[] slots = new int[32];
+
+    /**
+     * The id of a term, adding it if it is new
+     */
+    int add(CharSequence term) {
+        int length = term.length();
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = term.charAt(i);
+        }
+
+        int slot = find(chars, 0, length);
+        if (slots[slot] != 0) {
+            return slots[slot] - 1;
+        }
+
+        if (poolSize + length > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(poolSize + length, pool.length * 2));
+        }
+        System.arraycopy(chars, 0, pool, poolSize, length);
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+        offsets[size] = poolSize;
+        lengths[size] = length;
+        poolSize += length;
+        slots[slot] = ++size;
+
+        // Keep the table at most half full
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    /**
+     * The id of the term {@code chars[offset, offset + length)}, or -1 if it was never added
+     */
+    int id(char[] chars, int offset, int length) {
+        return slots[find(chars, offset, length)] - 1;
+    }
+
+    /**
+     * Number of terms
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * The slot holding the term, or the empty slot where it would go
+     */
+    private int find(char[] chars, int offset, int length) {
+        int mask = slots.length - 1;
+        int slot = hash(chars, offset, length) & mask;
+        while (slots[slot] != 0 && !matches(slots[slot] - 1, chars, offset, length)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean matches(int id, char[] chars, int offset, int length) {
+        return lengths[id] == length
+            && Arrays.equals(pool, offsets[id], offsets[id] + length, chars, offset, offset + length);
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hash(pool, offsets[id], lengths[id]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static int hash(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        // Spread the bits so that similar terms do not cluster in the table
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,213 @@
+package com.storyteller.npc.knowledge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BM25 full-text index over the content and category of knowledge entries, built once when
+ * a knowledge base is loaded.
+ *
+ * Each term has an id in a {@link TermDictionary} and one posting list of int values, the entry
+ * index in the upper 24 bits and the term's frequency in that entry (capped at 255) in the
+ * lower 8, so a query walks plain int arrays. In large knowledge bases, terms found in more
+ * than half of the entries say almost nothing about relevance and are skipped at query time,
+ * which keeps words like "the" from costing a pass over every entry.
+ */
+final class TextIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int TF_BITS = 8;
+    private static final int MAX_TF = (1 << TF_BITS) - 1;
+    // Posting lists shorter than this are always cheap enough to walk
+    private static final int COMMON_TERM_MIN_ENTRIES = 1000;
+
+    // Each thread scores into its own buffer, reused from one query to the next
+    private static final ThreadLocal<Accumulator> ACCUMULATOR = ThreadLocal.withInitial(Accumulator::new);
+
+    private final int entryCount;
+    private final TermDictionary terms;
+    // Term id -> posting list
+    private final int[][] postings;
+    // Per entry: K1 * (1 - B + B * length / average length), the length part of BM25
+    private final float[] lengthNorms;
+
+    TextIndex(List<KnowledgeEntry> entries) {
+        this.entryCount = entries.size();
+        this.lengthNorms = new float[entryCount];
+        this.terms = new TermDictionary();
+
+        Tokenizer tokenizer = new Tokenizer();
+        List<PostingList> building = new ArrayList<>();
+        // Term id -> occurrences in the current entry, and the terms seen in it
+        int[] termCounts = new int[64];
+        PostingList entryTerms = new PostingList();
+        int[] lengths = new int[entryCount];
+        long totalLength = 0;
+
+        for (int entry = 0; entry < entryCount; entry++) {
+            KnowledgeEntry knowledge = entries.get(entry);
+            entryTerms.size = 0;
+            int length = 0;
+            for (String text : new String[]{knowledge.content(), knowledge.category()}) {
+                tokenizer.tokenize(text);
+                for (int word = 0; word < tokenizer.size(); word++) {
+                    int term = terms.add(tokenizer.word(word));
+                    if (term == building.size()) {
+                        building.add(new PostingList());
+                    }
+                    if (term >= termCounts.length) {
+                        termCounts = Arrays.copyOf(termCounts, Math.max(term + 1, termCounts.length * 2));
+                    }
+                    if (termCounts[term]++ == 0) {
+                        entryTerms.add(term);
+                    }
+                    length++;
+                }
+            }
+            for (int i = 0; i < entryTerms.size; i++) {
+                int term = entryTerms.values[i];
+                building.get(term).add(entry << TF_BITS | Math.min(termCounts[term], MAX_TF));
+                termCounts[term] = 0;
+            }
+            lengths[entry] = length;
+            totalLength += length;
+        }
+
+        float averageLength = entryCount > 0 ? Math.max(1f, (float) totalLength / entryCount) : 1f;
+        for (int entry = 0; entry < entryCount; entry++) {
+            lengthNorms[entry] = K1 * (1 - B + B * lengths[entry] / averageLength);
+        }
+
+        this.postings = new int[building.size()][];
+        for (int term = 0; term < postings.length; term++) {
+            postings[term] = building.get(term).toArray();
+        }
+    }
+
+    /**
+     * Matching entries and their BM25 scores
+     *
+     * @param entries Entry indices, ascending
+     * @param scores BM25 score of the entry at the same position
+     * @param best The highest score, or 0 if nothing matched
+     */
+    record Scores(int[] entries, float[] scores, float best) {
+        static final Scores EMPTY = new Scores(new int[0], new float[0], 0f);
+    }
+
+    /**
+     * Score every entry containing at least one of the query words
+     *
+     * @param query The tokenized query; repeated words count once
+     */
+    Scores score(Tokenizer query) {
+        Accumulator acc = ACCUMULATOR.get();
+        acc.reset(entryCount, terms.size());
+
+        for (int word = 0; word < query.size(); word++) {
+            int term = query.termId(word, terms);
+            if (term < 0 || !acc.firstUse(term)) {
+                continue;
+            }
+            int[] list = postings[term];
+            if (list.length > COMMON_TERM_MIN_ENTRIES && list.length * 2 > entryCount) {
+                continue;
+            }
+
+            float idf = (float) Math.log(1 + (entryCount - list.length + 0.5) / (list.length + 0.5));
+            for (int posting : list) {
+                int entry = posting >>> TF_BITS;
+                int tf = posting & MAX_TF;
+                acc.add(entry, idf * tf * (K1 + 1) / (tf + lengthNorms[entry]));
+            }
+        }
+
+        return acc.finish();
+    }
+
+    /**
+     * Score per entry for one query, touching only the entries that match
+     */
+    private static final class Accumulator {
+        private float[] scores = new float[0];
+        private int[] touched = new int[64];
+        private int touchedCount = 0;
+        // Term id -> query number it was last used in; saves clearing between queries
+        private int[] usedIn = new int[0];
+        private int query = 0;
+
+        void reset(int entryCount, int termCount) {
+            if (scores.length < entryCount) {
+                scores = new float[entryCount];
+            }
+            if (usedIn.length < termCount) {
+                usedIn = new int[termCount];
+                query = 0;
+            }
+            if (++query == Integer.MAX_VALUE) {
+                Arrays.fill(usedIn, 0);
+                query = 1;
+            }
+            touchedCount = 0;
+        }
+
+        /**
+         * Whether this is the first time the query uses this term
+         */
+        boolean firstUse(int term) {
+            if (usedIn[term] == query) {
+                return false;
+            }
+            usedIn[term] = query;
+            return true;
+        }
+
+        void add(int entry, float score) {
+            if (scores[entry] == 0f) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = entry;
+            }
+            scores[entry] += score;
+        }
+
+        Scores finish() {
+            if (touchedCount == 0) {
+                return Scores.EMPTY;
+            }
+            int[] entries = Arrays.copyOf(touched, touchedCount);
+            Arrays.sort(entries);
+            float[] result = new float[entries.length];
+            float best = 0f;
+            for (int i = 0; i < entries.length; i++) {
+                result[i] = scores[entries[i]];
+                best = Math.max(best, result[i]);
+                // Leave the buffer zeroed for the next query
+                scores[entries[i]] = 0f;
+            }
+            return new Scores(entries, result, best);
+        }
+    }
+
+    /**
+     * Growable int array, so postings are not built from boxed Integers
+     */
+    private static final class PostingList {
+        int[] values = new int[2];
+        int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.storyteller.npc.knowledge;
+
+import java.util.Arrays;
+
+/**
+ * Splits text into lowercase words of the letters a-z and digits 0-9, the same way for
+ * queries and indexed content; every other character separates words.
+ *
+ * The words are written into one reusable char buffer rather than into strings, and looked
+ * up by position in a {@link TermDictionary}, so tokenizing a player's message allocates
+ * nothing once the buffers have grown to fit. An instance is not thread-safe; keep one per
+ * thread.
+ */
+final class Tokenizer {
+
+    // ASCII character -> its lowercase form if it is part of a word, 0 if it separates words
+    private static final char[] ASCII = new char[128];
+    private static final char DOTTED_CAPITAL_I = '\u0130';
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            ASCII[c] = c;
+            ASCII[c - 'a' + 'A'] = c;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            ASCII[c] = c;
+        }
+    }
+
+    private char[] chars = new char[256];
+    private int[] starts = new int[32];
+    private int[] ends = new int[32];
+    private int count = 0;
+
+    /**
+     * Tokenize {@code text}, replacing the previous words
+     *
+     * @return This tokenizer, holding the words
+     */
+    Tokenizer tokenize(CharSequence text) {
+        int length = text.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        count = 0;
+        int size = 0;
+        int start = -1;
+        for (int i = 0; i < length; i++) {
+            char original = text.charAt(i);
+            char c = normalize(original);
+            if (c != 0) {
+                if (start < 0) {
+                    start = size;
+                }
+                chars[size++] = c;
+                if (original == DOTTED_CAPITAL_I) {
+                    // Lowercases to 'i' and a combining dot, which ends the word
+                    addWord(start, size);
+                    start = -1;
+                }
+            } else if (start >= 0) {
+                addWord(start, size);
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            addWord(start, size);
+        }
+        return this;
+    }
+
+    private void addWord(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    private static char normalize(char c) {
+        if (c < 128) {
+            return ASCII[c];
+        }
+        // e.g. the Kelvin sign lowercases to 'k'; other letters are not part of words
+        char lower = Character.toLowerCase(c);
+        return lower >= 'a' && lower <= 'z' ? lower : 0;
+    }
+
+    /**
+     * Number of words
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * The buffer holding the words; word {@code i} is {@code [start(i), end(i))}
+     */
+    char[] chars() {
+        return chars;
+    }
+
+    int start(int word) {
+        return starts[word];
+    }
+
+    int end(int word) {
+        return ends[word];
+    }
+
+    int length(int word) {
+        return ends[word] - starts[word];
+    }
+
+    /**
+     * The id of a word in {@code terms}, or -1 if it is not there
+     */
+    int termId(int word, TermDictionary terms) {
+        return terms.id(chars, starts[word], ends[word] - starts[word]);
+    }
+
+    /**
+     * A word as a string, for building indexes
+     */
+    String word(int word) {
+        return new String(chars, starts[word], ends[word] - starts[word]);
+    }
+}
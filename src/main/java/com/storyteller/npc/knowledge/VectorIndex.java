@@ -0,0 +1,260 @@
+package com.storyteller.npc.knowledge;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Embedding vectors of a knowledge base, one per entry in file order, in a memory-mapped file
+ * next to the knowledge JSON.
+ *
+ * Layout (little-endian): magic, version, dimensions, count and a hash of the embedding model,
+ * then one content hash per entry, then the unit-length float32 vectors. The OS pages vectors
+ * in as they are searched, so even a large knowledge base costs little heap. Search is a
+ * brute-force scan: blocks of rows are copied out of the mapping and scored with SIMD dot
+ * products.
+ */
+final class VectorIndex {
+
+    private static final int MAGIC = 0x58565453; // "STVX" little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int BLOCK_ROWS = 256;
+
+    private static final SimilarityKernel KERNEL = SimilarityKernel.create();
+    // Each thread copies blocks into its own buffers, reused from one search to the next
+    private static final ThreadLocal<SearchBuffers> BUFFERS = ThreadLocal.withInitial(SearchBuffers::new);
+
+    private final int dimensions;
+    private final long[] hashes;
+    private final FloatBuffer vectors;
+
+    private VectorIndex(int dimensions, long[] hashes, FloatBuffer vectors) {
+        this.dimensions = dimensions;
+        this.hashes = hashes;
+        this.vectors = vectors;
+    }
+
+    /**
+     * Map a vector file
+     *
+     * @param modelKey Hash of the embedding model the vectors must come from
+     * @return The index, or null if the file is missing or holds vectors from another model
+     */
+    static VectorIndex open(Path file, long modelKey) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            int magic = header.getInt();
+            int version = header.getInt();
+            int dimensions = header.getInt();
+            int count = header.getInt();
+            long model = header.getLong();
+            if (magic != MAGIC || version != VERSION || model != modelKey || dimensions <= 0 || count < 0) {
+                return null;
+            }
+
+            long hashBytes = (long) count * Long.BYTES;
+            long vectorBytes = (long) count * dimensions * Float.BYTES;
+            if (channel.size() != HEADER_BYTES + hashBytes + vectorBytes) {
+                return null;
+            }
+
+            long[] hashes = new long[count];
+            channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, hashBytes)
+                .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(hashes);
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + hashBytes, vectorBytes);
+            return new VectorIndex(dimensions, hashes, data.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer());
+        }
+    }
+
+    /**
+     * Write a vector file, replacing any previous one once it is complete
+     *
+     * @return The path written, which is a temporary file next to {@code file} if the old file
+     *         could not be replaced (e.g. still mapped on Windows)
+     */
+    static Path write(Path file, long modelKey, long[] hashes, float[][] vectors) throws IOException {
+        int dimensions = vectors.length > 0 ? vectors[0].length : 0;
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(vectors.length).putLong(modelKey);
+            writeFully(channel, header.flip());
+
+            ByteBuffer hashBuffer = ByteBuffer.allocate(hashes.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            hashBuffer.asLongBuffer().put(hashes);
+            writeFully(channel, hashBuffer);
+
+            ByteBuffer row = ByteBuffer.allocate(dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (float[] vector : vectors) {
+                row.clear();
+                row.asFloatBuffer().put(vector);
+                writeFully(channel, row);
+            }
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return file;
+        } catch (IOException e) {
+            return temp;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    int size() {
+        return hashes.length;
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    long hash(int row) {
+        return hashes[row];
+    }
+
+    /**
+     * Whether this file holds vectors for exactly these entries, in this order
+     */
+    boolean holds(long[] contentHashes) {
+        return Arrays.equals(hashes, contentHashes);
+    }
+
+    /**
+     * A copy of one stored vector
+     */
+    float[] vector(int row) {
+        float[] vector = new float[dimensions];
+        vectors.get(row * dimensions, vector, 0, dimensions);
+        return vector;
+    }
+
+    /**
+     * The closest entries by cosine similarity
+     *
+     * @param entries Entry indices, ascending
+     * @param similarities Cosine similarity of the entry at the same position
+     * @param best The highest similarity
+     */
+    record Matches(int[] entries, float[] similarities, float best) {
+        static final Matches EMPTY = new Matches(new int[0], new float[0], 0f);
+    }
+
+    /**
+     * The {@code limit} entries most similar to a query vector of unit length
+     */
+    Matches search(float[] query, int limit) {
+        if (query.length != dimensions || hashes.length == 0 || limit <= 0) {
+            return Matches.EMPTY;
+        }
+
+        SearchBuffers buffers = BUFFERS.get();
+        float[] block = buffers.block(BLOCK_ROWS * dimensions);
+        float[] dots = buffers.dots(BLOCK_ROWS);
+
+        int[] topEntries = new int[Math.min(limit, hashes.length)];
+        float[] topScores = new float[topEntries.length];
+        Arrays.fill(topScores, Float.NEGATIVE_INFINITY);
+
+        for (int start = 0; start < hashes.length; start += BLOCK_ROWS) {
+            int rows = Math.min(BLOCK_ROWS, hashes.length - start);
+            vectors.get(start * dimensions, block, 0, rows * dimensions);
+            KERNEL.dotRows(block, rows, dimensions, query, dots);
+
+            for (int row = 0; row < rows; row++) {
+                float score = dots[row];
+                int last = topScores.length - 1;
+                if (score <= topScores[last]) {
+                    continue;
+                }
+                int position = last;
+                while (position > 0 && score > topScores[position - 1]) {
+                    topScores[position] = topScores[position - 1];
+                    topEntries[position] = topEntries[position - 1];
+                    position--;
+                }
+                topScores[position] = score;
+                topEntries[position] = start + row;
+            }
+        }
+
+        // Back into entry order, for merging with the other scores
+        float best = topScores[0];
+        int found = 0;
+        while (found < topScores.length && topScores[found] != Float.NEGATIVE_INFINITY) {
+            found++;
+        }
+        int[] entries = Arrays.copyOf(topEntries, found);
+        float[] similarities = Arrays.copyOf(topScores, found);
+        for (int i = 1; i < found; i++) {
+            for (int j = i; j > 0 && entries[j] < entries[j - 1]; j--) {
+                int entry = entries[j];
+                entries[j] = entries[j - 1];
+                entries[j - 1] = entry;
+                float similarity = similarities[j];
+                similarities[j] = similarities[j - 1];
+                similarities[j - 1] = similarity;
+            }
+        }
+        return new Matches(entries, similarities, best);
+    }
+
+    /**
+     * Scale a vector to unit length in place, so dot products are cosine similarities
+     */
+    static float[] normalize(float[] vector) {
+        double sum = 0;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        if (sum > 0) {
+            float scale = (float) (1 / Math.sqrt(sum));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    private static final class SearchBuffers {
+        private float[] block = new float[0];
+        private float[] dots = new float[0];
+
+        float[] block(int size) {
+            if (block.length < size) {
+                block = new float[size];
+            }
+            return block;
+        }
+
+        float[] dots(int size) {
+            if (dots.length < size) {
+                dots = new float[size];
+            }
+            return dots;
+        }
+    }
+}
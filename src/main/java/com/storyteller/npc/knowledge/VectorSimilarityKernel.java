@@ -0,0 +1,31 @@
+package com.storyteller.npc.knowledge;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD dot products using the Vector API
+ */
+final class VectorSimilarityKernel implements SimilarityKernel {
+
+    private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void dotRows(float[] block, int rows, int dims, float[] query, float[] out) {
+        int upper = F.loopBound(dims);
+        for (int row = 0; row < rows; row++) {
+            int base = row * dims;
+            FloatVector acc = FloatVector.zero(F);
+            int i = 0;
+            for (; i < upper; i += F.length()) {
+                acc = FloatVector.fromArray(F, block, base + i).fma(FloatVector.fromArray(F, query, i), acc);
+            }
+            float sum = acc.reduceLanes(VectorOperators.ADD);
+            for (; i < dims; i++) {
+                sum += block[base + i] * query[i];
+            }
+            out[row] = sum;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.storyteller.llm;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for CircuitBreaker
+ */
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong(0);
+
+    private CircuitBreaker newBreaker() {
+        // Opens at 50% errors or 50% timeouts, probes after 30s
+        return new CircuitBreaker("test", 50, 50, 30, clock::get);
+    }
+
+    @Test
+    @DisplayName("Breaker should stay closed below the minimum number of calls")
+    void shouldStayClosedWithFewCalls() {
+        CircuitBreaker breaker = newBreaker();
+
+        for (int i = 0; i < CircuitBreaker.MIN_CALLS - 1; i++) {
+            breaker.recordError();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Breaker should open when the error rate reaches the threshold")
+    void shouldOpenOnErrorRate() {
+        CircuitBreaker breaker = newBreaker();
+
+        breaker.recordSuccess();
+        breaker.recordSuccess();
+        breaker.recordError();
+        breaker.recordError();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.recordError();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Breaker should open when the timeout rate reaches the threshold")
+    void shouldOpenOnTimeoutRate() {
+        CircuitBreaker breaker = newBreaker();
+
+        for (int i = 0; i < 5; i++) {
+            breaker.recordSuccess();
+        }
+        for (int i = 0; i < 5; i++) {
+            breaker.recordTimeout();
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.getTransitions().get(0).contains("timeouts"));
+    }
+
+    @Test
+    @DisplayName("Open breaker should allow a single probe after the cooldown")
+    void shouldProbeAfterCooldown() {
+        CircuitBreaker breaker = newBreaker();
+        for (int i = 0; i < 5; i++) {
+            breaker.recordError();
+        }
+
+        clock.set(29_000);
+        assertFalse(breaker.tryAcquire());
+
+        clock.set(30_000);
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // Only one probe at a time
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Successful probe should close the breaker, failed probe should reopen it")
+    void shouldCloseOrReopenAfterProbe() {
+        CircuitBreaker breaker = newBreaker();
+        for (int i = 0; i < 5; i++) {
+            breaker.recordError();
+        }
+
+        clock.set(30_000);
+        assertTrue(breaker.tryAcquire());
+        breaker.recordTimeout();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        clock.set(60_000);
+        assertTrue(breaker.tryAcquire());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+
+        assertEquals(5, breaker.getTransitions().size());
+    }
+}
@@ -0,0 +1,192 @@
+package com.storyteller.llm;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for EndpointPool
+ *
+ * Each endpoint is a local stub HTTP server that answers with its own name
+ * after a configurable delay.
+ */
+class EndpointPoolTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpClient client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .executor(executor)
+        .build();
+
+    // When set, the next request to reach any server is held for a long time
+    private final AtomicBoolean stallNext = new AtomicBoolean(false);
+    // Status every server answers with
+    private final AtomicInteger status = new AtomicInteger(200);
+
+    private String startServer(String name, AtomicLong delayMillis) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            hits.computeIfAbsent(name, k -> new AtomicInteger()).incrementAndGet();
+            try {
+                Thread.sleep(stallNext.compareAndSet(true, false) ? 3000 : delayMillis.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = name.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status.get(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } catch (IOException e) {
+                // Client went away (cancelled attempt)
+            }
+        });
+        server.start();
+        servers.add(server);
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private CompletableFuture<String> send(EndpointPool.Endpoint endpoint) {
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(endpoint.getUrl() + "/chat")).GET().build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+            if (response.statusCode() != 200) {
+                throw new HttpStatusException(response.statusCode(), "HTTP " + response.statusCode());
+            }
+            return response.body();
+        });
+    }
+
+    private int hitCount(String name) {
+        AtomicInteger count = hits.get(name);
+        return count == null ? 0 : count.get();
+    }
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(server -> server.stop(0));
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Requests should go to the faster endpoint once latencies are known")
+    void shouldPreferFasterEndpoint() throws Exception {
+        String fast = startServer("fast", new AtomicLong(5));
+        String slow = startServer("slow", new AtomicLong(150));
+        EndpointPool pool = new EndpointPool(List.of(slow, fast), false, executor);
+
+        // The first two requests try each endpoint once
+        for (int i = 0; i < 2; i++) {
+            pool.execute(null, (endpoint, sink) -> send(endpoint)).get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(1, hitCount("fast"));
+        assertEquals(1, hitCount("slow"));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("fast", pool.execute(null, (endpoint, sink) -> send(endpoint)).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, hitCount("slow"));
+    }
+
+    @Test
+    @DisplayName("In-flight requests should be counted per endpoint")
+    void shouldTrackInFlight() throws Exception {
+        String url = startServer("only", new AtomicLong(200));
+        EndpointPool pool = new EndpointPool(List.of(url), false, executor);
+        EndpointPool.Endpoint endpoint = pool.getEndpoints().get(0);
+
+        CompletableFuture<String> first = pool.execute(null, (e, sink) -> send(e));
+        CompletableFuture<String> second = pool.execute(null, (e, sink) -> send(e));
+        assertEquals(2, endpoint.getInFlight());
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(0, endpoint.getInFlight());
+        assertTrue(endpoint.getEwmaMillis() > 0);
+    }
+
+    @Test
+    @DisplayName("A stalled request should be hedged to another endpoint and the loser cancelled")
+    void shouldHedgeSlowRequest() throws Exception {
+        String a = startServer("a", new AtomicLong(5));
+        String b = startServer("b", new AtomicLong(5));
+        EndpointPool pool = new EndpointPool(List.of(a, b), true, executor);
+
+        // Enough samples for a p95 hedge delay
+        for (int i = 0; i < 25; i++) {
+            pool.execute(null, (endpoint, sink) -> send(endpoint)).get(5, TimeUnit.SECONDS);
+        }
+        assertTrue(pool.getHedgeDelayMillis(false) > 0);
+        assertEquals(-1, pool.getHedgeDelayMillis(true), "streamed requests have their own samples");
+
+        List<CompletableFuture<String>> attempts = new ArrayList<>();
+        stallNext.set(true);
+        long start = System.nanoTime();
+        CompletableFuture<String> result = pool.execute(null, (endpoint, sink) -> {
+            CompletableFuture<String> attempt = send(endpoint);
+            synchronized (attempts) {
+                attempts.add(attempt);
+            }
+            return attempt;
+        });
+
+        assertNotNull(result.get(5, TimeUnit.SECONDS));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMillis < 2000, "hedged request took " + elapsedMillis + "ms");
+
+        CompletableFuture<String> stalled;
+        synchronized (attempts) {
+            assertEquals(2, attempts.size());
+            stalled = attempts.get(0);
+        }
+        // The loser is cancelled right after the result completes, well before its server answers
+        Throwable error = stalled.handle((response, e) -> e).get(1, TimeUnit.SECONDS);
+        assertTrue(error instanceof CancellationException || error.getCause() instanceof CancellationException,
+            "stalled attempt should be cancelled, got " + error);
+    }
+
+    @Test
+    @DisplayName("Only server errors should take an endpoint out of rotation, not rejected requests")
+    void shouldIgnoreClientErrors() throws Exception {
+        String url = startServer("only", new AtomicLong(0));
+        EndpointPool pool = new EndpointPool(List.of(url), false, executor);
+        EndpointPool.Endpoint endpoint = pool.getEndpoints().get(0);
+
+        status.set(400);
+        for (int i = 0; i < 5; i++) {
+            CompletableFuture<String> result = pool.execute(null, (e, sink) -> send(e));
+            assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+        }
+        assertTrue(endpoint.isHealthy(System.currentTimeMillis()));
+
+        status.set(503);
+        for (int i = 0; i < 3; i++) {
+            CompletableFuture<String> result = pool.execute(null, (e, sink) -> send(e));
+            assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+        }
+        assertFalse(endpoint.isHealthy(System.currentTimeMillis()));
+    }
+}
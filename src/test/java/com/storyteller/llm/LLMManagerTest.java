@@ -204,10 +204,10 @@ class LLMManagerTest {
         }
 
         @Override
-        public CompletableFuture<String> chat(String systemPrompt, List<ChatMessage> messages) {
+        public CompletableFuture<String> chat(LLMRequest request) {
             this.chatCalled = true;
-            this.lastSystemPrompt = systemPrompt;
-            this.lastMessages = messages;
+            this.lastSystemPrompt = request.getSystemPrompt().getText();
+            this.lastMessages = request.getMessages();
             return CompletableFuture.completedFuture(response);
         }
 
@@ -0,0 +1,36 @@
+package com.storyteller.llm;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ModelRouter
+ */
+class ModelRouterTest {
+
+    private static final int MAX_CHARS = 80;
+
+    @Test
+    @DisplayName("Greetings and short small talk should use the fast tier")
+    void shouldRouteSmallTalkToFastTier() {
+        assertEquals(ModelTier.FAST, ModelRouter.classify(true, "Greet the player", false, false, MAX_CHARS));
+        assertEquals(ModelTier.FAST, ModelRouter.classify(false, "hi there!", false, false, MAX_CHARS));
+    }
+
+    @Test
+    @DisplayName("Long messages should use the full tier")
+    void shouldRouteLongMessagesToFullTier() {
+        String message = "Can you tell me everything you remember about the old mine and why the villagers left it?";
+        assertTrue(message.length() > MAX_CHARS);
+        assertEquals(ModelTier.FULL, ModelRouter.classify(false, message, false, false, MAX_CHARS));
+    }
+
+    @Test
+    @DisplayName("Knowledge hits and quests should use the full tier even for short messages")
+    void shouldRouteKnowledgeAndQuestsToFullTier() {
+        assertEquals(ModelTier.FULL, ModelRouter.classify(false, "the mine?", true, false, MAX_CHARS));
+        assertEquals(ModelTier.FULL, ModelRouter.classify(false, "done!", false, true, MAX_CHARS));
+        assertEquals(ModelTier.FULL, ModelRouter.classify(true, "Greet the player", false, true, MAX_CHARS));
+    }
+}
@@ -0,0 +1,107 @@
+package com.storyteller.llm;
+
+import com.storyteller.llm.LLMProvider.ChatMessage;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PromptBudget
+ */
+class PromptBudgetTest {
+
+    private static String lines(String prefix, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(prefix).append(" line number ").append(i).append(" with some padding text\n");
+        }
+        return sb.toString();
+    }
+
+    private static List<ChatMessage> conversation(int turns) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int i = 0; i < turns; i++) {
+            messages.add(new ChatMessage(ChatMessage.Role.USER, "Question " + i + " " + "x".repeat(200)));
+            messages.add(new ChatMessage(ChatMessage.Role.ASSISTANT, "Answer " + i + " " + "y".repeat(200)));
+        }
+        messages.add(new ChatMessage(ChatMessage.Role.USER, "Latest question"));
+        return messages;
+    }
+
+    @Test
+    @DisplayName("A request within budget should be left unchanged")
+    void shouldKeepSmallRequest() {
+        SystemPrompt prompt = new SystemPrompt()
+            .addStatic("character", "You are Bob.")
+            .addDynamic("world", "It is raining.");
+        List<ChatMessage> messages = conversation(2);
+
+        PromptBudget.Fitted fitted = new PromptBudget(4096).fit(prompt, messages);
+
+        assertEquals(prompt.getText(), fitted.systemPrompt().getText());
+        assertEquals(messages, fitted.messages());
+    }
+
+    @Test
+    @DisplayName("An NPC greeting opening the history should be kept when nothing is trimmed")
+    void shouldKeepGreeting() {
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(new ChatMessage(ChatMessage.Role.ASSISTANT, "Well met, traveler!"));
+        messages.addAll(conversation(2));
+
+        PromptBudget.Fitted fitted = new PromptBudget(4096).fit(SystemPrompt.of("You are Bob."), messages);
+
+        assertEquals(messages, fitted.messages());
+    }
+
+    @Test
+    @DisplayName("Dynamic sections should be capped at their share, keeping whole leading lines")
+    void shouldCapSections() {
+        SystemPrompt prompt = new SystemPrompt()
+            .addStatic("character", "You are Bob.")
+            .addDynamic("knowledge", lines("fact", 500));
+
+        PromptBudget.Fitted fitted = new PromptBudget(2048).fit(prompt, conversation(0));
+
+        String knowledge = fitted.systemPrompt().getSegments().get(1).text();
+        assertTrue(knowledge.startsWith("fact line number 0 "));
+        assertTrue(knowledge.endsWith("padding text"));
+        // 25% of what is left after the reply reserve and fixed parts
+        assertTrue(PromptBudget.estimateTokens(knowledge) <= (2048 - PromptBudget.RESPONSE_RESERVE_TOKENS) / 4);
+    }
+
+    @Test
+    @DisplayName("Oldest history should be dropped first, keeping the character and the latest message")
+    void shouldTrimOldestHistory() {
+        SystemPrompt prompt = new SystemPrompt()
+            .addStatic("character", lines("persona", 20))
+            .addDynamic("events", lines("event", 10))
+            .addDynamic("quests", "## Quests\n- Find the lost cat");
+        List<ChatMessage> messages = conversation(40);
+
+        PromptBudget.Fitted fitted = new PromptBudget(2048).fit(prompt, messages);
+        List<ChatMessage> kept = fitted.messages();
+
+        assertEquals("character", fitted.systemPrompt().getSegments().get(0).name());
+        assertTrue(fitted.systemPrompt().getText().contains("Find the lost cat"));
+        assertFalse(fitted.systemPrompt().getText().contains("event line"), "events are dropped before history");
+
+        assertTrue(kept.size() < messages.size());
+        assertEquals("Latest question", kept.get(kept.size() - 1).content());
+        assertEquals(ChatMessage.Role.USER, kept.get(0).role());
+        assertEquals(messages.get(messages.size() - 2).content(), kept.get(kept.size() - 2).content());
+    }
+
+    @Test
+    @DisplayName("A plain prompt string should be kept whole, not capped like a dynamic section")
+    void shouldKeepPlainPrompt() {
+        String text = lines("rule", 40);
+
+        PromptBudget.Fitted fitted = new PromptBudget(2048).fit(SystemPrompt.of(text), conversation(0));
+
+        assertEquals(text.strip(), fitted.systemPrompt().getText());
+    }
+}
@@ -0,0 +1,125 @@
+package com.storyteller.llm;
+
+import com.storyteller.llm.LLMProvider.ChatMessage;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for RequestCoalescer
+ *
+ * Shared calls complete only when the test completes them, so requests can be
+ * made while one is still in flight.
+ */
+class RequestCoalescerTest {
+
+    private final List<LLMRequest> started = new ArrayList<>();
+    private final List<CompletableFuture<String>> calls = new ArrayList<>();
+    private final AtomicLong clock = new AtomicLong(0);
+
+    private CompletableFuture<String> start(LLMRequest request) {
+        started.add(request);
+        CompletableFuture<String> call = new CompletableFuture<>();
+        calls.add(call);
+        return call;
+    }
+
+    private static LLMRequest greeting(String playerMessage) {
+        return new LLMRequest("You are Merlin.", List.of(new ChatMessage(ChatMessage.Role.USER, playerMessage)));
+    }
+
+    @Test
+    @DisplayName("Identical requests in flight together should share one call")
+    void shouldShareIdenticalRequests() {
+        RequestCoalescer coalescer = new RequestCoalescer(0, clock::get);
+
+        CompletableFuture<String> first = coalescer.submit(greeting("Hello"), this::start);
+        CompletableFuture<String> second = coalescer.submit(greeting("Hello"), this::start);
+        CompletableFuture<String> other = coalescer.submit(greeting("Goodbye"), this::start);
+
+        assertEquals(2, started.size());
+        assertEquals(1, coalescer.getCoalesced());
+
+        calls.get(0).complete("Well met!");
+        assertEquals("Well met!", first.join());
+        assertEquals("Well met!", second.join());
+        assertFalse(other.isDone());
+
+        // Once finished, the next identical request makes a new call (no cache)
+        coalescer.submit(greeting("Hello"), this::start);
+        assertEquals(3, started.size());
+    }
+
+    @Test
+    @DisplayName("A request joining a stream late should get the tokens so far, then the rest")
+    void shouldReplayStreamedTokens() {
+        RequestCoalescer coalescer = new RequestCoalescer(0, clock::get);
+        StringBuilder firstSeen = new StringBuilder();
+        StringBuilder secondSeen = new StringBuilder();
+
+        coalescer.submit(greeting("Hello").onToken(firstSeen::append), this::start);
+        started.get(0).getOnToken().accept("Well ");
+        CompletableFuture<String> second = coalescer.submit(greeting("Hello").onToken(secondSeen::append), this::start);
+        started.get(0).getOnToken().accept("met!");
+        calls.get(0).complete("Well met!");
+
+        assertEquals(1, started.size());
+        assertEquals("Well met!", firstSeen.toString());
+        assertEquals("Well met!", secondSeen.toString());
+        assertEquals("Well met!", second.join());
+    }
+
+    @Test
+    @DisplayName("Streaming and non-streaming requests should not be coalesced")
+    void shouldKeepStreamingSeparate() {
+        RequestCoalescer coalescer = new RequestCoalescer(0, clock::get);
+
+        coalescer.submit(greeting("Hello"), this::start);
+        coalescer.submit(greeting("Hello").onToken(token -> {}), this::start);
+
+        assertEquals(2, started.size());
+    }
+
+    @Test
+    @DisplayName("The shared call should only be cancelled once every request is cancelled")
+    void shouldCancelWhenAllCancelled() {
+        RequestCoalescer coalescer = new RequestCoalescer(0, clock::get);
+
+        CompletableFuture<String> first = coalescer.submit(greeting("Hello"), this::start);
+        CompletableFuture<String> second = coalescer.submit(greeting("Hello"), this::start);
+
+        first.cancel(true);
+        assertFalse(calls.get(0).isCancelled());
+
+        second.cancel(true);
+        assertTrue(calls.get(0).isCancelled());
+    }
+
+    @Test
+    @DisplayName("Cached replies should be reused until they expire, but errors never cached")
+    void shouldCacheRepliesForTtl() {
+        RequestCoalescer coalescer = new RequestCoalescer(10, clock::get);
+
+        coalescer.submit(greeting("Hello"), this::start);
+        calls.get(0).complete("Well met!");
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertEquals("Well met!", coalescer.submit(greeting("Hello"), this::start).join());
+        assertEquals(1, started.size());
+        assertEquals(1, coalescer.getCacheHits());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        coalescer.submit(greeting("Hello"), this::start);
+        assertEquals(2, started.size());
+
+        calls.get(1).completeExceptionally(new LLMProviderException("Ollama returned an empty reply"));
+        coalescer.submit(greeting("Hello"), this::start);
+        assertEquals(3, started.size());
+    }
+}
@@ -0,0 +1,262 @@
+package com.storyteller.llm;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for RequestScheduler
+ *
+ * Tasks complete only when the test completes their future, so the order
+ * in which the scheduler starts them can be observed directly.
+ */
+class RequestSchedulerTest {
+
+    private static final UUID ALICE = UUID.randomUUID();
+    private static final UUID BOB = UUID.randomUUID();
+
+    private final List<String> started = new ArrayList<>();
+    private final List<CompletableFuture<String>> running = new ArrayList<>();
+    private final AtomicLong clock = new AtomicLong(0);
+
+    private RequestScheduler newScheduler(int maxQueued, int messagesPerMinute, int capacity) {
+        // Direct executor keeps everything on the test thread
+        return new RequestScheduler(maxQueued, messagesPerMinute, () -> capacity, Runnable::run, clock::get);
+    }
+
+    private CompletableFuture<String> submit(RequestScheduler scheduler, String name, UUID player, RequestPriority priority) {
+        LLMRequest request = new LLMRequest(name, List.of()).forPlayer(player).withPriority(priority);
+        return scheduler.submit(request, () -> {
+            started.add(name);
+            CompletableFuture<String> future = new CompletableFuture<>();
+            running.add(future);
+            return future;
+        });
+    }
+
+    private void finishOldest() {
+        running.remove(0).complete("done");
+    }
+
+    @Test
+    @DisplayName("Requests should start immediately while there is capacity")
+    void shouldStartImmediatelyWithCapacity() {
+        RequestScheduler scheduler = newScheduler(10, 0, 2);
+
+        submit(scheduler, "a", ALICE, RequestPriority.CHAT);
+        submit(scheduler, "b", BOB, RequestPriority.CHAT);
+
+        assertEquals(List.of("a", "b"), started);
+        assertEquals(2, scheduler.getRunning());
+        assertEquals(0, scheduler.getQueued());
+    }
+
+    @Test
+    @DisplayName("Result should complete with the task's response")
+    void resultShouldCompleteWithResponse() {
+        RequestScheduler scheduler = newScheduler(10, 0, 1);
+
+        CompletableFuture<String> result = submit(scheduler, "a", ALICE, RequestPriority.CHAT);
+        finishOldest();
+
+        assertEquals("done", result.join());
+        assertEquals(0, scheduler.getRunning());
+    }
+
+    @Test
+    @DisplayName("Chat should be served before greetings and background work")
+    void chatShouldBeServedFirst() {
+        RequestScheduler scheduler = newScheduler(10, 0, 1);
+
+        submit(scheduler, "blocker", ALICE, RequestPriority.CHAT);
+        submit(scheduler, "background", null, RequestPriority.BACKGROUND);
+        submit(scheduler, "greeting", BOB, RequestPriority.GREETING);
+        submit(scheduler, "chat", BOB, RequestPriority.CHAT);
+
+        finishOldest();
+        finishOldest();
+        finishOldest();
+
+        assertEquals(List.of("blocker", "chat", "greeting", "background"), started);
+    }
+
+    @Test
+    @DisplayName("Players should take turns within a priority class")
+    void playersShouldTakeTurns() {
+        RequestScheduler scheduler = newScheduler(10, 0, 1);
+
+        submit(scheduler, "blocker", ALICE, RequestPriority.CHAT);
+        submit(scheduler, "alice-1", ALICE, RequestPriority.CHAT);
+        submit(scheduler, "alice-2", ALICE, RequestPriority.CHAT);
+        submit(scheduler, "alice-3", ALICE, RequestPriority.CHAT);
+        submit(scheduler, "bob-1", BOB, RequestPriority.CHAT);
+
+        for (int i = 0; i < 4; i++) {
+            finishOldest();
+        }
+
+        assertEquals(List.of("blocker", "alice-1", "bob-1", "alice-2", "alice-3"), started);
+    }
+
+    @Test
+    @DisplayName("Queue position callbacks should report place in line")
+    void shouldReportQueuePosition() {
+        RequestScheduler scheduler = newScheduler(10, 0, 1);
+        AtomicInteger position = new AtomicInteger(-1);
+
+        submit(scheduler, "blocker", ALICE, RequestPriority.CHAT);
+        submit(scheduler, "alice-1", ALICE, RequestPriority.CHAT);
+        submit(scheduler, "alice-2", ALICE, RequestPriority.CHAT);
+        scheduler.submit(
+            new LLMRequest("mine", List.of()).forPlayer(BOB).onQueuePosition(position::set),
+            () -> new CompletableFuture<>()
+        );
+
+        // Round robin puts Bob's request ahead of Alice's second one
+        assertEquals(2, position.get());
+
+        finishOldest();
+        assertEquals(1, position.get());
+
+        finishOldest();
+        assertEquals(0, position.get());
+    }
+
+    @Test
+    @DisplayName("Token bucket should reject chat over the per-minute limit and refill over time")
+    void tokenBucketShouldLimitChat() {
+        RequestScheduler scheduler = newScheduler(10, 2, 10);
+
+        submit(scheduler, "1", ALICE, RequestPriority.CHAT);
+        submit(scheduler, "2", ALICE, RequestPriority.CHAT);
+        CompletableFuture<String> third = submit(scheduler, "3", ALICE, RequestPriority.CHAT);
+
+        CompletionException e = assertThrows(CompletionException.class, third::join);
+        assertInstanceOf(LLMRequestRejectedException.class, e.getCause());
+
+        // Other players and greetings are not affected
+        assertFalse(submit(scheduler, "bob", BOB, RequestPriority.CHAT).isCompletedExceptionally());
+        assertFalse(submit(scheduler, "greeting", ALICE, RequestPriority.GREETING).isCompletedExceptionally());
+
+        // Half a minute refills one token at 2 per minute
+        clock.addAndGet(30_000_000_000L);
+        assertFalse(submit(scheduler, "4", ALICE, RequestPriority.CHAT).isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("Full queue should drop lower-priority work for chat")
+    void fullQueueShouldEvictLowerPriority() {
+        RequestScheduler scheduler = newScheduler(1, 0, 1);
+
+        submit(scheduler, "blocker", ALICE, RequestPriority.CHAT);
+        CompletableFuture<String> background = submit(scheduler, "background", null, RequestPriority.BACKGROUND);
+        CompletableFuture<String> chat = submit(scheduler, "chat", BOB, RequestPriority.CHAT);
+
+        assertTrue(background.isCompletedExceptionally());
+        assertFalse(chat.isDone());
+
+        // Nothing lower to drop - new background work is refused
+        CompletableFuture<String> more = submit(scheduler, "more", null, RequestPriority.BACKGROUND);
+        assertTrue(more.isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("Cancelled requests should be skipped")
+    void cancelledRequestsShouldBeSkipped() {
+        RequestScheduler scheduler = newScheduler(10, 0, 1);
+
+        submit(scheduler, "blocker", ALICE, RequestPriority.CHAT);
+        submit(scheduler, "cancelled", BOB, RequestPriority.CHAT).cancel(false);
+        submit(scheduler, "next", ALICE, RequestPriority.CHAT);
+
+        finishOldest();
+
+        assertEquals(List.of("blocker", "next"), started);
+    }
+
+    @Test
+    @DisplayName("Cancelling a waiting request should free its place in line")
+    void cancellingWaitingRequestShouldLeaveQueue() {
+        RequestScheduler scheduler = newScheduler(10, 0, 1);
+
+        submit(scheduler, "blocker", ALICE, RequestPriority.CHAT);
+        CompletableFuture<String> cancelled = submit(scheduler, "cancelled", BOB, RequestPriority.CHAT);
+        assertEquals(1, scheduler.getQueued());
+
+        cancelled.cancel(true);
+
+        assertEquals(0, scheduler.getQueued());
+    }
+
+    @Test
+    @DisplayName("Cancelling a running request should cancel its task")
+    void cancellingRunningRequestShouldCancelTask() {
+        RequestScheduler scheduler = newScheduler(10, 0, 1);
+
+        CompletableFuture<String> result = submit(scheduler, "running", ALICE, RequestPriority.CHAT);
+        submit(scheduler, "next", BOB, RequestPriority.CHAT);
+
+        result.cancel(true);
+
+        assertTrue(running.get(0).isCancelled());
+        // The slot was freed for the next request
+        assertEquals(List.of("running", "next"), started);
+    }
+
+    @Test
+    @DisplayName("Background work should wait for the foreground to go idle, even with spare capacity")
+    void backgroundShouldWaitForIdle() {
+        RequestScheduler scheduler = newScheduler(10, 0, 4);
+
+        submit(scheduler, "chat", ALICE, RequestPriority.CHAT);
+        submit(scheduler, "background", null, RequestPriority.BACKGROUND);
+        assertEquals(List.of("chat"), started);
+
+        finishOldest();
+        assertEquals(List.of("chat", "background"), started);
+    }
+
+    @Test
+    @DisplayName("Foreground requests should preempt background work, which starts over later")
+    void foregroundShouldPreemptBackground() {
+        RequestScheduler scheduler = newScheduler(10, 0, 1);
+
+        CompletableFuture<String> background = submit(scheduler, "background", null, RequestPriority.BACKGROUND);
+        CompletableFuture<String> firstAttempt = running.get(0);
+        submit(scheduler, "chat", ALICE, RequestPriority.CHAT);
+
+        assertTrue(firstAttempt.isCancelled());
+        assertFalse(background.isDone());
+        assertEquals(List.of("background", "chat"), started);
+        assertEquals(1, scheduler.getPreempted());
+
+        running.remove(firstAttempt);
+        finishOldest();
+        assertEquals(List.of("background", "chat", "background"), started);
+
+        finishOldest();
+        assertEquals("done", background.join());
+    }
+
+    @Test
+    @DisplayName("Shutdown should fail waiting requests")
+    void shutdownShouldFailWaiting() {
+        RequestScheduler scheduler = newScheduler(10, 0, 1);
+
+        submit(scheduler, "blocker", ALICE, RequestPriority.CHAT);
+        CompletableFuture<String> waiting = submit(scheduler, "waiting", BOB, RequestPriority.CHAT);
+
+        scheduler.shutdown();
+
+        assertTrue(waiting.isCompletedExceptionally());
+        assertEquals(0, scheduler.getQueued());
+    }
+}
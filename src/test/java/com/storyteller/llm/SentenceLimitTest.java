@@ -0,0 +1,32 @@
+package com.storyteller.llm;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SentenceLimit
+ */
+class SentenceLimitTest {
+
+    @Test
+    @DisplayName("Stream should be cut after the last allowed sentence, even mid-fragment")
+    void shouldCutStreamAtLimit() {
+        SentenceLimit limit = new SentenceLimit(2);
+
+        assertEquals("Greetings, traveler.", limit.accept("Greetings, traveler."));
+        assertEquals(" The road", limit.accept(" The road"));
+        assertEquals(" is long!\"", limit.accept(" is long!\" Beware"));
+        assertTrue(limit.isReached());
+        assertNull(limit.accept(" the mines."));
+        assertEquals("Greetings, traveler. The road is long!\"", limit.getText());
+    }
+
+    @Test
+    @DisplayName("Punctuation not followed by whitespace should not end a sentence")
+    void shouldNotCountFalseBoundaries() {
+        assertEquals("It costs 3.5 gold.", SentenceLimit.truncate("It costs 3.5 gold. Deal?", 1));
+        assertEquals("Wait...what?!", SentenceLimit.truncate("Wait...what?! No.", 1));
+        assertEquals("Short reply.", SentenceLimit.truncate("Short reply.", 2));
+    }
+}
@@ -0,0 +1,289 @@
+package com.storyteller.llm.local;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the in-process inference engine, using a tiny randomly initialized model
+ */
+class LocalInferenceTest {
+
+    private static final int DIM = 64;
+    private static final int HIDDEN = 128;
+    private static final int LAYERS = 2;
+    private static final int HEADS = 4;
+    private static final int KV_HEADS = 2;
+    private static final int VOCAB = 50;
+
+    @TempDir
+    Path tempDir;
+
+    private final Random random = new Random(42);
+
+    @Test
+    @DisplayName("Batched prompt evaluation and cached sessions should match token-by-token evaluation")
+    void shouldMatchTokenByTokenEvaluation() throws IOException {
+        Path path = writeTinyModel();
+        try (GGUFFile file = GGUFFile.open(path)) {
+            LlamaModel model = LlamaModel.load(file, 64, 2);
+            // Longer than a new session's cache, so evaluation and copying both grow it
+            int[] tokens = new int[LlamaModel.INITIAL_CACHE_POSITIONS + 18];
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = random.nextInt(VOCAB);
+            }
+
+            LlamaModel.Session sequential = model.newSession();
+            float[] expected = null;
+            for (int pos = 0; pos < tokens.length; pos++) {
+                expected = model.forward(sequential, tokens, pos, 1, pos).clone();
+            }
+
+            // Prefix in one batch, then continue the same session like a follow-up turn
+            int prefix = LlamaModel.INITIAL_CACHE_POSITIONS + 4;
+            LlamaModel.Session batched = model.newSession();
+            for (int pos = 0; pos < prefix; pos += LlamaModel.BATCH_SIZE) {
+                model.forward(batched, tokens, pos, Math.min(LlamaModel.BATCH_SIZE, prefix - pos), pos);
+            }
+            LlamaModel.Session resumed = model.newSession();
+            resumed.copyPrefixFrom(batched, prefix);
+            float[] actual = model.forward(resumed, tokens, prefix, tokens.length - prefix, prefix);
+
+            assertEquals(tokens.length, resumed.length);
+            assertEquals(tokens.length, resumed.commonPrefix(tokens, tokens.length));
+            for (int i = 0; i < VOCAB; i++) {
+                assertEquals(expected[i], actual[i], 1e-3f, "logit " + i);
+            }
+            model.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Quantized dot products should match the dequantized weights")
+    void shouldMatchDequantizedWeights() throws IOException {
+        Path path = writeTinyModel();
+        List<Kernels> kernels = new ArrayList<>(List.of(new ScalarKernels()));
+        Kernels best = Kernels.create();
+        if (!(best instanceof ScalarKernels)) {
+            kernels.add(best);
+        }
+
+        try (GGUFFile file = GGUFFile.open(path)) {
+            float[] x = randomVector(HIDDEN);
+            for (String name : List.of("blk.0.attn_q.weight", "blk.0.attn_k.weight", "blk.0.ffn_down.weight")) {
+                GGMLTensor tensor = file.requireTensor(name);
+                float[] row = new float[tensor.getCols()];
+                byte[] bytes = new byte[tensor.getRowBytes()];
+                for (int r = 0; r < tensor.getRows(); r++) {
+                    tensor.dequantizeRow(r, row, 0);
+                    float expected = new ScalarKernels().dot(row, 0, x, 0, tensor.getCols());
+                    for (Kernels k : kernels) {
+                        assertEquals(expected, tensor.dot(r, x, k, bytes, row.clone()), 1e-3f,
+                            name + " row " + r + " with " + k.describe());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Tokenizer should apply merges in rank order and decode back to the text")
+    void shouldEncodeAndDecode() {
+        List<String> vocab = new ArrayList<>();
+        for (int b = 0; b < 256; b++) {
+            vocab.add(String.valueOf(byteChar(b)));
+        }
+        vocab.addAll(List.of("he", "ll", "hell", "hello", "\u0120w", "\u0120wo"));
+        String[] merges = {"h e", "l l", "he ll", "hell o", "\u0120 w", "\u0120w o"};
+        Tokenizer tokenizer = new Tokenizer(vocab.toArray(String[]::new), merges, new int[0]);
+
+        List<Integer> tokens = new ArrayList<>();
+        tokenizer.encode("hello world", tokens);
+
+        assertEquals(vocab.indexOf("hello"), (int) tokens.get(0));
+        assertEquals(vocab.indexOf("\u0120wo"), (int) tokens.get(1));
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        tokens.forEach(token -> decoded.writeBytes(tokenizer.decode(token)));
+        assertEquals("hello world", decoded.toString(StandardCharsets.UTF_8));
+
+        byte[] partial = "h\u00e9".getBytes(StandardCharsets.UTF_8);
+        assertEquals(1, Tokenizer.completeUtf8Length(partial, 2));
+        assertEquals(3, Tokenizer.completeUtf8Length(partial, 3));
+    }
+
+    /**
+     * GPT-2's byte-to-character mapping (space becomes Ġ)
+     */
+    private static char byteChar(int b) {
+        if ((b >= '!' && b <= '~') || (b >= 0xA1 && b <= 0xAC) || (b >= 0xAE && b <= 0xFF)) {
+            return (char) b;
+        }
+        int n = 0;
+        for (int i = 0; i < b; i++) {
+            if (!((i >= '!' && i <= '~') || (i >= 0xA1 && i <= 0xAC) || (i >= 0xAE && i <= 0xFF))) {
+                n++;
+            }
+        }
+        return (char) (256 + n);
+    }
+
+    private float[] randomVector(int size) {
+        float[] values = new float[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = (float) random.nextGaussian() * 0.2f;
+        }
+        return values;
+    }
+
+    // --- Minimal GGUF writer ---
+
+    private record Tensor(String name, long[] dims, GGMLType type, byte[] data) {}
+
+    private Path writeTinyModel() throws IOException {
+        int headSize = DIM / HEADS;
+        int kvDim = KV_HEADS * headSize;
+        List<Tensor> tensors = new ArrayList<>();
+        tensors.add(tensor("token_embd.weight", DIM, VOCAB, GGMLType.F32));
+        for (int l = 0; l < LAYERS; l++) {
+            String p = "blk." + l + ".";
+            tensors.add(norm(p + "attn_norm.weight"));
+            tensors.add(tensor(p + "attn_q.weight", DIM, DIM, GGMLType.Q8_0));
+            tensors.add(tensor(p + "attn_k.weight", DIM, kvDim, GGMLType.Q4_0));
+            tensors.add(tensor(p + "attn_v.weight", DIM, kvDim, GGMLType.F16));
+            tensors.add(tensor(p + "attn_output.weight", DIM, DIM, GGMLType.F32));
+            tensors.add(norm(p + "ffn_norm.weight"));
+            tensors.add(tensor(p + "ffn_gate.weight", DIM, HIDDEN, GGMLType.F32));
+            tensors.add(tensor(p + "ffn_up.weight", DIM, HIDDEN, GGMLType.F32));
+            tensors.add(tensor(p + "ffn_down.weight", HIDDEN, DIM, GGMLType.Q8_0));
+        }
+        tensors.add(norm("output_norm.weight"));
+
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("general.architecture", "llama");
+        metadata.put("llama.embedding_length", DIM);
+        metadata.put("llama.feed_forward_length", HIDDEN);
+        metadata.put("llama.block_count", LAYERS);
+        metadata.put("llama.attention.head_count", HEADS);
+        metadata.put("llama.attention.head_count_kv", KV_HEADS);
+        metadata.put("llama.context_length", 128);
+
+        ByteBuffer out = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(0x46554747).putInt(3).putLong(tensors.size()).putLong(metadata.size());
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            putString(out, entry.getKey());
+            if (entry.getValue() instanceof String value) {
+                out.putInt(8);
+                putString(out, value);
+            } else {
+                out.putInt(4).putInt((Integer) entry.getValue());
+            }
+        }
+        long offset = 0;
+        for (Tensor tensor : tensors) {
+            putString(out, tensor.name());
+            out.putInt(tensor.dims().length);
+            for (long dim : tensor.dims()) {
+                out.putLong(dim);
+            }
+            out.putInt(typeId(tensor.type())).putLong(offset);
+            offset += align(tensor.data().length);
+        }
+        out.position((int) align(out.position()));
+        for (Tensor tensor : tensors) {
+            int start = out.position();
+            out.put(tensor.data());
+            out.position(start + (int) align(tensor.data().length));
+        }
+
+        Path path = tempDir.resolve("tiny.gguf");
+        Files.write(path, java.util.Arrays.copyOf(out.array(), out.position()));
+        return path;
+    }
+
+    private static long align(long value) {
+        return (value + 31) / 32 * 32;
+    }
+
+    private static int typeId(GGMLType type) {
+        return switch (type) {
+            case F32 -> 0;
+            case F16 -> 1;
+            case Q4_0 -> 2;
+            case Q8_0 -> 8;
+        };
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putLong(bytes.length).put(bytes);
+    }
+
+    private Tensor norm(String name) {
+        float[] values = new float[DIM];
+        java.util.Arrays.fill(values, 1f);
+        return new Tensor(name, new long[] {DIM}, GGMLType.F32, encode(values, GGMLType.F32));
+    }
+
+    private Tensor tensor(String name, int cols, int rows, GGMLType type) {
+        return new Tensor(name, new long[] {cols, rows}, type, encode(randomVector(cols * rows), type));
+    }
+
+    private static byte[] encode(float[] values, GGMLType type) {
+        ByteBuffer out = ByteBuffer.allocate((int) type.byteSize(values.length)).order(ByteOrder.LITTLE_ENDIAN);
+        switch (type) {
+            case F32 -> {
+                for (float value : values) {
+                    out.putFloat(value);
+                }
+            }
+            case F16 -> {
+                for (float value : values) {
+                    out.putShort(Float.floatToFloat16(value));
+                }
+            }
+            case Q8_0 -> {
+                for (int block = 0; block < values.length / 32; block++) {
+                    float max = 0;
+                    for (int j = 0; j < 32; j++) {
+                        max = Math.max(max, Math.abs(values[block * 32 + j]));
+                    }
+                    float scale = max / 127f;
+                    out.putShort(Float.floatToFloat16(scale));
+                    for (int j = 0; j < 32; j++) {
+                        out.put((byte) Math.round(values[block * 32 + j] / scale));
+                    }
+                }
+            }
+            case Q4_0 -> {
+                for (int block = 0; block < values.length / 32; block++) {
+                    float max = 0;
+                    for (int j = 0; j < 32; j++) {
+                        max = Math.max(max, Math.abs(values[block * 32 + j]));
+                    }
+                    float scale = max / 7f;
+                    out.putShort(Float.floatToFloat16(scale));
+                    for (int j = 0; j < 16; j++) {
+                        int low = Math.max(0, Math.min(15, Math.round(values[block * 32 + j] / scale) + 8));
+                        int high = Math.max(0, Math.min(15, Math.round(values[block * 32 + 16 + j] / scale) + 8));
+                        out.put((byte) (low | high << 4));
+                    }
+                }
+            }
+        }
+        return out.array();
+    }
+}
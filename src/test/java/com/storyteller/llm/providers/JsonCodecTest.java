@@ -0,0 +1,52 @@
+package com.storyteller.llm.providers;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.*;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for JsonCodec
+ */
+class JsonCodecTest {
+
+    @Test
+    @DisplayName("Paths should skip other members and enter arrays at their first element")
+    void shouldReadFieldAtPath() {
+        String chunk = "{\"id\":\"x\",\"meta\":{\"content\":\"no\"},\"choices\":[{\"index\":0,"
+            + "\"delta\":{\"role\":\"assistant\",\"content\":\"Well met\\n\"}},{\"delta\":{\"content\":\"second\"}}]}";
+
+        assertEquals("Well met\n", JsonCodec.read(chunk, "choices", "delta", "content"));
+        assertEquals("x", JsonCodec.read(chunk, "id"));
+        assertEquals("{\"content\":\"no\"}", JsonCodec.read(chunk, "meta"));
+    }
+
+    @Test
+    @DisplayName("Missing fields, JSON null and unexpected shapes should read as null")
+    void shouldReturnNullWhenAbsent() {
+        assertNull(JsonCodec.read("{\"choices\":[{\"delta\":{\"content\":null}}]}", "choices", "delta", "content"));
+        assertNull(JsonCodec.read("{\"choices\":[]}", "choices", "delta", "content"));
+        assertNull(JsonCodec.read("{\"message\":\"text\"}", "message", "content"));
+        assertNull(JsonCodec.read("{\"type\":\"ping\"}", "delta", "text"));
+    }
+
+    @Test
+    @DisplayName("Written bodies should be valid UTF-8 JSON that reads back from the bytes")
+    void shouldRoundTripUtf8() {
+        String text = "\"Ärger\" im Dorf 🐉\n";
+        byte[] body = JsonCodec.write(json -> {
+            json.beginObject();
+            json.name("content").value(text);
+            json.name("max_tokens").value(150);
+            json.endObject();
+        });
+
+        JsonObject parsed = JsonParser.parseString(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+        assertEquals(text, parsed.get("content").getAsString());
+        assertEquals(150, parsed.get("max_tokens").getAsInt());
+        assertEquals(text, JsonCodec.read(body, "content"));
+    }
+}
@@ -0,0 +1,279 @@
+package com.storyteller.loadtest;
+
+import com.storyteller.llm.LLMManager;
+import com.storyteller.llm.LLMProvider.ChatMessage;
+import com.storyteller.llm.LLMRequest;
+import com.storyteller.llm.LLMRequestRejectedException;
+import com.storyteller.npc.ConversationHistory;
+import com.storyteller.npc.NPCCharacter;
+import com.storyteller.npc.NPCRequestBuilder;
+import com.storyteller.npc.knowledge.KnowledgeManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives simulated players against NPC prompt pipelines through a real {@link LLMManager},
+ * and reports latency percentiles and throughput.
+ *
+ * Each turn builds the request with the same {@link NPCRequestBuilder} as
+ * {@code StorytellerNPC.processPlayerMessage}, so prompt assembly, knowledge retrieval, budgeting,
+ * scheduling, limiting and the provider's HTTP and stream parsing are all on the measured path.
+ * World, event and quest context need a running server, so fixed stand-ins of a similar size are
+ * used; every other player has a quest from the NPC.
+ */
+public class LoadHarness {
+
+    private static final String[] PLAYER_LINES = {
+        "Hello there!",
+        "What is this place?",
+        "Do you know anything about the ruins to the north?",
+        "I'm looking for work. Do you have any tasks for me?",
+        "Tell me about yourself.",
+        "Have you seen any strange creatures around here lately? The villagers seem scared.",
+        "Thanks!",
+        "Where can I find iron?",
+        "What happened to the old king? I heard rumors in the tavern but nobody would say more.",
+        "Goodbye for now."
+    };
+
+    private static final String WORLD_PROMPT = """
+        ## Current World State
+        - Location: plains biome in overworld
+        - Time: evening
+        - Weather: clear
+        - Speaking with: Player
+        - The player appears somewhat injured
+        - Nearby: village, ruined portal
+        - Player is holding: Iron Sword and Shield
+        """;
+    private static final String EVENTS = """
+        ## Recent Player Activity (react naturally if relevant)
+        - Killed a Zombie
+        - Earned the advancement "Acquire Hardware"
+        """;
+    private static final String QUESTS = """
+        ## Active Quests You Gave This Player
+        - Slay 5 skeletons near the ruins (Progress: 2/5)
+        """;
+    // Knowledge entries some of the player lines will match
+    private static final String KNOWLEDGE = """
+        {"entries": [
+          {"id": "ruins", "category": "places", "keywords": ["ruins", "north"],
+           "content": "The ruins to the north were a watchtower of the old kingdom, abandoned after the siege."},
+          {"id": "iron", "category": "resources", "keywords": ["iron", "ore", "mine"],
+           "content": "Iron is found in the caves below the eastern hills; the smith buys any surplus."},
+          {"id": "king", "category": "history", "keywords": ["king", "rumors"],
+           "content": "The old king vanished on a hunt twenty winters ago and was never found."},
+          {"id": "creatures", "category": "dangers", "keywords": ["creatures", "strange", "scared"],
+           "content": "Since the last full moon, pale spiders have been seen at the forest edge after dark."},
+          {"id": "work", "category": "practical", "keywords": ["work", "tasks", "job"],
+           "content": "The miller pays in bread for anyone who clears the rats from the granary."}
+        ]}
+        """;
+
+    private final LLMManager manager;
+    private final List<Npc> npcs = new ArrayList<>();
+
+    private record Npc(UUID id, NPCCharacter character) {}
+
+    /**
+     * @param characterCount Number of distinct NPCs the players are spread over
+     */
+    public LoadHarness(LLMManager manager, int characterCount) {
+        this.manager = manager;
+        for (int i = 0; i < characterCount; i++) {
+            NPCCharacter character = NPCCharacter.createDefault();
+            character.setId("loadtest-" + i);
+            character.setName(character.getName() + " " + (i + 1));
+            npcs.add(new Npc(UUID.randomUUID(), character));
+        }
+        loadKnowledge();
+    }
+
+    private void loadKnowledge() {
+        try {
+            Path configDir = Files.createTempDirectory("storyteller-loadtest");
+            Path knowledgeDir = Files.createDirectories(configDir.resolve("knowledge"));
+            for (Npc npc : npcs) {
+                Files.writeString(knowledgeDir.resolve(npc.character().getId() + ".json"), KNOWLEDGE);
+            }
+            KnowledgeManager.loadAll(configDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Run every player's conversation to the end
+     *
+     * @param players Simulated players, all starting at once
+     * @param turns Messages each player sends, one after the other
+     * @param thinkMillis Pause between receiving a reply and sending the next message
+     * @param seed Seed for what the players say
+     */
+    public LoadReport run(int players, int turns, long thinkMillis, long seed) throws InterruptedException {
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Long> firstTokens = new ConcurrentLinkedQueue<>();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong tokens = new AtomicLong();
+
+        long start = System.nanoTime();
+        try (ExecutorService playerThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>();
+            for (int p = 0; p < players; p++) {
+                Npc npc = npcs.get(p % npcs.size());
+                UUID playerId = UUID.randomUUID();
+                Random random = new Random(seed + p);
+                boolean onQuest = p % 2 == 0;
+                running.add(playerThreads.submit(() -> {
+                    for (int turn = 0; turn < turns; turn++) {
+                        String message = PLAYER_LINES[random.nextInt(PLAYER_LINES.length)];
+                        Turn result = talk(npc, playerId, message, onQuest);
+                        switch (result.outcome()) {
+                            case OK -> {
+                                latencies.add(result.latencyNanos());
+                                if (result.firstTokenNanos() >= 0) {
+                                    firstTokens.add(result.firstTokenNanos());
+                                }
+                                tokens.addAndGet(result.tokens());
+                            }
+                            case REJECTED -> rejected.incrementAndGet();
+                            case FAILED -> failed.incrementAndGet();
+                        }
+                        if (thinkMillis > 0) {
+                            Thread.sleep(thinkMillis);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : running) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        for (Npc npc : npcs) {
+            ConversationHistory.clearNPCHistory(npc.id());
+        }
+        return new LoadReport(players, latencies.size(), rejected.get(), failed.get(), tokens.get(), elapsed,
+            Percentiles.of(latencies), Percentiles.of(firstTokens));
+    }
+
+    private enum Outcome { OK, REJECTED, FAILED }
+
+    private record Turn(Outcome outcome, long latencyNanos, long firstTokenNanos, int tokens) {}
+
+    /**
+     * One player message and the NPC's reply, as {@code StorytellerNPC} would send it
+     */
+    private Turn talk(Npc npc, UUID playerId, String message, boolean onQuest) {
+        List<ChatMessage> history = new ArrayList<>(ConversationHistory.getHistory(npc.id(), playerId));
+        ChatMessage userMessage = new ChatMessage(ChatMessage.Role.USER, message);
+        history.add(userMessage);
+
+        long start = System.nanoTime();
+        AtomicLong firstToken = new AtomicLong(-1);
+        AtomicInteger chunks = new AtomicInteger();
+        String reply;
+        try {
+            LLMRequest request = new NPCRequestBuilder(npc.character(), npc.id(), playerId, history, message, false)
+                .world(WORLD_PROMPT)
+                .events(EVENTS)
+                .quests(onQuest ? QUESTS : null, List.of())
+                .buildAsync()
+                .join()
+                .onToken(chunk -> {
+                    firstToken.compareAndSet(-1, System.nanoTime() - start);
+                    chunks.incrementAndGet();
+                });
+            reply = manager.submit(request).get(2, TimeUnit.MINUTES);
+        } catch (Exception e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            return new Turn(cause instanceof LLMRequestRejectedException ? Outcome.REJECTED : Outcome.FAILED, 0, -1, 0);
+        }
+        long latency = System.nanoTime() - start;
+
+        ConversationHistory.addMessage(npc.id(), playerId, userMessage);
+        ConversationHistory.addMessage(npc.id(), playerId, new ChatMessage(ChatMessage.Role.ASSISTANT, reply));
+        ConversationHistory.incrementConversationCount(npc.id(), playerId);
+        return new Turn(Outcome.OK, latency, firstToken.get(), chunks.get());
+    }
+
+    /**
+     * Nearest-rank percentiles of a set of durations, in milliseconds
+     */
+    public record Percentiles(double p50, double p95, double p99, double max) {
+
+        static Percentiles of(ConcurrentLinkedQueue<Long> nanos) {
+            long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+            if (sorted.length == 0) {
+                return new Percentiles(0, 0, 0, 0);
+            }
+            return new Percentiles(rank(sorted, 0.50), rank(sorted, 0.95), rank(sorted, 0.99),
+                sorted[sorted.length - 1] / 1e6);
+        }
+
+        private static double rank(long[] sorted, double quantile) {
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("p50 %.0fms, p95 %.0fms, p99 %.0fms, max %.0fms", p50, p95, p99, max);
+        }
+    }
+
+    /**
+     * Results of one run
+     *
+     * @param completed Replies received
+     * @param rejected Requests turned away by the scheduler (rate limit or full queue)
+     * @param failed Requests that failed, e.g. no provider could answer
+     * @param tokens Streamed chunks received across all replies
+     */
+    public record LoadReport(int players, int completed, int rejected, int failed, long tokens, long elapsedNanos,
+                             Percentiles latency, Percentiles firstToken) {
+
+        public double requestsPerSecond() {
+            return completed / (elapsedNanos / 1e9);
+        }
+
+        public double tokensPerSecond() {
+            return tokens / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.join("\n", Arrays.asList(
+                String.format("%d players: %d replies, %d rejected, %d failed in %.1fs",
+                    players, completed, rejected, failed, elapsedNanos / 1e9),
+                String.format("  throughput:  %.2f replies/s, %.0f tokens/s", requestsPerSecond(), tokensPerSecond()),
+                "  latency:     " + latency,
+                "  first token: " + firstToken
+            ));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.storyteller.loadtest;
+
+import com.storyteller.config.ModConfig;
+import com.storyteller.llm.LLMManager;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Capacity runs against the mock LLM server; no network or GPU needed.
+ *
+ * Excluded from {@code gradle test}. Run with {@code ./gradlew loadTest}, sizing the run with
+ * {@code -Dload.players=64 -Dload.characters=8 -Dload.turns=5 -Dload.thinkMillis=500 -Dload.seed=1}.
+ */
+@Tag("load")
+class LoadTest {
+
+    private static final int PLAYERS = Integer.getInteger("load.players", 32);
+    private static final int CHARACTERS = Integer.getInteger("load.characters", 4);
+    private static final int TURNS = Integer.getInteger("load.turns", 3);
+    private static final long THINK_MILLIS = Long.getLong("load.thinkMillis", 250);
+    private static final long SEED = Long.getLong("load.seed", 1);
+
+    private LLMManager manager;
+
+    @AfterEach
+    void tearDown() {
+        if (manager != null) {
+            manager.shutdown();
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @EnumSource(value = ModConfig.LLMProvider.class, names = {"OLLAMA", "CLAUDE", "OPENAI"})
+    @DisplayName("Every simulated player should get all replies through the provider's HTTP path")
+    void shouldServeAllPlayers(ModConfig.LLMProvider provider) throws Exception {
+        MockLLMServer.Profile profile = provider == ModConfig.LLMProvider.OLLAMA
+            ? MockLLMServer.Profile.localGpu()
+            : MockLLMServer.Profile.hostedApi();
+
+        try (MockLLMServer server = MockLLMServer.start(profile, SEED)) {
+            String url = server.getBaseUrl();
+            TestConfig.load(Map.of(
+                "llm.provider", provider.name(),
+                "llm.failover", false,
+                "llm.ollama.endpoint", url,
+                "llm.ollama.model", "mock",
+                "llm.claude.endpoint", url,
+                "llm.claude.apiKey", "mock-key",
+                "llm.openai.endpoints", List.of(url + "/v1"),
+                "llm.openai.apiKey", "mock-key",
+                "ratelimit.maxMessagesPerMinute", 0,
+                "ratelimit.maxQueuedRequests", 1024
+            ));
+
+            manager = new LLMManager();
+            manager.initialize();
+            await().atMost(30, TimeUnit.SECONDS).until(manager::isAvailable);
+
+            LoadHarness harness = new LoadHarness(manager, CHARACTERS);
+            LoadHarness.LoadReport report = harness.run(PLAYERS, TURNS, THINK_MILLIS, SEED);
+
+            System.out.println("[" + provider.getDisplayName() + "] " + report
+                + "\n  peak concurrent requests at the server: " + server.getPeakConcurrency());
+
+            assertEquals(0, report.failed(), "failed requests");
+            assertEquals(PLAYERS * TURNS, report.completed() + report.rejected());
+            assertTrue(report.firstToken().p50() <= report.latency().p50(),
+                "first token should arrive before the reply completes");
+        }
+    }
+}
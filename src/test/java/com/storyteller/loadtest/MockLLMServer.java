@@ -0,0 +1,368 @@
+package com.storyteller.loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local stand-in for an LLM server that speaks the Ollama, Anthropic and OpenAI wire formats,
+ * streaming and non-streaming, with simulated time to first token and token rate.
+ *
+ * Replies are deterministic: the random source for each request is seeded from the server seed
+ * and the request body, so the same prompt always gets the same reply and latency.
+ *
+ * <ul>
+ *   <li>Ollama: {@code GET /api/tags}, {@code POST /api/chat} (base URL is {@link #getBaseUrl()})</li>
+ *   <li>Anthropic: {@code POST /v1/messages} (base URL is {@link #getBaseUrl()})</li>
+ *   <li>OpenAI: {@code POST /v1/chat/completions} (base URL is {@link #getBaseUrl()} + "/v1")</li>
+ * </ul>
+ */
+public class MockLLMServer implements AutoCloseable {
+
+    private static final Gson GSON = new Gson();
+    private static final String[] WORDS = {
+        "the", "old", "road", "winds", "past", "ancient", "ruins", "where", "travelers", "rest",
+        "beneath", "silver", "moon", "and", "whisper", "of", "forgotten", "kings", "so", "listen",
+        "well", "young", "one", "for", "danger", "waits", "in", "shadows", "near", "village"
+    };
+
+    /**
+     * A latency distribution in milliseconds
+     */
+    @FunctionalInterface
+    public interface Distribution {
+        double sample(SplittableRandom random);
+
+        static Distribution fixed(double millis) {
+            return random -> millis;
+        }
+
+        static Distribution uniform(double minMillis, double maxMillis) {
+            return random -> minMillis + random.nextDouble() * (maxMillis - minMillis);
+        }
+
+        /**
+         * Long-tailed, like real inference servers under load
+         */
+        static Distribution logNormal(double medianMillis, double sigma) {
+            return random -> medianMillis * Math.exp(sigma * random.nextGaussian());
+        }
+    }
+
+    /**
+     * How the simulated model behaves
+     *
+     * @param firstToken Time from request to the first token (prompt processing)
+     * @param tokensPerSecond Generation rate after the first token
+     * @param minTokens Shortest reply
+     * @param maxTokens Longest reply
+     */
+    public record Profile(Distribution firstToken, double tokensPerSecond, int minTokens, int maxTokens) {
+
+        /**
+         * A small local model on a consumer GPU
+         */
+        public static Profile localGpu() {
+            return new Profile(Distribution.logNormal(250, 0.4), 40, 20, 60);
+        }
+
+        /**
+         * A hosted API: slower to start, faster to generate
+         */
+        public static Profile hostedApi() {
+            return new Profile(Distribution.logNormal(600, 0.5), 80, 20, 60);
+        }
+
+        /**
+         * No delays, for tests that only check the wire format
+         */
+        public static Profile instant() {
+            return new Profile(Distribution.fixed(0), Double.POSITIVE_INFINITY, 5, 10);
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Profile profile;
+    private final long seed;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peakActive = new AtomicInteger();
+
+    private MockLLMServer(Profile profile, long seed) throws IOException {
+        this.profile = profile;
+        this.seed = seed;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/api/tags", exchange -> respond(exchange, this::handleTags));
+        server.createContext("/api/chat", exchange -> respond(exchange, this::handleOllamaChat));
+        server.createContext("/v1/messages", exchange -> respond(exchange, this::handleAnthropicMessages));
+        server.createContext("/v1/chat/completions", exchange -> respond(exchange, this::handleOpenAIChat));
+        server.start();
+    }
+
+    /**
+     * Start a server on a free loopback port
+     */
+    public static MockLLMServer start(Profile profile, long seed) throws IOException {
+        return new MockLLMServer(profile, seed);
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Chat requests served so far (not counting {@code /api/tags})
+     */
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Most chat requests that were being generated at the same time
+     */
+    public int getPeakConcurrency() {
+        return peakActive.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // --- Handlers ---
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    private void respond(HttpExchange exchange, Handler handler) throws IOException {
+        try (exchange) {
+            handler.handle(exchange);
+        } catch (IOException e) {
+            // The client hung up (cancelled request); nothing to do
+        }
+    }
+
+    private void handleTags(HttpExchange exchange) throws IOException {
+        sendJson(exchange, "{\"models\":[{\"name\":\"mock:latest\"}]}");
+    }
+
+    private void handleOllamaChat(HttpExchange exchange) throws IOException {
+        Reply reply = startReply(exchange);
+        try {
+            if (!reply.stream) {
+                reply.await(reply.tokens.size());
+                JsonObject body = new JsonObject();
+                body.addProperty("model", reply.model);
+                body.add("message", message(String.join("", reply.tokens)));
+                body.addProperty("done", true);
+                sendJson(exchange, GSON.toJson(body));
+                return;
+            }
+
+            OutputStream out = startStream(exchange, "application/x-ndjson");
+            for (int i = 0; i < reply.tokens.size(); i++) {
+                reply.await(i + 1);
+                JsonObject chunk = new JsonObject();
+                chunk.addProperty("model", reply.model);
+                chunk.add("message", message(reply.tokens.get(i)));
+                chunk.addProperty("done", false);
+                write(out, GSON.toJson(chunk) + "\n");
+            }
+            write(out, "{\"model\":\"" + reply.model + "\",\"message\":{\"role\":\"assistant\",\"content\":\"\"},\"done\":true}\n");
+        } finally {
+            reply.finish();
+        }
+    }
+
+    private void handleAnthropicMessages(HttpExchange exchange) throws IOException {
+        Reply reply = startReply(exchange);
+        try {
+            if (!reply.stream) {
+                reply.await(reply.tokens.size());
+                JsonObject text = new JsonObject();
+                text.addProperty("type", "text");
+                text.addProperty("text", String.join("", reply.tokens));
+                JsonArray content = new JsonArray();
+                content.add(text);
+                JsonObject body = new JsonObject();
+                body.addProperty("type", "message");
+                body.addProperty("role", "assistant");
+                body.addProperty("model", reply.model);
+                body.add("content", content);
+                sendJson(exchange, GSON.toJson(body));
+                return;
+            }
+
+            OutputStream out = startStream(exchange, "text/event-stream");
+            write(out, "event: message_start\ndata: {\"type\":\"message_start\"}\n\n");
+            write(out, "event: content_block_start\ndata: {\"type\":\"content_block_start\",\"index\":0}\n\n");
+            for (int i = 0; i < reply.tokens.size(); i++) {
+                reply.await(i + 1);
+                JsonObject delta = new JsonObject();
+                delta.addProperty("type", "text_delta");
+                delta.addProperty("text", reply.tokens.get(i));
+                JsonObject event = new JsonObject();
+                event.addProperty("type", "content_block_delta");
+                event.addProperty("index", 0);
+                event.add("delta", delta);
+                write(out, "event: content_block_delta\ndata: " + GSON.toJson(event) + "\n\n");
+            }
+            write(out, "event: content_block_stop\ndata: {\"type\":\"content_block_stop\",\"index\":0}\n\n");
+            write(out, "event: message_stop\ndata: {\"type\":\"message_stop\"}\n\n");
+        } finally {
+            reply.finish();
+        }
+    }
+
+    private void handleOpenAIChat(HttpExchange exchange) throws IOException {
+        Reply reply = startReply(exchange);
+        try {
+            if (!reply.stream) {
+                reply.await(reply.tokens.size());
+                JsonObject choice = new JsonObject();
+                choice.addProperty("index", 0);
+                choice.add("message", message(String.join("", reply.tokens)));
+                choice.addProperty("finish_reason", "stop");
+                sendJson(exchange, GSON.toJson(completion(reply.model, choice)));
+                return;
+            }
+
+            OutputStream out = startStream(exchange, "text/event-stream");
+            for (int i = 0; i < reply.tokens.size(); i++) {
+                reply.await(i + 1);
+                JsonObject delta = new JsonObject();
+                delta.addProperty("content", reply.tokens.get(i));
+                JsonObject choice = new JsonObject();
+                choice.addProperty("index", 0);
+                choice.add("delta", delta);
+                write(out, "data: " + GSON.toJson(completion(reply.model, choice)) + "\n\n");
+            }
+            write(out, "data: [DONE]\n\n");
+        } finally {
+            reply.finish();
+        }
+    }
+
+    // --- Simulation ---
+
+    /**
+     * One reply being generated; tracks when each token is due
+     */
+    private final class Reply {
+        final String model;
+        final boolean stream;
+        final List<String> tokens = new ArrayList<>();
+        final long start = System.nanoTime();
+        final long firstTokenNanos;
+        final double nanosPerToken;
+
+        Reply(JsonObject request, String rawBody) {
+            this.model = request.has("model") ? request.get("model").getAsString() : "mock";
+            this.stream = request.has("stream") && request.get("stream").getAsBoolean();
+
+            SplittableRandom random = new SplittableRandom(seed ^ rawBody.hashCode());
+            this.firstTokenNanos = (long) (Math.max(0, profile.firstToken().sample(random)) * 1_000_000);
+            this.nanosPerToken = 1_000_000_000 / profile.tokensPerSecond();
+
+            int count = profile.minTokens() + random.nextInt(profile.maxTokens() - profile.minTokens() + 1);
+            count = Math.min(count, requestedMaxTokens(request));
+            for (int i = 0; i < count; i++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                tokens.add(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : " " + word);
+            }
+            if (!tokens.isEmpty()) {
+                tokens.set(tokens.size() - 1, tokens.get(tokens.size() - 1) + ".");
+            }
+        }
+
+        /**
+         * Sleep until the given number of tokens would have been generated
+         */
+        void await(int tokenCount) {
+            long due = start + firstTokenNanos + (long) (nanosPerToken * Math.max(0, tokenCount - 1));
+            long remaining;
+            while ((remaining = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+
+        void finish() {
+            active.decrementAndGet();
+        }
+    }
+
+    private Reply startReply(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        JsonObject request = body.isBlank() ? new JsonObject() : GSON.fromJson(body, JsonObject.class);
+        Reply reply = new Reply(request, body);
+        requests.incrementAndGet();
+        peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        return reply;
+    }
+
+    private static int requestedMaxTokens(JsonObject request) {
+        if (request.has("max_tokens")) {
+            return request.get("max_tokens").getAsInt();
+        }
+        if (request.has("options") && request.getAsJsonObject("options").has("num_predict")) {
+            return request.getAsJsonObject("options").get("num_predict").getAsInt();
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private static JsonObject message(String content) {
+        JsonObject message = new JsonObject();
+        message.addProperty("role", "assistant");
+        message.addProperty("content", content);
+        return message;
+    }
+
+    private static JsonObject completion(String model, JsonObject choice) {
+        JsonArray choices = new JsonArray();
+        choices.add(choice);
+        JsonObject body = new JsonObject();
+        body.addProperty("object", "chat.completion");
+        body.addProperty("model", model);
+        body.add("choices", choices);
+        return body;
+    }
+
+    private static void sendJson(HttpExchange exchange, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static OutputStream startStream(HttpExchange exchange, String contentType) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, 0); // Chunked
+        return exchange.getResponseBody();
+    }
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
@@ -0,0 +1,39 @@
+package com.storyteller.loadtest;
+
+import com.electronwill.nightconfig.core.CommentedConfig;
+import com.storyteller.config.ModConfig;
+import net.neoforged.fml.config.IConfigSpec;
+
+import java.util.Map;
+
+/**
+ * Loads {@link ModConfig#SPEC} from memory so code that reads {@code ModConfig.COMMON}
+ * can run outside the game
+ */
+final class TestConfig {
+
+    private TestConfig() {}
+
+    /**
+     * Load the defaults with some values replaced
+     *
+     * @param overrides Dotted config paths as in the TOML file, e.g. {@code "llm.ollama.endpoint"}
+     */
+    static void load(Map<String, Object> overrides) {
+        CommentedConfig config = CommentedConfig.inMemory();
+        ModConfig.SPEC.correct(config); // Fills in every default
+        overrides.forEach(config::set);
+
+        ModConfig.SPEC.acceptConfig(new IConfigSpec.ILoadedConfig() {
+            @Override
+            public CommentedConfig config() {
+                return config;
+            }
+
+            @Override
+            public void save() {
+                // Nothing to save to
+            }
+        });
+    }
+}
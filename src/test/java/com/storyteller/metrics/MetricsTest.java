@@ -0,0 +1,67 @@
+package com.storyteller.metrics;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for Histogram and the Prometheus output of Metrics
+ */
+class MetricsTest {
+
+    @AfterEach
+    void tearDown() {
+        Metrics.reset();
+    }
+
+    @Test
+    @DisplayName("Histogram quantiles should interpolate within the bucket")
+    void shouldInterpolateQuantiles() {
+        Histogram histogram = new Histogram(new double[]{1, 2, 4});
+        for (int i = 0; i < 50; i++) {
+            histogram.observe(0.5);
+        }
+        for (int i = 0; i < 50; i++) {
+            histogram.observe(3);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(175, histogram.getSum(), 1e-9);
+        assertEquals(1.0, histogram.quantile(0.5), 1e-9);
+        // 90th percentile is 40% of the way through the (2, 4] bucket's 50 observations
+        assertEquals(3.6, histogram.quantile(0.9), 1e-9);
+        assertEquals(0.0, new Histogram(new double[]{1}).quantile(0.5));
+    }
+
+    @Test
+    @DisplayName("Values past the last bound should land in +Inf and report the last bound")
+    void shouldCountOverflow() {
+        Histogram histogram = new Histogram(new double[]{1, 2});
+        histogram.observe(10);
+
+        assertArrayEquals(new long[]{0, 0, 1}, histogram.cumulativeCounts());
+        assertEquals(2.0, histogram.quantile(0.99));
+    }
+
+    @Test
+    @DisplayName("Prometheus output should have cumulative buckets per label set")
+    void shouldFormatPrometheusText() {
+        Metrics.GENERATION_TIME.observe("ollama", "merlin", 0.2);
+        Metrics.GENERATION_TIME.observe("ollama", "merlin", 3);
+        Metrics.GENERATION_TIME.observe("claude", null, 0.2);
+        Metrics.gauge("storyteller_test_gauge", "A test gauge", () -> 7);
+        Metrics.counter("storyteller_test_events", "A test counter", () -> 3);
+
+        String text = Metrics.toPrometheusText();
+
+        assertTrue(text.contains("# TYPE storyteller_generation_seconds histogram"));
+        assertTrue(text.contains("storyteller_generation_seconds_bucket{provider=\"ollama\",character=\"merlin\",le=\"0.25\"} 1"));
+        assertTrue(text.contains("storyteller_generation_seconds_bucket{provider=\"ollama\",character=\"merlin\",le=\"5\"} 2"));
+        assertTrue(text.contains("storyteller_generation_seconds_bucket{provider=\"ollama\",character=\"merlin\",le=\"+Inf\"} 2"));
+        assertTrue(text.contains("storyteller_generation_seconds_count{provider=\"ollama\",character=\"merlin\"} 2"));
+        assertTrue(text.contains("storyteller_generation_seconds_sum{provider=\"ollama\",character=\"merlin\"} 3.2"));
+        assertTrue(text.contains("storyteller_generation_seconds_count{provider=\"claude\",character=\"none\"} 1"));
+        assertTrue(text.contains("# TYPE storyteller_test_gauge gauge\nstoryteller_test_gauge 7\n"));
+        assertTrue(text.contains("# TYPE storyteller_test_events_total counter\nstoryteller_test_events_total 3\n"));
+    }
+}
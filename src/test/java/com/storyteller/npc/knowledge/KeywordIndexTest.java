@@ -0,0 +1,86 @@
+package com.storyteller.npc.knowledge;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for KeywordIndex
+ */
+class KeywordIndexTest {
+
+    @Test
+    @DisplayName("Keywords should match whole words, words containing them and words inside them")
+    void shouldKeepSubstringMatching() {
+        KeywordIndex index = new KeywordIndex(List.of(
+            new KnowledgeEntry("golem", "mobs", List.of("Iron Golem", "village"), "Golems guard villages."),
+            new KnowledgeEntry("nether", "places", List.of("nether", "portal"), "Obsidian makes a portal.")
+        ));
+
+        // "villagers" contains "village"; "golem" is inside "iron golem"
+        KeywordIndex.Scores scores = index.score(new Tokenizer().tokenize("villagers golem"));
+        assertArrayEquals(new int[]{0}, scores.entries());
+        assertArrayEquals(new int[]{2}, scores.counts());
+
+        // "port" is inside "portal"; separators match nothing
+        scores = index.score(new Tokenizer().tokenize(" - port!"));
+        assertArrayEquals(new int[]{1}, scores.entries());
+        assertArrayEquals(new int[]{1}, scores.counts());
+
+        assertEquals(0, index.score(new Tokenizer().tokenize(" dragon")).entries().length);
+    }
+
+    @Test
+    @DisplayName("Scores should equal a full scan of every entry's keywords")
+    void shouldMatchFullScan() {
+        Random random = new Random(42);
+        List<KnowledgeEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            List<String> keywords = new ArrayList<>();
+            for (int k = random.nextInt(5); k >= 0; k--) {
+                keywords.add(randomWord(random));
+            }
+            entries.add(new KnowledgeEntry("e" + i, "general", keywords, "content"));
+        }
+        KeywordIndex index = new KeywordIndex(entries);
+
+        for (int q = 0; q < 200; q++) {
+            String[] words = new String[1 + random.nextInt(4)];
+            for (int w = 0; w < words.length; w++) {
+                words[w] = randomWord(random);
+            }
+
+            int[] expected = new int[entries.size()];
+            for (int e = 0; e < entries.size(); e++) {
+                for (String keyword : entries.get(e).keywords()) {
+                    for (String word : words) {
+                        if (word.contains(keyword) || keyword.contains(word)) {
+                            expected[e]++;
+                            break;
+                        }
+                    }
+                }
+            }
+
+            int[] actual = new int[entries.size()];
+            KeywordIndex.Scores scores = index.score(new Tokenizer().tokenize(String.join(" ", words)));
+            for (int i = 0; i < scores.entries().length; i++) {
+                actual[scores.entries()[i]] = scores.counts()[i];
+            }
+            assertArrayEquals(expected, actual, () -> String.join(" ", words));
+        }
+    }
+
+    // Short words over a small alphabet, so substring matches are common
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 1 + random.nextInt(6); i > 0; i--) {
+            word.append((char) ('a' + random.nextInt(4)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,66 @@
+package com.storyteller.npc.knowledge;
+
+import com.storyteller.config.ModConfig.KnowledgeRanking;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for KnowledgeBase retrieval
+ */
+class KnowledgeBaseTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final KnowledgeBase knowledge = new KnowledgeBase("guide", List.of(
+        new KnowledgeEntry("hours", "practical", List.of("hours", "open"),
+            "We are open Monday to Friday from nine until five."),
+        new KnowledgeEntry("forge", "places", List.of(),
+            "The old forge by the river is where Brann repairs enchanted pickaxes and armour.", 3),
+        new KnowledgeEntry("river", "places", List.of("river"),
+            "The river runs past the mill and the market square.", 3)
+    ));
+
+    @Test
+    @DisplayName("BM25 should find entries by their content, without a matching keyword")
+    void shouldFindEntriesByContent() {
+        List<KnowledgeEntry> found = knowledge.retrieve("who fixes enchanted pickaxes?", 3, KnowledgeRanking.BM25, 1);
+        assertEquals(List.of("forge"), found.stream().map(KnowledgeEntry::id).toList());
+
+        assertTrue(knowledge.retrieve("who fixes enchanted pickaxes?", 3, KnowledgeRanking.KEYWORD, 1).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Keyword matches should still rank above content-only matches")
+    void keywordMatchesShouldRankFirst() {
+        List<KnowledgeEntry> found = knowledge.retrieve("where is the river", 3, KnowledgeRanking.BM25, 1);
+        assertEquals("river", found.get(0).id());
+        assertEquals(List.of("river", "forge"), found.stream().map(KnowledgeEntry::id).toList());
+    }
+
+    @Test
+    @DisplayName("Embeddings should find entries whose words only differ in form")
+    void shouldFindEntriesByMeaning() throws IOException {
+        Embedder embedder = new HashingEmbedder();
+        List<KnowledgeEntry> entries = knowledge.getEntries();
+        float[][] vectors = embedder.embed(entries.stream()
+            .map(e -> e.category() + ": " + e.content()).toList()).join();
+        knowledge.attachVectors(VectorIndex.open(
+            VectorIndex.write(tempDir.resolve("guide.vectors"), 1L, new long[entries.size()], vectors), 1L));
+        assertTrue(knowledge.hasVectors());
+
+        // No word of this matches "repairs enchanted pickaxes" exactly
+        String paraphrase = "anyone repairing a pickaxe";
+        assertTrue(knowledge.retrieve(paraphrase, 3, KnowledgeRanking.BM25, 1).isEmpty());
+
+        float[] query = embedder.embed(List.of(paraphrase)).join()[0];
+        List<KnowledgeEntry> found = knowledge.retrieve(paraphrase, 3, KnowledgeRanking.BM25, 1, query, 0.1f);
+        assertEquals("forge", found.get(0).id());
+    }
+}
@@ -0,0 +1,40 @@
+package com.storyteller.npc.knowledge;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for KnowledgeManager
+ */
+class KnowledgeManagerTest {
+
+    @Test
+    @DisplayName("Reload diffs should list added, removed and changed entries by id")
+    void shouldDescribeChanges() {
+        List<KnowledgeEntry> before = List.of(
+            new KnowledgeEntry("hours", "practical", List.of("open"), "Open nine to five."),
+            new KnowledgeEntry("forge", "places", List.of("forge"), "The forge is by the river."),
+            new KnowledgeEntry("mill", "places", List.of("mill"), "The mill grinds wheat.")
+        );
+        List<KnowledgeEntry> after = List.of(
+            new KnowledgeEntry("hours", "practical", List.of("open"), "Open nine to six."),
+            new KnowledgeEntry("forge", "places", List.of("forge"), "The forge is by the river."),
+            new KnowledgeEntry("market", "places", List.of("market"), "Market day is Friday.")
+        );
+
+        assertEquals("1 added (market), 1 removed (mill), 1 changed (hours)",
+            KnowledgeManager.describeChanges(before, after));
+        assertEquals("no entries changed", KnowledgeManager.describeChanges(before, before));
+
+        List<KnowledgeEntry> many = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            many.add(new KnowledgeEntry("e" + i, "general", List.of(), "Entry " + i));
+        }
+        assertEquals("12 added (e0, e1, e2, e3, e4, e5, e6, e7, e8, e9 and 2 more)",
+            KnowledgeManager.describeChanges(List.of(), many));
+    }
+}
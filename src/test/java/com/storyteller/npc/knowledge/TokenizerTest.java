@@ -0,0 +1,60 @@
+package com.storyteller.npc.knowledge;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for Tokenizer and TermDictionary
+ */
+class TokenizerTest {
+
+    @Test
+    @DisplayName("Words should equal the previous lowercase-and-split tokenization")
+    void shouldMatchRegexTokenization() {
+        Random random = new Random(42);
+        String alphabet = "aZ9 \t\n.,'!?-_\u00e9\u00c5\u212a\u0130";
+        Tokenizer tokenizer = new Tokenizer();
+        for (int q = 0; q < 500; q++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(40); i > 0; i--) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+
+            // Non-ASCII letters and punctuation both separate words
+            String[] expected = Arrays.stream(text.toString().toLowerCase(Locale.ROOT)
+                    .replaceAll("[^a-z0-9]", " ").split(" +"))
+                .filter(word -> !word.isEmpty())
+                .toArray(String[]::new);
+
+            tokenizer.tokenize(text);
+            List<String> actual = new ArrayList<>();
+            for (int word = 0; word < tokenizer.size(); word++) {
+                actual.add(tokenizer.word(word));
+            }
+            assertEquals(List.of(expected), actual, text::toString);
+        }
+    }
+
+    @Test
+    @DisplayName("Term ids should be found from the tokenizer's buffer")
+    void shouldLookUpTermIds() {
+        TermDictionary terms = new TermDictionary();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, terms.add("term" + i));
+        }
+        assertEquals(7, terms.add("term7"));
+        assertEquals(1000, terms.size());
+
+        Tokenizer tokenizer = new Tokenizer().tokenize("Where is TERM42, and term1000?");
+        assertEquals(-1, tokenizer.termId(0, terms));
+        assertEquals(42, tokenizer.termId(2, terms));
+        assertEquals(-1, tokenizer.termId(4, terms));
+    }
+}
@@ -0,0 +1,70 @@
+package com.storyteller.npc.knowledge;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for VectorIndex
+ */
+class VectorIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Stored vectors should reopen for the same model and search like a full scan")
+    void shouldRoundTripAndSearch() throws IOException {
+        Random random = new Random(7);
+        int count = 700; // more than one block of rows
+        int dims = 37;   // not a multiple of any vector width
+        long[] hashes = new long[count];
+        float[][] vectors = new float[count][dims];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = random.nextLong();
+            for (int d = 0; d < dims; d++) {
+                vectors[i][d] = (float) random.nextGaussian();
+            }
+            VectorIndex.normalize(vectors[i]);
+        }
+
+        Path file = VectorIndex.write(tempDir.resolve("guide.vectors"), 42L, hashes, vectors);
+        assertNull(VectorIndex.open(file, 43L), "Vectors from another model should not be reused");
+        VectorIndex index = VectorIndex.open(file, 42L);
+        assertNotNull(index);
+        assertTrue(index.holds(hashes));
+        assertArrayEquals(vectors[123], index.vector(123), 0f);
+
+        float[] query = VectorIndex.normalize(vectors[500].clone());
+        query[0] += 0.1f;
+        VectorIndex.normalize(query);
+        VectorIndex.Matches matches = index.search(query, 5);
+
+        // Expected: the 5 best by a plain scan, back in entry order
+        float[] dots = new float[count];
+        for (int i = 0; i < count; i++) {
+            for (int d = 0; d < dims; d++) {
+                dots[i] += vectors[i][d] * query[d];
+            }
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        java.util.Arrays.sort(order, (a, b) -> Float.compare(dots[b], dots[a]));
+        int[] expected = new int[5];
+        for (int i = 0; i < 5; i++) {
+            expected[i] = order[i];
+        }
+        java.util.Arrays.sort(expected);
+
+        assertArrayEquals(expected, matches.entries());
+        assertEquals(dots[order[0]], matches.best(), 1e-5f);
+        assertTrue(matches.best() > 0.9f);
+    }
+}